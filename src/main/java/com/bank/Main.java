@@ -1,18 +1,27 @@
 package com.bank;
 
+import java.io.Flushable;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.bank.business.entities.ContentionStrategy;
+import com.bank.business.events.BalanceEventBus;
+import com.bank.business.services.AccountEngineSettings;
 import com.bank.business.services.AccountService;
 import com.bank.business.services.UserService;
 import com.bank.server.config.RepositoryContainer;
 import com.bank.db.inmemory.InMemoryAccountRepository;
 import com.bank.db.inmemory.InMemoryUserRepository;
+import com.bank.db.journal.JournaledStorage;
 import com.bank.server.CustomHttpServer;
+import com.bank.server.binary.BinaryServer;
 import com.bank.server.config.Configuration;
 import com.bank.server.config.ConfigurationManager;
 import com.bank.server.config.HttpConfigurationException;
@@ -39,6 +48,15 @@ public class Main
 
         var config = ConfigurationManager.getInstance().getCurrentConfiguration();
 
+        // Checked before the journal is opened, so a refused start leaves it untouched
+        var engine = config.getServer().resolveAccountEngine();
+        if (engine.kind() == AccountEngineSettings.Kind.SHARDED && "journaled".equalsIgnoreCase(config.getStorageType()))
+        {
+            LOGGER.error("couldn't start Server:: the sharded account engine journals the two sides of a cross-shard transfer separately,"
+                    + " so a crash between them would lose the credit; use the locking engine with journaled storage");
+            System.exit(1);
+        }
+
         // --- Dependency Injection Setup ---
         var repositories = getRepositories(config);
 
@@ -51,19 +69,40 @@ public class Main
             ports = List.of(8080); // Default fallback
         }
 
-        // Create and start multiple HTTP servers
-        var threadPoolSize = 8; // You can make this configurable if needed
-        List<CustomHttpServer> servers = new ArrayList<>();
-
-        for (int port : ports)
+        // One server core binds every port and shares its threads and handlers
+        var accountService = new AccountService(repositories.accountRepository(), new BalanceEventBus(), engine);
+        accountService.setContention(ContentionStrategy.forTypes(config.getServer().getContention()));
+        var server = new CustomHttpServer(
+                ports, config.getServer(), new UserService(repositories.userRepository()), accountService);
+        server.start();
+
+        var binaryServer = config.getServer().getBinaryPort() > 0
+                ? new BinaryServer(config.getServer().getBinaryPort(), config.getServer().getBacklog(), accountService)
+                : null;
+        if (binaryServer != null)
         {
-            var server = new CustomHttpServer(
-                    port, threadPoolSize, new UserService(repositories.userRepository()), new AccountService(repositories.accountRepository()));
-            server.start();
-            servers.add(server);
-            LOGGER.info("Server started at http://localhost:{}", port);
+            binaryServer.start();
         }
 
+        // SIGTERM (and Ctrl-C) drain the servers instead of dropping requests mid-transfer
+        Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().name("shutdown-drain")
+                .unstarted(() -> drain(server, binaryServer, accountService, repositories, server.getServerConfig().getDrainTimeoutSeconds())));
+
+        // Limits and timeouts follow edits to the config file without a restart
+        var configurationManager = ConfigurationManager.getInstance();
+        configurationManager.addListener(next -> {
+            if (!Objects.equals(next.getPorts(), config.getPorts()) || !Objects.equals(next.getStorageType(), config.getStorageType())
+                    || !Objects.equals(next.getJournal(), config.getJournal()) || next.getGroupCommitMicros() != config.getGroupCommitMicros())
+            {
+                LOGGER.warn("Ports and storage settings only change on restart");
+            }
+            // Resolved first, so a bad entry rejects the file before anything is applied
+            var contention = ContentionStrategy.forTypes(next.getServer().getContention());
+            server.reconfigure(next.getServer());
+            accountService.setContention(contention);
+        });
+        configurationManager.watch(CONFIG_PATH);
+
         LOGGER.info("All servers started. Ports: {}", ports);
         LOGGER.info("Config: {}", config);
 
@@ -74,20 +113,59 @@ public class Main
         } catch (InterruptedException interruptedException)
         {
             LOGGER.info("Server interrupted, shutting down all servers...");
-            for (var server : servers)
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Drains the HTTP and binary servers side by side within {@code timeoutSeconds}, lets account shards apply what
+     * they have queued, then flushes repositories that buffer writes.
+     */
+    private static void drain(CustomHttpServer server, BinaryServer binaryServer, AccountService accountService, RepositoryContainer repositories,
+            int timeoutSeconds)
+    {
+        LOGGER.info("Shutting down, draining for up to {} s", timeoutSeconds);
+        var start = System.nanoTime();
+        var binaryDrain = binaryServer == null
+                ? CompletableFuture.completedFuture(0)
+                : CompletableFuture.supplyAsync(() -> binaryServer.drain(timeoutSeconds, TimeUnit.SECONDS));
+        var report = server.drain(timeoutSeconds, TimeUnit.SECONDS);
+        var abandonedConnections = binaryDrain.join();
+        accountService.close();
+
+        flush(repositories.userRepository());
+        flush(repositories.accountRepository());
+
+        var elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (report.complete() && abandonedConnections == 0)
+        {
+            LOGGER.info("All servers drained in {} ms", elapsedMillis);
+        } else
+        {
+            LOGGER.warn("Drain gave up after {} ms: {} HTTP requests and {} binary connections cut off", elapsedMillis, report.abandoned(),
+                    abandonedConnections);
+        }
+    }
+
+    private static void flush(Object repository)
+    {
+        if (repository instanceof Flushable flushable)
+        {
+            try
             {
-                server.stop(0);
+                flushable.flush();
+            } catch (IOException ioException)
+            {
+                LOGGER.error("Failed to flush {}: {}", repository.getClass().getSimpleName(), ioException.getMessage(), ioException);
             }
         }
-
-        LOGGER.info("All servers finished");
     }
 
     /**
      * @param config
      * @return
      */
-    private static RepositoryContainer getRepositories(Configuration config)
+    private static RepositoryContainer getRepositories(Configuration config) throws IOException
     {
         RepositoryContainer repositories;
         var storageType = config.getStorageType(); // Changed from config.getStorageConfig().getType()
@@ -98,6 +176,12 @@ public class Main
                 yield new RepositoryContainer(
                         InMemoryUserRepository.getInstance(), InMemoryAccountRepository.getInstance());
             }
+            case "journaled" -> {
+                LOGGER.info("Using In-Memory storage journaled to {}.", config.getJournal());
+                var storage = JournaledStorage.open(Path.of(config.getJournal()), config.getGroupCommitMicros(), InMemoryUserRepository.getInstance(),
+                        InMemoryAccountRepository.getInstance());
+                yield new RepositoryContainer(storage.users(), storage.accounts());
+            }
             case "database" -> {
                 // Placeholder for database setup.
                 LOGGER.info("Database storage selected. (Implementation is a placeholder)");
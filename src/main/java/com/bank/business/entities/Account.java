@@ -1,18 +1,41 @@
 package com.bank.business.entities;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigDecimal;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class Account
 {
+    private static final VarHandle BALANCE;
+    private static final VarHandle COMBINER;
+
+    static
+    {
+        try
+        {
+            var lookup = MethodHandles.lookup();
+            BALANCE = lookup.findVarHandle(Account.class, "balance", long.class);
+            COMBINER = lookup.findVarHandle(Account.class, "combiner", BalanceCombiner.class);
+        } catch (ReflectiveOperationException reflectiveOperationException)
+        {
+            throw new ExceptionInInitializerError(reflectiveOperationException);
+        }
+    }
+
     private Long id;
     private Long userId; // Foreign key to User
     private String accountNumber;
-    private AtomicReference<BigDecimal> balance;
+    // In Money minor units, updated only through BALANCE so concurrent changes compare values, not references
+    private volatile long balance;
+    // Created on the first update under ContentionStrategy.COMBINING
+    private volatile BalanceCombiner combiner;
     private AccountType type; // e.g., SAVINGS, CHECKING
+    // Bumped after every change, so a reader that takes the version before the fields never pairs a newer
+    // version with older data
+    private final AtomicLong version = new AtomicLong();
 
     private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
 
@@ -35,7 +58,7 @@ public class Account
     {
         // Account number will be generated when ID is set
         this.userId = userId;
-        this.balance = new AtomicReference<BigDecimal>(balance);
+        this.balance = Money.toMinorUnits(balance);
         this.type = type;
     }
 
@@ -43,7 +66,7 @@ public class Account
     {
         this.userId = userId;
         this.accountNumber = accountNumber;
-        this.balance = new AtomicReference<BigDecimal>(balance);
+        this.balance = Money.toMinorUnits(balance);
         this.type = type;
     }
 
@@ -56,42 +79,92 @@ public class Account
         }
     }
 
+    /**
+     * @param amount
+     * @throws ArithmeticException if the amount has more than {@value Money#SCALE} decimal places or the balance
+     *                             would overflow
+     */
     public void addAmount(BigDecimal amount)
     {
-        while (true)
+        addMinorUnits(Money.toMinorUnits(amount));
+    }
+
+    /**
+     * @param amount
+     * @return false, leaving the balance alone, if it would go negative
+     * @throws ArithmeticException if the amount has more than {@value Money#SCALE} decimal places
+     */
+    public boolean withdrawAmount(BigDecimal amount)
+    {
+        return withdrawMinorUnits(Money.toMinorUnits(amount));
+    }
+
+    /**
+     * @param minorUnits amount to add, see {@link Money}
+     * @throws ArithmeticException if the balance would overflow
+     */
+    public void addMinorUnits(long minorUnits)
+    {
+        addMinorUnits(minorUnits, ContentionStrategy.SPIN);
+    }
+
+    /**
+     * @param minorUnits amount to add, see {@link Money}
+     * @param contention how a race with other updates of this account is resolved
+     * @throws ArithmeticException if the balance would overflow
+     */
+    public void addMinorUnits(long minorUnits, ContentionStrategy contention)
+    {
+        contention.apply(this, minorUnits, Long.MIN_VALUE);
+        version.incrementAndGet();
+    }
+
+    /**
+     * @param minorUnits amount to take out, see {@link Money}
+     * @return false, leaving the balance alone, if it would go negative
+     */
+    public boolean withdrawMinorUnits(long minorUnits)
+    {
+        return withdrawMinorUnits(minorUnits, ContentionStrategy.SPIN);
+    }
+
+    /**
+     * @param minorUnits amount to take out, see {@link Money}
+     * @param contention how a race with other updates of this account is resolved
+     * @return false, leaving the balance alone, if it would go negative
+     */
+    public boolean withdrawMinorUnits(long minorUnits, ContentionStrategy contention)
+    {
+        if (!contention.apply(this, -minorUnits, 0))
         {
-            var currentBalance = this.balance.get();
-            var newBalance = currentBalance.add(amount);
-
-            if (this.balance.compareAndSet(currentBalance, newBalance))
-            {
-                return;
-            } else
-            {
-                LockSupport.parkNanos(1);
-            }
+            return false;
         }
+        version.incrementAndGet();
+        return true;
     }
 
-    public boolean withdrawAmount(BigDecimal amount)
+    boolean compareAndSetBalance(long expected, long next)
+    {
+        return BALANCE.compareAndSet(this, expected, next);
+    }
+
+    BalanceCombiner combiner()
     {
-        while (true)
+        var current = combiner;
+        if (current == null)
         {
-            var currentBalance = this.balance.get();
-            var newBalance = currentBalance.subtract(amount);
-            if (newBalance.compareTo(BigDecimal.ZERO) < 0)
-            {
-                return false;
-            }
-
-            if (this.balance.compareAndSet(currentBalance, newBalance))
-            {
-                return true;
-            } else
-            {
-                LockSupport.parkNanos(1);
-            }
+            COMBINER.compareAndSet(this, null, new BalanceCombiner());
+            current = combiner;
         }
+        return current;
+    }
+
+    /**
+     * @return a counter that increases with every change to this account
+     */
+    public long getVersion()
+    {
+        return version.get();
     }
 
     // Getters and Setters
@@ -118,6 +191,7 @@ public class Account
     public void setUserId(Long userId)
     {
         this.userId = userId;
+        version.incrementAndGet();
     }
 
     public String getAccountNumber()
@@ -128,11 +202,23 @@ public class Account
     public void setAccountNumber(String accountNumber)
     {
         this.accountNumber = accountNumber;
+        version.incrementAndGet();
     }
 
+    /**
+     * @return the balance at scale {@value Money#SCALE}
+     */
     public BigDecimal getBalance()
     {
-        return balance.get();
+        return Money.toDecimal(balance);
+    }
+
+    /**
+     * @return the balance in {@link Money} minor units, without allocating
+     */
+    public long balanceMinorUnits()
+    {
+        return balance;
     }
 
     public AccountType getType()
@@ -143,11 +229,12 @@ public class Account
     public void setType(AccountType type)
     {
         this.type = type;
+        version.incrementAndGet();
     }
 
     @Override
     public String toString()
     {
-        return "Account{" + "id=" + id + ", userId=" + userId + ", accountNumber='" + accountNumber + '\'' + ", balance=" + balance + ", type=" + type + '}';
+        return "Account{" + "id=" + id + ", userId=" + userId + ", accountNumber='" + accountNumber + '\'' + ", balance=" + Money.format(balance) + ", type=" + type + ", version=" + version + '}';
     }
 }
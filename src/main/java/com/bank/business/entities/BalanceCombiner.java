@@ -0,0 +1,133 @@
+package com.bank.business.entities;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Flat combining for one account's balance: updates are queued, and the thread that wins the combiner flag
+ * applies the whole queue to a local copy of the balance and publishes it with one compare-and-set, while the
+ * others spin on their own request instead of on the balance.
+ */
+final class BalanceCombiner
+{
+    private static final int PENDING = 0;
+    private static final int APPLIED = 1;
+    private static final int BELOW_FLOOR = 2;
+    private static final int OVERFLOW = 3;
+    // Bounds how long one thread keeps combining for others before it returns to its own caller
+    private static final int MAX_BATCH = 256;
+    // Spins before a waiter starts yielding, in case the combiner is descheduled
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private final ConcurrentLinkedQueue<Request> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean combining = new AtomicBoolean();
+    // Only touched by the thread holding the combiner flag
+    private final Request[] batch = new Request[MAX_BATCH];
+    private final int[] outcomes = new int[MAX_BATCH];
+
+    private static final class Request
+    {
+        private final long delta;
+        private final long floor;
+        private volatile int status;
+
+        private Request(long delta, long floor)
+        {
+            this.delta = delta;
+            this.floor = floor;
+        }
+    }
+
+    /**
+     * @see ContentionStrategy#apply(Account, long, long)
+     */
+    boolean apply(Account account, long delta, long floor)
+    {
+        // Uncontended: apply directly, without queueing
+        if (pending.isEmpty() && combining.compareAndSet(false, true))
+        {
+            try
+            {
+                return ContentionStrategy.SPIN.apply(account, delta, floor);
+            } finally
+            {
+                combining.set(false);
+            }
+        }
+        var request = new Request(delta, floor);
+        pending.add(request);
+        for (var attempt = 0;; attempt++)
+        {
+            if (!combining.get() && combining.compareAndSet(false, true))
+            {
+                try
+                {
+                    combine(account);
+                } finally
+                {
+                    combining.set(false);
+                }
+            }
+            var status = request.status;
+            if (status != PENDING)
+            {
+                if (status == OVERFLOW)
+                {
+                    throw new ArithmeticException("Balance overflow");
+                }
+                return status == APPLIED;
+            }
+            if (attempt < SPINS_BEFORE_YIELD)
+            {
+                Thread.onSpinWait();
+            } else
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void combine(Account account)
+    {
+        var size = 0;
+        for (Request request; size < MAX_BATCH && (request = pending.poll()) != null; size++)
+        {
+            batch[size] = request;
+        }
+        if (size == 0)
+        {
+            return;
+        }
+        while (true)
+        {
+            var current = account.balanceMinorUnits();
+            var next = current;
+            for (var i = 0; i < size; i++)
+            {
+                var request = batch[i];
+                var updated = next + request.delta;
+                if (((next ^ updated) & (request.delta ^ updated)) < 0)
+                {
+                    outcomes[i] = OVERFLOW;
+                } else if (updated < request.floor)
+                {
+                    outcomes[i] = BELOW_FLOOR;
+                } else
+                {
+                    outcomes[i] = APPLIED;
+                    next = updated;
+                }
+            }
+            // Only fails if another strategy wrote in between, after a live switch
+            if (next == current || account.compareAndSetBalance(current, next))
+            {
+                break;
+            }
+        }
+        for (var i = 0; i < size; i++)
+        {
+            batch[i].status = outcomes[i];
+            batch[i] = null;
+        }
+    }
+}
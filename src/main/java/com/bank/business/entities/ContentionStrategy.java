@@ -0,0 +1,138 @@
+package com.bank.business.entities;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How concurrent balance updates to one {@link Account} resolve their compare-and-set races. The caller picks
+ * one per update; {@code AccountService} keeps one per {@link Account.AccountType}, see {@link #forTypes(Map)}.
+ * <ul>
+ * <li>{@link #SPIN} retries at once, with {@link Thread#onSpinWait()} between attempts. Cheapest when an account
+ * is rarely hit by more than a couple of threads.</li>
+ * <li>{@link #BACKOFF} waits a random, exponentially growing number of spins after each failure, and yields
+ * once the wait is long, so a crowd of threads stops invalidating the same cache line in lockstep.</li>
+ * <li>{@link #COMBINING} queues the update and lets whichever thread gets there first apply every queued update
+ * with a single compare-and-set (flat combining), so throughput holds up on very hot accounts.</li>
+ * </ul>
+ * All of them only ever change the balance with a compare-and-set, so switching strategies while updates are
+ * running is safe.
+ * <p>
+ * A strategy only matters when updates of one account run concurrently. {@code AccountService} serializes them
+ * per account (under its write lock, or on the engine thread owning it), so there the choice has no effect;
+ * {@code ContentionBenchmark} shows the difference on unsynchronized updates.
+ */
+public enum ContentionStrategy
+{
+    SPIN
+    {
+        @Override
+        boolean apply(Account account, long delta, long floor)
+        {
+            while (true)
+            {
+                var current = account.balanceMinorUnits();
+                var next = Math.addExact(current, delta);
+                if (next < floor)
+                {
+                    return false;
+                }
+                if (account.compareAndSetBalance(current, next))
+                {
+                    return true;
+                }
+                Thread.onSpinWait();
+            }
+        }
+    },
+    BACKOFF
+    {
+        @Override
+        boolean apply(Account account, long delta, long floor)
+        {
+            var limit = 1;
+            while (true)
+            {
+                var current = account.balanceMinorUnits();
+                var next = Math.addExact(current, delta);
+                if (next < floor)
+                {
+                    return false;
+                }
+                if (account.compareAndSetBalance(current, next))
+                {
+                    return true;
+                }
+                if (limit >= MAX_BACKOFF_SPINS)
+                {
+                    Thread.yield();
+                } else
+                {
+                    limit <<= 1;
+                }
+                for (var spins = ThreadLocalRandom.current().nextInt(limit) + 1; spins > 0; spins--)
+                {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    },
+    COMBINING
+    {
+        @Override
+        boolean apply(Account account, long delta, long floor)
+        {
+            return account.combiner().apply(account, delta, floor);
+        }
+    };
+
+    private static final int MAX_BACKOFF_SPINS = 1 << 10;
+
+    /**
+     * Adds {@code delta} to the balance unless that would take it below {@code floor}.
+     *
+     * @param account
+     * @param delta   minor units, negative to take money out
+     * @param floor   lowest balance allowed afterwards, {@link Long#MIN_VALUE} for none
+     * @return false, leaving the balance alone, if it would end up below {@code floor}
+     * @throws ArithmeticException if the balance would overflow
+     */
+    abstract boolean apply(Account account, long delta, long floor);
+
+    /**
+     * @param name case-insensitive, such as {@code "spin"}
+     * @return the strategy
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static ContentionStrategy of(String name)
+    {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Resolves a configuration map such as {@code {"*": "spin", "CHECKING": "combining"}}, where {@code "*"}
+     * covers the account types without an entry of their own.
+     *
+     * @param byType strategy names by account type name or {@code "*"}; types missing from it get {@link #SPIN}
+     * @return the strategy for every account type
+     * @throws IllegalArgumentException for an unknown account type or strategy name
+     */
+    public static Map<Account.AccountType, ContentionStrategy> forTypes(Map<String, String> byType)
+    {
+        var fallback = byType.containsKey("*") ? of(byType.get("*")) : SPIN;
+        var strategies = new EnumMap<Account.AccountType, ContentionStrategy>(Account.AccountType.class);
+        for (var type : Account.AccountType.values())
+        {
+            strategies.put(type, fallback);
+        }
+        for (var entry : byType.entrySet())
+        {
+            if (!entry.getKey().equals("*"))
+            {
+                strategies.put(Account.AccountType.valueOf(entry.getKey().trim().toUpperCase(Locale.ROOT)), of(entry.getValue()));
+            }
+        }
+        return strategies;
+    }
+}
@@ -0,0 +1,150 @@
+package com.bank.business.entities;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point money: amounts are {@code long} counts of minor units (cents) at a fixed scale of {@value #SCALE}.
+ * <p>
+ * Balances are kept in this form so updating one is a primitive compare-and-set with no allocation;
+ * {@link BigDecimal} is only used at the edges that already speak it. {@link #parse} and {@link #format} convert
+ * straight between text and minor units for the JSON boundary, without going through {@link BigDecimal}.
+ */
+public final class Money
+{
+    /** Decimal places of every amount */
+    public static final int SCALE = 2;
+    private static final long MINOR_PER_UNIT = 100;
+
+    private Money()
+    {
+    }
+
+    /**
+     * @param amount
+     * @return the amount in minor units
+     * @throws ArithmeticException if the amount has more than {@value #SCALE} decimal places or does not fit
+     */
+    public static long toMinorUnits(BigDecimal amount)
+    {
+        // Exact for any scale as long as nothing is left past the second decimal place; unlike unscaledValue()
+        // this stays on BigDecimal's compact long path
+        return amount.scaleByPowerOfTen(SCALE).longValueExact();
+    }
+
+    /**
+     * @param minorUnits
+     * @return the amount as a decimal of scale {@value #SCALE}
+     */
+    public static BigDecimal toDecimal(long minorUnits)
+    {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * Parses a plain decimal such as {@code 12}, {@code -0.5} or {@code 1234.56}.
+     *
+     * @param text
+     * @return the amount in minor units
+     * @throws NumberFormatException if the text is not a plain decimal, has more than {@value #SCALE} decimal
+     *                               places or does not fit
+     */
+    public static long parse(CharSequence text)
+    {
+        var length = text.length();
+        var position = 0;
+        var negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+'))
+        {
+            negative = text.charAt(0) == '-';
+            position++;
+        }
+        // Accumulated negatively, so Long.MIN_VALUE parses without overflowing on the way
+        var value = 0L;
+        var integerDigits = 0;
+        for (; position < length && text.charAt(position) != '.'; position++)
+        {
+            value = appendDigit(value, text, position);
+            integerDigits++;
+        }
+        var fractionDigits = 0;
+        if (position < length)
+        {
+            for (position++; position < length; position++, fractionDigits++)
+            {
+                if (fractionDigits == SCALE)
+                {
+                    throw new NumberFormatException("More than " + SCALE + " decimal places: " + text);
+                }
+                value = appendDigit(value, text, position);
+            }
+        }
+        if (integerDigits + fractionDigits == 0)
+        {
+            throw new NumberFormatException("Not a decimal: \"" + text + "\"");
+        }
+        for (; fractionDigits < SCALE; fractionDigits++)
+        {
+            value = appendDigit(value, 0, text);
+        }
+        if (!negative)
+        {
+            if (value == Long.MIN_VALUE)
+            {
+                throw new NumberFormatException("Out of range: " + text);
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * @param minorUnits
+     * @return the amount with exactly {@value #SCALE} decimal places, as {@link BigDecimal#toPlainString()} would
+     *         print it
+     */
+    public static String format(long minorUnits)
+    {
+        return appendTo(new StringBuilder(24), minorUnits).toString();
+    }
+
+    /**
+     * @param out
+     * @param minorUnits
+     * @return {@code out}
+     */
+    public static StringBuilder appendTo(StringBuilder out, long minorUnits)
+    {
+        if (minorUnits < 0)
+        {
+            out.append('-');
+        }
+        // Math.abs would overflow on Long.MIN_VALUE, so split before negating
+        var units = Math.abs(minorUnits / MINOR_PER_UNIT);
+        var cents = Math.abs(minorUnits % MINOR_PER_UNIT);
+        out.append(units).append('.');
+        if (cents < 10)
+        {
+            out.append('0');
+        }
+        return out.append(cents);
+    }
+
+    private static long appendDigit(long value, CharSequence text, int position)
+    {
+        var digit = text.charAt(position) - '0';
+        if (digit < 0 || digit > 9)
+        {
+            throw new NumberFormatException("Not a decimal: \"" + text + "\"");
+        }
+        return appendDigit(value, digit, text);
+    }
+
+    private static long appendDigit(long value, int digit, CharSequence text)
+    {
+        if (value < Long.MIN_VALUE / 10 || value * 10 < Long.MIN_VALUE + digit)
+        {
+            throw new NumberFormatException("Out of range: " + text);
+        }
+        return value * 10 - digit;
+    }
+}
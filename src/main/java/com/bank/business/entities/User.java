@@ -1,6 +1,7 @@
 package com.bank.business.entities;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.bank.business.validators.PasswordHelper;
 
@@ -11,6 +12,8 @@ public class User
     private String email;
     private boolean isAdmin;
     private String password;
+    // Bumped after every change; see Account
+    private final AtomicLong version = new AtomicLong();
 
     public String getPassword()
     {
@@ -20,6 +23,7 @@ public class User
     public void setPassword(String password)
     {
         this.password = password;
+        version.incrementAndGet();
     }
 
     public User()
@@ -79,6 +83,14 @@ public class User
         this.isAdmin = isAdmin;
     }
 
+    /**
+     * @return a counter that increases with every change to this user
+     */
+    public long getVersion()
+    {
+        return version.get();
+    }
+
     // Getters and Setters
     public Long getId()
     {
@@ -98,6 +110,7 @@ public class User
     public void setUsername(String username)
     {
         this.username = username;
+        version.incrementAndGet();
     }
 
     public String getEmail()
@@ -108,6 +121,7 @@ public class User
     public void setEmail(String email)
     {
         this.email = email;
+        version.incrementAndGet();
     }
 
     public boolean isAdmin()
@@ -118,6 +132,7 @@ public class User
     public void setAdmin(boolean admin)
     {
         isAdmin = admin;
+        version.incrementAndGet();
     }
 
     @Override
@@ -0,0 +1,22 @@
+package com.bank.business.events;
+
+import java.math.BigDecimal;
+
+/**
+ * One committed change to an account's balance.
+ *
+ * @param accountId
+ * @param userId          owner of the account, if any
+ * @param kind            what caused the change
+ * @param amount          signed change to the balance
+ * @param balance         balance right after the change
+ * @param version         the account's version right after the change
+ * @param timestampMillis wall clock time of the change
+ */
+public record BalanceEvent(long accountId, Long userId, Kind kind, BigDecimal amount, BigDecimal balance, long version, long timestampMillis)
+{
+    public enum Kind
+    {
+        DEPOSIT, WITHDRAWAL, TRANSFER_IN, TRANSFER_OUT, BATCH
+    }
+}
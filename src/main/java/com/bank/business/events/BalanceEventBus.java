@@ -0,0 +1,190 @@
+package com.bank.business.events;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans balance changes out to subscribers of an account or of all accounts of a user.
+ * <p>
+ * Publishing never blocks: each subscriber has a bounded queue, and a subscriber whose queue is full is dropped
+ * on the spot instead of slowing down the writer that holds the account lock. A dropped subscriber sees
+ * {@link Subscription#isDropped()} and should reconnect and resynchronize.
+ */
+public class BalanceEventBus
+{
+    // Queued in place of real events when a subscriber is dropped, only to wake a blocked reader
+    private static final BalanceEvent WAKE_UP = new BalanceEvent(0, null, null, null, null, 0, 0);
+
+    private final Map<Long, Set<Subscription>> byAccount = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscription>> byUser = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * A subscriber's queue. Events arrive in commit order per account.
+     */
+    public final class Subscription implements AutoCloseable
+    {
+        private final Map<Long, Set<Subscription>> index;
+        private final long key;
+        private final BlockingQueue<BalanceEvent> queue;
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscription(Map<Long, Set<Subscription>> index, long key, int capacity)
+        {
+            this.index = index;
+            this.key = key;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * @param timeout
+         * @param unit
+         * @return the next event, or null if none arrived in time or the subscriber was dropped; meaningless once
+         *         {@link #isDropped()}
+         * @throws InterruptedException
+         */
+        public BalanceEvent poll(long timeout, TimeUnit unit) throws InterruptedException
+        {
+            var event = queue.poll(timeout, unit);
+            return event == WAKE_UP ? null : event;
+        }
+
+        /**
+         * @return the next event if one is already queued, without waiting, or null; meaningless once
+         *         {@link #isDropped()}
+         */
+        public BalanceEvent poll()
+        {
+            var event = queue.poll();
+            return event == WAKE_UP ? null : event;
+        }
+
+        /**
+         * @return true once the subscriber fell behind by more than its buffer and was unsubscribed
+         */
+        public boolean isDropped()
+        {
+            return dropped.get();
+        }
+
+        @Override
+        public void close()
+        {
+            if (!closed.compareAndSet(false, true))
+            {
+                return;
+            }
+            index.computeIfPresent(key, (ignored, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+            subscribers.decrementAndGet();
+        }
+
+        private void offer(BalanceEvent event)
+        {
+            if (!queue.offer(event) && dropped.compareAndSet(false, true))
+            {
+                BalanceEventBus.this.dropped.increment();
+                close();
+                // Wakes a reader blocked in poll; it then sees the flag
+                queue.clear();
+                queue.offer(WAKE_UP);
+            }
+        }
+    }
+
+    /**
+     * @param accountId
+     * @param capacity events buffered before the subscriber is dropped
+     * @return a subscription to close when done
+     */
+    public Subscription subscribeToAccount(long accountId, int capacity)
+    {
+        return subscribe(byAccount, accountId, capacity);
+    }
+
+    /**
+     * @param userId
+     * @param capacity events buffered before the subscriber is dropped
+     * @return a subscription to every account of the user, to close when done
+     */
+    public Subscription subscribeToUser(long userId, int capacity)
+    {
+        return subscribe(byUser, userId, capacity);
+    }
+
+    /**
+     * @return false when nobody listens, so publishers can skip building events
+     */
+    public boolean hasSubscribers()
+    {
+        return subscribers.get() > 0;
+    }
+
+    /**
+     * Hands the event to every subscriber of its account and its user without blocking.
+     *
+     * @param event
+     */
+    public void publish(BalanceEvent event)
+    {
+        published.increment();
+        deliver(byAccount.get(event.accountId()), event);
+        if (event.userId() != null)
+        {
+            deliver(byUser.get(event.userId()), event);
+        }
+    }
+
+    public int subscribers()
+    {
+        return subscribers.get();
+    }
+
+    public long published()
+    {
+        return published.sum();
+    }
+
+    /**
+     * @return subscribers dropped for falling behind
+     */
+    public long dropped()
+    {
+        return dropped.sum();
+    }
+
+    private Subscription subscribe(Map<Long, Set<Subscription>> index, long key, int capacity)
+    {
+        var subscription = new Subscription(index, key, capacity);
+        subscribers.incrementAndGet();
+        index.compute(key, (ignored, set) -> {
+            var target = set != null ? set : ConcurrentHashMap.<Subscription>newKeySet();
+            target.add(subscription);
+            return target;
+        });
+        return subscription;
+    }
+
+    private static void deliver(Set<Subscription> subscriptions, BalanceEvent event)
+    {
+        if (subscriptions != null)
+        {
+            for (var subscription : subscriptions)
+            {
+                subscription.offer(event);
+            }
+        }
+    }
+}
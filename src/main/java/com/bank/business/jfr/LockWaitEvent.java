@@ -0,0 +1,31 @@
+package com.bank.business.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A wait for an account's write lock that was held by another thread. Uncontended acquisitions are not timed,
+ * so the event only appears, and only costs anything, under contention.
+ */
+@Name("com.bank.AccountLockWait")
+@Label("Account Lock Wait")
+@Category({"Bank", "Accounts"})
+@Description("Time a deposit, withdrawal, transfer or batch spent blocked on an account's write lock")
+@StackTrace(false)
+@Threshold("0 ms")
+public class LockWaitEvent extends jdk.jfr.Event
+{
+    @Label("Account")
+    public long accountId;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Acquired")
+    @Description("False if the wait ended at the lock timeout or the request deadline")
+    public boolean acquired;
+}
@@ -0,0 +1,55 @@
+package com.bank.business.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * One call to {@link com.bank.business.services.AccountService#transferAmount}, from validation to unlock.
+ * <p>
+ * Like every JFR event it costs nothing beyond a few dead stores while no recording has it enabled: the fields
+ * are only filled in once {@link #shouldCommit()} says the event will be written.
+ */
+@Name("com.bank.Transfer")
+@Label("Transfer")
+@Category({"Bank", "Accounts"})
+@Description("A transfer between two accounts, with the time spent waiting for their locks")
+@StackTrace(false)
+@Threshold("0 ms")
+public class TransferEvent extends jdk.jfr.Event
+{
+    /** Both locks were taken and the money moved */
+    public static final String SUCCESS = "SUCCESS";
+    public static final String INSUFFICIENT_FUNDS = "INSUFFICIENT_FUNDS";
+    public static final String INVALID = "INVALID";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    /** A lock was not free within the lock timeout */
+    public static final String LOCK_TIMEOUT = "LOCK_TIMEOUT";
+    public static final String DEADLINE_EXCEEDED = "DEADLINE_EXCEEDED";
+    public static final String INTERRUPTED = "INTERRUPTED";
+
+    @Label("From Account")
+    public long fromAccountId;
+
+    @Label("To Account")
+    public long toAccountId;
+
+    @Label("Amount")
+    public String amount;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Lock Wait")
+    @Description("Time spent waiting for both account locks")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lockWait;
+
+    @Label("Contended")
+    @Description("Whether either lock was held by another thread when the transfer asked for it")
+    public boolean contended;
+}
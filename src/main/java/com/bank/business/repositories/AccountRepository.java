@@ -2,17 +2,63 @@ package com.bank.business.repositories;
 
 import com.bank.business.entities.Account;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface AccountRepository
 {
     Account save(Account account);
 
+    /**
+     * Saves accounts changed together, such as both sides of a transfer. Repositories that persist changes
+     * save them as one unit, so the change is never stored in part.
+     *
+     * @param accounts already saved before, so their ids are set
+     */
+    default void saveAll(List<Account> accounts)
+    {
+        for (var account : accounts)
+        {
+            save(account);
+        }
+    }
+
+    /**
+     * Like {@link #saveAll}, for threads that must not wait for the change to be stored, such as the account
+     * engines'. The change is visible at once.
+     *
+     * @return completes once the change is stored, in the order changes were saved
+     */
+    default CompletableFuture<Void> saveAllAsync(List<Account> accounts)
+    {
+        saveAll(accounts);
+        return CompletableFuture.completedFuture(null);
+    }
+
     Account findById(Long id);
 
     List<Account> findByUserId(Long userId);
 
     List<Account> getAll();
 
+    /**
+     * Keyset page in ascending id order.
+     *
+     * @param afterId exclusive lower bound, or null to start at the first account
+     * @param limit maximum number of accounts to return
+     * @return at most {@code limit} accounts with an id greater than {@code afterId}
+     */
+    List<Account> findPage(Long afterId, int limit);
+
+    /**
+     * Keyset page of one user's accounts in ascending id order.
+     *
+     * @param userId
+     * @param afterId exclusive lower bound, or null to start at the user's first account
+     * @param limit maximum number of accounts to return
+     * @return at most {@code limit} accounts of {@code userId} with an id greater than {@code afterId}
+     */
+    List<Account> findPageByUserId(Long userId, Long afterId, int limit);
+
     Account findByAccountNumber(String accountNumber);
 
     void deleteById(Long id);
@@ -16,5 +16,14 @@ public interface UserRepository
     void deleteById(Long id);
 
     List<User> findAll(); // New method for Admin functionality
+
+    /**
+     * Keyset page in ascending id order.
+     *
+     * @param afterId exclusive lower bound, or null to start at the first user
+     * @param limit maximum number of users to return
+     * @return at most {@code limit} users with an id greater than {@code afterId}
+     */
+    List<User> findPage(Long afterId, int limit);
     // Add other necessary methods like update, etc.
 }
@@ -0,0 +1,15 @@
+package com.bank.business.services;
+
+/**
+ * Thrown when an account's lock could not be acquired within the lock timeout, or the wait for it was interrupted.
+ * Nothing has been changed when it is thrown, so the operation can be retried.
+ */
+public class AccountBusyException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public AccountBusyException(String message)
+    {
+        super(message);
+    }
+}
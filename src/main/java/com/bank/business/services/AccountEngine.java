@@ -0,0 +1,83 @@
+package com.bank.business.services;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.bank.business.entities.Account;
+import com.bank.business.events.BalanceEvent;
+
+/**
+ * Applies balance changes without account locks, for {@link AccountService} when {@code server.accountEngine} is
+ * not {@code locking}. Changes are applied asynchronously; the returned futures complete once they have been
+ * applied and stored.
+ * <p>
+ * A change's deadline is checked when the engine gets to it, not while it is queued: a change that is already
+ * queued cannot be withdrawn, so its caller waits for the outcome however long the queue is.
+ */
+interface AccountEngine extends AutoCloseable
+{
+    enum Outcome
+    {
+        APPLIED, INSUFFICIENT_FUNDS, DEADLINE_EXCEEDED
+    }
+
+    /**
+     * Told about every applied change on the thread that made it, so per-account callbacks come in commit order.
+     * A change's future completes only once the listener's does, so the engine thread can go on to the next change
+     * while this one is being stored.
+     */
+    @FunctionalInterface
+    interface CommitListener
+    {
+        /**
+         * @return completes once the change is stored
+         */
+        CompletableFuture<Void> committed(Account account, BalanceEvent.Kind kind, long minorUnits);
+
+        /**
+         * Told about a transfer whose two legs were applied together, so both can be stored as one change.
+         *
+         * @return completes once both legs are stored
+         */
+        default CompletableFuture<Void> transferred(Account from, Account to, long minorUnits)
+        {
+            return CompletableFuture.allOf(committed(from, BalanceEvent.Kind.TRANSFER_OUT, -minorUnits),
+                    committed(to, BalanceEvent.Kind.TRANSFER_IN, minorUnits));
+        }
+    }
+
+    CompletableFuture<Outcome> deposit(Account account, long minorUnits, Deadline deadline);
+
+    CompletableFuture<Outcome> withdraw(Account account, long minorUnits, Deadline deadline);
+
+    /**
+     * @return completes once both legs are applied, or with the reason nothing was
+     */
+    CompletableFuture<Outcome> transfer(Account from, Account to, long minorUnits, Deadline deadline);
+
+    /**
+     * Runs {@code action} while nothing else changes {@code accounts}.
+     *
+     * @param operations  the batch {@code action} applies
+     * @param accounts    every account it touches
+     * @param deadline    bounds the wait for exclusive access, where the engine has to wait for it
+     * @param timeoutNanos longest wait for exclusive access without a deadline
+     * @param action
+     * @return what {@code action} returned
+     * @throws InterruptedException      if interrupted before {@code action} ran; nothing was run
+     * @throws TimeoutException          if {@code timeoutNanos} passed before {@code action} could run; nothing was
+     *                                   run
+     * @throws DeadlineExceededException if the deadline passed before {@code action} could run; nothing was run
+     */
+    <T> T exclusive(List<BatchOperation> operations, Collection<Account> accounts, Deadline deadline, long timeoutNanos, Supplier<T> action)
+            throws InterruptedException, TimeoutException;
+
+    /**
+     * Stops accepting work once everything already accepted is applied.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,33 @@
+package com.bank.business.services;
+
+import java.nio.file.Path;
+
+/**
+ * How {@link AccountService} applies deposits, withdrawals, transfers and batches.
+ *
+ * @param kind        {@link Kind#LOCKING} under account write locks, {@link Kind#SHARDED} on single-writer shards,
+ *                    or {@link Kind#PIPELINE} through a journaled command ring
+ * @param shards      number of shards for {@link Kind#SHARDED}
+ * @param ringSize    commands in flight at most for {@link Kind#PIPELINE}
+ * @param journal     file {@link Kind#PIPELINE} journals commands to, or null for none
+ * @param syncJournal whether {@link Kind#PIPELINE} forces each journal write to disk before applying it
+ */
+public record AccountEngineSettings(Kind kind, int shards, int ringSize, Path journal, boolean syncJournal)
+{
+    public enum Kind
+    {
+        LOCKING, SHARDED, PIPELINE
+    }
+
+    public static final AccountEngineSettings LOCKING = new AccountEngineSettings(Kind.LOCKING, 0, 0, null, false);
+
+    public static AccountEngineSettings sharded(int shards)
+    {
+        return new AccountEngineSettings(Kind.SHARDED, shards, 0, null, false);
+    }
+
+    public static AccountEngineSettings pipeline(int ringSize, Path journal, boolean syncJournal)
+    {
+        return new AccountEngineSettings(Kind.PIPELINE, 0, ringSize, journal, syncJournal);
+    }
+}
@@ -1,22 +1,122 @@
 package com.bank.business.services;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bank.business.entities.Account;
+import com.bank.business.entities.ContentionStrategy;
+import com.bank.business.entities.Money;
+import com.bank.business.events.BalanceEvent;
+import com.bank.business.events.BalanceEventBus;
+import com.bank.business.jfr.LockWaitEvent;
+import com.bank.business.jfr.TransferEvent;
 import com.bank.business.repositories.AccountRepository;
 
-public class AccountService
+public final class AccountService implements AutoCloseable
 {
     private final AccountRepository accountRepository;
+    private final BalanceEventBus events;
+    // Null when balance changes lock the accounts instead
+    private final AccountEngine engine;
+    // For the locking paths; the engines apply each account's changes on one thread and just spin
+    private volatile Map<Account.AccountType, ContentionStrategy> contention = ContentionStrategy.forTypes(Map.of());
     private final static Logger LOGGER = LoggerFactory.getLogger(AccountService.class);
 
+    /**
+     * Upper bound on operations per batch; every account involved stays write locked while a batch runs
+     */
+    public static final int MAX_BATCH_SIZE = 1_000;
+    private static final long LOCK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
     public AccountService(AccountRepository accountRepository)
+    {
+        this(accountRepository, new BalanceEventBus());
+    }
+
+    /**
+     * @param accountRepository
+     * @param events receives every committed balance change
+     */
+    public AccountService(AccountRepository accountRepository, BalanceEventBus events)
+    {
+        this(accountRepository, events, AccountEngineSettings.LOCKING);
+    }
+
+    /**
+     * @param accountRepository
+     * @param events   receives every committed balance change
+     * @param settings how balance changes are applied
+     * @throws java.io.UncheckedIOException if the pipeline's journal cannot be opened
+     * @see ShardedAccountEngine
+     * @see CommandPipeline
+     */
+    public AccountService(AccountRepository accountRepository, BalanceEventBus events, AccountEngineSettings settings)
     {
         this.accountRepository = accountRepository;
+        this.events = events;
+        var listener = new AccountEngine.CommitListener()
+        {
+            @Override
+            public CompletableFuture<Void> committed(Account account, BalanceEvent.Kind kind, long minorUnits)
+            {
+                // Published once stored, as on the locking path
+                return accountRepository.saveAllAsync(List.of(account)).thenRun(() -> publish(account, kind, minorUnits));
+            }
+
+            @Override
+            public CompletableFuture<Void> transferred(Account from, Account to, long minorUnits)
+            {
+                return accountRepository.saveAllAsync(List.of(from, to)).thenRun(() -> {
+                    publish(from, BalanceEvent.Kind.TRANSFER_OUT, -minorUnits);
+                    publish(to, BalanceEvent.Kind.TRANSFER_IN, minorUnits);
+                });
+            }
+        };
+        this.engine = switch (settings.kind())
+        {
+            case LOCKING -> null;
+            case SHARDED -> new ShardedAccountEngine(settings.shards(), listener);
+            case PIPELINE -> new CommandPipeline(settings.ringSize(), settings.journal(), settings.syncJournal(), listener);
+        };
+    }
+
+    public BalanceEventBus getEvents()
+    {
+        return events;
+    }
+
+    /**
+     * Switches account types to the given strategies; updates already running finish with the one they started
+     * with. Types without an entry use {@link ContentionStrategy#SPIN}.
+     * <p>
+     * This service applies every change under the account's write lock, so no two of its updates race and the
+     * strategy never has to resolve anything; the engines update on their own threads with the default.
+     *
+     * @param strategies see {@link ContentionStrategy#forTypes(Map)}
+     */
+    public void setContention(Map<Account.AccountType, ContentionStrategy> strategies)
+    {
+        var copy = new EnumMap<Account.AccountType, ContentionStrategy>(Account.AccountType.class);
+        copy.putAll(strategies);
+        contention = copy;
+    }
+
+    private ContentionStrategy contention(Account account)
+    {
+        return account.getType() == null ? ContentionStrategy.SPIN : contention.getOrDefault(account.getType(), ContentionStrategy.SPIN);
     }
 
     public Account createAccount(Long userId, BigDecimal initialBalance, Account.AccountType type)
@@ -76,6 +176,27 @@ public class AccountService
         return accountRepository.getAll();
     }
 
+    /**
+     * @param afterId last account id the caller has seen, or null for the first page
+     * @param limit
+     * @return next accounts in id order
+     */
+    public List<Account> getAccountsPage(Long afterId, int limit)
+    {
+        return accountRepository.findPage(afterId, limit);
+    }
+
+    /**
+     * @param userId
+     * @param afterId last account id the caller has seen, or null for the first page
+     * @param limit
+     * @return next accounts of the user in id order
+     */
+    public List<Account> getAccountsPageByUserId(Long userId, Long afterId, int limit)
+    {
+        return accountRepository.findPageByUserId(userId, afterId, limit);
+    }
+
     /**
      * Transfers amount from one account to another atomically.
      *
@@ -83,13 +204,81 @@ public class AccountService
      * @param toAccountId   The ID of the account to transfer to
      * @param amount        The amount to transfer
      * @return true if the transfer was successful, false otherwise
+     * @throws AccountBusyException if both locks could not be acquired in time; nothing was changed
      */
     public boolean transferAmount(Long fromAccountId, Long toAccountId, BigDecimal amount)
     {
+        return transferAmount(fromAccountId, toAccountId, amount, Deadline.NONE);
+    }
+
+    /**
+     * Transfers amount from one account to another atomically, giving up once {@code deadline} passes.
+     *
+     * @param fromAccountId The ID of the account to transfer from
+     * @param toAccountId   The ID of the account to transfer to
+     * @param amount        The amount to transfer
+     * @param deadline      bounds each lock wait in addition to the lock timeout; with an engine it is only
+     *                      checked when the transfer is applied, however long it waits in the queue
+     * @return true if the transfer was successful, false otherwise
+     * @throws AccountBusyException      if both locks could not be acquired in time; nothing was changed
+     * @throws DeadlineExceededException if the deadline passed before both locks were held; nothing was changed
+     * @throws ArithmeticException       if the amount has more than {@value Money#SCALE} decimal places
+     */
+    public boolean transferAmount(Long fromAccountId, Long toAccountId, BigDecimal amount, Deadline deadline)
+    {
+        if (amount == null)
+        {
+            LOGGER.warn("Invalid transfer parameters: fromAccountId={}, toAccountId={}, amount=null", fromAccountId, toAccountId);
+            return false;
+        }
+        return transferAmount(fromAccountId, toAccountId, Money.toMinorUnits(amount), deadline);
+    }
+
+    /**
+     * @param fromAccountId The ID of the account to transfer from
+     * @param toAccountId   The ID of the account to transfer to
+     * @param minorUnits    The amount to transfer, see {@link Money}
+     * @param deadline      bounds each lock wait in addition to the lock timeout; with an engine it is only
+     *                      checked when the transfer is applied, however long it waits in the queue
+     * @return true if the transfer was successful, false otherwise
+     * @throws AccountBusyException      if both locks could not be acquired in time; nothing was changed
+     * @throws DeadlineExceededException if the deadline passed before both locks were held; nothing was changed
+     * @see #transferAmount(Long, Long, BigDecimal, Deadline)
+     */
+    public boolean transferAmount(Long fromAccountId, Long toAccountId, long minorUnits, Deadline deadline)
+    {
+        var event = new TransferEvent();
+        event.begin();
+        try
+        {
+            return transfer(fromAccountId, toAccountId, minorUnits, deadline, event);
+        } catch (DeadlineExceededException deadlineExceededException)
+        {
+            event.outcome = TransferEvent.DEADLINE_EXCEEDED;
+            throw deadlineExceededException;
+        } finally
+        {
+            event.end();
+            if (event.shouldCommit())
+            {
+                event.fromAccountId = fromAccountId == null ? 0 : fromAccountId;
+                event.toAccountId = toAccountId == null ? 0 : toAccountId;
+                event.amount = Money.format(minorUnits);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @param event receives the outcome and lock waits; the caller commits it
+     */
+    private boolean transfer(Long fromAccountId, Long toAccountId, long minorUnits, Deadline deadline, TransferEvent event)
+    {
+        event.outcome = TransferEvent.INVALID;
         // Validate input parameters
-        if (fromAccountId == null || toAccountId == null || amount == null)
+        if (fromAccountId == null || toAccountId == null)
         {
-            LOGGER.warn("Invalid transfer parameters: fromAccountId={}, toAccountId={}, amount={}", fromAccountId, toAccountId, amount);
+            LOGGER.warn("Invalid transfer parameters: fromAccountId={}, toAccountId={}", fromAccountId, toAccountId);
             return false;
         }
 
@@ -101,12 +290,14 @@ public class AccountService
         }
 
         // Validate transfer amount
-        if (amount.compareTo(BigDecimal.ZERO) <= 0)
+        if (minorUnits <= 0)
         {
-            LOGGER.warn("Invalid transfer amount: {}", amount);
+            LOGGER.warn("Invalid transfer amount: {}", Money.format(minorUnits));
             return false;
         }
 
+        deadline.check("transfer");
+
         // Get both accounts
         var fromAccount = getAccountById(fromAccountId);
         var toAccount = getAccountById(toAccountId);
@@ -114,11 +305,20 @@ public class AccountService
         if (fromAccount == null || toAccount == null)
         {
             LOGGER.warn("Account not found: fromAccountId={}, toAccountId={}", fromAccountId, toAccountId);
+            event.outcome = TransferEvent.NOT_FOUND;
             return false;
         }
 
-        var firstWriteLock = (fromAccount.getId() < toAccount.getId() ? fromAccount : toAccount).getReadWriteLock().writeLock();
-        var secondWriteLock = (fromAccount.getId() < toAccount.getId() ? toAccount : fromAccount).getReadWriteLock().writeLock();
+        if (engine != null)
+        {
+            return transferOnEngine(fromAccount, toAccount, minorUnits, deadline, event);
+        }
+
+        var firstAccount = fromAccount.getId() < toAccount.getId() ? fromAccount : toAccount;
+        var secondAccount = fromAccount.getId() < toAccount.getId() ? toAccount : fromAccount;
+        var firstWriteLock = firstAccount.getReadWriteLock().writeLock();
+        var secondWriteLock = secondAccount.getReadWriteLock().writeLock();
+        event.outcome = TransferEvent.LOCK_TIMEOUT;
 
         // Track lock acquisition state
         boolean firstLockAcquired = false;
@@ -126,30 +326,33 @@ public class AccountService
 
         try
         {
-            // Try to acquire first lock with timeout (5 seconds)
-            firstLockAcquired = firstWriteLock.tryLock(5, java.util.concurrent.TimeUnit.SECONDS);
+            // Try to acquire first lock with timeout (5 seconds, or less if the deadline is closer)
+            firstLockAcquired = tryLock(firstAccount, deadline, "transfer", event);
             if (firstLockAcquired)
             {
                 try
                 {
-                    // Try to acquire second lock with timeout (5 seconds)
-                    secondLockAcquired = secondWriteLock.tryLock(5, java.util.concurrent.TimeUnit.SECONDS);
+                    // Try to acquire second lock with timeout (5 seconds, or less if the deadline is closer)
+                    secondLockAcquired = tryLock(secondAccount, deadline, "transfer", event);
                     if (secondLockAcquired)
                     {
                         // Both locks acquired, perform transfer
-                        LOGGER.debug("Performing transfer: {} -> {} : {}", fromAccountId, toAccountId, amount);
+                        LOGGER.debug("Performing transfer: {} -> {} : {}", fromAccountId, toAccountId, minorUnits);
 
-                        var success = fromAccount.withdrawAmount(amount);
+                        var success = fromAccount.withdrawMinorUnits(minorUnits, contention(fromAccount));
                         if (success)
                         {
-                            toAccount.addAmount(amount);
-                            // Update both accounts in the repository
-                            updateAccount(fromAccount);
-                            updateAccount(toAccount);
-                            LOGGER.info("Transfer successful: {} -> {} : {}", fromAccountId, toAccountId, amount);
+                            toAccount.addMinorUnits(minorUnits, contention(toAccount));
+                            // Update both accounts in the repository as one change
+                            accountRepository.saveAll(List.of(fromAccount, toAccount));
+                            publish(fromAccount, BalanceEvent.Kind.TRANSFER_OUT, -minorUnits);
+                            publish(toAccount, BalanceEvent.Kind.TRANSFER_IN, minorUnits);
+                            LOGGER.info("Transfer successful: {} -> {} : {}", fromAccountId, toAccountId, Money.format(minorUnits));
+                            event.outcome = TransferEvent.SUCCESS;
                         } else
                         {
-                            LOGGER.warn("Transfer failed - insufficient funds: {} -> {} : {}", fromAccountId, toAccountId, amount);
+                            event.outcome = TransferEvent.INSUFFICIENT_FUNDS;
+                            LOGGER.warn("Transfer failed - insufficient funds: {} -> {} : {}", fromAccountId, toAccountId, Money.format(minorUnits));
                         }
                         return success;
                     } else
@@ -168,12 +371,13 @@ public class AccountService
                 LOGGER.warn("Failed to acquire first lock for transfer: {} -> {}", fromAccountId, toAccountId);
             }
             // If we reach here, either first or second lock acquisition failed
-            return false;
+            throw new AccountBusyException("Timed out waiting for accounts " + fromAccountId + " and " + toAccountId);
         } catch (InterruptedException interruptedException)
         {
-            LOGGER.error("Transfer interrupted: {} -> {} : {}", fromAccountId, toAccountId, amount, interruptedException);
+            LOGGER.error("Transfer interrupted: {} -> {} : {}", fromAccountId, toAccountId, Money.format(minorUnits), interruptedException);
+            event.outcome = TransferEvent.INTERRUPTED;
             Thread.currentThread().interrupt(); // Restore interrupted status
-            return false;
+            throw new AccountBusyException("Interrupted waiting for accounts " + fromAccountId + " and " + toAccountId);
         } finally
         {
             // Clean up locks in reverse order of acquisition
@@ -184,4 +388,509 @@ public class AccountService
         }
 
     }
+
+    /**
+     * Hands the transfer to the engine; never waits for a lock.
+     */
+    private boolean transferOnEngine(Account fromAccount, Account toAccount, long minorUnits, Deadline deadline, TransferEvent event)
+    {
+        var outcome = await(engine.transfer(fromAccount, toAccount, minorUnits, deadline), "transfer");
+        if (outcome == AccountEngine.Outcome.INSUFFICIENT_FUNDS)
+        {
+            event.outcome = TransferEvent.INSUFFICIENT_FUNDS;
+            LOGGER.warn("Transfer failed - insufficient funds: {} -> {} : {}", fromAccount.getId(), toAccount.getId(), Money.format(minorUnits));
+            return false;
+        }
+        LOGGER.info("Transfer successful: {} -> {} : {}", fromAccount.getId(), toAccount.getId(), Money.format(minorUnits));
+        event.outcome = TransferEvent.SUCCESS;
+        return true;
+    }
+
+    /**
+     * Deposits under the account's write lock, so it cannot interleave with a transfer or batch holding it, or
+     * through the configured {@link AccountEngineSettings engine}.
+     *
+     * @param account
+     * @param amount
+     * @return false if the lock could not be acquired in time
+     */
+    public boolean deposit(Account account, BigDecimal amount)
+    {
+        return deposit(account, amount, Deadline.NONE);
+    }
+
+    /**
+     * @param account
+     * @param amount
+     * @param deadline bounds the lock wait in addition to the lock timeout; with an engine it is only
+     *                 checked when the change is applied, however long it waits in the queue
+     * @return false if the lock could not be acquired in time
+     * @throws DeadlineExceededException if the deadline passed before the lock was held; nothing was changed
+     * @throws ArithmeticException       if the amount has more than {@value Money#SCALE} decimal places
+     * @see #deposit(Account, BigDecimal)
+     */
+    public boolean deposit(Account account, BigDecimal amount, Deadline deadline)
+    {
+        return deposit(account, Money.toMinorUnits(amount), deadline);
+    }
+
+    /**
+     * @param account
+     * @param minorUnits amount to deposit, see {@link Money}
+     * @param deadline   bounds the lock wait in addition to the lock timeout; with an engine it is only checked
+     *                   when the change is applied, however long it waits in the queue
+     * @return false if the lock could not be acquired in time
+     * @throws DeadlineExceededException if the deadline passed before the lock was held; nothing was changed
+     * @see #deposit(Account, BigDecimal)
+     */
+    public boolean deposit(Account account, long minorUnits, Deadline deadline)
+    {
+        if (engine != null)
+        {
+            deadline.check("deposit");
+            return await(engine.deposit(account, minorUnits, deadline), "deposit") == AccountEngine.Outcome.APPLIED;
+        }
+        var writeLock = account.getReadWriteLock().writeLock();
+        try
+        {
+            if (!tryLock(account, deadline, "deposit", null))
+            {
+                LOGGER.warn("Failed to acquire lock for deposit to {}", account.getId());
+                return false;
+            }
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try
+        {
+            account.addMinorUnits(minorUnits, contention(account));
+            updateAccount(account);
+            publish(account, BalanceEvent.Kind.DEPOSIT, minorUnits);
+            return true;
+        } finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Withdraws under the account's write lock, so it cannot interleave with a transfer or batch holding it, or
+     * through the configured {@link AccountEngineSettings engine}.
+     *
+     * @param account
+     * @param amount
+     * @return false on insufficient funds
+     * @throws AccountBusyException if the lock could not be acquired in time; nothing was changed
+     */
+    public boolean withdraw(Account account, BigDecimal amount)
+    {
+        return withdraw(account, amount, Deadline.NONE);
+    }
+
+    /**
+     * @param account
+     * @param amount
+     * @param deadline bounds the lock wait in addition to the lock timeout; with an engine it is only
+     *                 checked when the change is applied, however long it waits in the queue
+     * @return false on insufficient funds
+     * @throws AccountBusyException      if the lock could not be acquired in time; nothing was changed
+     * @throws DeadlineExceededException if the deadline passed before the lock was held; nothing was changed
+     * @throws ArithmeticException       if the amount has more than {@value Money#SCALE} decimal places
+     * @see #withdraw(Account, BigDecimal)
+     */
+    public boolean withdraw(Account account, BigDecimal amount, Deadline deadline)
+    {
+        return withdraw(account, Money.toMinorUnits(amount), deadline);
+    }
+
+    /**
+     * @param account
+     * @param minorUnits amount to withdraw, see {@link Money}
+     * @param deadline   bounds the lock wait in addition to the lock timeout; with an engine it is only checked
+     *                   when the change is applied, however long it waits in the queue
+     * @return false on insufficient funds
+     * @throws AccountBusyException      if the lock could not be acquired in time; nothing was changed
+     * @throws DeadlineExceededException if the deadline passed before the lock was held; nothing was changed
+     * @see #withdraw(Account, BigDecimal)
+     */
+    public boolean withdraw(Account account, long minorUnits, Deadline deadline)
+    {
+        if (engine != null)
+        {
+            deadline.check("withdrawal");
+            return await(engine.withdraw(account, minorUnits, deadline), "withdrawal") == AccountEngine.Outcome.APPLIED;
+        }
+        var writeLock = account.getReadWriteLock().writeLock();
+        try
+        {
+            if (!tryLock(account, deadline, "withdrawal", null))
+            {
+                LOGGER.warn("Failed to acquire lock for withdrawal from {}", account.getId());
+                throw new AccountBusyException("Timed out waiting for account " + account.getId());
+            }
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            throw new AccountBusyException("Interrupted waiting for account " + account.getId());
+        }
+        try
+        {
+            var success = account.withdrawMinorUnits(minorUnits, contention(account));
+            if (success)
+            {
+                updateAccount(account);
+                publish(account, BalanceEvent.Kind.WITHDRAWAL, -minorUnits);
+            }
+            return success;
+        } finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Runs deposits, withdrawals and transfers as one all-or-nothing unit.
+     * <p>
+     * Every account involved is write locked in ascending id order, the same ordering {@link #transferAmount}
+     * uses, so batches and transfers cannot deadlock each other. The operations are first played in order
+     * against projected balances; only if all of them succeed is the net change of each account applied, so a
+     * failing operation leaves every balance untouched. With shards enabled, the shards owning the accounts are
+     * paused for the duration as well; with the pipeline, the batch runs as one of its commands.
+     *
+     * @param operations at most {@link #MAX_BATCH_SIZE} operations, applied in order
+     * @return per-operation results; {@link BatchResult#committed()} tells whether anything was applied
+     */
+    public BatchResult executeBatch(List<BatchOperation> operations)
+    {
+        return executeBatch(operations, Deadline.NONE);
+    }
+
+    /**
+     * @param operations at most {@link #MAX_BATCH_SIZE} operations, applied in order
+     * @param deadline   bounds the lock waits in addition to the lock timeout, and the wait for shards to pause;
+     *                   once it passes the batch is rejected with {@link BatchResult.Status#DEADLINE_EXCEEDED}.
+     *                   In the pipeline it is checked when the batch is applied
+     * @return per-operation results; {@link BatchResult#committed()} tells whether anything was applied
+     * @see #executeBatch(List)
+     */
+    public BatchResult executeBatch(List<BatchOperation> operations, Deadline deadline)
+    {
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_SIZE)
+        {
+            return rejectBatch(operations == null ? List.of() : operations, -1, BatchResult.Status.INVALID,
+                    "A batch needs between 1 and " + MAX_BATCH_SIZE + " operations");
+        }
+
+        for (var i = 0; i < operations.size(); i++)
+        {
+            var problem = validate(operations.get(i));
+            if (problem != null)
+            {
+                return rejectBatch(operations, i, BatchResult.Status.INVALID, problem);
+            }
+        }
+
+        if (deadline.isExpired())
+        {
+            return rejectBatch(operations, -1, BatchResult.Status.DEADLINE_EXCEEDED, "Deadline exceeded before the batch started");
+        }
+
+        // Sorted by id, which is the lock order
+        var accounts = new TreeMap<Long, Account>();
+        for (var i = 0; i < operations.size(); i++)
+        {
+            var operation = operations.get(i);
+            for (var accountId : new Long[] { operation.accountId(), operation.toAccountId() })
+            {
+                if (accountId == null || accounts.containsKey(accountId))
+                {
+                    continue;
+                }
+                var account = getAccountById(accountId);
+                if (account == null)
+                {
+                    return rejectBatch(operations, i, BatchResult.Status.ACCOUNT_NOT_FOUND, "Account not found: " + accountId);
+                }
+                accounts.put(accountId, account);
+            }
+        }
+
+        if (engine == null)
+        {
+            return applyBatch(operations, accounts, deadline);
+        }
+        try
+        {
+            return engine.exclusive(operations, accounts.values(), deadline, LOCK_TIMEOUT_NANOS, () -> applyBatch(operations, accounts, deadline));
+        } catch (TimeoutException timeoutException)
+        {
+            LOGGER.warn("Batch of {} operations abandoned: {}", operations.size(), timeoutException.getMessage());
+            return rejectBatch(operations, -1, BatchResult.Status.LOCK_TIMEOUT, timeoutException.getMessage());
+        } catch (DeadlineExceededException deadlineException)
+        {
+            LOGGER.warn("Batch of {} operations abandoned: {}", operations.size(), deadlineException.getMessage());
+            return rejectBatch(operations, -1, BatchResult.Status.DEADLINE_EXCEEDED, "Deadline exceeded while waiting for account shards");
+        } catch (InterruptedException interruptedException)
+        {
+            LOGGER.error("Batch interrupted while pausing account shards", interruptedException);
+            Thread.currentThread().interrupt();
+            return rejectBatch(operations, -1, BatchResult.Status.LOCK_TIMEOUT, "Interrupted while waiting for account shards");
+        }
+    }
+
+    /**
+     * @param accounts every account the operations touch, by id
+     */
+    private BatchResult applyBatch(List<BatchOperation> operations, TreeMap<Long, Account> accounts, Deadline deadline)
+    {
+        var acquired = new ArrayList<Lock>(accounts.size());
+        try
+        {
+            for (var account : accounts.values())
+            {
+                var writeLock = account.getReadWriteLock().writeLock();
+                if (!tryLock(account, deadline, "batch", null))
+                {
+                    LOGGER.warn("Failed to acquire lock on account {} for a batch of {} operations", account.getId(), operations.size());
+                    return rejectBatch(operations, -1, BatchResult.Status.LOCK_TIMEOUT, "Timed out waiting for account " + account.getId());
+                }
+                acquired.add(writeLock);
+            }
+
+            // Worked out in full before the first balance changes, so a batch that fails part way changes nothing
+            var projected = new HashMap<Long, Long>(accounts.size() * 2);
+            for (var account : accounts.values())
+            {
+                projected.put(account.getId(), account.balanceMinorUnits());
+            }
+
+            var results = new ArrayList<BatchResult.OperationResult>(operations.size());
+            for (var i = 0; i < operations.size(); i++)
+            {
+                var operation = operations.get(i);
+                var accountId = operation.accountId();
+                // validate() made sure the amount converts
+                var amount = Money.toMinorUnits(operation.amount());
+                try
+                {
+                    if (operation.type() == BatchOperation.Type.DEPOSIT)
+                    {
+                        projected.merge(accountId, amount, Math::addExact);
+                    } else
+                    {
+                        if (projected.get(accountId) < amount)
+                        {
+                            LOGGER.warn("Batch rejected - insufficient funds in account {} at operation {}", accountId, i);
+                            return rejectBatch(operations, i, BatchResult.Status.INSUFFICIENT_FUNDS, "Insufficient funds in account " + accountId);
+                        }
+                        projected.merge(accountId, amount, Math::subtractExact);
+                        if (operation.type() == BatchOperation.Type.TRANSFER)
+                        {
+                            projected.merge(operation.toAccountId(), amount, Math::addExact);
+                        }
+                    }
+                } catch (ArithmeticException overflowException)
+                {
+                    LOGGER.warn("Batch rejected - balance overflow at operation {}", i);
+                    return rejectBatch(operations, i, BatchResult.Status.INVALID, "Balance would overflow");
+                }
+                results.add(new BatchResult.OperationResult(i, BatchResult.Outcome.APPLIED, Money.toDecimal(projected.get(accountId)), null));
+            }
+
+            // Every mutation of these accounts needs the write lock we hold, and every projected balance fits, so
+            // applying the net change cannot fail
+            var changed = new ArrayList<Account>(accounts.size());
+            var deltas = new ArrayList<Long>(accounts.size());
+            for (var account : accounts.values())
+            {
+                var delta = projected.get(account.getId()) - account.balanceMinorUnits();
+                if (delta != 0)
+                {
+                    changed.add(account);
+                    deltas.add(delta);
+                }
+            }
+            for (var i = 0; i < changed.size(); i++)
+            {
+                changed.get(i).addMinorUnits(deltas.get(i), contention(changed.get(i)));
+            }
+            // Saved as one change, so the batch stays all-or-nothing in storage too
+            accountRepository.saveAll(changed);
+            for (var i = 0; i < changed.size(); i++)
+            {
+                publish(changed.get(i), BalanceEvent.Kind.BATCH, deltas.get(i));
+            }
+            LOGGER.debug("Batch of {} operations committed on {} accounts", operations.size(), accounts.size());
+            return new BatchResult(BatchResult.Status.COMMITTED, results);
+        } catch (DeadlineExceededException deadlineException)
+        {
+            LOGGER.warn("Batch of {} operations abandoned: {}", operations.size(), deadlineException.getMessage());
+            return rejectBatch(operations, -1, BatchResult.Status.DEADLINE_EXCEEDED, "Deadline exceeded while waiting for account locks");
+        } catch (InterruptedException interruptedException)
+        {
+            LOGGER.error("Batch interrupted while locking accounts", interruptedException);
+            Thread.currentThread().interrupt();
+            return rejectBatch(operations, -1, BatchResult.Status.LOCK_TIMEOUT, "Interrupted while waiting for account locks");
+        } finally
+        {
+            for (var i = acquired.size() - 1; i >= 0; i--)
+            {
+                acquired.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Stops the engine, if any, once the changes already handed to it are applied.
+     */
+    @Override
+    public void close()
+    {
+        if (engine != null)
+        {
+            engine.close();
+        }
+    }
+
+    /**
+     * Called with the account's write lock held or, with an engine, once the change is stored (storage completes
+     * changes in the order they were made), so events of one account are published in commit order. Nothing is
+     * allocated unless someone is subscribed.
+     */
+    private void publish(Account account, BalanceEvent.Kind kind, long minorUnits)
+    {
+        if (events.hasSubscribers())
+        {
+            events.publish(new BalanceEvent(account.getId(), account.getUserId(), kind, Money.toDecimal(minorUnits), account.getBalance(), account.getVersion(),
+                    System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Waits for the account's write lock for the lock timeout, or until the deadline if that comes first. A lock
+     * that is not free straight away is reported as a {@link LockWaitEvent}.
+     *
+     * @param account
+     * @param deadline
+     * @param operation what the lock is for, for the exception message
+     * @param transfer  the transfer waiting, whose lock wait and contention this adds to, or null
+     * @return false if the lock timeout ran out
+     * @throws DeadlineExceededException if the deadline ran out, before or during the wait
+     * @throws InterruptedException
+     */
+    private static boolean tryLock(Account account, Deadline deadline, String operation, TransferEvent transfer) throws InterruptedException
+    {
+        deadline.check(operation);
+        var lock = account.getReadWriteLock().writeLock();
+        if (lock.tryLock())
+        {
+            return true;
+        }
+        var event = new LockWaitEvent();
+        event.begin();
+        var waitStart = System.nanoTime();
+        var acquired = false;
+        try
+        {
+            acquired = lock.tryLock(deadline.boundWait(LOCK_TIMEOUT_NANOS), TimeUnit.NANOSECONDS);
+        } finally
+        {
+            event.end();
+            if (transfer != null)
+            {
+                transfer.contended = true;
+                transfer.lockWait += System.nanoTime() - waitStart;
+            }
+            if (event.shouldCommit())
+            {
+                event.accountId = account.getId();
+                event.operation = operation;
+                event.acquired = acquired;
+                event.commit();
+            }
+        }
+        if (acquired)
+        {
+            return true;
+        }
+        deadline.check(operation);
+        return false;
+    }
+
+    /**
+     * Waits for the engine to apply a change, without a bound: once queued the change will be applied, so the
+     * caller must learn how it went. The deadline is checked when the engine gets to the change, not while
+     * waiting.
+     *
+     * @param operation what ran, for the exception message
+     * @throws DeadlineExceededException if the engine got to it after the deadline; nothing was changed
+     */
+    private static AccountEngine.Outcome await(CompletableFuture<AccountEngine.Outcome> pending, String operation)
+    {
+        AccountEngine.Outcome outcome;
+        try
+        {
+            outcome = pending.join();
+        } catch (CompletionException completionException)
+        {
+            if (completionException.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw completionException;
+        }
+        if (outcome == AccountEngine.Outcome.DEADLINE_EXCEEDED)
+        {
+            throw new DeadlineExceededException("Deadline exceeded before " + operation);
+        }
+        return outcome;
+    }
+
+    private static String validate(BatchOperation operation)
+    {
+        if (operation == null || operation.type() == null || operation.accountId() == null || operation.amount() == null)
+        {
+            return "type, accountId and amount are required";
+        }
+        if (operation.amount().signum() <= 0)
+        {
+            return "amount must be positive";
+        }
+        try
+        {
+            Money.toMinorUnits(operation.amount());
+        } catch (ArithmeticException amountException)
+        {
+            return "amount must have at most " + Money.SCALE + " decimal places and fit in a balance";
+        }
+        if (operation.type() == BatchOperation.Type.TRANSFER)
+        {
+            if (operation.toAccountId() == null)
+            {
+                return "toAccountId is required for a transfer";
+            }
+            if (operation.toAccountId().equals(operation.accountId()))
+            {
+                return "Cannot transfer to the same account";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param failedIndex operation to blame, or -1 when the batch failed as a whole
+     */
+    private static BatchResult rejectBatch(List<BatchOperation> operations, int failedIndex, BatchResult.Status status, String message)
+    {
+        var results = new ArrayList<BatchResult.OperationResult>(operations.size());
+        for (var i = 0; i < operations.size(); i++)
+        {
+            results.add(i == failedIndex
+                    ? new BatchResult.OperationResult(i, BatchResult.Outcome.FAILED, null, message)
+                    : new BatchResult.OperationResult(i, BatchResult.Outcome.NOT_APPLIED, null, failedIndex < 0 ? message : null));
+        }
+        return new BatchResult(status, results);
+    }
 }
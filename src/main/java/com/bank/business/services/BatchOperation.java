@@ -0,0 +1,34 @@
+package com.bank.business.services;
+
+import java.math.BigDecimal;
+
+/**
+ * One step of an all-or-nothing batch run by {@link AccountService#executeBatch(java.util.List)}.
+ *
+ * @param type
+ * @param accountId   account deposited to, withdrawn from or transferred from
+ * @param toAccountId transfer destination, null for deposits and withdrawals
+ * @param amount      strictly positive amount
+ */
+public record BatchOperation(Type type, Long accountId, Long toAccountId, BigDecimal amount)
+{
+    public enum Type
+    {
+        DEPOSIT, WITHDRAW, TRANSFER
+    }
+
+    public static BatchOperation deposit(Long accountId, BigDecimal amount)
+    {
+        return new BatchOperation(Type.DEPOSIT, accountId, null, amount);
+    }
+
+    public static BatchOperation withdraw(Long accountId, BigDecimal amount)
+    {
+        return new BatchOperation(Type.WITHDRAW, accountId, null, amount);
+    }
+
+    public static BatchOperation transfer(Long fromAccountId, Long toAccountId, BigDecimal amount)
+    {
+        return new BatchOperation(Type.TRANSFER, fromAccountId, toAccountId, amount);
+    }
+}
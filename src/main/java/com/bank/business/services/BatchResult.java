@@ -0,0 +1,38 @@
+package com.bank.business.services;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Outcome of {@link AccountService#executeBatch(List)}: either every operation was applied or none was.
+ *
+ * @param status  {@link Status#COMMITTED} or the reason the whole batch was rejected
+ * @param results one entry per operation, in request order
+ */
+public record BatchResult(Status status, List<OperationResult> results)
+{
+    public enum Status
+    {
+        COMMITTED, INVALID, ACCOUNT_NOT_FOUND, INSUFFICIENT_FUNDS, LOCK_TIMEOUT, DEADLINE_EXCEEDED
+    }
+
+    public enum Outcome
+    {
+        APPLIED, FAILED, NOT_APPLIED
+    }
+
+    /**
+     * @param index   position of the operation in the batch
+     * @param outcome
+     * @param balance balance of the operation's {@code accountId} right after it, for applied operations
+     * @param message why the operation failed, for the failing operation only
+     */
+    public record OperationResult(int index, Outcome outcome, BigDecimal balance, String message)
+    {
+    }
+
+    public boolean committed()
+    {
+        return status == Status.COMMITTED;
+    }
+}
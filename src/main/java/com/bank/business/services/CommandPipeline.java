@@ -0,0 +1,500 @@
+package com.bank.business.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bank.business.entities.Account;
+import com.bank.business.entities.Money;
+import com.bank.business.events.BalanceEvent;
+
+/**
+ * Applies balance changes as sequenced commands through a pre-allocated ring buffer, in the style of the LMAX
+ * Disruptor.
+ * <p>
+ * Callers claim the next sequence, fill in the command already sitting in that slot and publish it. A journaler
+ * thread appends every published command to the journal file, as many as are ready in one write (and one
+ * {@code force} when syncing), and only then hands them to the business logic thread, which applies them to the
+ * accounts one after another without locks. It hands each change to the listener to store and moves on; the
+ * change's future completes once it is stored, so journaled storage syncs changes in groups rather than holding
+ * this thread for every sync. A slot is reused once that thread is
+ * past it, so publishing waits when the ring is full.
+ * <p>
+ * Journal records are {@code [int length][long sequence][byte type]} followed by the account id(s) and amount in
+ * minor units; a batch record holds its operations. The journal is an audit log of the commands requested, in the
+ * order they were applied, written before they are applied. It records neither outcomes nor account creation, and
+ * nothing reads it back: balances are recovered from storage, not from this journal.
+ */
+final class CommandPipeline implements AccountEngine
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandPipeline.class);
+
+    private static final byte DEPOSIT = 1;
+    private static final byte WITHDRAW = 2;
+    private static final byte TRANSFER = 3;
+    private static final byte BATCH = 4;
+    // Bytes of length, sequence and type in front of every record
+    private static final int HEADER = Integer.BYTES + Long.BYTES + 1;
+    private static final int BATCH_OPERATION = 1 + 3 * Long.BYTES;
+    // Holds the largest batch record, so a record never needs more than one buffer
+    private static final int JOURNAL_BUFFER = 64 * 1024;
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    // Sleeping stages are woken by whoever hands them work; the timeout is only a safety net
+    private static final long PARK_NANOS = 1_000_000;
+
+    private final CommitListener listener;
+    private final Command[] ring;
+    private final int mask;
+    // Sequence last published into each slot, so consumers can tell which claimed slots are filled in
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong journaled = new AtomicLong(-1);
+    private final AtomicLong applied = new AtomicLong(-1);
+    private final FileChannel journal;
+    private final boolean syncJournal;
+    private final ByteBuffer journalBuffer = ByteBuffer.allocateDirect(JOURNAL_BUFFER);
+    private final Thread journaler;
+    private final Thread businessLogic;
+    private volatile boolean journalerSleeping;
+    private volatile boolean businessLogicSleeping;
+    private volatile boolean journalerDone;
+    private volatile boolean closed;
+
+    private static final class Command
+    {
+        private byte type;
+        private Account account;
+        private Account to;
+        private long minorUnits;
+        private Deadline deadline;
+        private List<BatchOperation> operations;
+        private Supplier<?> action;
+        private CompletableFuture<?> result;
+        // Set by the journaler when the command could not be written; it is then not applied
+        private IOException journalFailure;
+    }
+
+    /**
+     * @param ringSize    commands in flight at most, rounded up to a power of two
+     * @param journalPath file commands are appended to, or null to not journal
+     * @param syncJournal whether each journal write is forced to disk before its commands are applied
+     * @param listener    called after each applied change
+     * @throws UncheckedIOException if the journal cannot be opened
+     */
+    CommandPipeline(int ringSize, Path journalPath, boolean syncJournal, CommitListener listener)
+    {
+        this.listener = listener;
+        var size = Integer.highestOneBit(Math.max(2, ringSize) - 1) << 1;
+        this.ring = new Command[size];
+        for (var i = 0; i < size; i++)
+        {
+            ring[i] = new Command();
+        }
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (var i = 0; i < size; i++)
+        {
+            published.set(i, -1);
+        }
+        this.syncJournal = syncJournal;
+        try
+        {
+            if (journalPath != null && journalPath.getParent() != null)
+            {
+                Files.createDirectories(journalPath.getParent());
+            }
+            this.journal = journalPath == null ? null
+                    : FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException ioException)
+        {
+            throw new UncheckedIOException("Cannot open command journal " + journalPath, ioException);
+        }
+        this.journaler = Thread.ofPlatform().name("command-journaler").daemon().start(this::journal);
+        this.businessLogic = Thread.ofPlatform().name("command-business-logic").daemon().start(this::applyCommands);
+        LOGGER.info("Account mutations run through a {} slot command ring, journal {}{}", size, journalPath == null ? "off" : journalPath,
+                journalPath != null && syncJournal ? " (synced)" : "");
+    }
+
+    @Override
+    public CompletableFuture<Outcome> deposit(Account account, long minorUnits, Deadline deadline)
+    {
+        var result = new CompletableFuture<Outcome>();
+        publish(DEPOSIT, account, null, minorUnits, deadline, null, null, result);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Outcome> withdraw(Account account, long minorUnits, Deadline deadline)
+    {
+        var result = new CompletableFuture<Outcome>();
+        publish(WITHDRAW, account, null, minorUnits, deadline, null, null, result);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Outcome> transfer(Account from, Account to, long minorUnits, Deadline deadline)
+    {
+        var result = new CompletableFuture<Outcome>();
+        publish(TRANSFER, from, to, minorUnits, deadline, null, null, result);
+        return result;
+    }
+
+    /**
+     * Runs {@code action} on the business logic thread, in sequence with every other command. Once published it
+     * always runs, so the deadline is only checked by {@code action} itself, when the batch is applied, and the
+     * timeout does not apply.
+     */
+    @Override
+    public <T> T exclusive(List<BatchOperation> operations, Collection<Account> accounts, Deadline deadline, long timeoutNanos, Supplier<T> action)
+    {
+        // Fails here rather than on the journaler, for an amount the journal cannot hold
+        operations.forEach(operation -> Money.toMinorUnits(operation.amount()));
+        var result = new CompletableFuture<T>();
+        publish(BATCH, null, null, 0, Deadline.NONE, operations, action, result);
+        try
+        {
+            // Not interruptible: once published the batch runs, and the caller must learn how it went
+            return result.join();
+        } catch (CompletionException completionException)
+        {
+            if (completionException.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw completionException;
+        }
+    }
+
+    /**
+     * Stops accepting commands, journals and applies every one already published, then closes the journal.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        LockSupport.unpark(journaler);
+        LockSupport.unpark(businessLogic);
+        try
+        {
+            journaler.join();
+            businessLogic.join();
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (journal != null)
+        {
+            try
+            {
+                journal.close();
+            } catch (IOException ioException)
+            {
+                LOGGER.error("Failed to close the command journal: {}", ioException.getMessage(), ioException);
+            }
+        }
+    }
+
+    private void publish(byte type, Account account, Account to, long minorUnits, Deadline deadline, List<BatchOperation> operations, Supplier<?> action,
+            CompletableFuture<?> result)
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Command pipeline is closed");
+        }
+        var sequence = claimed.incrementAndGet();
+        // The slot is free once the business logic thread is past the command that last used it
+        for (var idle = 0; sequence - ring.length > applied.get(); idle++)
+        {
+            if (!businessLogic.isAlive())
+            {
+                result.completeExceptionally(new IllegalStateException("Command pipeline is closed"));
+                return;
+            }
+            backOff(idle);
+        }
+        var command = ring[(int) sequence & mask];
+        command.type = type;
+        command.account = account;
+        command.to = to;
+        command.minorUnits = minorUnits;
+        command.deadline = deadline;
+        command.operations = operations;
+        command.action = action;
+        command.result = result;
+        command.journalFailure = null;
+        published.set((int) sequence & mask, sequence);
+        if (journalerSleeping)
+        {
+            LockSupport.unpark(journaler);
+        }
+        if (closed)
+        {
+            // The journaler may have looked for this sequence before it was claimed and exited. Once both stages
+            // have stopped the command either ran, completing its future, or never will
+            joinUninterruptibly(businessLogic);
+            result.completeExceptionally(new IllegalStateException("Command pipeline is closed"));
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread)
+    {
+        var interrupted = false;
+        while (true)
+        {
+            try
+            {
+                thread.join();
+                break;
+            } catch (InterruptedException interruptedException)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void journal()
+    {
+        var next = 0L;
+        for (var idle = 0;; idle++)
+        {
+            var end = next - 1;
+            while (published.get((int) (end + 1) & mask) == end + 1)
+            {
+                end++;
+            }
+            if (end < next)
+            {
+                if (closed && next > claimed.get())
+                {
+                    journalerDone = true;
+                    LockSupport.unpark(businessLogic);
+                    return;
+                }
+                journalerSleeping = idle >= SPINS + YIELDS;
+                if (published.get((int) next & mask) != next)
+                {
+                    backOff(idle);
+                }
+                journalerSleeping = false;
+                continue;
+            }
+            if (journal != null)
+            {
+                write(next, end);
+            }
+            journaled.set(end);
+            if (businessLogicSleeping)
+            {
+                LockSupport.unpark(businessLogic);
+            }
+            next = end + 1;
+            idle = -1;
+        }
+    }
+
+    /**
+     * Appends commands {@code from} to {@code to} in as few writes as the buffer allows, forcing once at the end
+     * if syncing. On failure the commands are marked so they are not applied.
+     */
+    private void write(long from, long to)
+    {
+        try
+        {
+            journalBuffer.clear();
+            for (var sequence = from; sequence <= to; sequence++)
+            {
+                var command = ring[(int) sequence & mask];
+                var length = HEADER + (command.type == BATCH ? Integer.BYTES + command.operations.size() * BATCH_OPERATION : 3 * Long.BYTES);
+                if (journalBuffer.remaining() < length)
+                {
+                    drain();
+                }
+                encode(command, sequence, length);
+            }
+            drain();
+            if (syncJournal)
+            {
+                journal.force(false);
+            }
+        } catch (IOException ioException)
+        {
+            LOGGER.error("Command journal write failed, rejecting commands {} to {}: {}", from, to, ioException.getMessage(), ioException);
+            for (var sequence = from; sequence <= to; sequence++)
+            {
+                ring[(int) sequence & mask].journalFailure = ioException;
+            }
+        }
+    }
+
+    private void encode(Command command, long sequence, int length)
+    {
+        journalBuffer.putInt(length).putLong(sequence).put(command.type);
+        if (command.type == BATCH)
+        {
+            journalBuffer.putInt(command.operations.size());
+            for (var operation : command.operations)
+            {
+                journalBuffer.put((byte) operation.type().ordinal())
+                        .putLong(operation.accountId())
+                        .putLong(operation.toAccountId() == null ? 0 : operation.toAccountId())
+                        .putLong(Money.toMinorUnits(operation.amount()));
+            }
+        } else
+        {
+            journalBuffer.putLong(command.account.getId()).putLong(command.to == null ? 0 : command.to.getId()).putLong(command.minorUnits);
+        }
+    }
+
+    private void drain() throws IOException
+    {
+        journalBuffer.flip();
+        while (journalBuffer.hasRemaining())
+        {
+            journal.write(journalBuffer);
+        }
+        journalBuffer.clear();
+    }
+
+    private void applyCommands()
+    {
+        var next = 0L;
+        for (var idle = 0;; idle++)
+        {
+            var end = journaled.get();
+            if (end < next)
+            {
+                if (journalerDone && next > journaled.get())
+                {
+                    return;
+                }
+                businessLogicSleeping = idle >= SPINS + YIELDS;
+                if (journaled.get() < next)
+                {
+                    backOff(idle);
+                }
+                businessLogicSleeping = false;
+                continue;
+            }
+            for (var sequence = next; sequence <= end; sequence++)
+            {
+                var command = ring[(int) sequence & mask];
+                try
+                {
+                    apply(command);
+                } catch (RuntimeException commandException)
+                {
+                    command.result.completeExceptionally(commandException);
+                }
+                command.account = null;
+                command.to = null;
+                command.deadline = null;
+                command.operations = null;
+                command.action = null;
+                command.result = null;
+                applied.lazySet(sequence);
+            }
+            next = end + 1;
+            idle = -1;
+        }
+    }
+
+    private void apply(Command command)
+    {
+        if (command.journalFailure != null)
+        {
+            command.result.completeExceptionally(new UncheckedIOException("Command journal write failed", command.journalFailure));
+            return;
+        }
+        if (command.type == BATCH)
+        {
+            complete(command.result, command.action.get());
+            return;
+        }
+        if (command.deadline.isExpired())
+        {
+            complete(command.result, Outcome.DEADLINE_EXCEEDED);
+            return;
+        }
+        var result = command.result;
+        // Withdrawals and transfers both debit the first account
+        if (command.type != DEPOSIT && !command.account.withdrawMinorUnits(command.minorUnits))
+        {
+            complete(result, Outcome.INSUFFICIENT_FUNDS);
+            return;
+        }
+        var stored = switch (command.type)
+        {
+            case DEPOSIT -> {
+                command.account.addMinorUnits(command.minorUnits);
+                yield listener.committed(command.account, BalanceEvent.Kind.DEPOSIT, command.minorUnits);
+            }
+            case WITHDRAW -> listener.committed(command.account, BalanceEvent.Kind.WITHDRAWAL, -command.minorUnits);
+            default -> {
+                try
+                {
+                    command.to.addMinorUnits(command.minorUnits);
+                } catch (ArithmeticException overflowException)
+                {
+                    // Nothing else runs in between, so putting the money back undoes the transfer entirely
+                    command.account.addMinorUnits(command.minorUnits);
+                    throw overflowException;
+                }
+                yield listener.transferred(command.account, command.to, command.minorUnits);
+            }
+        };
+        // The slot is reused once this returns, so the result is captured rather than read from the command
+        stored.whenComplete((ignored, storeFailure) -> {
+            if (storeFailure == null)
+            {
+                complete(result, Outcome.APPLIED);
+            } else
+            {
+                result.completeExceptionally(storeFailure);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void complete(CompletableFuture<?> result, Object value)
+    {
+        ((CompletableFuture<Object>) result).complete(value);
+    }
+
+    /**
+     * Spins, then yields, then parks: cheap while work arrives steadily, idle when it does not.
+     */
+    private static void backOff(int idle)
+    {
+        if (idle < SPINS)
+        {
+            Thread.onSpinWait();
+        } else if (idle < SPINS + YIELDS)
+        {
+            Thread.yield();
+        } else
+        {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
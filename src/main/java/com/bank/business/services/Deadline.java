@@ -0,0 +1,88 @@
+package com.bank.business.services;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time, on the {@link System#nanoTime()} clock, after which the caller no longer wants a result.
+ * <p>
+ * Service methods take one so that lock waits never outlast the request that is waiting; {@link #NONE} keeps the
+ * fixed lock timeouts alone.
+ */
+public final class Deadline
+{
+    /** No deadline: only the service's own timeouts apply */
+    public static final Deadline NONE = new Deadline(0, false);
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+
+    private Deadline(long deadlineNanos, boolean bounded)
+    {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * @param nanoTime deadline on the {@link System#nanoTime()} clock
+     * @return the deadline
+     */
+    public static Deadline at(long nanoTime)
+    {
+        return new Deadline(nanoTime, true);
+    }
+
+    /**
+     * @param budget
+     * @param unit
+     * @return a deadline {@code budget} from now
+     */
+    public static Deadline after(long budget, TimeUnit unit)
+    {
+        return at(System.nanoTime() + unit.toNanos(budget));
+    }
+
+    public boolean isBounded()
+    {
+        return bounded;
+    }
+
+    /**
+     * @return nanoseconds left, never negative; {@link Long#MAX_VALUE} for {@link #NONE}
+     */
+    public long remainingNanos()
+    {
+        return bounded ? Math.max(0, deadlineNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    public boolean isExpired()
+    {
+        return bounded && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @param capNanos the wait the caller would use without a deadline
+     * @return how long to wait: the cap, or less if the deadline comes first
+     */
+    public long boundWait(long capNanos)
+    {
+        return Math.min(capNanos, remainingNanos());
+    }
+
+    /**
+     * @param operation what is about to start, for the exception message
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    public void check(String operation)
+    {
+        if (isExpired())
+        {
+            throw new DeadlineExceededException("Deadline exceeded before " + operation);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return bounded ? "Deadline{remainingMillis=" + TimeUnit.NANOSECONDS.toMillis(remainingNanos()) + '}' : "Deadline{none}";
+    }
+}
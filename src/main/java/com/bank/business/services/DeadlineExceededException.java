@@ -0,0 +1,15 @@
+package com.bank.business.services;
+
+/**
+ * Thrown when a {@link Deadline} passes before an operation could start or while it waited for a lock. Nothing has
+ * been changed when it is thrown.
+ */
+public class DeadlineExceededException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message)
+    {
+        super(message);
+    }
+}
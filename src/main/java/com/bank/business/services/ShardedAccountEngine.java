@@ -0,0 +1,373 @@
+package com.bank.business.services;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bank.business.entities.Account;
+import com.bank.business.events.BalanceEvent;
+
+/**
+ * Applies balance changes on single-writer shards instead of under account locks.
+ * <p>
+ * Accounts are partitioned by id over a fixed number of shards, each a thread draining its own lock-free queue.
+ * Every deposit, withdrawal and transfer leg is a message to the shard owning the account, so each account has
+ * exactly one writer and nothing waits for a lock.
+ * <p>
+ * A transfer between shards runs in two steps: the source shard debits the sender and then sends a credit
+ * message to the destination shard. Once debited the money is always delivered (or, if crediting fails,
+ * refunded to the sender), and {@link #close()} waits for every accepted message, credits included, so no amount
+ * is ever lost or created;
+ * between the two steps it is only in flight. The transfer completes when the credit is applied. Deadlines are
+ * checked before the debit, so a transfer that misses its deadline has changed nothing.
+ * <p>
+ * A transfer within one shard is stored as one change. Between shards the debit and the credit are stored
+ * separately, so a crash between the two would lose the credit; Main therefore refuses to start this engine with
+ * journaled storage.
+ * <p>
+ * Batches still need several accounts at once, so {@link #exclusive} pauses the shards owning them, in shard
+ * order so two batches cannot deadlock, and runs the batch while no shard can touch those accounts.
+ */
+final class ShardedAccountEngine implements AccountEngine
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedAccountEngine.class);
+
+    private static final long DRAIN_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Shard[] shards;
+    private final CommitListener listener;
+    // Messages accepted and not yet run; a running message forwards before it finishes, so this stays above zero
+    // while a transfer is in flight
+    private final AtomicLong accepted = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param shardCount
+     * @param listener   called after each applied change
+     */
+    ShardedAccountEngine(int shardCount, CommitListener listener)
+    {
+        this.listener = listener;
+        this.shards = new Shard[shardCount];
+        for (var i = 0; i < shardCount; i++)
+        {
+            shards[i] = new Shard(i);
+        }
+        LOGGER.info("Account mutations run on {} single-writer shards", shardCount);
+    }
+
+    @Override
+    public CompletableFuture<Outcome> deposit(Account account, long minorUnits, Deadline deadline)
+    {
+        var result = new CompletableFuture<Outcome>();
+        post(shardOf(account), result, () -> {
+            if (deadline.isExpired())
+            {
+                result.complete(Outcome.DEADLINE_EXCEEDED);
+                return;
+            }
+            account.addMinorUnits(minorUnits);
+            completeWhenStored(result, listener.committed(account, BalanceEvent.Kind.DEPOSIT, minorUnits));
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Outcome> withdraw(Account account, long minorUnits, Deadline deadline)
+    {
+        var result = new CompletableFuture<Outcome>();
+        post(shardOf(account), result, () -> {
+            if (deadline.isExpired())
+            {
+                result.complete(Outcome.DEADLINE_EXCEEDED);
+                return;
+            }
+            if (!account.withdrawMinorUnits(minorUnits))
+            {
+                result.complete(Outcome.INSUFFICIENT_FUNDS);
+                return;
+            }
+            completeWhenStored(result, listener.committed(account, BalanceEvent.Kind.WITHDRAWAL, -minorUnits));
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Outcome> transfer(Account from, Account to, long minorUnits, Deadline deadline)
+    {
+        var result = new CompletableFuture<Outcome>();
+        var source = shardOf(from);
+        var destination = shardOf(to);
+        post(source, result, () -> {
+            if (deadline.isExpired())
+            {
+                result.complete(Outcome.DEADLINE_EXCEEDED);
+                return;
+            }
+            if (!from.withdrawMinorUnits(minorUnits))
+            {
+                result.complete(Outcome.INSUFFICIENT_FUNDS);
+                return;
+            }
+            if (destination == source)
+            {
+                try
+                {
+                    to.addMinorUnits(minorUnits);
+                } catch (ArithmeticException overflowException)
+                {
+                    // Nothing else runs on this shard in between, so putting the money back undoes the transfer
+                    from.addMinorUnits(minorUnits);
+                    throw overflowException;
+                }
+                completeWhenStored(result, listener.transferred(from, to, minorUnits));
+                return;
+            }
+            listener.committed(from, BalanceEvent.Kind.TRANSFER_OUT, -minorUnits);
+            Runnable credit = () -> {
+                try
+                {
+                    to.addMinorUnits(minorUnits);
+                } catch (ArithmeticException overflowException)
+                {
+                    forward(source, result, () -> {
+                        from.addMinorUnits(minorUnits);
+                        listener.committed(from, BalanceEvent.Kind.TRANSFER_IN, minorUnits);
+                        result.completeExceptionally(overflowException);
+                    });
+                    return;
+                }
+                completeWhenStored(result, listener.committed(to, BalanceEvent.Kind.TRANSFER_IN, minorUnits));
+            };
+            forward(destination, result, credit);
+        });
+        return result;
+    }
+
+    /**
+     * Runs {@code action} on the calling thread while the shards owning {@code accounts} are paused. Waiting for a
+     * shard to pause is bounded by the deadline and the timeout; on giving up, the shards already paused resume
+     * and those yet to pause do so only momentarily.
+     */
+    @Override
+    public <T> T exclusive(List<BatchOperation> operations, Collection<Account> accounts, Deadline deadline, long timeoutNanos, Supplier<T> action)
+            throws InterruptedException, TimeoutException
+    {
+        var owners = new TreeSet<Integer>();
+        for (var account : accounts)
+        {
+            owners.add(shardIndex(account));
+        }
+        var giveUpAt = System.nanoTime() + deadline.boundWait(timeoutNanos);
+        var release = new CountDownLatch(1);
+        try
+        {
+            for (var index : owners)
+            {
+                var paused = new CountDownLatch(1);
+                post(shards[index], null, () -> {
+                    paused.countDown();
+                    awaitUninterruptibly(release);
+                });
+                if (!paused.await(giveUpAt - System.nanoTime(), TimeUnit.NANOSECONDS))
+                {
+                    deadline.check("batch");
+                    throw new TimeoutException("Timed out waiting for account shard " + index);
+                }
+            }
+            return action.get();
+        } finally
+        {
+            release.countDown();
+        }
+    }
+
+    /**
+     * Stops accepting work, applies everything already accepted (including credits of transfers in flight) and
+     * waits for the shard threads to exit.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        // Shards keep running until no transfer can forward another credit or refund to them
+        while (accepted.get() > 0)
+        {
+            LockSupport.parkNanos(DRAIN_POLL_NANOS);
+        }
+        for (var shard : shards)
+        {
+            shard.stop();
+        }
+        for (var shard : shards)
+        {
+            try
+            {
+                shard.thread.join();
+            } catch (InterruptedException interruptedException)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Accepts a message from outside the shards.
+     *
+     * @param result completed exceptionally if the message fails, so its caller is not left waiting
+     * @throws IllegalStateException once {@link #close()} has started
+     */
+    private void post(Shard shard, CompletableFuture<?> result, Runnable message)
+    {
+        // Counted before checking closed, and close sets closed before reading the count, so either this message
+        // is rejected or close waits for it
+        accepted.incrementAndGet();
+        if (closed)
+        {
+            accepted.decrementAndGet();
+            throw new IllegalStateException("Account shards are closed");
+        }
+        shard.enqueue(result, message);
+    }
+
+    /**
+     * Accepts a message from a running one, such as a transfer's credit, even while closing: close waits for it.
+     */
+    private void forward(Shard shard, CompletableFuture<?> result, Runnable message)
+    {
+        accepted.incrementAndGet();
+        shard.enqueue(result, message);
+    }
+
+    /**
+     * Completes {@code result} once the change is stored, so the shard does not wait for that.
+     */
+    private static void completeWhenStored(CompletableFuture<Outcome> result, CompletableFuture<Void> stored)
+    {
+        stored.whenComplete((ignored, storeFailure) -> {
+            if (storeFailure == null)
+            {
+                result.complete(Outcome.APPLIED);
+            } else
+            {
+                result.completeExceptionally(storeFailure);
+            }
+        });
+    }
+
+    private Shard shardOf(Account account)
+    {
+        return shards[shardIndex(account)];
+    }
+
+    private int shardIndex(Account account)
+    {
+        return (int) Math.floorMod(account.getId(), (long) shards.length);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch)
+    {
+        var interrupted = false;
+        while (true)
+        {
+            try
+            {
+                latch.await();
+                break;
+            } catch (InterruptedException interruptedException)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Shard
+    {
+        private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+        // Set before parking and checked after every post, so a message never sits unnoticed
+        private volatile boolean sleeping;
+        // Only set once nothing is accepted, so nothing can be queued after the thread exits
+        private volatile boolean stopped;
+
+        private Shard(int index)
+        {
+            thread = Thread.ofPlatform().name("account-shard-" + index).daemon().start(this::run);
+        }
+
+        private void enqueue(CompletableFuture<?> result, Runnable message)
+        {
+            queue.add(() -> {
+                try
+                {
+                    message.run();
+                } catch (RuntimeException messageException)
+                {
+                    if (result == null)
+                    {
+                        throw messageException;
+                    }
+                    result.completeExceptionally(messageException);
+                } finally
+                {
+                    accepted.decrementAndGet();
+                }
+            });
+            if (sleeping)
+            {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void stop()
+        {
+            stopped = true;
+            LockSupport.unpark(thread);
+        }
+
+        private void run()
+        {
+            while (true)
+            {
+                var message = queue.poll();
+                if (message == null)
+                {
+                    if (stopped)
+                    {
+                        return;
+                    }
+                    sleeping = true;
+                    if (queue.isEmpty() && !stopped)
+                    {
+                        LockSupport.park(this);
+                    }
+                    sleeping = false;
+                    continue;
+                }
+                try
+                {
+                    message.run();
+                } catch (RuntimeException messageException)
+                {
+                    LOGGER.error("Account shard message failed", messageException);
+                }
+            }
+        }
+    }
+}
@@ -78,6 +78,16 @@ public class UserService
         return userRepository.findAll();
     }
 
+    /**
+     * @param afterId last user id the caller has seen, or null for the first page
+     * @param limit
+     * @return next users in id order
+     */
+    public List<User> getUsersPage(Long afterId, int limit)
+    {
+        return userRepository.findPage(afterId, limit);
+    }
+
     public User updateUser(User user)
     {
         // Add validation logic here if needed
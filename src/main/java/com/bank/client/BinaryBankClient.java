@@ -0,0 +1,254 @@
+package com.bank.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.bank.business.entities.Account;
+import com.bank.business.services.BatchOperation;
+import com.bank.business.services.BatchResult;
+import com.bank.server.binary.BinaryProtocol;
+
+/**
+ * Client for the {@link com.bank.server.binary.BinaryServer}, the binary counterpart of {@link BankApiClient}.
+ * <p>
+ * One instance holds one connection and is safe to share between threads. Every call returns immediately with
+ * a future, so callers can keep many requests in flight; requests from concurrent callers are coalesced into a
+ * single flush, and a reader thread completes the futures by correlation id as responses arrive.
+ */
+public class BinaryBankClient implements AutoCloseable
+{
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final BufferedOutputStream out;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicLong nextCorrelationId = new AtomicLong();
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final Thread reader;
+    private volatile IOException failure;
+
+    /**
+     * Result of one binary request. {@code balance} is the affected account's balance when the status is OK or
+     * INSUFFICIENT_FUNDS (for a transfer, the source account's); {@code account} is only set by
+     * {@link #getAccount(long)} and {@code results} only by {@link #batch(List)}.
+     */
+    public record Reply(byte status, BigDecimal balance, Account account, List<BatchResult.OperationResult> results)
+    {
+        public boolean ok()
+        {
+            return status == BinaryProtocol.STATUS_OK;
+        }
+    }
+
+    private record Pending(byte opcode, CompletableFuture<Reply> future)
+    {
+    }
+
+    /**
+     * @param host
+     * @param port the server's {@code binaryPort}
+     * @throws IOException if the connection cannot be opened
+     */
+    public BinaryBankClient(String host, int port) throws IOException
+    {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), STREAM_BUFFER_SIZE));
+        this.out = new BufferedOutputStream(socket.getOutputStream(), STREAM_BUFFER_SIZE);
+        this.reader = Thread.ofPlatform().name("binary-client-reader").daemon().start(this::readLoop);
+    }
+
+    public CompletableFuture<Reply> getAccount(long accountId)
+    {
+        var frame = frame(BinaryProtocol.OP_GET, Long.BYTES);
+        frame.putLong(accountId);
+        return send(BinaryProtocol.OP_GET, frame).thenApply(reply -> {
+            if (reply.account() != null)
+            {
+                reply.account().setId(accountId);
+            }
+            return reply;
+        });
+    }
+
+    public CompletableFuture<Reply> deposit(long accountId, BigDecimal amount)
+    {
+        var frame = frame(BinaryProtocol.OP_DEPOSIT, Long.BYTES + BinaryProtocol.DECIMAL_LENGTH);
+        frame.putLong(accountId);
+        BinaryProtocol.putDecimal(frame, amount);
+        return send(BinaryProtocol.OP_DEPOSIT, frame);
+    }
+
+    public CompletableFuture<Reply> withdraw(long accountId, BigDecimal amount)
+    {
+        var frame = frame(BinaryProtocol.OP_WITHDRAW, Long.BYTES + BinaryProtocol.DECIMAL_LENGTH);
+        frame.putLong(accountId);
+        BinaryProtocol.putDecimal(frame, amount);
+        return send(BinaryProtocol.OP_WITHDRAW, frame);
+    }
+
+    public CompletableFuture<Reply> transfer(long fromAccountId, long toAccountId, BigDecimal amount)
+    {
+        var frame = frame(BinaryProtocol.OP_TRANSFER, 2 * Long.BYTES + BinaryProtocol.DECIMAL_LENGTH);
+        frame.putLong(fromAccountId);
+        frame.putLong(toAccountId);
+        BinaryProtocol.putDecimal(frame, amount);
+        return send(BinaryProtocol.OP_TRANSFER, frame);
+    }
+
+    /**
+     * @param operations at most {@link com.bank.business.services.AccountService#MAX_BATCH_SIZE}; applied
+     *                   all-or-nothing
+     * @return the batch status, with one result per operation
+     */
+    public CompletableFuture<Reply> batch(List<BatchOperation> operations)
+    {
+        var frame = frame(BinaryProtocol.OP_BATCH, Short.BYTES + operations.size() * (1 + 2 * Long.BYTES + BinaryProtocol.DECIMAL_LENGTH));
+        frame.putShort((short) operations.size());
+        for (var operation : operations)
+        {
+            switch (operation.type())
+            {
+                case DEPOSIT -> frame.put(BinaryProtocol.BATCH_DEPOSIT).putLong(operation.accountId());
+                case WITHDRAW -> frame.put(BinaryProtocol.BATCH_WITHDRAW).putLong(operation.accountId());
+                case TRANSFER -> frame.put(BinaryProtocol.BATCH_TRANSFER).putLong(operation.accountId()).putLong(operation.toAccountId());
+            }
+            BinaryProtocol.putDecimal(frame, operation.amount());
+        }
+        return send(BinaryProtocol.OP_BATCH, frame);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        socket.close();
+        try
+        {
+            reader.join();
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ByteBuffer frame(byte opcode, int maxPayloadLength)
+    {
+        var frame = ByteBuffer.allocate(Integer.BYTES + BinaryProtocol.HEADER_LENGTH + maxPayloadLength);
+        frame.position(Integer.BYTES);
+        frame.put(opcode);
+        frame.putLong(0);
+        return frame;
+    }
+
+    private CompletableFuture<Reply> send(byte opcode, ByteBuffer frame)
+    {
+        var future = new CompletableFuture<Reply>();
+        var correlationId = nextCorrelationId.incrementAndGet();
+        frame.putInt(0, frame.position() - Integer.BYTES).putLong(Integer.BYTES + 1, correlationId);
+        pending.put(correlationId, new Pending(opcode, future));
+
+        // Whoever writes last while others are queued on the lock flushes for all of them
+        pendingWrites.incrementAndGet();
+        writeLock.lock();
+        try
+        {
+            if (failure != null)
+            {
+                throw failure;
+            }
+            out.write(frame.array(), 0, frame.position());
+            if (pendingWrites.decrementAndGet() == 0)
+            {
+                out.flush();
+            }
+        } catch (IOException ioException)
+        {
+            pending.remove(correlationId);
+            future.completeExceptionally(ioException);
+        } finally
+        {
+            writeLock.unlock();
+        }
+        return future;
+    }
+
+    private void readLoop()
+    {
+        var payload = ByteBuffer.allocate(1024);
+        try
+        {
+            while (true)
+            {
+                var length = in.readInt();
+                if (length < BinaryProtocol.HEADER_LENGTH || length > BinaryProtocol.MAX_FRAME_LENGTH)
+                {
+                    throw new IOException("Bad frame length " + length);
+                }
+                var status = in.readByte();
+                var correlationId = in.readLong();
+                var payloadLength = length - BinaryProtocol.HEADER_LENGTH;
+                if (payload.capacity() < payloadLength)
+                {
+                    payload = ByteBuffer.allocate(Integer.highestOneBit(payloadLength - 1) << 1);
+                }
+                in.readFully(payload.array(), 0, payloadLength);
+                payload.clear().limit(payloadLength);
+
+                var request = pending.remove(correlationId);
+                if (request != null)
+                {
+                    request.future().complete(decode(request.opcode(), status, payload));
+                }
+            }
+        } catch (IOException ioException)
+        {
+            failure = ioException;
+        } finally
+        {
+            var closed = failure != null ? failure : new IOException("Connection closed");
+            failure = closed;
+            pending.values().forEach(request -> request.future().completeExceptionally(closed));
+            pending.clear();
+        }
+    }
+
+    private static Reply decode(byte opcode, byte status, ByteBuffer payload)
+    {
+        if (opcode == BinaryProtocol.OP_BATCH && payload.hasRemaining())
+        {
+            var count = Short.toUnsignedInt(payload.getShort());
+            var results = new ArrayList<BatchResult.OperationResult>(count);
+            for (var i = 0; i < count; i++)
+            {
+                var outcome = BatchResult.Outcome.values()[payload.get()];
+                var balance = outcome == BatchResult.Outcome.APPLIED ? BinaryProtocol.getDecimal(payload) : null;
+                results.add(new BatchResult.OperationResult(i, outcome, balance, null));
+            }
+            return new Reply(status, null, null, results);
+        }
+        if (opcode == BinaryProtocol.OP_GET && status == BinaryProtocol.STATUS_OK)
+        {
+            var userId = payload.getLong();
+            var type = Account.AccountType.values()[payload.get()];
+            var account = new Account(userId, BinaryProtocol.getDecimal(payload), type);
+            return new Reply(status, account.getBalance(), account, null);
+        }
+        var balance = payload.hasRemaining() ? BinaryProtocol.getDecimal(payload) : null;
+        return new Reply(status, balance, null, null);
+    }
+}
@@ -96,11 +96,20 @@ public class ResponseFormatter
                 return "No data found";
             }
 
-            // Parse JSON array
+            // Parse JSON array; listing endpoints wrap it in a page {"items": [...], "next": <cursor>}
             var jsonNode = Json.parse(jsonString);
+            var next = "";
+            if (jsonNode.has("items"))
+            {
+                if (jsonNode.hasNonNull("next"))
+                {
+                    next = "\nMore results available (after=" + jsonNode.get("next").asText() + ")";
+                }
+                jsonNode = jsonNode.get("items");
+            }
             if (!jsonNode.isArray() || jsonNode.size() == 0)
             {
-                return formatJsonResponse(jsonString);
+                return jsonNode.isArray() ? "No data found" : formatJsonResponse(jsonString);
             }
 
             // Get the first object to determine field structure
@@ -129,7 +138,7 @@ public class ResponseFormatter
                 return "No displayable fields found";
             }
 
-            return formatGenericTable(jsonNode, fieldNames);
+            return formatGenericTable(jsonNode, fieldNames) + next;
         } catch (Exception jsonFormattingException)
         {
             LOGGER.warn("Failed to format JSON array table: {}", jsonFormattingException.getMessage());
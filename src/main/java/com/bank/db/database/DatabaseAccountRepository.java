@@ -27,6 +27,20 @@ public class DatabaseAccountRepository implements AccountRepository
         throw new UnsupportedOperationException("Database implementation not yet provided.");
     }
 
+    @Override
+    public List<Account> findPage(Long afterId, int limit)
+    {
+        // For JDBC: SELECT ... WHERE id > ? ORDER BY id LIMIT ?
+        throw new UnsupportedOperationException("Database implementation not yet provided.");
+    }
+
+    @Override
+    public List<Account> findPageByUserId(Long userId, Long afterId, int limit)
+    {
+        // For JDBC: SELECT ... WHERE user_id = ? AND id > ? ORDER BY id LIMIT ? (index on user_id, id)
+        throw new UnsupportedOperationException("Database implementation not yet provided.");
+    }
+
     @Override
     public Account findByAccountNumber(String accountNumber)
     {
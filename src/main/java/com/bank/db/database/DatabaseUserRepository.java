@@ -85,4 +85,11 @@ public class DatabaseUserRepository implements UserRepository
         // User.class).getResultList();
         throw new UnsupportedOperationException("Database implementation not yet provided.");
     }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit)
+    {
+        // For JDBC: SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?
+        throw new UnsupportedOperationException("Database implementation not yet provided.");
+    }
 }
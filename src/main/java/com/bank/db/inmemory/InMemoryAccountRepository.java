@@ -2,15 +2,27 @@ package com.bank.db.inmemory;
 
 import com.bank.business.entities.Account;
 import com.bank.business.repositories.AccountRepository;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
 
+/**
+ * Accounts ordered by id, so pages are range scans from the last id a client has seen.
+ * <p>
+ * {@code accountIdsByUser} is a secondary index for per-user lookups. It is only a hint: every id found through it
+ * is checked against {@code accountStore}, so entries left behind after the store is cleared are skipped.
+ */
 public class InMemoryAccountRepository implements AccountRepository
 {
-    private final Map<Long, Account> accountStore = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Account> accountStore = new ConcurrentSkipListMap<>();
+    private final Map<Long, NavigableSet<Long>> accountIdsByUser = new ConcurrentHashMap<>();
     private final AtomicLong idGenerator = new AtomicLong(1); // Simple ID generator
 
     private InMemoryAccountRepository()
@@ -28,8 +40,20 @@ public class InMemoryAccountRepository implements AccountRepository
         if (account.getId() == null)
         {
             account.setId(idGenerator.getAndIncrement());
+        } else if (account.getId() >= idGenerator.get())
+        {
+            // Accounts recovered from a journal keep their ids, so new ones must start after them
+            idGenerator.accumulateAndGet(account.getId() + 1, Math::max);
+        }
+        var previous = accountStore.put(account.getId(), account);
+        if (previous != null && previous.getUserId() != null && !previous.getUserId().equals(account.getUserId()))
+        {
+            userIndex(previous.getUserId()).remove(account.getId());
+        }
+        if (account.getUserId() != null)
+        {
+            userIndex(account.getUserId()).add(account.getId());
         }
-        accountStore.put(account.getId(), account);
         return account;
     }
 
@@ -42,7 +66,47 @@ public class InMemoryAccountRepository implements AccountRepository
     @Override
     public List<Account> findByUserId(Long userId)
     {
-        return accountStore.values().stream().filter(account -> userId.equals(account.getUserId())).collect(Collectors.toList());
+        return findPageByUserId(userId, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Account> findPage(Long afterId, int limit)
+    {
+        var range = afterId == null ? accountStore : accountStore.tailMap(afterId, false);
+        var page = new ArrayList<Account>(Math.min(limit, 256));
+        for (var account : range.values())
+        {
+            if (page.size() == limit)
+            {
+                break;
+            }
+            page.add(account);
+        }
+        return page;
+    }
+
+    @Override
+    public List<Account> findPageByUserId(Long userId, Long afterId, int limit)
+    {
+        var page = new ArrayList<Account>();
+        var ids = accountIdsByUser.get(userId);
+        if (ids == null)
+        {
+            return page;
+        }
+        for (var id : afterId == null ? ids : ids.tailSet(afterId, false))
+        {
+            if (page.size() == limit)
+            {
+                break;
+            }
+            var account = accountStore.get(id);
+            if (account != null && Objects.equals(userId, account.getUserId()))
+            {
+                page.add(account);
+            }
+        }
+        return page;
     }
 
     @Override
@@ -54,7 +118,11 @@ public class InMemoryAccountRepository implements AccountRepository
     @Override
     public void deleteById(Long id)
     {
-        accountStore.remove(id);
+        var removed = accountStore.remove(id);
+        if (removed != null && removed.getUserId() != null)
+        {
+            userIndex(removed.getUserId()).remove(id);
+        }
     }
 
     @Override
@@ -63,6 +131,11 @@ public class InMemoryAccountRepository implements AccountRepository
         return accountStore.values().stream().toList();
     }
 
+    private NavigableSet<Long> userIndex(Long userId)
+    {
+        return accountIdsByUser.computeIfAbsent(userId, key -> new ConcurrentSkipListSet<>());
+    }
+
     private static class InMemoryAccountRepositorySingleton
     {
         private static final InMemoryAccountRepository INSTANCE = new InMemoryAccountRepository();
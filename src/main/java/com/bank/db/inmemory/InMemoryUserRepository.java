@@ -2,9 +2,9 @@ package com.bank.db.inmemory;
 
 import java.util.ArrayList; // Add import
 import java.util.List; // Add import
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.bank.business.entities.User;
@@ -12,7 +12,7 @@ import com.bank.business.repositories.UserRepository;
 
 public class InMemoryUserRepository implements UserRepository
 {
-    private final Map<Long, User> userStore = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, User> userStore = new ConcurrentSkipListMap<>();
     private final AtomicLong idGenerator = new AtomicLong(1); // Simple ID generator
 
     private InMemoryUserRepository()
@@ -87,6 +87,22 @@ public class InMemoryUserRepository implements UserRepository
         return new ArrayList<>(userStore.values());
     }
 
+    @Override
+    public List<User> findPage(Long afterId, int limit)
+    {
+        var range = afterId == null ? userStore : userStore.tailMap(afterId, false);
+        var page = new ArrayList<User>(Math.min(limit, 256));
+        for (var user : range.values())
+        {
+            if (page.size() == limit)
+            {
+                break;
+            }
+            page.add(user);
+        }
+        return page;
+    }
+
     private static class InMemoryUserRepositorySingleton
     {
         private static final InMemoryUserRepository INSTANCE = new InMemoryUserRepository();
@@ -0,0 +1,178 @@
+package com.bank.db.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.bank.business.entities.Account;
+import com.bank.business.entities.Money;
+import com.bank.business.entities.User;
+import com.bank.business.repositories.AccountRepository;
+import com.bank.business.repositories.UserRepository;
+
+/**
+ * Journal payloads: a type byte followed by the entity's full state, so the last record of an entity is all
+ * recovery needs. Deletions carry only the id. Accounts changed together, like the two sides of a transfer, share
+ * one record, so recovery sees either all of them or none.
+ */
+final class JournalRecords
+{
+    static final byte ACCOUNT_SAVED = 1;
+    static final byte ACCOUNT_DELETED = 2;
+    static final byte USER_SAVED = 3;
+    static final byte USER_DELETED = 4;
+    static final byte ACCOUNTS_SAVED = 5;
+
+    private JournalRecords()
+    {
+    }
+
+    @FunctionalInterface
+    private interface Writer
+    {
+        void write(DataOutput out) throws IOException;
+    }
+
+    static ByteBuffer accountSaved(Account account)
+    {
+        return encode(ACCOUNT_SAVED, out -> writeAccount(out, account));
+    }
+
+    static ByteBuffer accountsSaved(List<Account> accounts)
+    {
+        return encode(ACCOUNTS_SAVED, out -> {
+            out.writeInt(accounts.size());
+            for (var account : accounts)
+            {
+                writeAccount(out, account);
+            }
+        });
+    }
+
+    static ByteBuffer userSaved(User user)
+    {
+        return encode(USER_SAVED, out -> {
+            out.writeLong(user.getId());
+            writeNullableString(out, user.getUsername());
+            writeNullableString(out, user.getEmail());
+            writeNullableString(out, user.getPassword());
+            out.writeBoolean(user.isAdmin());
+        });
+    }
+
+    static ByteBuffer deleted(byte type, Long id)
+    {
+        return encode(type, out -> out.writeLong(id));
+    }
+
+    /**
+     * Applies one replayed record to the repositories underneath the journaled ones.
+     *
+     * @throws IllegalStateException for a record type this version does not know
+     */
+    static void replay(ByteBuffer payload, UserRepository users, AccountRepository accounts)
+    {
+        var bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        try
+        {
+            var in = new DataInputStream(new ByteArrayInputStream(bytes));
+            var type = in.readByte();
+            switch (type)
+            {
+                case ACCOUNT_SAVED -> accounts.save(readAccount(in));
+                case ACCOUNTS_SAVED -> {
+                    var count = in.readInt();
+                    for (var i = 0; i < count; i++)
+                    {
+                        accounts.save(readAccount(in));
+                    }
+                }
+                case ACCOUNT_DELETED -> accounts.deleteById(in.readLong());
+                case USER_SAVED -> {
+                    var id = in.readLong();
+                    var username = readNullableString(in);
+                    var email = readNullableString(in);
+                    var password = readNullableString(in);
+                    users.save(new User(username, email, password, id, in.readBoolean(), true));
+                }
+                case USER_DELETED -> users.deleteById(in.readLong());
+                default -> throw new IllegalStateException("Unknown journal record type " + type);
+            }
+        } catch (IOException ioException)
+        {
+            throw new UncheckedIOException("Truncated journal record", ioException);
+        }
+    }
+
+    private static void writeAccount(DataOutput out, Account account) throws IOException
+    {
+        out.writeLong(account.getId());
+        writeNullableLong(out, account.getUserId());
+        writeNullableString(out, account.getAccountNumber());
+        writeNullableString(out, account.getType() == null ? null : account.getType().name());
+        out.writeLong(account.balanceMinorUnits());
+    }
+
+    private static Account readAccount(DataInput in) throws IOException
+    {
+        var id = in.readLong();
+        var userId = readNullableLong(in);
+        var accountNumber = readNullableString(in);
+        var accountType = readNullableString(in);
+        var balance = in.readLong();
+        var account = new Account(userId, accountNumber, Money.toDecimal(balance), accountType == null ? null : Account.AccountType.valueOf(accountType));
+        account.setId(id);
+        return account;
+    }
+
+    private static ByteBuffer encode(byte type, Writer writer)
+    {
+        var bytes = new ByteArrayOutputStream(64);
+        try
+        {
+            var out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            writer.write(out);
+        } catch (IOException ioException)
+        {
+            throw new UncheckedIOException(ioException);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void writeNullableLong(DataOutput out, Long value) throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null)
+        {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInput in) throws IOException
+    {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeNullableString(DataOutput out, String value) throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null)
+        {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
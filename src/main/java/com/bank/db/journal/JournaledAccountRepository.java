@@ -0,0 +1,125 @@
+package com.bank.db.journal;
+
+import java.io.Flushable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.bank.business.entities.Account;
+import com.bank.business.repositories.AccountRepository;
+
+/**
+ * Keeps accounts in another repository and journals every change to a {@link WriteAheadLog}; a change returns
+ * only once its record is durable, or with {@link #saveAllAsync} a future that completes then. Callers already
+ * serialize changes to one account (under its lock, or on the engine thread owning it), so its records reach the
+ * log in the order the changes were made.
+ * <p>
+ * Reads go straight to the wrapped repository.
+ */
+public class JournaledAccountRepository implements AccountRepository, Flushable
+{
+    private final AccountRepository delegate;
+    private final WriteAheadLog log;
+
+    /**
+     * @param delegate holds the accounts, already recovered from {@code log}
+     * @param log
+     */
+    public JournaledAccountRepository(AccountRepository delegate, WriteAheadLog log)
+    {
+        this.delegate = delegate;
+        this.log = log;
+    }
+
+    /**
+     * @throws java.io.UncheckedIOException if the change could not be made durable; it is visible in memory
+     *                                      regardless
+     */
+    @Override
+    public Account save(Account account)
+    {
+        var saved = delegate.save(account);
+        log.append(JournalRecords.accountSaved(saved));
+        return saved;
+    }
+
+    /**
+     * Journals every account in one record, so recovery restores all of them or none.
+     *
+     * @throws java.io.UncheckedIOException if the change could not be made durable; it is visible in memory
+     *                                      regardless
+     */
+    @Override
+    public void saveAll(List<Account> accounts)
+    {
+        for (var account : accounts)
+        {
+            delegate.save(account);
+        }
+        log.append(JournalRecords.accountsSaved(accounts));
+    }
+
+    /**
+     * Journals every account in one record like {@link #saveAll}, without waiting for the sync.
+     *
+     * @return completes on the log's flusher thread once the record is durable, or exceptionally with an
+     *         {@link java.io.UncheckedIOException} if it could not be made durable
+     */
+    @Override
+    public CompletableFuture<Void> saveAllAsync(List<Account> accounts)
+    {
+        for (var account : accounts)
+        {
+            delegate.save(account);
+        }
+        return log.appendAsync(JournalRecords.accountsSaved(accounts));
+    }
+
+    @Override
+    public Account findById(Long id)
+    {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Account> findByUserId(Long userId)
+    {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public List<Account> getAll()
+    {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Account> findPage(Long afterId, int limit)
+    {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public List<Account> findPageByUserId(Long userId, Long afterId, int limit)
+    {
+        return delegate.findPageByUserId(userId, afterId, limit);
+    }
+
+    @Override
+    public Account findByAccountNumber(String accountNumber)
+    {
+        return delegate.findByAccountNumber(accountNumber);
+    }
+
+    @Override
+    public void deleteById(Long id)
+    {
+        log.append(JournalRecords.deleted(JournalRecords.ACCOUNT_DELETED, id));
+        delegate.deleteById(id);
+    }
+
+    @Override
+    public void flush()
+    {
+        log.flush();
+    }
+}
@@ -0,0 +1,30 @@
+package com.bank.db.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.bank.business.repositories.AccountRepository;
+import com.bank.business.repositories.UserRepository;
+
+/**
+ * User and account repositories sharing one {@link WriteAheadLog}.
+ */
+public record JournaledStorage(WriteAheadLog log, JournaledUserRepository users, JournaledAccountRepository accounts)
+{
+    /**
+     * Replays the journal into {@code users} and {@code accounts}, then wraps them so further changes are
+     * journaled.
+     *
+     * @param path
+     * @param groupCommitMicros see {@link WriteAheadLog}
+     * @param users             empty repository to recover users into
+     * @param accounts          empty repository to recover accounts into
+     * @return the journaled repositories
+     * @throws IOException if the journal cannot be opened or read
+     */
+    public static JournaledStorage open(Path path, long groupCommitMicros, UserRepository users, AccountRepository accounts) throws IOException
+    {
+        var log = new WriteAheadLog(path, groupCommitMicros, record -> JournalRecords.replay(record, users, accounts));
+        return new JournaledStorage(log, new JournaledUserRepository(users, log), new JournaledAccountRepository(accounts, log));
+    }
+}
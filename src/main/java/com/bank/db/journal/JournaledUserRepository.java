@@ -0,0 +1,84 @@
+package com.bank.db.journal;
+
+import java.io.Flushable;
+import java.util.List;
+
+import com.bank.business.entities.User;
+import com.bank.business.repositories.UserRepository;
+
+/**
+ * Keeps users in another repository and journals every change to a {@link WriteAheadLog}; a change returns only
+ * once its record is durable. Reads go straight to the wrapped repository.
+ *
+ * @see JournaledAccountRepository
+ */
+public class JournaledUserRepository implements UserRepository, Flushable
+{
+    private final UserRepository delegate;
+    private final WriteAheadLog log;
+
+    /**
+     * @param delegate holds the users, already recovered from {@code log}
+     * @param log
+     */
+    public JournaledUserRepository(UserRepository delegate, WriteAheadLog log)
+    {
+        this.delegate = delegate;
+        this.log = log;
+    }
+
+    /**
+     * @throws java.io.UncheckedIOException if the change could not be made durable; it is visible in memory
+     *                                      regardless
+     */
+    @Override
+    public User save(User user)
+    {
+        var saved = delegate.save(user);
+        log.append(JournalRecords.userSaved(saved));
+        return saved;
+    }
+
+    @Override
+    public User findById(Long id)
+    {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public User findByUsername(String username)
+    {
+        return delegate.findByUsername(username);
+    }
+
+    @Override
+    public User findByEmail(String email)
+    {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public void deleteById(Long id)
+    {
+        log.append(JournalRecords.deleted(JournalRecords.USER_DELETED, id));
+        delegate.deleteById(id);
+    }
+
+    @Override
+    public List<User> findAll()
+    {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit)
+    {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public void flush()
+    {
+        log.flush();
+    }
+}
@@ -0,0 +1,378 @@
+package com.bank.db.journal;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log file with group commit.
+ * <p>
+ * {@link #append} queues a record and blocks until it is on disk; {@link #appendAsync} returns a future for that
+ * instead. A single flusher thread takes everything queued, writes it with one write and makes it durable with one
+ * {@link FileChannel#force} call, so concurrent writers share the cost of a sync. With a group commit window above zero the flusher waits that long after the
+ * first record of a group for others to join it (or until {@value #MAX_GROUP_BYTES} bytes are queued); at zero it
+ * syncs at once, and groups only form from records queued while the previous sync ran.
+ * <p>
+ * Records are {@code [int length][int crc32c][payload]}. On opening, the valid records are replayed in order and a
+ * torn or corrupt tail, left by a crash mid-write, is cut off.
+ * <p>
+ * A failed write or sync stops the log: its group and every later append fail. After a failed {@code force} the
+ * file's contents are unknown, so nothing written after it could be acknowledged as durable.
+ */
+public class WriteAheadLog implements Flushable, Closeable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final int HEADER = 2 * Integer.BYTES;
+    // Larger records are certainly corruption; keeps recovery from allocating garbage lengths
+    private static final int MAX_RECORD = 1 << 20;
+    private static final int MAX_GROUP_BYTES = 1 << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long windowNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final Condition groupFull = lock.newCondition();
+    private final Thread flusher;
+    // Guarded by lock
+    private List<Pending> queue = new ArrayList<>();
+    private int queuedBytes;
+    private boolean closed;
+    private UncheckedIOException failure;
+    // Only written by the flusher
+    private ByteBuffer group = ByteBuffer.allocateDirect(64 * 1024);
+    private volatile long records;
+    private volatile long forces;
+
+    private record Pending(ByteBuffer payload, CompletableFuture<Void> durable)
+    {
+    }
+
+    /**
+     * @param path              created, with its directory, if missing
+     * @param groupCommitMicros how long a group waits for more records before it is synced
+     * @param recovery          receives the payload of every valid record already in the file, in order
+     * @throws IOException if the file cannot be opened, read or truncated
+     */
+    public WriteAheadLog(Path path, long groupCommitMicros, Consumer<ByteBuffer> recovery) throws IOException
+    {
+        this.path = path;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, groupCommitMicros));
+        if (path.getParent() != null)
+        {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var validBytes = replay(recovery);
+        if (validBytes < channel.size())
+        {
+            LOGGER.warn("Cutting {} bytes of torn or corrupt records off the end of {}", channel.size() - validBytes, path);
+            channel.truncate(validBytes);
+            channel.force(true);
+        }
+        channel.position(validBytes);
+        this.flusher = Thread.ofPlatform().name("journal-flusher").daemon().start(this::flushLoop);
+    }
+
+    /**
+     * Appends a record and waits until it is durable.
+     *
+     * @param payload read from its position to its limit
+     * @throws UncheckedIOException if the group it was written with, or an earlier one, could not be synced
+     * @throws IllegalStateException if the log is closed
+     */
+    public void append(ByteBuffer payload)
+    {
+        await(appendAsync(payload));
+    }
+
+    /**
+     * Queues a record without waiting for it, for threads that must not block on a sync.
+     *
+     * @param payload read from its position to its limit, once it is written
+     * @return completes on the flusher thread once the record is durable, after the records queued before it, or
+     *         exceptionally with the {@link UncheckedIOException} {@link #append} would throw
+     * @throws UncheckedIOException if an earlier group could not be synced
+     * @throws IllegalStateException if the log is closed
+     */
+    public CompletableFuture<Void> appendAsync(ByteBuffer payload)
+    {
+        if (payload.remaining() > MAX_RECORD)
+        {
+            throw new IllegalArgumentException("Journal record of " + payload.remaining() + " bytes exceeds " + MAX_RECORD);
+        }
+        return enqueue(payload);
+    }
+
+    /**
+     * Waits until every record appended so far is durable.
+     */
+    @Override
+    public void flush()
+    {
+        await(enqueue(null));
+    }
+
+    /**
+     * @return records written since the log was opened
+     */
+    public long records()
+    {
+        return records;
+    }
+
+    /**
+     * @return {@link FileChannel#force} calls since the log was opened; records over forces is the group size
+     */
+    public long forces()
+    {
+        return forces;
+    }
+
+    /**
+     * Syncs what is queued, then stops the flusher and closes the file.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        lock.lock();
+        try
+        {
+            closed = true;
+            queued.signal();
+            groupFull.signal();
+        } finally
+        {
+            lock.unlock();
+        }
+        try
+        {
+            flusher.join();
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private CompletableFuture<Void> enqueue(ByteBuffer payload)
+    {
+        var pending = new Pending(payload, new CompletableFuture<>());
+        lock.lock();
+        try
+        {
+            if (failure != null)
+            {
+                throw new UncheckedIOException("Journal " + path + " stopped after a failed write", failure.getCause());
+            }
+            if (closed)
+            {
+                throw new IllegalStateException("Journal " + path + " is closed");
+            }
+            queue.add(pending);
+            queuedBytes += payload == null ? 0 : HEADER + payload.remaining();
+            if (queue.size() == 1)
+            {
+                queued.signal();
+            }
+            if (queuedBytes >= MAX_GROUP_BYTES)
+            {
+                groupFull.signal();
+            }
+        } finally
+        {
+            lock.unlock();
+        }
+        return pending.durable();
+    }
+
+    private static void await(CompletableFuture<Void> durable)
+    {
+        try
+        {
+            durable.join();
+        } catch (CompletionException completionException)
+        {
+            if (completionException.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw completionException;
+        }
+    }
+
+    private void flushLoop()
+    {
+        while (true)
+        {
+            List<Pending> batch;
+            lock.lock();
+            try
+            {
+                while (queue.isEmpty())
+                {
+                    if (closed)
+                    {
+                        return;
+                    }
+                    queued.awaitUninterruptibly();
+                }
+                // Give concurrent writers the window to join this group
+                var remaining = windowNanos;
+                while (remaining > 0 && queuedBytes < MAX_GROUP_BYTES && !closed)
+                {
+                    try
+                    {
+                        remaining = groupFull.awaitNanos(remaining);
+                    } catch (InterruptedException interruptedException)
+                    {
+                        break;
+                    }
+                }
+                batch = queue;
+                queue = new ArrayList<>();
+                queuedBytes = 0;
+            } finally
+            {
+                lock.unlock();
+            }
+            if (!commit(batch))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if the group failed, which stops the log
+     */
+    private boolean commit(List<Pending> batch)
+    {
+        try
+        {
+            var written = 0;
+            for (var pending : batch)
+            {
+                if (pending.payload() != null)
+                {
+                    put(pending.payload());
+                    written++;
+                }
+            }
+            if (written > 0)
+            {
+                group.flip();
+                while (group.hasRemaining())
+                {
+                    channel.write(group);
+                }
+                group.clear();
+                channel.force(false);
+                records += written;
+                forces++;
+            }
+            batch.forEach(pending -> pending.durable().complete(null));
+            return true;
+        } catch (IOException ioException)
+        {
+            group.clear();
+            LOGGER.error("Journal {} failed to sync {} records and stops accepting appends: {}", path, batch.size(), ioException.getMessage(),
+                    ioException);
+            var stopped = new UncheckedIOException("Journal write failed", ioException);
+            List<Pending> queuedBehind;
+            lock.lock();
+            try
+            {
+                failure = stopped;
+                queuedBehind = queue;
+                queue = new ArrayList<>();
+                queuedBytes = 0;
+            } finally
+            {
+                lock.unlock();
+            }
+            batch.forEach(pending -> pending.durable().completeExceptionally(stopped));
+            queuedBehind.forEach(pending -> pending.durable().completeExceptionally(stopped));
+            return false;
+        }
+    }
+
+    private void put(ByteBuffer payload)
+    {
+        var length = payload.remaining();
+        if (group.remaining() < HEADER + length)
+        {
+            var grown = ByteBuffer.allocateDirect(Math.max(group.capacity() * 2, group.position() + HEADER + length));
+            group.flip();
+            grown.put(group);
+            group = grown;
+        }
+        var crc = new CRC32C();
+        crc.update(payload.duplicate());
+        group.putInt(length).putInt((int) crc.getValue()).put(payload.duplicate());
+    }
+
+    /**
+     * @return bytes of the file up to the end of the last valid record
+     */
+    private long replay(Consumer<ByteBuffer> recovery) throws IOException
+    {
+        channel.position(0);
+        var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        var valid = 0L;
+        var replayed = 0;
+        var crc = new CRC32C();
+        while (true)
+        {
+            byte[] payload;
+            int expected;
+            try
+            {
+                var length = in.readInt();
+                expected = in.readInt();
+                if (length < 0 || length > MAX_RECORD)
+                {
+                    break;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+            } catch (EOFException eofException)
+            {
+                break;
+            }
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != expected)
+            {
+                break;
+            }
+            recovery.accept(ByteBuffer.wrap(payload).asReadOnlyBuffer());
+            valid += HEADER + payload.length;
+            replayed++;
+        }
+        LOGGER.info("Replayed {} journal records from {}", replayed, path);
+        return valid;
+    }
+}
@@ -1,88 +1,354 @@
 package com.bank.server;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.util.concurrent.Executor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bank.business.services.AccountService;
 import com.bank.business.services.UserService;
+import com.bank.server.admission.AdmissionFilter;
+import com.bank.server.admission.QueueTimingExecutor;
+import com.bank.server.compression.ResponseCompressor;
+import com.bank.server.config.Configuration;
 import com.bank.server.handlers.AccountHandler;
+import com.bank.server.handlers.EventStreamHandler;
 import com.bank.server.handlers.PingHandler;
+import com.bank.server.handlers.MetricsHandler;
+import com.bank.server.handlers.ReadinessHandler;
+import com.bank.server.handlers.StatsHandler;
 import com.bank.server.handlers.UserHandler;
-import com.sun.net.httpserver.HttpServer;
+import com.bank.server.idempotency.IdempotencyGuard;
+import com.bank.server.lifecycle.DrainReport;
+import com.bank.server.lifecycle.RequestTracker;
+import com.bank.server.metrics.CompressionStats;
+import com.bank.server.metrics.PortStatsFilter;
+import com.bank.server.metrics.RequestMetrics;
+import com.bank.server.metrics.ServerStats;
+import com.bank.server.ratelimit.RateLimitPolicy;
+import com.bank.server.routing.Route;
+import com.bank.server.routing.Router;
+import com.bank.server.routing.RouterHandler;
+import com.sun.net.httpserver.Filter;
 
 /**
- * A custom HTTP server using com.sun.net.httpserver.HttpServer
- * with configurable multithreading.
+ * A custom HTTP server with a pluggable transport ({@link ServerEngine})
+ * and configurable multithreading.
+ * <p>
+ * One instance serves every configured port: the executor, IO threads and handler instances are shared, and
+ * requests are counted per port in {@link ServerStats}.
+ * <p>
+ * Limits and timeouts can be {@link #reconfigure retuned} while it runs; the transport and thread model are
+ * fixed for its lifetime.
  */
 public class CustomHttpServer
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomHttpServer.class);
+    private static final List<Map.Entry<String, Function<Configuration.ServerConfig, Object>>> RESTART_ONLY = List.of(
+            Map.entry("engine", Configuration.ServerConfig::getEngine),
+            Map.entry("executor", Configuration.ServerConfig::getExecutor),
+            Map.entry("ioThreads", Configuration.ServerConfig::getIoThreads),
+            Map.entry("bufferSize", Configuration.ServerConfig::getBufferSize),
+            Map.entry("socketBufferSize", Configuration.ServerConfig::getSocketBufferSize),
+            Map.entry("keepAliveSeconds", Configuration.ServerConfig::getKeepAliveSeconds),
+            Map.entry("backlog", Configuration.ServerConfig::getBacklog),
+            Map.entry("queueCapacity", Configuration.ServerConfig::getQueueCapacity),
+            Map.entry("compression", Configuration.ServerConfig::isCompression),
+            Map.entry("compressionLevel", Configuration.ServerConfig::getCompressionLevel),
+            Map.entry("idempotencyMaxEntries", serverConfig -> serverConfig.getIdempotencyMaxEntries() > 0),
+            Map.entry("binaryPort", Configuration.ServerConfig::getBinaryPort),
+            Map.entry("accountEngine", Configuration.ServerConfig::getAccountEngine),
+            Map.entry("accountShards", Configuration.ServerConfig::getAccountShards),
+            Map.entry("accountRingSize", Configuration.ServerConfig::getAccountRingSize),
+            Map.entry("accountJournal", Configuration.ServerConfig::getAccountJournal),
+            Map.entry("accountJournalSync", Configuration.ServerConfig::isAccountJournalSync));
 
-    private final HttpServer server;
-    private final Executor customExecutor;
-    private final int threadPoolSize;
+    private final ServerEngine server;
+    private final ExecutorService customExecutor;
+    private final QueueTimingExecutor queueTimingExecutor;
+    private final ExecutorService streamExecutor;
+    private volatile Configuration.ServerConfig serverConfig;
+    private final ServerStats serverStats;
+    private final CompressionStats compressionStats;
+    private final AdmissionFilter admissionFilter;
+    private final IdempotencyGuard idempotencyGuard;
+    private final RequestTracker requests;
+    private final RequestMetrics requestMetrics;
+    private final EventStreamHandler eventStreamHandler;
+    private final ResponseCompressor compressor;
+    private final List<Filter> filters;
+    private final Router router;
 
-    public CustomHttpServer(int port, int threadPoolSize, UserService userService, AccountService accountService) throws IOException
+    public CustomHttpServer(List<Integer> ports, Configuration.ServerConfig serverConfig, UserService userService, AccountService accountService)
+            throws IOException
     {
-        this.threadPoolSize = threadPoolSize;
+        this.serverConfig = serverConfig;
+        this.serverStats = new ServerStats(ports);
+        this.compressionStats = new CompressionStats();
+        this.admissionFilter = new AdmissionFilter(serverConfig);
+        this.idempotencyGuard = IdempotencyGuard.from(serverConfig);
+        this.requests = new RequestTracker();
+        this.requestMetrics = new RequestMetrics();
+        // Shed requests are still counted per port
+        this.filters = List.of(new PortStatsFilter(serverStats), admissionFilter);
         // Create the server
-        server = HttpServer.create(new InetSocketAddress(port), 160_000);
+        server = ServerEngine.create(ports, serverConfig);
 
-        customExecutor = Executors.newFixedThreadPool(threadPoolSize, new CustomThreadFactory());
-        // customExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        customExecutor = ExecutorFactory.create(serverConfig, "CustomHttpServer");
 
         // Set the custom executor for the server
-        // This controls how incoming requests are handled
-        server.setExecutor(customExecutor);
-
-        // Register your handlers
-        server.createContext("/", new PingHandler(customExecutor));
-        server.createContext("/users", new UserHandler(userService, customExecutor));
-        server.createContext("/login", new UserHandler(userService, customExecutor));
-        server.createContext("/admin/users", new UserHandler(userService, customExecutor));
-
-        // Create contexts for account operations
-        server.createContext("/accounts", new AccountHandler(accountService, userService, customExecutor));
-        server.createContext("/accounts-all", new AccountHandler(accountService, userService, customExecutor));
-        // For
-        // /accounts/{id}
-        server.createContext("/accounts/", new AccountHandler(accountService, userService, customExecutor));
-
-        // Create a context that uses the server's default executor (for comparison)
-        server.createContext("/default", new PingHandler(server.getExecutor()));
+        // This controls how incoming requests are handled; the timing wrapper lets admission see queue waits
+        queueTimingExecutor = new QueueTimingExecutor(customExecutor);
+        server.setExecutor(queueTimingExecutor);
+        // Event streams stay open for minutes, so each gets a virtual thread rather than a worker
+        streamExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("event-stream-", 0).factory());
+
+        // Routes are compiled once into a trie; every request goes through a single context
+        var pingHandler = new PingHandler();
+        var routes = Router.builder();
+        pingHandler.registerRoutes(routes);
+        new ReadinessHandler(requests).registerRoutes(routes);
+        new UserHandler(userService).registerRoutes(routes);
+        new AccountHandler(accountService, userService).registerRoutes(routes);
+        eventStreamHandler = new EventStreamHandler(accountService, userService, streamExecutor, serverConfig);
+        eventStreamHandler.registerRoutes(routes);
+        new StatsHandler(serverStats, compressionStats, admissionFilter, idempotencyGuard, eventStreamHandler).registerRoutes(routes);
+        new MetricsHandler(requestMetrics, serverStats, requests, queueTimingExecutor).registerRoutes(routes);
+
+        // Explicitly offloaded ping, kept for comparing the cost of an extra executor hop
+        routes.get("/default", pingHandler::handlePing).offload(customExecutor);
+
+        router = routes.build();
+        rateLimits(router, serverConfig).forEach(Route::rateLimit);
+        requestTimeouts(router, serverConfig).forEach(Route::timeout);
+        LOGGER.info("Rate limited routes: {}", router.routes().stream().filter(route -> route.rateLimit() != null).toList());
+        compressor = serverConfig.isCompression() ? new ResponseCompressor(serverConfig, compressionStats) : null;
+        server.createContext("/", new RouterHandler(router, compressor, idempotencyGuard, requests, requestMetrics), filters);
+        LOGGER.info("Registered {} routes", router.routes().size());
+    }
+
+    /**
+     * Applies a reloaded {@code server} section. Admission limits, rate limits, request timeouts, event stream
+     * settings, the idempotency cache limits, the compression threshold and the fixed pool's size change in place;
+     * rate limit buckets are only rebuilt (and so refilled) when their rules change. Settings that shape the
+     * transport or thread model need a restart and are only logged.
+     *
+     * @param next
+     * @throws IllegalArgumentException if rate limits or timeouts name unknown routes; nothing is applied then
+     */
+    public synchronized void reconfigure(Configuration.ServerConfig next)
+    {
+        var previous = serverConfig;
+        var rateLimits = rateLimits(router, next);
+        var timeouts = requestTimeouts(router, next);
+
+        if (!Objects.equals(previous.getRateLimits(), next.getRateLimits()) || !Objects.equals(previous.getClientIpHeader(), next.getClientIpHeader())
+                || !Objects.equals(previous.getRateLimitUserHeader(), next.getRateLimitUserHeader()))
+        {
+            rateLimits.forEach(Route::rateLimit);
+            LOGGER.info("Rate limited routes: {}", router.routes().stream().filter(route -> route.rateLimit() != null).toList());
+        }
+        timeouts.forEach(Route::timeout);
+        admissionFilter.reconfigure(next);
+        eventStreamHandler.reconfigure(next);
+        if (compressor != null)
+        {
+            compressor.reconfigure(next);
+        }
+        if (idempotencyGuard != null && next.getIdempotencyMaxEntries() > 0)
+        {
+            idempotencyGuard.cache().resize(next.getIdempotencyMaxEntries(), TimeUnit.SECONDS.toNanos(next.getIdempotencyTtlSeconds()));
+        }
+        if (!ExecutorFactory.resize(customExecutor, next))
+        {
+            LOGGER.warn("The {} executor cannot be resized while running; restart to apply pool size {}", next.getExecutor(), next.resolvePoolSize());
+        }
+
+        var restartOnly = new ArrayList<String>();
+        for (var setting : RESTART_ONLY)
+        {
+            if (!Objects.equals(setting.getValue().apply(previous), setting.getValue().apply(next)))
+            {
+                restartOnly.add(setting.getKey());
+            }
+        }
+        if (!restartOnly.isEmpty())
+        {
+            LOGGER.warn("Changed settings that only take effect after a restart: {}", restartOnly);
+        }
+        serverConfig = next;
+        LOGGER.info("Applied reloaded server configuration: {}", next);
+    }
+
+    /**
+     * Resolves the configured {@link Configuration.RateLimitRule}s to a policy (or null) for every route.
+     *
+     * @throws IllegalArgumentException if a rule names a route that does not exist
+     */
+    private static Map<Route, RateLimitPolicy> rateLimits(Router router, Configuration.ServerConfig serverConfig)
+    {
+        var policies = new HashMap<Route, RateLimitPolicy>();
+        var rules = new HashMap<String, Configuration.RateLimitRule>();
+        for (var rule : serverConfig.getRateLimits())
+        {
+            rules.put(rule.getRoute(), rule);
+        }
+        var defaultRule = rules.remove("*");
+        for (var route : router.routes())
+        {
+            var rule = rules.remove(route.toString());
+            rule = rule != null ? rule : defaultRule;
+            policies.put(route, rule != null ? RateLimitPolicy.from(rule, serverConfig) : null);
+        }
+        if (!rules.isEmpty())
+        {
+            throw new IllegalArgumentException("Rate limits configured for unknown routes: " + rules.keySet());
+        }
+        return policies;
+    }
+
+    /**
+     * Resolves each route's timeout from {@code requestTimeouts}, where {@code "*"} covers routes without their
+     * own entry and 0 means none.
+     *
+     * @throws IllegalArgumentException if a timeout names a route that does not exist
+     */
+    private static Map<Route, Long> requestTimeouts(Router router, Configuration.ServerConfig serverConfig)
+    {
+        var resolved = new HashMap<Route, Long>();
+        var timeouts = new HashMap<>(serverConfig.getRequestTimeouts());
+        var defaultTimeout = timeouts.remove("*");
+        for (var route : router.routes())
+        {
+            var timeout = timeouts.remove(route.toString());
+            timeout = timeout != null ? timeout : defaultTimeout;
+            resolved.put(route, timeout != null ? timeout : 0L);
+        }
+        if (!timeouts.isEmpty())
+        {
+            throw new IllegalArgumentException("Request timeouts configured for unknown routes: " + timeouts.keySet());
+        }
+        return resolved;
     }
 
     public void start()
     {
         server.start();
-        LOGGER.info("Server started on port {}", server.getAddress().getPort());
-        LOGGER.info("Configured thread pool size: {}", threadPoolSize);
+        LOGGER.info("Server started on {}", server.getAddresses());
+        LOGGER.info("Configured executor: {}", serverConfig);
     }
 
     public void stop(int delay)
     {
         server.stop(delay);
+        customExecutor.shutdown();
+        // Interrupts the open event streams
+        streamExecutor.shutdownNow();
         LOGGER.info("Server stopped");
     }
 
+    /**
+     * Shuts down without cutting requests off: {@code GET /ready} answers 503 and responses ask clients to close
+     * their connections, {@code drainDelayMillis} later the ports stop accepting and event streams end, and
+     * requests in flight, or still queued for a worker, get until {@code timeout} to finish.
+     *
+     * @param timeout
+     * @param unit
+     * @return how long the drain took and how many requests were still running when it gave up
+     */
+    public DrainReport drain(long timeout, TimeUnit unit)
+    {
+        var start = System.nanoTime();
+        var deadline = start + unit.toNanos(timeout);
+        requests.startDraining();
+        LOGGER.info("Draining with {} requests in flight", requests.inFlight());
+        try
+        {
+            // Gives the load balancer time to see the server is not ready
+            var delay = Math.min(TimeUnit.MILLISECONDS.toNanos(serverConfig.getDrainDelayMillis()), deadline - start);
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        }
+        // Streams never finish on their own
+        streamExecutor.shutdownNow();
+        // The engine stops accepting at once but then may sit out its whole delay (the JDK server always does),
+        // so it finishes in the background while the tracker decides when the drain is over
+        var stopSeconds = (int) Math.max(0, TimeUnit.NANOSECONDS.toSeconds(deadline - System.nanoTime() + 999_999_999));
+        Thread.ofPlatform().name("http-stop").daemon().start(() -> server.stop(stopSeconds));
+        requests.awaitIdle(deadline);
+        // The tracker only sees a request once a worker starts it; shutting down still runs the queued ones
+        customExecutor.shutdown();
+        try
+        {
+            customExecutor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        }
+        var abandoned = requests.inFlight() + (int) queueTimingExecutor.queued();
+        var report = new DrainReport(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), abandoned);
+        LOGGER.info("Server drained: {}", report);
+        return report;
+    }
+
+    /**
+     * @return the server settings in force, including reloads
+     */
+    public Configuration.ServerConfig getServerConfig()
+    {
+        return serverConfig;
+    }
+
+    public ServerStats getServerStats()
+    {
+        return serverStats;
+    }
+
+    public AdmissionFilter getAdmissionFilter()
+    {
+        return admissionFilter;
+    }
+
+    public CompressionStats getCompressionStats()
+    {
+        return compressionStats;
+    }
+
+    public Router getRouter()
+    {
+        return router;
+    }
+
     /**
      * A custom thread factory to name threads for better debugging.
      */
     static class CustomThreadFactory implements ThreadFactory
     {
         private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String name;
+
+        CustomThreadFactory(String name)
+        {
+            this.name = name;
+        }
 
         @Override
         public Thread newThread(Runnable runnable)
         {
-            var newThreadInstance = new Thread(runnable, "CustomHttpServer-" + threadNumber.getAndIncrement());
+            var newThreadInstance = new Thread(runnable, name + "-" + threadNumber.getAndIncrement());
             newThreadInstance.setDaemon(false); // User threads, not daemon threads
             return newThreadInstance;
         }
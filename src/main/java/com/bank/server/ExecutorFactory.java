@@ -0,0 +1,146 @@
+package com.bank.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bank.server.config.Configuration;
+
+/**
+ * Builds the request executor from the {@code server} section of http.json.
+ * <p>
+ * {@code virtual} runs one virtual thread per request. Request paths only block on
+ * {@link java.util.concurrent.locks.ReentrantReadWriteLock} (never inside {@code synchronized}), so a parked
+ * transfer unmounts from its carrier instead of pinning it.
+ * <p>
+ * {@code fixed} queues at most {@code queueCapacity} requests; beyond that the executor rejects and both engines
+ * close the connection, which is the last line of defence behind {@link com.bank.server.admission.AdmissionFilter}.
+ */
+public final class ExecutorFactory
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorFactory.class);
+
+    public enum Mode
+    {
+        FIXED, VIRTUAL, FORKJOIN;
+
+        public static Mode from(String value)
+        {
+            if (value == null || value.isBlank())
+            {
+                return VIRTUAL;
+            }
+            try
+            {
+                return Mode.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException illegalArgumentException)
+            {
+                LOGGER.warn("Unknown executor mode '{}'. Defaulting to virtual.", value);
+                return VIRTUAL;
+            }
+        }
+    }
+
+    private ExecutorFactory()
+    {
+    }
+
+    /**
+     * @param serverConfig
+     * @param name prefix used for worker thread names
+     * @return a new executor for the configured mode
+     */
+    public static ExecutorService create(Configuration.ServerConfig serverConfig, String name)
+    {
+        var mode = Mode.from(serverConfig.getExecutor());
+        return switch (mode)
+        {
+            case FIXED -> {
+                var poolSize = serverConfig.resolvePoolSize();
+                var queueCapacity = serverConfig.getQueueCapacity();
+                LOGGER.info("Executor mode: fixed ({} platform threads, {} CPUs, queue capacity {})", poolSize, Runtime.getRuntime().availableProcessors(),
+                        queueCapacity > 0 ? queueCapacity : "unbounded");
+                var queue = queueCapacity > 0 ? new ArrayBlockingQueue<Runnable>(queueCapacity) : new LinkedBlockingQueue<Runnable>();
+                yield new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, queue, new CustomHttpServer.CustomThreadFactory(name));
+            }
+            case VIRTUAL -> {
+                LOGGER.info("Executor mode: virtual (one virtual thread per request, {} carrier CPUs)", Runtime.getRuntime().availableProcessors());
+                yield Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-vt-", 1).factory());
+            }
+            case FORKJOIN -> {
+                // Lock waits in AccountService are not ManagedBlockers, so size for blocking rather than for CPU
+                var parallelism = serverConfig.resolvePoolSize();
+                LOGGER.info("Executor mode: forkjoin (parallelism {}, {} CPUs)", parallelism, Runtime.getRuntime().availableProcessors());
+                yield new ForkJoinPool(parallelism, new NamedForkJoinThreadFactory(name), null, true);
+            }
+        };
+    }
+
+    /**
+     * Applies a reloaded pool size to a running executor. A fixed pool is resized in place; virtual threads have
+     * no size, and a fork-join pool's parallelism is fixed when it is created.
+     *
+     * @param executor     an executor built by {@link #create}
+     * @param serverConfig
+     * @return false if the executor could not take the configured size
+     */
+    public static boolean resize(ExecutorService executor, Configuration.ServerConfig serverConfig)
+    {
+        var poolSize = serverConfig.resolvePoolSize();
+        if (executor instanceof ThreadPoolExecutor pool)
+        {
+            if (poolSize == pool.getCorePoolSize())
+            {
+                return true;
+            }
+            // The core size may never exceed the maximum, so the order depends on the direction
+            if (poolSize > pool.getMaximumPoolSize())
+            {
+                pool.setMaximumPoolSize(poolSize);
+                pool.setCorePoolSize(poolSize);
+            } else
+            {
+                pool.setCorePoolSize(poolSize);
+                pool.setMaximumPoolSize(poolSize);
+            }
+            LOGGER.info("Fixed pool resized to {} threads", poolSize);
+            return true;
+        }
+        if (executor instanceof ForkJoinPool pool)
+        {
+            return pool.getParallelism() == poolSize;
+        }
+        return true;
+    }
+
+    /**
+     * Names fork-join workers the same way as the fixed pool for easier thread dumps.
+     */
+    static class NamedForkJoinThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory
+    {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String name;
+
+        NamedForkJoinThreadFactory(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+        {
+            var worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName(name + "-fj-" + threadNumber.getAndIncrement());
+            return worker;
+        }
+    }
+}
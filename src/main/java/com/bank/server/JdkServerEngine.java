@@ -0,0 +1,89 @@
+package com.bank.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * {@link ServerEngine} backed by com.sun.net.httpserver.
+ * <p>
+ * An {@link HttpServer} binds a single address, so there is one per port; they share the executor and handler
+ * instances and only add one dispatcher thread per port.
+ * <p>
+ * The server exposes no socket, so {@link ServerEngine#abort} cannot drop a connection here and completes the
+ * response instead.
+ */
+public class JdkServerEngine implements ServerEngine
+{
+    static
+    {
+        // The JDK server writes headers and body separately; without TCP_NODELAY every response waits on delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+        {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    /**
+     * @param addresses
+     * @param backlog pending connections the kernel queues per port before refusing more
+     * @throws IOException
+     */
+    public JdkServerEngine(List<InetSocketAddress> addresses, int backlog) throws IOException
+    {
+        for (var address : addresses)
+        {
+            servers.add(HttpServer.create(address, backlog));
+        }
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler, List<Filter> filters)
+    {
+        for (var server : servers)
+        {
+            server.createContext(path, handler).getFilters().addAll(filters);
+        }
+    }
+
+    @Override
+    public void setExecutor(Executor executor)
+    {
+        for (var server : servers)
+        {
+            server.setExecutor(executor);
+        }
+    }
+
+    @Override
+    public void start()
+    {
+        for (var server : servers)
+        {
+            server.start();
+        }
+    }
+
+    @Override
+    public void stop(int delay)
+    {
+        for (var server : servers)
+        {
+            server.stop(delay);
+        }
+    }
+
+    @Override
+    public List<InetSocketAddress> getAddresses()
+    {
+        return servers.stream().map(HttpServer::getAddress).toList();
+    }
+}
@@ -0,0 +1,66 @@
+package com.bank.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import com.bank.server.config.Configuration;
+import com.bank.server.nio.NioServerEngine;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The transport underneath {@link CustomHttpServer}. Handlers are plain {@link HttpHandler}s regardless of engine.
+ * <p>
+ * One engine listens on every configured port and shares its threads, contexts and filters across all of them.
+ */
+public interface ServerEngine
+{
+    void createContext(String path, HttpHandler handler, List<Filter> filters);
+
+    void setExecutor(Executor executor);
+
+    void start();
+
+    void stop(int delay);
+
+    List<InetSocketAddress> getAddresses();
+
+    /**
+     * Drops the connection under an NIO exchange without completing its response, so the client sees a partly sent
+     * body as truncated. Handlers that fail on their own threads use it where the engine would otherwise only learn
+     * of the failure from a rethrown exception.
+     * <p>
+     * The jdk engine offers no way to drop a connection, so its exchange is closed instead, which completes the
+     * response: a chunked body ends as if it were whole.
+     *
+     * @param exchange the engine's own exchange, not a wrapper around it
+     */
+    static void abort(HttpExchange exchange)
+    {
+        if (!NioServerEngine.abort(exchange))
+        {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param ports
+     * @param serverConfig
+     * @return the engine selected by {@code server.engine}
+     * @throws IOException if a port cannot be bound
+     */
+    static ServerEngine create(List<Integer> ports, Configuration.ServerConfig serverConfig) throws IOException
+    {
+        var addresses = ports.stream().map(InetSocketAddress::new).toList();
+        var engine = serverConfig.getEngine() == null ? "jdk" : serverConfig.getEngine().trim().toLowerCase();
+        return switch (engine)
+        {
+            case "nio" -> new NioServerEngine(addresses, serverConfig);
+            case "jdk" -> new JdkServerEngine(addresses, serverConfig.getBacklog());
+            default -> throw new IllegalArgumentException("Unknown server engine: " + serverConfig.getEngine());
+        };
+    }
+}
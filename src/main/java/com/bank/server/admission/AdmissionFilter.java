@@ -0,0 +1,116 @@
+package com.bank.server.admission;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bank.server.config.Configuration;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Sheds load before it reaches the handlers.
+ * <p>
+ * A request that already waited longer than {@code queueDeadlineMillis} for a worker is dropped: its client has
+ * most likely given up, and serving it would only delay the requests behind it. Otherwise it needs a permit from
+ * the read limiter (GET and HEAD) or the write limiter (everything else), so slow lock-bound writes cannot starve
+ * reads and vice versa. Both rejections are an immediate {@code 503} with {@code Retry-After}.
+ */
+public final class AdmissionFilter extends Filter
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionFilter.class);
+    private static final byte[] OVERLOADED = "{\"error\": \"Service Unavailable: server overloaded\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final InFlightLimiter reads;
+    private final InFlightLimiter writes;
+    private final LongAdder expired = new LongAdder();
+    private volatile long queueDeadlineNanos;
+    private volatile String retryAfterSeconds;
+
+    public AdmissionFilter(Configuration.ServerConfig serverConfig)
+    {
+        this.reads = new InFlightLimiter(serverConfig.getMaxInFlightReads());
+        this.writes = new InFlightLimiter(serverConfig.getMaxInFlightWrites());
+        reconfigure(serverConfig);
+    }
+
+    /**
+     * Applies reloaded limits; requests already admitted keep their permits.
+     *
+     * @param serverConfig
+     */
+    public void reconfigure(Configuration.ServerConfig serverConfig)
+    {
+        reads.setLimit(serverConfig.getMaxInFlightReads());
+        writes.setLimit(serverConfig.getMaxInFlightWrites());
+        this.queueDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(serverConfig.getQueueDeadlineMillis());
+        this.retryAfterSeconds = String.valueOf(serverConfig.getRetryAfterSeconds());
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException
+    {
+        if (queueDeadlineNanos > 0 && QueueTimingExecutor.queuedNanos() > queueDeadlineNanos)
+        {
+            expired.increment();
+            LOGGER.debug("Dropping {} {} after it waited past the queue deadline", exchange.getRequestMethod(), exchange.getRequestURI());
+            reject(exchange);
+            return;
+        }
+
+        var method = exchange.getRequestMethod();
+        var limiter = "GET".equals(method) || "HEAD".equals(method) ? reads : writes;
+        if (!limiter.tryAcquire())
+        {
+            reject(exchange);
+            return;
+        }
+        try
+        {
+            chain.doFilter(exchange);
+        } finally
+        {
+            limiter.release();
+        }
+    }
+
+    private void reject(HttpExchange exchange) throws IOException
+    {
+        exchange.getRequestBody().close();
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Retry-After", retryAfterSeconds);
+        exchange.sendResponseHeaders(503, OVERLOADED.length);
+        try (var os = exchange.getResponseBody())
+        {
+            os.write(OVERLOADED);
+        }
+    }
+
+    public InFlightLimiter reads()
+    {
+        return reads;
+    }
+
+    public InFlightLimiter writes()
+    {
+        return writes;
+    }
+
+    /**
+     * @return requests dropped for waiting past the queue deadline
+     */
+    public long expired()
+    {
+        return expired.sum();
+    }
+
+    @Override
+    public String description()
+    {
+        return "In-flight limits and queue deadline";
+    }
+}
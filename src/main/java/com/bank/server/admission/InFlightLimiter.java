@@ -0,0 +1,74 @@
+package com.bank.server.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking cap on concurrently executing requests: a caller either gets a permit immediately or is told to
+ * shed the request. The limit can be changed at runtime; lowering it only stops new admissions.
+ */
+public class InFlightLimiter
+{
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    /**
+     * @param limit maximum concurrent permits, 0 or less for no limit
+     */
+    public InFlightLimiter(int limit)
+    {
+        this.limit = limit;
+    }
+
+    /**
+     * @return true if a permit was taken and must be given back with {@link #release()}
+     */
+    public boolean tryAcquire()
+    {
+        var max = limit;
+        if (max <= 0)
+        {
+            inFlight.incrementAndGet();
+            return true;
+        }
+        while (true)
+        {
+            var current = inFlight.get();
+            if (current >= max)
+            {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1))
+            {
+                return true;
+            }
+        }
+    }
+
+    public void release()
+    {
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight()
+    {
+        return inFlight.get();
+    }
+
+    public long rejected()
+    {
+        return rejected.sum();
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    public void setLimit(int limit)
+    {
+        this.limit = limit;
+    }
+}
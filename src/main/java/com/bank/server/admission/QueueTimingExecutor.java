@@ -0,0 +1,67 @@
+package com.bank.server.admission;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers when each task was handed to the executor, so code running inside the task can tell how long it
+ * sat in the queue (see {@link #queuedNanos()}), and counts the tasks still waiting for a thread.
+ */
+public class QueueTimingExecutor implements Executor
+{
+    // Holder per thread: platform workers reuse it, and a virtual thread only ever runs one task
+    private static final ThreadLocal<long[]> ENQUEUED_AT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Executor delegate;
+    private final LongAdder queued = new LongAdder();
+
+    public QueueTimingExecutor(Executor delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        var enqueuedAt = System.nanoTime();
+        queued.increment();
+        try
+        {
+            delegate.execute(() -> {
+                queued.decrement();
+                var slot = ENQUEUED_AT.get();
+                slot[0] = enqueuedAt;
+                try
+                {
+                    command.run();
+                } finally
+                {
+                    slot[0] = 0;
+                }
+            });
+        } catch (RejectedExecutionException rejectedExecutionException)
+        {
+            queued.decrement();
+            throw rejectedExecutionException;
+        }
+    }
+
+    /**
+     * @return tasks submitted but not yet started, whatever kind of executor is underneath
+     */
+    public long queued()
+    {
+        return queued.sum();
+    }
+
+    /**
+     * @return nanoseconds since the current task was submitted, or 0 when the current thread is not running a
+     *         task of a {@link QueueTimingExecutor}
+     */
+    public static long queuedNanos()
+    {
+        var enqueuedAt = ENQUEUED_AT.get()[0];
+        return enqueuedAt == 0 ? 0 : System.nanoTime() - enqueuedAt;
+    }
+}
@@ -0,0 +1,149 @@
+package com.bank.server.binary;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import com.bank.business.entities.Money;
+
+/**
+ * Wire format of the binary account protocol, shared by {@link BinaryServer} and
+ * {@link com.bank.client.BinaryBankClient}.
+ * <p>
+ * Every frame is {@code int length} (bytes that follow) and then a header: a request carries {@code byte opcode,
+ * long correlationId}, a response {@code byte status, long correlationId}, followed by the payload. All numbers
+ * are big-endian. A decimal is {@code byte scale, long unscaledValue}.
+ *
+ * <pre>
+ * GET       long accountId                          -> long userId, byte accountType, decimal balance
+ * DEPOSIT   long accountId, decimal amount          -> decimal balance
+ * WITHDRAW  long accountId, decimal amount          -> decimal balance
+ * TRANSFER  long from, long to, decimal amount      -> decimal balance of from
+ * BATCH     short n, n x (byte type, long accountId,
+ *           [long toAccountId if TRANSFER], decimal amount)
+ *                                                   -> short n, n x (byte outcome, [decimal balance if APPLIED])
+ * </pre>
+ *
+ * Failures carry no payload except {@code INSUFFICIENT_FUNDS} on WITHDRAW and TRANSFER (the current balance) and
+ * every BATCH response (the per-operation outcomes). Amounts must be positive, below {@link #MAX_AMOUNT} and have
+ * at most two decimal places, so that balances stay encodable; other amounts are {@code INVALID}.
+ */
+public final class BinaryProtocol
+{
+    public static final byte OP_GET = 1;
+    public static final byte OP_DEPOSIT = 2;
+    public static final byte OP_WITHDRAW = 3;
+    public static final byte OP_TRANSFER = 4;
+    public static final byte OP_BATCH = 5;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_NOT_FOUND = 1;
+    public static final byte STATUS_INSUFFICIENT_FUNDS = 2;
+    public static final byte STATUS_INVALID = 3;
+    public static final byte STATUS_BUSY = 4;
+    public static final byte STATUS_ERROR = 5;
+
+    /** Batch operation types, in the order of {@link com.bank.business.services.BatchOperation.Type} */
+    public static final byte BATCH_DEPOSIT = 0;
+    public static final byte BATCH_WITHDRAW = 1;
+    public static final byte BATCH_TRANSFER = 2;
+
+    /** Batch outcomes, in the order of {@link com.bank.business.services.BatchResult.Outcome} */
+    public static final byte OUTCOME_APPLIED = 0;
+    public static final byte OUTCOME_FAILED = 1;
+    public static final byte OUTCOME_NOT_APPLIED = 2;
+
+    /** Opcode or status byte plus correlation id */
+    public static final int HEADER_LENGTH = 1 + Long.BYTES;
+    public static final int MAX_FRAME_LENGTH = 1 << 20;
+    /** Encoded size of a decimal */
+    public static final int DECIMAL_LENGTH = 1 + Long.BYTES;
+    public static final BigDecimal MAX_AMOUNT = new BigDecimal("1000000000000");
+    private static final long MAX_AMOUNT_MINOR_UNITS = Money.toMinorUnits(MAX_AMOUNT);
+
+    private BinaryProtocol()
+    {
+    }
+
+    /**
+     * @param buffer
+     * @param value
+     * @throws ArithmeticException if the unscaled value does not fit in a long or the scale in a byte
+     */
+    public static void putDecimal(ByteBuffer buffer, BigDecimal value)
+    {
+        if (value.scale() < Byte.MIN_VALUE || value.scale() > Byte.MAX_VALUE)
+        {
+            throw new ArithmeticException("Scale out of range: " + value.scale());
+        }
+        buffer.put((byte) value.scale());
+        buffer.putLong(value.unscaledValue().longValueExact());
+    }
+
+    /**
+     * Writes minor units as a decimal of scale {@value Money#SCALE}, the same bytes {@link #putDecimal} writes for
+     * the equivalent {@link BigDecimal}.
+     *
+     * @param buffer
+     * @param minorUnits see {@link Money}
+     */
+    public static void putMinorUnits(ByteBuffer buffer, long minorUnits)
+    {
+        buffer.put((byte) Money.SCALE);
+        buffer.putLong(minorUnits);
+    }
+
+    /**
+     * @param buffer
+     * @return the amount at the buffer's position, at scale 2
+     * @throws ArithmeticException if the amount has more than two decimal places
+     * @throws IllegalArgumentException if the amount is not positive or too large
+     */
+    public static BigDecimal getAmount(ByteBuffer buffer)
+    {
+        return Money.toDecimal(getAmountMinorUnits(buffer));
+    }
+
+    /**
+     * Reads an amount straight into minor units, without going through {@link BigDecimal}.
+     *
+     * @param buffer
+     * @return the amount at the buffer's position, in minor units
+     * @throws ArithmeticException if the amount has more than two decimal places
+     * @throws IllegalArgumentException if the amount is not positive or too large
+     */
+    public static long getAmountMinorUnits(ByteBuffer buffer)
+    {
+        int scale = buffer.get();
+        var unscaled = buffer.getLong();
+        var minorUnits = unscaled;
+        // Scales below two need padding with zeros, above two may only drop zeros
+        for (; scale < Money.SCALE && minorUnits != 0; scale++)
+        {
+            minorUnits = Math.multiplyExact(minorUnits, 10L);
+        }
+        for (; scale > Money.SCALE && minorUnits != 0; scale--)
+        {
+            if (minorUnits % 10 != 0)
+            {
+                throw new ArithmeticException("More than " + Money.SCALE + " decimal places: " + BigDecimal.valueOf(unscaled, scale));
+            }
+            minorUnits /= 10;
+        }
+        if (minorUnits <= 0 || minorUnits >= MAX_AMOUNT_MINOR_UNITS)
+        {
+            throw new IllegalArgumentException("Amount out of range: " + BigDecimal.valueOf(unscaled, scale));
+        }
+        return minorUnits;
+    }
+
+    /**
+     * @param buffer
+     * @return the decimal at the buffer's position
+     * @throws java.nio.BufferUnderflowException if the frame ends early
+     */
+    public static BigDecimal getDecimal(ByteBuffer buffer)
+    {
+        var scale = buffer.get();
+        return BigDecimal.valueOf(buffer.getLong(), scale);
+    }
+}
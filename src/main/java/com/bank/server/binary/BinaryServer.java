@@ -0,0 +1,354 @@
+package com.bank.server.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bank.business.services.AccountBusyException;
+import com.bank.business.services.AccountService;
+import com.bank.business.services.BatchOperation;
+import com.bank.business.services.BatchResult;
+import com.bank.business.services.Deadline;
+
+/**
+ * TCP listener for the {@link BinaryProtocol}, for internal batch clients that do not need HTTP.
+ * <p>
+ * Each connection is served by its own virtual thread, which reads frames and answers them in order, so a
+ * client can pipeline any number of requests. Responses are buffered and only flushed once no further request
+ * is already waiting in the input, so a pipelined burst is answered with a few large writes instead of one per
+ * request. Because requests on one connection run in order, an operation waiting for an account lock delays
+ * the ones behind it; clients that want parallelism open several connections.
+ */
+public class BinaryServer
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryServer.class);
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final AccountService accountService;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private Thread acceptor;
+    private volatile boolean running;
+
+    /**
+     * @param port           port to listen on, 0 for an ephemeral one
+     * @param backlog        pending connections the kernel queues
+     * @param accountService
+     * @throws IOException if the port cannot be bound
+     */
+    public BinaryServer(int port, int backlog, AccountService accountService) throws IOException
+    {
+        this.accountService = accountService;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), backlog);
+    }
+
+    public void start()
+    {
+        running = true;
+        acceptor = Thread.ofPlatform().name("binary-accept").start(this::acceptLoop);
+        LOGGER.info("Binary protocol listening on {}", serverSocket.getLocalSocketAddress());
+    }
+
+    public void stop()
+    {
+        running = false;
+        try
+        {
+            serverSocket.close();
+        } catch (IOException closeException)
+        {
+            LOGGER.warn("Failed to close binary listener: {}", closeException.getMessage());
+        }
+        for (var connection : new ArrayList<>(connections))
+        {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Stops accepting and lets every connection finish the requests it has already read, then closes it. Requests
+     * still in the socket are not read, so a client sees the connection close without them having run.
+     *
+     * @param timeout
+     * @param unit
+     * @return connections still busy at the deadline, which are closed regardless
+     */
+    public int drain(long timeout, TimeUnit unit)
+    {
+        var deadline = System.nanoTime() + unit.toNanos(timeout);
+        running = false;
+        try
+        {
+            serverSocket.close();
+        } catch (IOException closeException)
+        {
+            LOGGER.warn("Failed to close binary listener: {}", closeException.getMessage());
+        }
+        for (var connection : new ArrayList<>(connections))
+        {
+            try
+            {
+                // The connection's thread reads end of stream after its current request and closes
+                connection.shutdownInput();
+            } catch (IOException shutdownException)
+            {
+                closeQuietly(connection);
+            }
+        }
+        while (!connections.isEmpty() && System.nanoTime() < deadline)
+        {
+            try
+            {
+                Thread.sleep(10);
+            } catch (InterruptedException interruptedException)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        var abandoned = connections.size();
+        stop();
+        return abandoned;
+    }
+
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop()
+    {
+        while (running)
+        {
+            try
+            {
+                var socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread.ofVirtual().name("binary-conn").start(() -> serve(socket));
+            } catch (IOException acceptException)
+            {
+                if (running)
+                {
+                    LOGGER.warn("Binary accept failed: {}", acceptException.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket)
+    {
+        try (socket)
+        {
+            var in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), STREAM_BUFFER_SIZE));
+            var out = new BufferedOutputStream(socket.getOutputStream(), STREAM_BUFFER_SIZE);
+            var request = ByteBuffer.allocate(1024);
+            var response = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            while (true)
+            {
+                int length;
+                try
+                {
+                    length = in.readInt();
+                } catch (EOFException endOfStream)
+                {
+                    break;
+                }
+                if (length < BinaryProtocol.HEADER_LENGTH || length > BinaryProtocol.MAX_FRAME_LENGTH)
+                {
+                    LOGGER.warn("Closing binary connection from {}: bad frame length {}", socket.getRemoteSocketAddress(), length);
+                    break;
+                }
+                if (request.capacity() < length)
+                {
+                    request = ByteBuffer.allocate(Integer.highestOneBit(length - 1) << 1);
+                }
+                in.readFully(request.array(), 0, length);
+                request.clear().limit(length);
+
+                var opcode = request.get();
+                var correlationId = request.getLong();
+                response.clear().position(4 + BinaryProtocol.HEADER_LENGTH);
+                var status = handle(opcode, request, response);
+                response.putInt(0, response.position() - 4).put(4, status).putLong(5, correlationId);
+                out.write(response.array(), 0, response.position());
+
+                if (in.available() == 0)
+                {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (SocketException | EOFException closedException)
+        {
+            LOGGER.debug("Binary connection closed: {}", closedException.getMessage());
+        } catch (IOException ioException)
+        {
+            LOGGER.warn("Binary connection failed: {}", ioException.getMessage());
+        } finally
+        {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Runs one request and writes its payload.
+     *
+     * @return the response status
+     */
+    private byte handle(byte opcode, ByteBuffer request, ByteBuffer response)
+    {
+        var payloadStart = response.position();
+        try
+        {
+            return switch (opcode)
+            {
+                case BinaryProtocol.OP_GET -> get(request.getLong(), response);
+                case BinaryProtocol.OP_DEPOSIT -> deposit(request.getLong(), BinaryProtocol.getAmountMinorUnits(request), response);
+                case BinaryProtocol.OP_WITHDRAW -> withdraw(request.getLong(), BinaryProtocol.getAmountMinorUnits(request), response);
+                case BinaryProtocol.OP_TRANSFER -> transfer(request.getLong(), request.getLong(), BinaryProtocol.getAmountMinorUnits(request), response);
+                case BinaryProtocol.OP_BATCH -> batch(request, response);
+                default -> BinaryProtocol.STATUS_INVALID;
+            };
+        } catch (BufferUnderflowException | ArithmeticException | IllegalArgumentException invalidRequestException)
+        {
+            response.position(payloadStart);
+            return BinaryProtocol.STATUS_INVALID;
+        } catch (AccountBusyException busyException)
+        {
+            response.position(payloadStart);
+            return BinaryProtocol.STATUS_BUSY;
+        } catch (RuntimeException operationException)
+        {
+            LOGGER.error("Binary operation {} failed: {}", opcode, operationException.getMessage(), operationException);
+            response.position(payloadStart);
+            return BinaryProtocol.STATUS_ERROR;
+        }
+    }
+
+    private byte get(long accountId, ByteBuffer response)
+    {
+        var account = accountService.getAccountById(accountId);
+        if (account == null)
+        {
+            return BinaryProtocol.STATUS_NOT_FOUND;
+        }
+        response.putLong(account.getUserId());
+        response.put((byte) account.getType().ordinal());
+        BinaryProtocol.putMinorUnits(response, account.balanceMinorUnits());
+        return BinaryProtocol.STATUS_OK;
+    }
+
+    private byte deposit(long accountId, long minorUnits, ByteBuffer response)
+    {
+        var account = accountService.getAccountById(accountId);
+        if (account == null)
+        {
+            return BinaryProtocol.STATUS_NOT_FOUND;
+        }
+        if (!accountService.deposit(account, minorUnits, Deadline.NONE))
+        {
+            return BinaryProtocol.STATUS_BUSY;
+        }
+        BinaryProtocol.putMinorUnits(response, account.balanceMinorUnits());
+        return BinaryProtocol.STATUS_OK;
+    }
+
+    private byte withdraw(long accountId, long minorUnits, ByteBuffer response)
+    {
+        var account = accountService.getAccountById(accountId);
+        if (account == null)
+        {
+            return BinaryProtocol.STATUS_NOT_FOUND;
+        }
+        var success = accountService.withdraw(account, minorUnits, Deadline.NONE);
+        BinaryProtocol.putMinorUnits(response, account.balanceMinorUnits());
+        return success ? BinaryProtocol.STATUS_OK : BinaryProtocol.STATUS_INSUFFICIENT_FUNDS;
+    }
+
+    private byte transfer(long fromAccountId, long toAccountId, long minorUnits, ByteBuffer response)
+    {
+        if (fromAccountId == toAccountId)
+        {
+            return BinaryProtocol.STATUS_INVALID;
+        }
+        var fromAccount = accountService.getAccountById(fromAccountId);
+        if (fromAccount == null || accountService.getAccountById(toAccountId) == null)
+        {
+            return BinaryProtocol.STATUS_NOT_FOUND;
+        }
+        var success = accountService.transferAmount(fromAccountId, toAccountId, minorUnits, Deadline.NONE);
+        BinaryProtocol.putMinorUnits(response, fromAccount.balanceMinorUnits());
+        return success ? BinaryProtocol.STATUS_OK : BinaryProtocol.STATUS_INSUFFICIENT_FUNDS;
+    }
+
+    private byte batch(ByteBuffer request, ByteBuffer response)
+    {
+        var count = Short.toUnsignedInt(request.getShort());
+        if (count == 0 || count > AccountService.MAX_BATCH_SIZE)
+        {
+            return BinaryProtocol.STATUS_INVALID;
+        }
+        var operations = new ArrayList<BatchOperation>(count);
+        for (var i = 0; i < count; i++)
+        {
+            var type = request.get();
+            var accountId = request.getLong();
+            operations.add(switch (type)
+            {
+                case BinaryProtocol.BATCH_DEPOSIT -> BatchOperation.deposit(accountId, BinaryProtocol.getAmount(request));
+                case BinaryProtocol.BATCH_WITHDRAW -> BatchOperation.withdraw(accountId, BinaryProtocol.getAmount(request));
+                case BinaryProtocol.BATCH_TRANSFER -> BatchOperation.transfer(accountId, request.getLong(), BinaryProtocol.getAmount(request));
+                default -> throw new IllegalArgumentException("Unknown batch operation type " + type);
+            });
+        }
+
+        var result = accountService.executeBatch(operations);
+        response.putShort((short) count);
+        for (var operationResult : result.results())
+        {
+            response.put((byte) operationResult.outcome().ordinal());
+            if (operationResult.outcome() == BatchResult.Outcome.APPLIED)
+            {
+                BinaryProtocol.putDecimal(response, operationResult.balance());
+            }
+        }
+        return switch (result.status())
+        {
+            case COMMITTED -> BinaryProtocol.STATUS_OK;
+            case ACCOUNT_NOT_FOUND -> BinaryProtocol.STATUS_NOT_FOUND;
+            case INSUFFICIENT_FUNDS -> BinaryProtocol.STATUS_INSUFFICIENT_FUNDS;
+            case LOCK_TIMEOUT, DEADLINE_EXCEEDED -> BinaryProtocol.STATUS_BUSY;
+            case INVALID -> BinaryProtocol.STATUS_INVALID;
+        };
+    }
+
+    private static void closeQuietly(Socket socket)
+    {
+        try
+        {
+            socket.close();
+        } catch (IOException closeException)
+        {
+            LOGGER.debug("Binary connection close failed: {}", closeException.getMessage());
+        }
+    }
+}
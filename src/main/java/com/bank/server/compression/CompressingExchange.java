@@ -0,0 +1,268 @@
+package com.bank.server.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import com.bank.server.metrics.CompressionStats;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+/**
+ * Exchange for a client that accepts a compressed response; handlers keep calling
+ * {@link #sendResponseHeaders(int, long)} and writing plain bytes.
+ * <p>
+ * A body of known length is compressed when it reaches the threshold. A chunked body (length 0) has no length
+ * up front, so its first bytes are held back: reaching the threshold switches to compression, while a body that
+ * is closed below it goes out uncompressed with a {@code Content-Length}. A flush before the decision sends
+ * the body as is, since the caller asked for bytes on the wire now.
+ */
+class CompressingExchange extends HttpExchange
+{
+    private final HttpExchange delegate;
+    private final ResponseCompressor compressor;
+    private final ContentEncoding encoding;
+    private final CompressionStats.EndpointStats stats;
+
+    private OutputStream responseBody;
+    private int responseCode = -1;
+
+    CompressingExchange(HttpExchange delegate, ResponseCompressor compressor, ContentEncoding encoding, CompressionStats.EndpointStats stats)
+    {
+        this.delegate = delegate;
+        this.compressor = compressor;
+        this.encoding = encoding;
+        this.stats = stats;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException
+    {
+        if (responseCode != -1)
+        {
+            throw new IOException("headers already sent");
+        }
+        responseCode = rCode;
+
+        var headers = delegate.getResponseHeaders();
+        var noBody = responseLength < 0 || rCode == 204 || rCode == 304 || rCode < 200 || "HEAD".equals(delegate.getRequestMethod());
+        if (noBody || headers.containsKey("Content-Encoding") || "text/event-stream".equals(headers.getFirst("Content-Type")))
+        {
+            sendUncompressed(responseLength);
+            return;
+        }
+        headers.add("Vary", "Accept-Encoding");
+        if (responseLength == 0)
+        {
+            responseBody = new ThresholdOutputStream(compressor.threshold());
+        } else if (responseLength < compressor.threshold())
+        {
+            stats.uncompressed();
+            sendUncompressed(responseLength);
+        } else
+        {
+            responseBody = startCompressed();
+        }
+    }
+
+    private void sendUncompressed(long responseLength) throws IOException
+    {
+        delegate.sendResponseHeaders(responseCode, responseLength);
+        responseBody = delegate.getResponseBody();
+    }
+
+    private OutputStream startCompressed() throws IOException
+    {
+        delegate.getResponseHeaders().set("Content-Encoding", encoding.token());
+        delegate.sendResponseHeaders(responseCode, 0);
+        return new DeflatingOutputStream(delegate.getResponseBody(), compressor.pool(encoding), encoding == ContentEncoding.GZIP, stats);
+    }
+
+    @Override
+    public OutputStream getResponseBody()
+    {
+        return responseBody != null ? responseBody : delegate.getResponseBody();
+    }
+
+    /**
+     * @return the status passed to {@link #sendResponseHeaders}, even while a chunked body is still being held
+     *         back and the delegate has not sent it yet
+     */
+    @Override
+    public int getResponseCode()
+    {
+        return responseCode;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            if (responseBody != null)
+            {
+                responseBody.close();
+            }
+        } catch (IOException closeException)
+        {
+            // The delegate close below still releases the connection
+        }
+        delegate.close();
+    }
+
+    @Override
+    public Headers getRequestHeaders()
+    {
+        return delegate.getRequestHeaders();
+    }
+
+    @Override
+    public Headers getResponseHeaders()
+    {
+        return delegate.getResponseHeaders();
+    }
+
+    @Override
+    public URI getRequestURI()
+    {
+        return delegate.getRequestURI();
+    }
+
+    @Override
+    public String getRequestMethod()
+    {
+        return delegate.getRequestMethod();
+    }
+
+    @Override
+    public HttpContext getHttpContext()
+    {
+        return delegate.getHttpContext();
+    }
+
+    @Override
+    public InputStream getRequestBody()
+    {
+        return delegate.getRequestBody();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress()
+    {
+        return delegate.getRemoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress()
+    {
+        return delegate.getLocalAddress();
+    }
+
+    @Override
+    public String getProtocol()
+    {
+        return delegate.getProtocol();
+    }
+
+    @Override
+    public Object getAttribute(String name)
+    {
+        return delegate.getAttribute(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value)
+    {
+        delegate.setAttribute(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o)
+    {
+        delegate.setStreams(i, o);
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal()
+    {
+        return delegate.getPrincipal();
+    }
+
+    /**
+     * Holds back a chunked body until it either reaches the threshold or ends.
+     */
+    private class ThresholdOutputStream extends OutputStream
+    {
+        private final byte[] pending;
+        private int count;
+        private OutputStream target;
+        private boolean closed;
+
+        ThresholdOutputStream(int threshold)
+        {
+            this.pending = new byte[Math.max(0, threshold)];
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            if (closed)
+            {
+                throw new IOException("stream closed");
+            }
+            if (target == null)
+            {
+                if (count + length < pending.length)
+                {
+                    System.arraycopy(bytes, offset, pending, count, length);
+                    count += length;
+                    return;
+                }
+                target = startCompressed();
+                target.write(pending, 0, count);
+            }
+            target.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if (target == null)
+            {
+                stats.uncompressed();
+                delegate.sendResponseHeaders(responseCode, 0);
+                target = delegate.getResponseBody();
+                target.write(pending, 0, count);
+            }
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            if (target == null)
+            {
+                stats.uncompressed();
+                delegate.sendResponseHeaders(responseCode, count == 0 ? -1 : count);
+                target = delegate.getResponseBody();
+                target.write(pending, 0, count);
+            }
+            target.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.bank.server.compression;
+
+/**
+ * Response encodings the server can produce, negotiated from {@code Accept-Encoding}.
+ */
+public enum ContentEncoding
+{
+    GZIP("gzip"), DEFLATE("deflate"), IDENTITY("identity");
+
+    private final String token;
+
+    ContentEncoding(String token)
+    {
+        this.token = token;
+    }
+
+    /**
+     * @return the {@code Content-Encoding} header value
+     */
+    public String token()
+    {
+        return token;
+    }
+
+    /**
+     * Picks the encoding with the highest quality value; gzip wins ties. {@code *} applies to encodings that are
+     * not listed explicitly, and {@code q=0} excludes an encoding.
+     *
+     * @param acceptEncoding request header value, may be null
+     * @return the encoding to respond with
+     */
+    public static ContentEncoding negotiate(String acceptEncoding)
+    {
+        if (acceptEncoding == null || acceptEncoding.isBlank())
+        {
+            return IDENTITY;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+        for (var part : acceptEncoding.split(","))
+        {
+            var semicolon = part.indexOf(';');
+            var name = (semicolon < 0 ? part : part.substring(0, semicolon)).trim();
+            var quality = semicolon < 0 ? 1.0 : quality(part.substring(semicolon + 1));
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip"))
+            {
+                gzip = quality;
+            } else if (name.equalsIgnoreCase("deflate"))
+            {
+                deflate = quality;
+            } else if (name.equals("*"))
+            {
+                wildcard = quality;
+            }
+        }
+        gzip = gzip < 0 ? wildcard : gzip;
+        deflate = deflate < 0 ? wildcard : deflate;
+        if (gzip > 0 && gzip >= deflate)
+        {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : IDENTITY;
+    }
+
+    private static double quality(String parameters)
+    {
+        for (var parameter : parameters.split(";"))
+        {
+            var trimmed = parameter.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q="))
+            {
+                try
+                {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException numberFormatException)
+                {
+                    return 0;
+                }
+            }
+        }
+        return 1.0;
+    }
+}
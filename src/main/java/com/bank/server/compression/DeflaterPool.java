@@ -0,0 +1,78 @@
+package com.bank.server.compression;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Pool of {@link Deflater}s with their output buffers.
+ * <p>
+ * A deflater owns native zlib state (a few hundred KB at the default level) that is only released by
+ * {@link Deflater#end()} or GC, so it is reset and reused rather than created per response. The pool is shared
+ * instead of per thread because requests run on virtual threads by default, where a thread-local deflater would
+ * still be one per request. At most {@code maxPooled} idle deflaters are kept; extras created under burst are
+ * ended on release.
+ */
+public class DeflaterPool
+{
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final ConcurrentLinkedQueue<Entry> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int level;
+    private final boolean nowrap;
+    private final int maxPooled;
+
+    /**
+     * @param level     compression level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param nowrap    raw deflate output (for gzip framing) instead of the zlib format
+     * @param maxPooled
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxPooled)
+    {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.maxPooled = maxPooled;
+    }
+
+    public Entry acquire()
+    {
+        var entry = idle.poll();
+        if (entry == null)
+        {
+            return new Entry(new Deflater(level, nowrap));
+        }
+        idleCount.decrementAndGet();
+        return entry;
+    }
+
+    public void release(Entry entry)
+    {
+        if (idleCount.incrementAndGet() <= maxPooled)
+        {
+            entry.deflater.reset();
+            entry.crc.reset();
+            idle.offer(entry);
+        } else
+        {
+            idleCount.decrementAndGet();
+            entry.deflater.end();
+        }
+    }
+
+    /**
+     * A deflater together with the scratch state a compressed response needs.
+     */
+    public static final class Entry
+    {
+        final Deflater deflater;
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final CRC32 crc = new CRC32();
+
+        private Entry(Deflater deflater)
+        {
+            this.deflater = deflater;
+        }
+    }
+}
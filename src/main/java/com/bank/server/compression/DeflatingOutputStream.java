@@ -0,0 +1,146 @@
+package com.bank.server.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import com.bank.server.metrics.CompressionStats;
+
+/**
+ * Compresses a response body into gzip or zlib (HTTP {@code deflate}) format with a pooled deflater.
+ * <p>
+ * Unlike {@link java.util.zip.DeflaterOutputStream} it returns the deflater to its pool on close and times only
+ * the {@link Deflater#deflate} calls, so the recorded cost is compression CPU and not time blocked on the socket.
+ */
+class DeflatingOutputStream extends OutputStream
+{
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final OutputStream out;
+    private final DeflaterPool pool;
+    private final DeflaterPool.Entry entry;
+    private final boolean gzip;
+    private final CompressionStats.EndpointStats stats;
+    private final byte[] single = new byte[1];
+
+    private long bytesIn;
+    private long bytesOut;
+    private long deflateNanos;
+    private boolean closed;
+
+    DeflatingOutputStream(OutputStream out, DeflaterPool pool, boolean gzip, CompressionStats.EndpointStats stats) throws IOException
+    {
+        this.out = out;
+        this.pool = pool;
+        this.entry = pool.acquire();
+        this.gzip = gzip;
+        this.stats = stats;
+        if (gzip)
+        {
+            out.write(GZIP_HEADER);
+            bytesOut += GZIP_HEADER.length;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("stream closed");
+        }
+        if (length == 0)
+        {
+            return;
+        }
+        if (gzip)
+        {
+            entry.crc.update(bytes, offset, length);
+        }
+        bytesIn += length;
+        var deflater = entry.deflater;
+        deflater.setInput(bytes, offset, length);
+        while (!deflater.needsInput())
+        {
+            deflate(Deflater.NO_FLUSH);
+        }
+    }
+
+    /**
+     * Pushes everything written so far to the client with a sync flush, at a small cost in ratio.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        while (deflate(Deflater.SYNC_FLUSH) == entry.buffer.length)
+        {
+            // the buffer was filled, there may be more pending output
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        try
+        {
+            var deflater = entry.deflater;
+            deflater.finish();
+            while (!deflater.finished())
+            {
+                deflate(Deflater.NO_FLUSH);
+            }
+            if (gzip)
+            {
+                var trailer = new byte[8];
+                writeIntLE(trailer, 0, (int) entry.crc.getValue());
+                writeIntLE(trailer, 4, (int) bytesIn);
+                out.write(trailer);
+                bytesOut += trailer.length;
+            }
+            out.close();
+            stats.compressed(bytesIn, bytesOut, deflateNanos);
+        } finally
+        {
+            pool.release(entry);
+        }
+    }
+
+    private int deflate(int flushMode) throws IOException
+    {
+        var buffer = entry.buffer;
+        var start = System.nanoTime();
+        var length = entry.deflater.deflate(buffer, 0, buffer.length, flushMode);
+        deflateNanos += System.nanoTime() - start;
+        if (length > 0)
+        {
+            out.write(buffer, 0, length);
+            bytesOut += length;
+        }
+        return length;
+    }
+
+    private static void writeIntLE(byte[] target, int offset, int value)
+    {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >>> 8);
+        target[offset + 2] = (byte) (value >>> 16);
+        target[offset + 3] = (byte) (value >>> 24);
+    }
+}
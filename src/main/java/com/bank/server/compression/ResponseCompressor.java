@@ -0,0 +1,75 @@
+package com.bank.server.compression;
+
+import java.util.zip.Deflater;
+
+import com.bank.server.config.Configuration;
+import com.bank.server.metrics.CompressionStats;
+import com.bank.server.routing.Route;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Negotiates {@code Accept-Encoding} per request and wraps the exchange so that responses of at least
+ * {@code compressionThreshold} bytes are sent gzip or deflate encoded. Handlers are unaware of it.
+ */
+public class ResponseCompressor
+{
+    private volatile int threshold;
+    private final DeflaterPool gzipPool;
+    private final DeflaterPool deflatePool;
+    private final CompressionStats stats;
+
+    /**
+     * @param serverConfig source of the threshold, level and pool size
+     * @param stats        per-endpoint compression counters
+     */
+    public ResponseCompressor(Configuration.ServerConfig serverConfig, CompressionStats stats)
+    {
+        this.threshold = serverConfig.getCompressionThreshold();
+        var level = serverConfig.getCompressionLevel();
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+        {
+            throw new IllegalArgumentException("compressionLevel must be -1 or between 0 and 9: " + level);
+        }
+        // Compression is CPU bound, so more deflaters than worker threads would only sit idle
+        var maxPooled = serverConfig.resolvePoolSize();
+        this.gzipPool = new DeflaterPool(level, true, maxPooled);
+        this.deflatePool = new DeflaterPool(level, false, maxPooled);
+        this.stats = stats;
+    }
+
+    /**
+     * @param exchange
+     * @param route    the matched route; statistics are kept per route
+     * @return an exchange that compresses large responses, or {@code exchange} itself when the client accepts
+     *         no supported encoding
+     */
+    public HttpExchange wrap(HttpExchange exchange, Route route)
+    {
+        var encoding = ContentEncoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (encoding == ContentEncoding.IDENTITY)
+        {
+            return exchange;
+        }
+        return new CompressingExchange(exchange, this, encoding, stats.forEndpoint(route.toString()));
+    }
+
+    int threshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * Applies a reloaded {@code compressionThreshold}; the level is fixed for the pooled deflaters' lifetime.
+     *
+     * @param serverConfig
+     */
+    public void reconfigure(Configuration.ServerConfig serverConfig)
+    {
+        this.threshold = serverConfig.getCompressionThreshold();
+    }
+
+    DeflaterPool pool(ContentEncoding encoding)
+    {
+        return encoding == ContentEncoding.GZIP ? gzipPool : deflatePool;
+    }
+}
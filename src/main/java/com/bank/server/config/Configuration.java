@@ -1,11 +1,23 @@
 package com.bank.server.config;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.bank.business.services.AccountEngineSettings;
 
 public class Configuration
 {
     private List<Integer> ports;
     private String storageType;
+    private String journal = "journal/storage.log";
+    private long groupCommitMicros = 0;
+    private ServerConfig server = new ServerConfig();
+    private boolean frozen;
 
     // Getters and Setters
     public List<Integer> getPorts()
@@ -15,6 +27,7 @@ public class Configuration
 
     public void setPorts(List<Integer> ports)
     {
+        checkMutable(frozen);
         this.ports = ports;
     }
 
@@ -26,9 +39,72 @@ public class Configuration
 
     public void setStorageType(String storageType)
     {
+        checkMutable(frozen);
         this.storageType = storageType;
     }
 
+    /**
+     * @return file the {@code journaled} storage type logs every user and account change to
+     */
+    public String getJournal()
+    {
+        return journal;
+    }
+
+    public void setJournal(String journal)
+    {
+        checkMutable(frozen);
+        this.journal = journal;
+    }
+
+    /**
+     * @return how long the {@code journaled} storage type holds a group of changes open for more before syncing it;
+     *         changes queued while a sync runs share the next one regardless
+     */
+    public long getGroupCommitMicros()
+    {
+        return groupCommitMicros;
+    }
+
+    public void setGroupCommitMicros(long groupCommitMicros)
+    {
+        checkMutable(frozen);
+        this.groupCommitMicros = groupCommitMicros;
+    }
+
+    public ServerConfig getServer()
+    {
+        return server;
+    }
+
+    public void setServer(ServerConfig server)
+    {
+        checkMutable(frozen);
+        this.server = server;
+    }
+
+    /**
+     * Makes this snapshot read-only, with its server settings and rate limit rules: setters throw from now on and
+     * collections are unmodifiable copies. Called once binding is done, before anyone else sees the snapshot.
+     */
+    void freeze()
+    {
+        ports = ports == null ? null : Collections.unmodifiableList(new ArrayList<>(ports));
+        if (server != null)
+        {
+            server.freeze();
+        }
+        frozen = true;
+    }
+
+    private static void checkMutable(boolean frozen)
+    {
+        if (frozen)
+        {
+            throw new UnsupportedOperationException("A published configuration snapshot is read-only");
+        }
+    }
+
     // Backward compatibility method
     public int getPort()
     {
@@ -65,9 +141,641 @@ public class Configuration
         }
     }
 
+    /**
+     * Tuning for the HTTP server threading model.
+     * <p>
+     * {@code engine} is {@code jdk} (com.sun.net.httpserver) or {@code nio} (selector based, see
+     * {@link com.bank.server.nio.NioServerEngine}). {@code executor} is one of {@code fixed}, {@code virtual} or
+     * {@code forkjoin}. Pool sizes are derived from
+     * the number of CPUs visible to the JVM (which honours container limits) unless {@code poolSize} is set.
+     * <p>
+     * With {@code compression} on, responses of at least {@code compressionThreshold} bytes are gzip or deflate
+     * encoded for clients that accept it, at {@code compressionLevel} (0-9, -1 for the zlib default).
+     * <p>
+     * Overload protection: {@code backlog} bounds pending connections per port and {@code queueCapacity} the fixed
+     * pool's queue (0 for unbounded). At most {@code maxInFlightReads} GET/HEAD and {@code maxInFlightWrites} other
+     * requests run at once (0 for no limit), and requests that waited longer than {@code queueDeadlineMillis} for
+     * a worker are dropped; both get a 503 with {@code Retry-After: retryAfterSeconds}.
+     * <p>
+     * {@code rateLimits} lists per-route {@link RateLimitRule}s. Users are identified by the
+     * {@code rateLimitUserHeader} request header, clients by their socket address or, behind a proxy, by
+     * {@code clientIpHeader}.
+     * <p>
+     * {@code requestTimeouts} maps a route such as {@code "POST /accounts/batch"}, or {@code "*"} for the rest, to
+     * the milliseconds its requests may take; lock waits give up when that budget, or a shorter one the client
+     * sends, runs out.
+     * <p>
+     * Balance event streams buffer {@code eventBufferSize} events per client before dropping it, send a heartbeat
+     * every {@code eventHeartbeatSeconds}, and at most {@code maxEventStreams} are open at once.
+     * <p>
+     * Money movement accepts an {@code Idempotency-Key} header; up to {@code idempotencyMaxEntries} responses
+     * (0 to ignore the header) are replayed for {@code idempotencyTtlSeconds}.
+     * <p>
+     * A {@code binaryPort} above 0 also starts the {@link com.bank.server.binary.BinaryServer} on that port.
+     * <p>
+     * On shutdown the server reports not ready for {@code drainDelayMillis} while still serving, then stops
+     * accepting and gives in-flight requests the rest of {@code drainTimeoutSeconds} to finish.
+     * <p>
+     * {@code contention} maps an account type, or {@code "*"} for the rest, to the
+     * {@link com.bank.business.entities.ContentionStrategy} its balance updates use: {@code spin} (the default),
+     * {@code backoff} or {@code combining}. The service only ever changes a balance under the account's write lock
+     * or on an engine's single writer thread, so the compare-and-set never races and the choice currently makes
+     * no difference to the server; it is kept for callers that update accounts without either.
+     * <p>
+     * {@code accountEngine} is {@code locking} (the default), where balance changes lock the accounts they touch,
+     * {@code sharded}, where deposits, withdrawals and transfers run on {@code accountShards} single-writer
+     * shards (0 for one per available processor), or {@code pipeline}, where they pass through a ring of
+     * {@code accountRingSize} commands, are appended to {@code accountJournal} (empty for none, forced to disk
+     * per write if {@code accountJournalSync}) and applied by one thread.
+     */
+    public static class ServerConfig
+    {
+        private String engine = "jdk";
+        private String executor = "virtual";
+        private int threadsPerCore = 2;
+        private int poolSize = 0;
+        private int ioThreads = 0;
+        private int bufferSize = 16 * 1024;
+        private int socketBufferSize = 0;
+        private int keepAliveSeconds = 30;
+        private boolean compression = true;
+        private int compressionThreshold = 1024;
+        private int compressionLevel = -1;
+        private int backlog = 1024;
+        private int queueCapacity = 4096;
+        private int maxInFlightReads = 512;
+        private int maxInFlightWrites = 128;
+        private long queueDeadlineMillis = 2000;
+        private int retryAfterSeconds = 1;
+        private List<RateLimitRule> rateLimits = new ArrayList<>();
+        private String rateLimitUserHeader = "X-User-Id";
+        private String clientIpHeader = "";
+        private Map<String, Long> requestTimeouts = new LinkedHashMap<>();
+        private int eventBufferSize = 256;
+        private int eventHeartbeatSeconds = 15;
+        private int maxEventStreams = 1024;
+        private int idempotencyMaxEntries = 100_000;
+        private long idempotencyTtlSeconds = 86_400;
+        private int binaryPort = 0;
+        private long drainDelayMillis = 0;
+        private int drainTimeoutSeconds = 30;
+        private Map<String, String> contention = new LinkedHashMap<>();
+        private String accountEngine = "locking";
+        private int accountShards = 0;
+        private int accountRingSize = 64 * 1024;
+        private String accountJournal = "journal/commands.log";
+        private boolean accountJournalSync = true;
+        private boolean frozen;
+
+        public String getEngine()
+        {
+            return engine;
+        }
+
+        public void setEngine(String engine)
+        {
+            checkMutable(frozen);
+            this.engine = engine;
+        }
+
+        public String getExecutor()
+        {
+            return executor;
+        }
+
+        public void setExecutor(String executor)
+        {
+            checkMutable(frozen);
+            this.executor = executor;
+        }
+
+        public int getThreadsPerCore()
+        {
+            return threadsPerCore;
+        }
+
+        public void setThreadsPerCore(int threadsPerCore)
+        {
+            checkMutable(frozen);
+            this.threadsPerCore = threadsPerCore;
+        }
+
+        public int getPoolSize()
+        {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize)
+        {
+            checkMutable(frozen);
+            this.poolSize = poolSize;
+        }
+
+        public int getIoThreads()
+        {
+            return ioThreads;
+        }
+
+        public void setIoThreads(int ioThreads)
+        {
+            checkMutable(frozen);
+            this.ioThreads = ioThreads;
+        }
+
+        public int getBufferSize()
+        {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize)
+        {
+            checkMutable(frozen);
+            this.bufferSize = bufferSize;
+        }
+
+        public int getSocketBufferSize()
+        {
+            return socketBufferSize;
+        }
+
+        public void setSocketBufferSize(int socketBufferSize)
+        {
+            checkMutable(frozen);
+            this.socketBufferSize = socketBufferSize;
+        }
+
+        public int getKeepAliveSeconds()
+        {
+            return keepAliveSeconds;
+        }
+
+        public void setKeepAliveSeconds(int keepAliveSeconds)
+        {
+            checkMutable(frozen);
+            this.keepAliveSeconds = keepAliveSeconds;
+        }
+
+        public boolean isCompression()
+        {
+            return compression;
+        }
+
+        public void setCompression(boolean compression)
+        {
+            checkMutable(frozen);
+            this.compression = compression;
+        }
+
+        public int getCompressionThreshold()
+        {
+            return compressionThreshold;
+        }
+
+        public void setCompressionThreshold(int compressionThreshold)
+        {
+            checkMutable(frozen);
+            this.compressionThreshold = compressionThreshold;
+        }
+
+        public int getCompressionLevel()
+        {
+            return compressionLevel;
+        }
+
+        public void setCompressionLevel(int compressionLevel)
+        {
+            checkMutable(frozen);
+            this.compressionLevel = compressionLevel;
+        }
+
+        public int getBacklog()
+        {
+            return backlog;
+        }
+
+        public void setBacklog(int backlog)
+        {
+            checkMutable(frozen);
+            this.backlog = backlog;
+        }
+
+        public int getQueueCapacity()
+        {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity)
+        {
+            checkMutable(frozen);
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getMaxInFlightReads()
+        {
+            return maxInFlightReads;
+        }
+
+        public void setMaxInFlightReads(int maxInFlightReads)
+        {
+            checkMutable(frozen);
+            this.maxInFlightReads = maxInFlightReads;
+        }
+
+        public int getMaxInFlightWrites()
+        {
+            return maxInFlightWrites;
+        }
+
+        public void setMaxInFlightWrites(int maxInFlightWrites)
+        {
+            checkMutable(frozen);
+            this.maxInFlightWrites = maxInFlightWrites;
+        }
+
+        public long getQueueDeadlineMillis()
+        {
+            return queueDeadlineMillis;
+        }
+
+        public void setQueueDeadlineMillis(long queueDeadlineMillis)
+        {
+            checkMutable(frozen);
+            this.queueDeadlineMillis = queueDeadlineMillis;
+        }
+
+        public int getRetryAfterSeconds()
+        {
+            return retryAfterSeconds;
+        }
+
+        public void setRetryAfterSeconds(int retryAfterSeconds)
+        {
+            checkMutable(frozen);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public List<RateLimitRule> getRateLimits()
+        {
+            return rateLimits;
+        }
+
+        public void setRateLimits(List<RateLimitRule> rateLimits)
+        {
+            checkMutable(frozen);
+            this.rateLimits = rateLimits;
+        }
+
+        public String getRateLimitUserHeader()
+        {
+            return rateLimitUserHeader;
+        }
+
+        public void setRateLimitUserHeader(String rateLimitUserHeader)
+        {
+            checkMutable(frozen);
+            this.rateLimitUserHeader = rateLimitUserHeader;
+        }
+
+        public String getClientIpHeader()
+        {
+            return clientIpHeader;
+        }
+
+        public void setClientIpHeader(String clientIpHeader)
+        {
+            checkMutable(frozen);
+            this.clientIpHeader = clientIpHeader;
+        }
+
+        public Map<String, Long> getRequestTimeouts()
+        {
+            return requestTimeouts;
+        }
+
+        public void setRequestTimeouts(Map<String, Long> requestTimeouts)
+        {
+            checkMutable(frozen);
+            this.requestTimeouts = requestTimeouts;
+        }
+
+        public int getEventBufferSize()
+        {
+            return eventBufferSize;
+        }
+
+        public void setEventBufferSize(int eventBufferSize)
+        {
+            checkMutable(frozen);
+            this.eventBufferSize = eventBufferSize;
+        }
+
+        public int getEventHeartbeatSeconds()
+        {
+            return eventHeartbeatSeconds;
+        }
+
+        public void setEventHeartbeatSeconds(int eventHeartbeatSeconds)
+        {
+            checkMutable(frozen);
+            this.eventHeartbeatSeconds = eventHeartbeatSeconds;
+        }
+
+        public int getMaxEventStreams()
+        {
+            return maxEventStreams;
+        }
+
+        public void setMaxEventStreams(int maxEventStreams)
+        {
+            checkMutable(frozen);
+            this.maxEventStreams = maxEventStreams;
+        }
+
+        public int getIdempotencyMaxEntries()
+        {
+            return idempotencyMaxEntries;
+        }
+
+        public void setIdempotencyMaxEntries(int idempotencyMaxEntries)
+        {
+            checkMutable(frozen);
+            this.idempotencyMaxEntries = idempotencyMaxEntries;
+        }
+
+        public long getIdempotencyTtlSeconds()
+        {
+            return idempotencyTtlSeconds;
+        }
+
+        public void setIdempotencyTtlSeconds(long idempotencyTtlSeconds)
+        {
+            checkMutable(frozen);
+            this.idempotencyTtlSeconds = idempotencyTtlSeconds;
+        }
+
+        public int getBinaryPort()
+        {
+            return binaryPort;
+        }
+
+        public void setBinaryPort(int binaryPort)
+        {
+            checkMutable(frozen);
+            this.binaryPort = binaryPort;
+        }
+
+        public long getDrainDelayMillis()
+        {
+            return drainDelayMillis;
+        }
+
+        public void setDrainDelayMillis(long drainDelayMillis)
+        {
+            checkMutable(frozen);
+            this.drainDelayMillis = drainDelayMillis;
+        }
+
+        public int getDrainTimeoutSeconds()
+        {
+            return drainTimeoutSeconds;
+        }
+
+        public void setDrainTimeoutSeconds(int drainTimeoutSeconds)
+        {
+            checkMutable(frozen);
+            this.drainTimeoutSeconds = drainTimeoutSeconds;
+        }
+
+        public Map<String, String> getContention()
+        {
+            return contention;
+        }
+
+        public void setContention(Map<String, String> contention)
+        {
+            checkMutable(frozen);
+            this.contention = contention;
+        }
+
+        public String getAccountEngine()
+        {
+            return accountEngine;
+        }
+
+        public void setAccountEngine(String accountEngine)
+        {
+            checkMutable(frozen);
+            this.accountEngine = accountEngine;
+        }
+
+        public int getAccountShards()
+        {
+            return accountShards;
+        }
+
+        public void setAccountShards(int accountShards)
+        {
+            checkMutable(frozen);
+            this.accountShards = accountShards;
+        }
+
+        public int getAccountRingSize()
+        {
+            return accountRingSize;
+        }
+
+        public void setAccountRingSize(int accountRingSize)
+        {
+            checkMutable(frozen);
+            this.accountRingSize = accountRingSize;
+        }
+
+        public String getAccountJournal()
+        {
+            return accountJournal;
+        }
+
+        public void setAccountJournal(String accountJournal)
+        {
+            checkMutable(frozen);
+            this.accountJournal = accountJournal;
+        }
+
+        public boolean isAccountJournalSync()
+        {
+            return accountJournalSync;
+        }
+
+        public void setAccountJournalSync(boolean accountJournalSync)
+        {
+            checkMutable(frozen);
+            this.accountJournalSync = accountJournalSync;
+        }
+
+        void freeze()
+        {
+            if (rateLimits != null)
+            {
+                rateLimits.stream().filter(Objects::nonNull).forEach(RateLimitRule::freeze);
+                rateLimits = Collections.unmodifiableList(new ArrayList<>(rateLimits));
+            }
+            requestTimeouts = requestTimeouts == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(requestTimeouts));
+            contention = contention == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(contention));
+            frozen = true;
+        }
+
+        /**
+         * @return the account engine with its settings, shards resolved to one per available processor if unset
+         * @throws IllegalArgumentException for an unknown account engine
+         */
+        public AccountEngineSettings resolveAccountEngine()
+        {
+            var name = accountEngine == null ? "locking" : accountEngine.trim().toLowerCase();
+            return switch (name)
+            {
+                case "locking" -> AccountEngineSettings.LOCKING;
+                case "sharded" -> AccountEngineSettings.sharded(accountShards > 0 ? accountShards : Math.max(1, Runtime.getRuntime().availableProcessors()));
+                case "pipeline" -> AccountEngineSettings.pipeline(accountRingSize,
+                        accountJournal == null || accountJournal.isBlank() ? null : Path.of(accountJournal), accountJournalSync);
+                default -> throw new IllegalArgumentException("Unknown account engine: " + accountEngine);
+            };
+        }
+
+        /**
+         * @return the configured number of NIO IO loops, or one per available processor
+         */
+        public int resolveIoThreads()
+        {
+            return ioThreads > 0 ? ioThreads : Math.max(1, Runtime.getRuntime().availableProcessors());
+        }
+
+        /**
+         * @return the explicit pool size if configured, otherwise available processors times threadsPerCore
+         */
+        public int resolvePoolSize()
+        {
+            if (poolSize > 0)
+            {
+                return poolSize;
+            }
+            return Math.max(1, Runtime.getRuntime().availableProcessors() * Math.max(1, threadsPerCore));
+        }
+
+        @Override
+        public String toString()
+        {
+            return "ServerConfig{" + "engine='" + engine + '\'' + ", executor='" + executor + '\'' + ", threadsPerCore=" + threadsPerCore + ", poolSize=" + poolSize
+                    + ", ioThreads=" + ioThreads + ", bufferSize=" + bufferSize + ", socketBufferSize=" + socketBufferSize + ", keepAliveSeconds=" + keepAliveSeconds
+                    + ", compression=" + compression + ", compressionThreshold=" + compressionThreshold + ", compressionLevel=" + compressionLevel
+                    + ", backlog=" + backlog + ", queueCapacity=" + queueCapacity + ", maxInFlightReads=" + maxInFlightReads + ", maxInFlightWrites=" + maxInFlightWrites
+                    + ", queueDeadlineMillis=" + queueDeadlineMillis + ", retryAfterSeconds=" + retryAfterSeconds + ", rateLimits=" + rateLimits
+                    + ", rateLimitUserHeader='" + rateLimitUserHeader + '\'' + ", clientIpHeader='" + clientIpHeader + '\''  + ", requestTimeouts=" + requestTimeouts + ", eventBufferSize=" + eventBufferSize
+                    + ", eventHeartbeatSeconds=" + eventHeartbeatSeconds + ", maxEventStreams=" + maxEventStreams + ", idempotencyMaxEntries=" + idempotencyMaxEntries
+                    + ", idempotencyTtlSeconds=" + idempotencyTtlSeconds + ", binaryPort=" + binaryPort + ", drainDelayMillis=" + drainDelayMillis
+                    + ", drainTimeoutSeconds=" + drainTimeoutSeconds + ", contention=" + contention
+                    + ", accountEngine='" + accountEngine + '\'' + ", accountShards=" + accountShards
+                    + ", accountRingSize=" + accountRingSize + ", accountJournal='" + accountJournal + '\'' + ", accountJournalSync=" + accountJournalSync + '}';
+        }
+    }
+
+    /**
+     * Token bucket limits for one route, named like {@code "GET /accounts-all"} or {@code "*"} for every route
+     * without a rule of its own. Each route gets its own buckets. A capacity of 0 leaves that dimension unlimited.
+     */
+    public static class RateLimitRule
+    {
+        private String route;
+        private int ipCapacity;
+        private double ipRefillPerSecond;
+        private int userCapacity;
+        private double userRefillPerSecond;
+        private boolean frozen;
+
+        public String getRoute()
+        {
+            return route;
+        }
+
+        public void setRoute(String route)
+        {
+            checkMutable(frozen);
+            this.route = route;
+        }
+
+        public int getIpCapacity()
+        {
+            return ipCapacity;
+        }
+
+        public void setIpCapacity(int ipCapacity)
+        {
+            checkMutable(frozen);
+            this.ipCapacity = ipCapacity;
+        }
+
+        public double getIpRefillPerSecond()
+        {
+            return ipRefillPerSecond;
+        }
+
+        public void setIpRefillPerSecond(double ipRefillPerSecond)
+        {
+            checkMutable(frozen);
+            this.ipRefillPerSecond = ipRefillPerSecond;
+        }
+
+        public int getUserCapacity()
+        {
+            return userCapacity;
+        }
+
+        public void setUserCapacity(int userCapacity)
+        {
+            checkMutable(frozen);
+            this.userCapacity = userCapacity;
+        }
+
+        public double getUserRefillPerSecond()
+        {
+            return userRefillPerSecond;
+        }
+
+        public void setUserRefillPerSecond(double userRefillPerSecond)
+        {
+            checkMutable(frozen);
+            this.userRefillPerSecond = userRefillPerSecond;
+        }
+
+        void freeze()
+        {
+            frozen = true;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof RateLimitRule rule && Objects.equals(route, rule.route) && ipCapacity == rule.ipCapacity
+                    && ipRefillPerSecond == rule.ipRefillPerSecond && userCapacity == rule.userCapacity && userRefillPerSecond == rule.userRefillPerSecond;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(route, ipCapacity, ipRefillPerSecond, userCapacity, userRefillPerSecond);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "RateLimitRule{" + "route='" + route + '\'' + ", ipCapacity=" + ipCapacity + ", ipRefillPerSecond=" + ipRefillPerSecond + ", userCapacity=" + userCapacity
+                    + ", userRefillPerSecond=" + userRefillPerSecond + '}';
+        }
+    }
+
     @Override
     public String toString()
     {
-        return "Configuration{" + "ports=" + ports + ", storageType='" + storageType + '\'' + '}';
+        return "Configuration{" + "ports=" + ports + ", storageType='" + storageType + '\'' + ", journal='" + journal + '\'' + ", groupCommitMicros=" + groupCommitMicros
+                + ", server=" + server + '}';
     }
 }
@@ -1,24 +1,47 @@
 package com.bank.server.config;
 
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.bank.server.util.Json;
 
+/**
+ * Holds the current {@link Configuration} and republishes it when the file changes.
+ * <p>
+ * Every load binds a fresh {@link Configuration} and swaps it in atomically, so readers always see one complete
+ * snapshot, never a half-applied mix. A change produces a new one, which is handed to every
+ * {@link #addListener listener} before it is published. A file that fails to load, or that a listener rejects by
+ * throwing, leaves the previous snapshot in force.
+ * <p>
+ * Snapshots are immutable: {@link Configuration} is a Jackson bean, but it is frozen right after binding, before
+ * any listener sees it, so its setters (and those of its nested settings) throw and its collections are
+ * unmodifiable.
+ */
 public class ConfigurationManager
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationManager.class);
 
     private static ConfigurationManager configurationManager;
-    private static Configuration currentConfiguration;
+
+    private final AtomicReference<Configuration> currentConfiguration = new AtomicReference<>();
+    private final List<Consumer<Configuration>> listeners = new CopyOnWriteArrayList<>();
 
     public Configuration getCurrentConfiguration() throws HttpConfigurationException
     {
-        if (currentConfiguration == null)
+        var configuration = currentConfiguration.get();
+        if (configuration == null)
         {
             throw new HttpConfigurationException("No Config Found");
         }
-        return currentConfiguration;
+        return configuration;
     }
 
     private ConfigurationManager()
@@ -33,39 +56,87 @@ public class ConfigurationManager
     }
 
     /**
+     * Reads and publishes the configuration without notifying listeners, for startup.
+     *
      * @param filePath
-     * @throws HttpConfigurationException
+     * @throws HttpConfigurationException if the file cannot be read or bound
      */
     public void loadConfiguration(String filePath) throws HttpConfigurationException
     {
+        currentConfiguration.set(read(Path.of(filePath)));
+    }
 
-        try (var fileReader = new FileReader(filePath))
+    /**
+     * Reads the configuration again and, if it loads and every listener accepts it, publishes it.
+     *
+     * @param filePath
+     * @return true if a new snapshot was published
+     */
+    public boolean reload(Path filePath)
+    {
+        Configuration next;
+        try
+        {
+            next = read(filePath);
+        } catch (HttpConfigurationException configException)
+        {
+            LOGGER.error("Keeping the current configuration, {} does not load: {}", filePath, configException.getMessage());
+            return false;
+        }
+        for (var listener : listeners)
         {
-            var sb = new StringBuffer();
-            int i;
-            try
-            {
-                while ((i = fileReader.read()) != -1)
-                {
-                    sb.append((char) i);
-                }
-            } catch (IOException ioException)
-            {
-                throw new HttpConfigurationException(ioException);
-            }
-            JsonNode conf = null;
             try
             {
-                conf = Json.parse(sb.toString());
-            } catch (IOException ioException)
+                listener.accept(next);
+            } catch (RuntimeException listenerException)
             {
-                throw new HttpConfigurationException(ioException);
+                LOGGER.error("Keeping the current configuration, {} was rejected: {}", filePath, listenerException.getMessage());
+                return false;
             }
+        }
+        currentConfiguration.set(next);
+        LOGGER.info("Configuration reloaded from {}", filePath);
+        return true;
+    }
 
-            currentConfiguration = Json.fromJson(conf, Configuration.class);
+    /**
+     * @param listener called with each reloaded snapshot, on the watcher thread; throws to reject it
+     */
+    public void addListener(Consumer<Configuration> listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts reloading {@code filePath} whenever it changes.
+     *
+     * @param filePath
+     * @return the watcher, to close when done
+     * @throws IOException if the directory cannot be watched
+     */
+    public ConfigurationWatcher watch(String filePath) throws IOException
+    {
+        var watcher = new ConfigurationWatcher(this, Path.of(filePath));
+        watcher.start();
+        return watcher;
+    }
+
+    private static Configuration read(Path filePath) throws HttpConfigurationException
+    {
+        byte[] bytes;
+        try
+        {
+            bytes = Files.readAllBytes(filePath);
         } catch (IOException ioException)
         {
-            ioException.printStackTrace();
+            throw new HttpConfigurationException(ioException);
+        }
+        var configuration = Json.fromJson(bytes, Configuration.class);
+        if (configuration == null)
+        {
+            throw new HttpConfigurationException("No Config Found in " + filePath);
         }
+        configuration.freeze();
+        return configuration;
     }
 }
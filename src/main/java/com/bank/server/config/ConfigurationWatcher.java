@@ -0,0 +1,98 @@
+package com.bank.server.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reloads the configuration file through the {@link ConfigurationManager} whenever it changes.
+ * <p>
+ * The file's directory is watched, so editors and deploy tools that replace the file by renaming a new one over
+ * it are seen as well as in-place writes. Such tools often touch the file several times in a row, so a change is
+ * only read once the directory has been quiet for {@value #SETTLE_MILLIS} ms.
+ */
+public class ConfigurationWatcher implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationWatcher.class);
+    private static final long SETTLE_MILLIS = 200;
+
+    private final ConfigurationManager manager;
+    private final Path file;
+    private final WatchService watchService;
+
+    ConfigurationWatcher(ConfigurationManager manager, Path file) throws IOException
+    {
+        this.manager = manager;
+        this.file = file.toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    void start()
+    {
+        Thread.ofPlatform().name("config-watcher").daemon().start(this::watchLoop);
+        LOGGER.info("Watching {} for changes", file);
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            watchService.close();
+        } catch (IOException closeException)
+        {
+            LOGGER.warn("Failed to close config watcher: {}", closeException.getMessage());
+        }
+    }
+
+    private void watchLoop()
+    {
+        try
+        {
+            while (true)
+            {
+                var changed = drain(watchService.take());
+                if (!changed)
+                {
+                    continue;
+                }
+                // Swallow the rest of a burst of writes before reading the file
+                for (var key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS); key != null; key = watchService.poll(SETTLE_MILLIS,
+                        TimeUnit.MILLISECONDS))
+                {
+                    drain(key);
+                }
+                manager.reload(file);
+            }
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException closedException)
+        {
+            LOGGER.debug("Config watcher closed");
+        }
+    }
+
+    /**
+     * @return true if any of the key's events concern the watched file
+     */
+    private boolean drain(WatchKey key)
+    {
+        var changed = false;
+        for (var event : key.pollEvents())
+        {
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+}
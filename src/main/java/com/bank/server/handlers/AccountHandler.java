@@ -3,97 +3,60 @@ package com.bank.server.handlers;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.Executor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bank.business.entities.Account;
+import com.bank.business.entities.Money;
+import com.bank.business.services.AccountBusyException;
 import com.bank.business.services.AccountService;
+import com.bank.business.services.BatchOperation;
+import com.bank.business.services.BatchResult;
+import com.bank.business.services.DeadlineExceededException;
 import com.bank.business.services.UserService;
+import com.bank.server.metrics.HandlerStageEvent;
+import com.bank.server.routing.RouteMatch;
+import com.bank.server.routing.Router;
+import com.bank.server.util.ETags;
 import com.bank.server.util.Json;
+import com.bank.server.util.QueryParams;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 
-public class AccountHandler implements HttpHandler
+public class AccountHandler extends BaseHandler
 {
     private final AccountService accountService;
-    private final Executor executor;
     private final Logger LOGGER = LoggerFactory.getLogger(AccountHandler.class);
 
-    public AccountHandler(AccountService accountService, UserService userService, Executor executor)
+    public AccountHandler(AccountService accountService, UserService userService)
     {
         this.accountService = accountService;
-        this.executor = executor;
     }
 
     @Override
-    public void handle(HttpExchange exchange)
+    public void registerRoutes(Router.Builder routes)
     {
-        executor.execute(() -> {
-            try
-            {
-                handleRequest(exchange);
-            } catch (IOException ioException)
-            {
-                LOGGER.error("Error handling request: {}", ioException.getMessage(), ioException);
-                try
-                {
-                    sendResponse(exchange, 500, "{\"error\": \"Internal Server Error: " + ioException.getMessage() + "\"}");
-                } catch (IOException responseException)
-                {
-                    LOGGER.error("Failed to send error response: {}", responseException.getMessage(), responseException);
-                }
-            }
-        });
-    }
-
-    private void handleRequest(HttpExchange exchange) throws IOException
-    {
-        var method = exchange.getRequestMethod();
-        var path = exchange.getRequestURI().getPath();
-
-        LOGGER.debug("REQUEST {}@{}", method, path);
-
-        try
-        {
-            if ("POST".equals(method) && "/accounts".equals(path))
-            {
-                handleCreateAccount(exchange);
-            } else if ("GET".equals(method) && path.startsWith("/accounts/"))
-            {
-                handleGetAccountById(exchange);
-            } else if ("GET".equals(method) && "/accounts-all".equals(path))
-            {
-                handleGetAllAccounts(exchange);
-            } else if ("GET".equals(method) && "/accounts".equals(path))
-            {
-                handleGetAccountsByUser(exchange);
-            } else if ("POST".equals(method) && path.startsWith("/accounts/") && path.endsWith("/deposit"))
-            {
-                handleDeposit(exchange);
-            } else if ("POST".equals(method) && path.startsWith("/accounts/") && path.endsWith("/withdraw"))
-            {
-                handleWithdraw(exchange);
-            } else if ("POST".equals(method) && path.startsWith("/accounts/") && path.endsWith("/transfer"))
-            {
-                handleTransfer(exchange);
-            } else
-            {
-                sendResponse(exchange, 404, "{\"error\": \"Not Found\"}");
-            }
-        } catch (Exception requestProcessingException)
-        {
-            LOGGER.error("Error processing request: {}", requestProcessingException.getMessage(), requestProcessingException);
-            sendResponse(exchange, 500, "{\"error\": \"Internal Server Error: " + requestProcessingException.getMessage() + "\"}");
-        }
+        routes.post("/accounts", this::handleCreateAccount);
+        routes.get("/accounts", this::handleGetAccountsByUser);
+        routes.get("/accounts-all", this::handleGetAllAccounts);
+        routes.post("/accounts/batch", this::handleBatch).idempotent();
+        routes.get("/accounts/{accountId}", this::handleGetAccountById);
+        routes.post("/accounts/{accountId}/deposit", this::handleDeposit).idempotent();
+        routes.post("/accounts/{accountId}/withdraw", this::handleWithdraw).idempotent();
+        routes.post("/accounts/{accountId}/transfer", this::handleTransfer).idempotent();
     }
 
     /**
      * @param exchange
+     * @param match
      * @throws IOException
      */
-    private void handleCreateAccount(HttpExchange exchange) throws IOException
+    private void handleCreateAccount(HttpExchange exchange, RouteMatch match) throws IOException
     {
         try
         {
@@ -105,10 +68,10 @@ public class AccountHandler implements HttpHandler
             BigDecimal initialBalance;
             if (json.has("initialBalance"))
             {
-                initialBalance = new BigDecimal(json.get("initialBalance").asText());
+                initialBalance = Money.toDecimal(Money.parse(json.get("initialBalance").asText()));
             } else
             {
-                initialBalance = new BigDecimal(json.get("balance").asText());
+                initialBalance = Money.toDecimal(Money.parse(json.get("balance").asText()));
             }
             var type = Account.AccountType.valueOf(json.get("type").asText());
 
@@ -138,25 +101,23 @@ public class AccountHandler implements HttpHandler
 
     /**
      * @param exchange
+     * @param match
      * @throws IOException
      */
-    private void handleGetAccountById(HttpExchange exchange) throws IOException
+    private void handleGetAccountById(HttpExchange exchange, RouteMatch match) throws IOException
     {
         try
         {
-            // Extract account ID from path
-            var parts = exchange.getRequestURI().getPath().split("/");
-            if (parts.length < 3)
-            {
-                sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid path\"}");
-                return;
-            }
-
-            var accountId = Long.parseLong(parts[2]);
+            var accountId = match.getLong("accountId");
             var account = accountService.getAccountById(accountId);
 
             if (account != null)
             {
+                // Version first: a change racing with serialization then only costs the client one extra 200
+                if (notModified(exchange, ETags.of(account.getId(), account.getVersion())))
+                {
+                    return;
+                }
                 var json = Json.stringify(Json.toJson(account));
                 sendResponse(exchange, 200, json);
             } else
@@ -174,40 +135,38 @@ public class AccountHandler implements HttpHandler
         }
     }
 
-    private void handleGetAllAccounts(HttpExchange exchange) throws IOException
+    private void handleGetAllAccounts(HttpExchange exchange, RouteMatch match) throws IOException
     {
-        try
-        {
-            var accounts = accountService.getAllAccounts();
-            var json = Json.stringify(Json.toJson(accounts));
-            sendResponse(exchange, 200, json);
-        } catch (NumberFormatException numberFormatException)
-        {
-            LOGGER.error("Invalid user ID format: {}", numberFormatException.getMessage(), numberFormatException);
-            sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid user ID format\"}");
-        } catch (Exception accountsRetrievalException)
+        var page = readPageRequest(exchange);
+        if (page == null)
         {
-            LOGGER.error("Error getting accounts: {}", accountsRetrievalException.getMessage(), accountsRetrievalException);
-            sendResponse(exchange, 500, "{\"error\": \"Internal Server Error: " + accountsRetrievalException.getMessage() + "\"}");
+            return;
         }
+        sendPage(exchange, page, accountService.getAccountsPage(page.after(), page.limit() + 1), Account::getId);
     }
 
     /**
      * @param exchange
+     * @param match
      * @throws IOException
      */
-    private void handleGetAccountsByUser(HttpExchange exchange) throws IOException
+    private void handleGetAccountsByUser(HttpExchange exchange, RouteMatch match) throws IOException
     {
         try
         {
             // Get user ID from query parameter or request body
-            var query = exchange.getRequestURI().getQuery();
+            var page = readPageRequest(exchange);
+            if (page == null)
+            {
+                return;
+            }
+
+            var userIdParam = QueryParams.get(exchange.getRequestURI().getQuery(), "userId");
             Long userId = null;
 
-            if (query != null && query.startsWith("userId="))
+            if (userIdParam != null)
             {
-                var userIdStr = query.substring(7);
-                userId = Long.parseLong(userIdStr);
+                userId = Long.parseLong(userIdParam);
             } else
             {
                 // Try to extract from request body
@@ -228,9 +187,8 @@ public class AccountHandler implements HttpHandler
                 return;
             }
 
-            var accounts = accountService.getAccountsByUserId(userId);
-            var json = Json.stringify(Json.toJson(accounts));
-            sendResponse(exchange, 200, json);
+            var accounts = accountService.getAccountsPageByUserId(userId, page.after(), page.limit() + 1);
+            sendPage(exchange, page, accounts, Account::getId);
         } catch (NumberFormatException numberFormatException)
         {
             LOGGER.error("Invalid user ID format: {}", numberFormatException.getMessage(), numberFormatException);
@@ -242,30 +200,25 @@ public class AccountHandler implements HttpHandler
         }
     }
 
-    private void handleDeposit(HttpExchange exchange) throws IOException
+    private void handleDeposit(HttpExchange exchange, RouteMatch match) throws IOException
     {
         try
         {
-            // Extract account ID from path
-            var parts = exchange.getRequestURI().getPath().split("/");
-            if (parts.length < 3)
-            {
-                sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid path\"}");
-                return;
-            }
-
-            var accountId = Long.parseLong(parts[2]);
+            var stage = HandlerStageEvent.start();
+            var accountId = match.getLong("accountId");
 
             var requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
             var jsonNode = Json.parse(requestBody);
-            var amount = new BigDecimal(jsonNode.get("amount").asText());
+            var amount = Money.parse(jsonNode.get("amount").asText());
+            stage.end(match.route(), HandlerStageEvent.PARSE);
 
-            if (amount.compareTo(BigDecimal.ZERO) < 0)
+            if (amount < 0)
             {
                 sendResponse(exchange, 400, "{\"error\": \"Bad Request: Negative Deposit Not Possible\"}");
                 return;
             }
 
+            stage = HandlerStageEvent.start();
             var account = accountService.getAccountById(accountId);
             if (account == null)
             {
@@ -273,22 +226,30 @@ public class AccountHandler implements HttpHandler
                 return;
             }
 
-            account.addAmount(amount);
-
-            // Update the account in the service
-            accountService.updateAccount(account);
+            if (!accountService.deposit(account, amount, match.deadline()))
+            {
+                sendAccountBusy(exchange);
+                return;
+            }
+            stage.end(match.route(), HandlerStageEvent.EXECUTE);
 
-            var response = Json.defaultObjectMapper().createObjectNode();
+            stage = HandlerStageEvent.start();
+            var response = Json.newObject();
             response.put("success", true);
             response.put("message", "Deposit successful");
-            response.put("balance", account.getBalance().toString());
+            response.put("balance", Money.format(account.balanceMinorUnits()));
 
             var json = Json.stringify(response);
             sendResponse(exchange, 200, json);
+            stage.end(match.route(), HandlerStageEvent.SERIALIZE);
         } catch (NumberFormatException numberFormatException)
         {
             LOGGER.error("Invalid account ID or amount format: {}", numberFormatException.getMessage(), numberFormatException);
             sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid account ID or amount format\"}");
+        } catch (DeadlineExceededException deadlineException)
+        {
+            LOGGER.warn("Deposit abandoned: {}", deadlineException.getMessage());
+            sendDeadlineExceeded(exchange);
         } catch (Exception depositProcessingException)
         {
             LOGGER.error("Error processing deposit: {}", depositProcessingException.getMessage(), depositProcessingException);
@@ -298,43 +259,39 @@ public class AccountHandler implements HttpHandler
 
     /**
      * @param exchange
+     * @param match
      * @throws IOException
      */
-    private void handleWithdraw(HttpExchange exchange) throws IOException
+    private void handleWithdraw(HttpExchange exchange, RouteMatch match) throws IOException
     {
         try
         {
-            // Extract account ID from path
-            var parts = exchange.getRequestURI().getPath().split("/");
-            if (parts.length < 3)
-            {
-                sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid path\"}");
-                return;
-            }
-
-            var accountId = Long.parseLong(parts[2]);
+            var stage = HandlerStageEvent.start();
+            var accountId = match.getLong("accountId");
 
             var requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
             var jsonNode = Json.parse(requestBody);
-            var amount = new BigDecimal(jsonNode.get("amount").asText());
+            var amount = Money.parse(jsonNode.get("amount").asText());
+            stage.end(match.route(), HandlerStageEvent.PARSE);
 
+            stage = HandlerStageEvent.start();
             var account = accountService.getAccountById(accountId);
             if (account == null)
             {
                 sendResponse(exchange, 404, "{\"error\": \"Account not found\"}");
                 return;
             }
-            var success = account.withdrawAmount(amount);
+            var success = accountService.withdraw(account, amount, match.deadline());
+            stage.end(match.route(), HandlerStageEvent.EXECUTE);
 
-            var response = Json.defaultObjectMapper().createObjectNode();
+            stage = HandlerStageEvent.start();
+            var response = Json.newObject();
             response.put("success", success);
-            response.put("balance", account.getBalance().toString());
+            response.put("balance", Money.format(account.balanceMinorUnits()));
 
             if (success)
             {
                 response.put("message", "Withdrawal successful");
-                // Update the account in the service
-                accountService.updateAccount(account);
                 var json = Json.stringify(response);
                 sendResponse(exchange, 200, json);
             } else
@@ -343,10 +300,19 @@ public class AccountHandler implements HttpHandler
                 var json = Json.stringify(response);
                 sendResponse(exchange, 400, json);
             }
+            stage.end(match.route(), HandlerStageEvent.SERIALIZE);
         } catch (NumberFormatException numberFormatException)
         {
             LOGGER.error("Invalid account ID or amount format: {}", numberFormatException.getMessage(), numberFormatException);
             sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid account ID or amount format\"}");
+        } catch (DeadlineExceededException deadlineException)
+        {
+            LOGGER.warn("Withdrawal abandoned: {}", deadlineException.getMessage());
+            sendDeadlineExceeded(exchange);
+        } catch (AccountBusyException busyException)
+        {
+            LOGGER.warn("Withdrawal abandoned: {}", busyException.getMessage());
+            sendAccountBusy(exchange);
         } catch (Exception withdrawalProcessingException)
         {
             LOGGER.error("Error processing withdrawal: {}", withdrawalProcessingException.getMessage(), withdrawalProcessingException);
@@ -354,33 +320,28 @@ public class AccountHandler implements HttpHandler
         }
     }
 
-    private void handleTransfer(HttpExchange exchange) throws IOException
+    private void handleTransfer(HttpExchange exchange, RouteMatch match) throws IOException
     {
         try
         {
-            // Extract account ID from path (source account)
-            var parts = exchange.getRequestURI().getPath().split("/");
-            if (parts.length < 3)
-            {
-                sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid path\"}");
-                return;
-            }
-
+            var stage = HandlerStageEvent.start();
             var requestBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
 
             LOGGER.debug("GOT requestBody: {}", requestBody);
             var jsonNode = Json.parse(requestBody);
 
-            var fromAccountId = Long.parseLong(parts[2]);
+            var fromAccountId = match.getLong("accountId");
             var toAccountId = jsonNode.get("toAccountId").asLong();
-            var amount = new BigDecimal(jsonNode.get("amount").asText());
+            var amount = Money.parse(jsonNode.get("amount").asText());
+            stage.end(match.route(), HandlerStageEvent.PARSE);
 
-            if (amount.compareTo(BigDecimal.ZERO) < 0)
+            if (amount < 0)
             {
                 sendResponse(exchange, 400, "{\"error\": \"Bad Request: Negative Transfer Amount is Not Allowed\"}");
                 return;
             }
 
+            stage = HandlerStageEvent.start();
             var fromAccount = accountService.getAccountById(fromAccountId);
             if (fromAccount == null)
             {
@@ -397,30 +358,41 @@ public class AccountHandler implements HttpHandler
             }
 
             // Perform the atomic transfer
-            var success = accountService.transferAmount(fromAccountId, toAccountId, amount);
+            var success = accountService.transferAmount(fromAccountId, toAccountId, amount, match.deadline());
+            stage.end(match.route(), HandlerStageEvent.EXECUTE);
 
-            var response = Json.defaultObjectMapper().createObjectNode();
+            stage = HandlerStageEvent.start();
+            var response = Json.newObject();
             response.put("success", success);
 
             if (success)
             {
                 var updatedFromAccount = accountService.getAccountById(fromAccountId);
                 response.put("message", "Transfer successful");
-                response.put("balance", updatedFromAccount.getBalance().toString());
+                response.put("balance", Money.format(updatedFromAccount.balanceMinorUnits()));
                 var json = Json.stringify(response);
                 sendResponse(exchange, 200, json);
             } else
             {
                 response.put("message", "Insufficient funds or account not found");
-                response.put("balance", fromAccount.getBalance().toString());
-                response.put("required-balance", amount);
+                response.put("balance", Money.format(fromAccount.balanceMinorUnits()));
+                response.put("required-balance", Money.toDecimal(amount));
                 var json = Json.stringify(response);
                 sendResponse(exchange, 400, json);
             }
+            stage.end(match.route(), HandlerStageEvent.SERIALIZE);
         } catch (NumberFormatException numberFormatException)
         {
             LOGGER.error("Invalid account ID or amount format: {}", numberFormatException.getMessage(), numberFormatException);
             sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid account ID or amount format\"}");
+        } catch (DeadlineExceededException deadlineException)
+        {
+            LOGGER.warn("Transfer abandoned: {}", deadlineException.getMessage());
+            sendDeadlineExceeded(exchange);
+        } catch (AccountBusyException busyException)
+        {
+            LOGGER.warn("Transfer abandoned: {}", busyException.getMessage());
+            sendAccountBusy(exchange);
         } catch (Exception transferProcessingException)
         {
             LOGGER.error("Error processing transfer: {}", transferProcessingException.getMessage(), transferProcessingException);
@@ -429,18 +401,128 @@ public class AccountHandler implements HttpHandler
     }
 
     /**
+     * Applies an array of deposits, withdrawals and transfers all-or-nothing. The body is either the array
+     * itself or {@code {"operations": [...]}}, each element being
+     * {@code {"type": "deposit|withdraw|transfer", "accountId": 1, "toAccountId": 2, "amount": "10.00"}}.
+     *
      * @param exchange
-     * @param statusCode
-     * @param response
+     * @param match
      * @throws IOException
      */
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException
+    private void handleBatch(HttpExchange exchange, RouteMatch match) throws IOException
     {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes(StandardCharsets.UTF_8).length);
-        try (var os = exchange.getResponseBody())
+        List<BatchOperation> operations;
+        var stage = HandlerStageEvent.start();
+        try
+        {
+            var body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            JsonNode json;
+            try
+            {
+                json = Json.parse(body);
+            } catch (JsonProcessingException malformedException)
+            {
+                LOGGER.error("Malformed batch body: {}", malformedException.getOriginalMessage());
+                sendResponse(exchange, 400, "{\"error\": \"Bad Request: malformed JSON\"}");
+                return;
+            }
+            var items = json.isArray() ? json : json.path("operations");
+            if (!items.isArray())
+            {
+                sendResponse(exchange, 400, "{\"error\": \"Bad Request: expected an array of operations\"}");
+                return;
+            }
+            if (items.isEmpty() || items.size() > AccountService.MAX_BATCH_SIZE)
+            {
+                sendResponse(exchange, 400, "{\"error\": \"Bad Request: a batch needs between 1 and " + AccountService.MAX_BATCH_SIZE + " operations\"}");
+                return;
+            }
+            operations = new ArrayList<>(items.size());
+            for (var item : items)
+            {
+                operations.add(toBatchOperation(item));
+            }
+        } catch (IllegalArgumentException invalidOperationException)
+        {
+            // Also covers NumberFormatException from a malformed amount
+            LOGGER.error("Invalid batch operation: {}", invalidOperationException.getMessage());
+            sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid batch operation format\"}");
+            return;
+        }
+        stage.end(match.route(), HandlerStageEvent.PARSE);
+
+        stage = HandlerStageEvent.start();
+        var result = accountService.executeBatch(operations, match.deadline());
+        stage.end(match.route(), HandlerStageEvent.EXECUTE);
+
+        stage = HandlerStageEvent.start();
+        var response = Json.newObject();
+        response.put("success", result.committed());
+        response.put("status", result.status().name());
+        var results = response.putArray("results");
+        for (var operationResult : result.results())
+        {
+            var operation = operations.get(operationResult.index());
+            var node = results.addObject();
+            node.put("index", operationResult.index());
+            node.put("type", operation.type().name().toLowerCase(Locale.ROOT));
+            node.put("accountId", operation.accountId());
+            if (operation.toAccountId() != null)
+            {
+                node.put("toAccountId", operation.toAccountId());
+            }
+            node.put("outcome", operationResult.outcome().name());
+            if (operationResult.balance() != null)
+            {
+                node.put("balance", operationResult.balance().toString());
+            }
+            if (operationResult.message() != null)
+            {
+                node.put("message", operationResult.message());
+            }
+        }
+
+        var statusCode = switch (result.status())
+        {
+            case COMMITTED -> 200;
+            case ACCOUNT_NOT_FOUND -> 404;
+            case LOCK_TIMEOUT -> 503;
+            case DEADLINE_EXCEEDED -> 504;
+            case INVALID, INSUFFICIENT_FUNDS -> 400;
+        };
+        if (result.status() == BatchResult.Status.LOCK_TIMEOUT)
+        {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+        sendResponse(exchange, statusCode, Json.stringify(response));
+        stage.end(match.route(), HandlerStageEvent.SERIALIZE);
+    }
+
+    private static BatchOperation toBatchOperation(JsonNode item)
+    {
+        var type = item.path("type").asText("");
+        var amount = item.hasNonNull("amount") ? Money.toDecimal(Money.parse(item.get("amount").asText())) : null;
+        var accountId = id(item, "accountId");
+        var toAccountId = id(item, "toAccountId");
+        return new BatchOperation(BatchOperation.Type.valueOf(type.toUpperCase(Locale.ROOT)), accountId, toAccountId, amount);
+    }
+
+    /**
+     * @return the id, or null if the field is absent
+     * @throws IllegalArgumentException unless the field is a JSON integer that fits a long; {@code asLong} would
+     *                                  read {@code "abc"} or {@code 1.5} as some other account
+     */
+    private static Long id(JsonNode item, String field)
+    {
+        var node = item.get(field);
+        if (node == null || node.isNull())
+        {
+            return null;
+        }
+        if (!node.isIntegralNumber() || !node.canConvertToLong())
         {
-            os.write(response.getBytes(StandardCharsets.UTF_8));
+            throw new IllegalArgumentException(field + " must be an integer id");
         }
+        return node.asLong();
     }
 }
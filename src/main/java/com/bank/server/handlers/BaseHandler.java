@@ -0,0 +1,138 @@
+package com.bank.server.handlers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+import com.bank.server.routing.Router;
+import com.bank.server.util.ETags;
+import com.bank.server.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Common base for all handlers.
+ * <p>
+ * A handler contributes its routes to the shared {@link Router}; matching and dispatch happen once in
+ * {@link com.bank.server.routing.RouterHandler}. The request runs on the thread the server handed it to unless
+ * the route is explicitly offloaded.
+ */
+public abstract class BaseHandler
+{
+    /**
+     * @param routes builder to add this handler's routes to
+     */
+    public abstract void registerRoutes(Router.Builder routes);
+
+    /**
+     * @param exchange
+     * @param statusCode
+     * @param response
+     * @throws IOException
+     */
+    protected void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException
+    {
+        var body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (var os = exchange.getResponseBody())
+        {
+            os.write(body);
+        }
+    }
+
+    /**
+     * Tags the response with {@code etag} and answers {@code 304} if the client's {@code If-None-Match} already
+     * names it. Call it before building the body, so a 304 costs no serialization.
+     *
+     * @param exchange
+     * @param etag the current tag, see {@link ETags#of(long, long)}
+     * @return true if the 304 was sent and the caller must not respond
+     * @throws IOException
+     */
+    protected boolean notModified(HttpExchange exchange, String etag) throws IOException
+    {
+        var headers = exchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        // Caches may keep the body but must check back every time
+        headers.set("Cache-Control", "no-cache");
+        if (!ETags.matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag))
+        {
+            return false;
+        }
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return true;
+    }
+
+    /**
+     * Answers a request whose deadline passed before its work could be done; nothing was changed.
+     *
+     * @param exchange
+     * @throws IOException
+     */
+    protected void sendDeadlineExceeded(HttpExchange exchange) throws IOException
+    {
+        sendResponse(exchange, 504, "{\"error\": \"Gateway Timeout: request deadline exceeded\"}");
+    }
+
+    /**
+     * Answers a request whose account was locked for longer than the lock timeout; nothing was changed. It is a
+     * 5xx, so an idempotent retry runs again instead of replaying this answer.
+     *
+     * @param exchange
+     * @throws IOException
+     */
+    protected void sendAccountBusy(HttpExchange exchange) throws IOException
+    {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendResponse(exchange, 503, "{\"error\": \"Account busy, retry later\"}");
+    }
+
+    /**
+     * @param exchange
+     * @return the page requested in the query string, or null after a 400 has been sent for malformed paging
+     *         parameters
+     * @throws IOException
+     */
+    protected PageRequest readPageRequest(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            return PageRequest.from(exchange.getRequestURI().getQuery());
+        } catch (IllegalArgumentException invalidPageException)
+        {
+            sendResponse(exchange, 400, "{\"error\": \"Bad Request: invalid paging parameters (" + invalidPageException.getMessage() + ")\"}");
+            return null;
+        }
+    }
+
+    /**
+     * Streams one page as {@code {"items": [...], "next": <id>}} with chunked transfer encoding.
+     * <p>
+     * {@code items} is expected to hold up to {@code page.limit() + 1} entries; the extra one only tells that
+     * another page exists, and {@code next} is then the id of the last item sent.
+     * <p>
+     * Once the headers are out a failure cannot become an error status any more. The response body is
+     * deliberately left unclosed then, and the exception reaches the engine, which drops the connection
+     * instead of terminating the chunked body.
+     *
+     * @param exchange
+     * @param page
+     * @param items
+     * @param idOf
+     * @throws IOException
+     */
+    protected <T> void sendPage(HttpExchange exchange, PageRequest page, List<T> items, Function<T, Long> idOf) throws IOException
+    {
+        var hasMore = items.size() > page.limit();
+        var visible = hasMore ? items.subList(0, page.limit()) : items;
+        var next = hasMore ? idOf.apply(visible.get(visible.size() - 1)) : null;
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        var os = exchange.getResponseBody();
+        Json.writePage(os, visible.iterator(), next);
+        os.close();
+    }
+}
@@ -0,0 +1,213 @@
+package com.bank.server.handlers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bank.business.events.BalanceEvent;
+import com.bank.business.events.BalanceEventBus;
+import com.bank.business.services.AccountService;
+import com.bank.business.services.UserService;
+import com.bank.server.admission.InFlightLimiter;
+import com.bank.server.config.Configuration;
+import com.bank.server.routing.RouteMatch;
+import com.bank.server.routing.Router;
+import com.bank.server.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Server-Sent Events streams of balance changes: {@code GET /accounts/{accountId}/events} for one account and
+ * {@code GET /users/{userId}/events} for every account of a user.
+ * <p>
+ * Each change is sent as {@code event: balance} with the {@link BalanceEvent} as JSON data. A comment line goes
+ * out every {@code eventHeartbeatSeconds} so proxies keep the connection and a vanished client is noticed. A
+ * client that falls more than {@code eventBufferSize} events behind gets {@code event: dropped} and the stream
+ * ends; it should reload the balance and reconnect. Streams run on {@code streamExecutor} so they never hold
+ * server worker threads, and at most {@code maxEventStreams} are open at once.
+ */
+public final class EventStreamHandler extends BaseHandler
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventStreamHandler.class);
+    private static final byte[] CONNECTED = ": connected\nretry: 3000\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DROPPED = "event: dropped\ndata: {\"reason\": \"client too slow\"}\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final AccountService accountService;
+    private final UserService userService;
+    private final BalanceEventBus events;
+    private final Executor streamExecutor;
+    private final InFlightLimiter streams;
+    private volatile int bufferSize;
+    private volatile long heartbeatNanos;
+
+    /**
+     * @param accountService
+     * @param userService
+     * @param streamExecutor runs the long-lived streams, ideally one virtual thread each
+     * @param serverConfig
+     */
+    public EventStreamHandler(AccountService accountService, UserService userService, Executor streamExecutor, Configuration.ServerConfig serverConfig)
+    {
+        this.accountService = accountService;
+        this.userService = userService;
+        this.events = accountService.getEvents();
+        this.streamExecutor = streamExecutor;
+        this.streams = new InFlightLimiter(serverConfig.getMaxEventStreams());
+        reconfigure(serverConfig);
+    }
+
+    /**
+     * Applies reloaded stream settings; the buffer size only affects streams opened from now on.
+     *
+     * @param serverConfig
+     */
+    public void reconfigure(Configuration.ServerConfig serverConfig)
+    {
+        streams.setLimit(serverConfig.getMaxEventStreams());
+        this.bufferSize = serverConfig.getEventBufferSize();
+        this.heartbeatNanos = TimeUnit.SECONDS.toNanos(serverConfig.getEventHeartbeatSeconds());
+    }
+
+    @Override
+    public void registerRoutes(Router.Builder routes)
+    {
+        routes.get("/accounts/{accountId}/events", this::handleAccountEvents).offload(streamExecutor);
+        routes.get("/users/{userId}/events", this::handleUserEvents).offload(streamExecutor);
+    }
+
+    public BalanceEventBus events()
+    {
+        return events;
+    }
+
+    public InFlightLimiter streams()
+    {
+        return streams;
+    }
+
+    private void handleAccountEvents(HttpExchange exchange, RouteMatch match) throws IOException
+    {
+        long accountId;
+        try
+        {
+            accountId = match.getLong("accountId");
+        } catch (NumberFormatException numberFormatException)
+        {
+            sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid account ID format\"}");
+            return;
+        }
+        if (accountService.getAccountById(accountId) == null)
+        {
+            sendResponse(exchange, 404, "{\"error\": \"Account not found\"}");
+            return;
+        }
+        stream(exchange, () -> events.subscribeToAccount(accountId, bufferSize));
+    }
+
+    private void handleUserEvents(HttpExchange exchange, RouteMatch match) throws IOException
+    {
+        long userId;
+        try
+        {
+            userId = match.getLong("userId");
+        } catch (NumberFormatException numberFormatException)
+        {
+            sendResponse(exchange, 400, "{\"error\": \"Invalid user ID format\"}");
+            return;
+        }
+        if (userService.getUserById(userId) == null)
+        {
+            sendResponse(exchange, 404, "{\"error\": \"User not found\"}");
+            return;
+        }
+        stream(exchange, () -> events.subscribeToUser(userId, bufferSize));
+    }
+
+    private void stream(HttpExchange exchange, Supplier<BalanceEventBus.Subscription> subscriber) throws IOException
+    {
+        if (!streams.tryAcquire())
+        {
+            exchange.getResponseHeaders().set("Retry-After", "5");
+            sendResponse(exchange, 503, "{\"error\": \"Service Unavailable: too many event streams\"}");
+            return;
+        }
+        // Subscribe before the headers go out, so no change after the client's 200 is missed
+        try (var subscription = subscriber.get())
+        {
+            var headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", "text/event-stream");
+            headers.set("Cache-Control", "no-cache");
+            // Stops nginx from buffering the stream
+            headers.set("X-Accel-Buffering", "no");
+            exchange.sendResponseHeaders(200, 0);
+
+            var os = exchange.getResponseBody();
+            os.write(CONNECTED);
+            os.flush();
+            while (true)
+            {
+                var event = subscription.poll(heartbeatNanos, TimeUnit.NANOSECONDS);
+                if (subscription.isDropped())
+                {
+                    LOGGER.info("Dropping slow event stream {}", exchange.getRequestURI().getPath());
+                    os.write(DROPPED);
+                    break;
+                }
+                if (event == null)
+                {
+                    os.write(HEARTBEAT);
+                } else
+                {
+                    // Send whatever else is already queued in the same flush, unless a drop opened a gap meanwhile
+                    for (; event != null && !subscription.isDropped(); event = subscription.poll())
+                    {
+                        write(os, event);
+                    }
+                    if (subscription.isDropped())
+                    {
+                        LOGGER.info("Dropping slow event stream {}", exchange.getRequestURI().getPath());
+                        os.write(DROPPED);
+                        break;
+                    }
+                }
+                os.flush();
+            }
+            os.close();
+        } catch (InterruptedException interruptedException)
+        {
+            // Server shutdown: end the stream cleanly (before restoring the flag, which would fail the write) so the
+            // client reconnects to another instance
+            exchange.close();
+            Thread.currentThread().interrupt();
+        } catch (IOException clientGoneException)
+        {
+            LOGGER.debug("Event stream closed: {}", clientGoneException.getMessage());
+            exchange.close();
+        } finally
+        {
+            streams.release();
+        }
+    }
+
+    private static void write(OutputStream os, BalanceEvent event) throws IOException
+    {
+        var data = Json.newObject();
+        data.put("accountId", event.accountId());
+        if (event.userId() != null)
+        {
+            data.put("userId", event.userId());
+        }
+        data.put("kind", event.kind().name());
+        data.put("amount", event.amount().toString());
+        data.put("balance", event.balance().toString());
+        data.put("version", event.version());
+        data.put("timestamp", event.timestampMillis());
+        os.write(("event: balance\ndata: " + Json.stringify(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,119 @@
+package com.bank.server.handlers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.bank.server.admission.QueueTimingExecutor;
+import com.bank.server.lifecycle.RequestTracker;
+import com.bank.server.metrics.LatencyHistogram;
+import com.bank.server.metrics.RequestMetrics;
+import com.bank.server.metrics.ServerStats;
+import com.bank.server.routing.RouteMatch;
+import com.bank.server.routing.Router;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Serves latency histograms, request counters, requests in flight and executor queue depth in the Prometheus
+ * text format at {@code GET /metrics}.
+ * <p>
+ * Histograms are exported with fixed {@code le} buckets from 0.5 ms to 30 s; since the underlying buckets are
+ * finer, each count is exact to within the histogram's 6.25% resolution. Throughput is
+ * {@code rate(bank_http_requests_total[1m])} on the scraping side.
+ */
+public class MetricsHandler extends BaseHandler
+{
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] BUCKET_SECONDS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    private final RequestMetrics metrics;
+    private final ServerStats serverStats;
+    private final RequestTracker requests;
+    private final QueueTimingExecutor executor;
+
+    /**
+     * @param metrics
+     * @param serverStats
+     * @param requests
+     * @param executor the executor requests are queued on
+     */
+    public MetricsHandler(RequestMetrics metrics, ServerStats serverStats, RequestTracker requests, QueueTimingExecutor executor)
+    {
+        this.metrics = metrics;
+        this.serverStats = serverStats;
+        this.requests = requests;
+        this.executor = executor;
+    }
+
+    @Override
+    public void registerRoutes(Router.Builder routes)
+    {
+        routes.get("/metrics", this::handleGetMetrics);
+    }
+
+    private void handleGetMetrics(HttpExchange exchange, RouteMatch match) throws IOException
+    {
+        var out = new StringBuilder(16_384);
+        writeLatencies(out);
+        writeCounters(out);
+
+        out.append("# HELP bank_http_requests_in_flight Requests received and not yet answered.\n");
+        out.append("# TYPE bank_http_requests_in_flight gauge\n");
+        out.append("bank_http_requests_in_flight ").append(requests.inFlight()).append('\n');
+        out.append("# HELP bank_executor_queue_depth Requests waiting for a worker thread.\n");
+        out.append("# TYPE bank_executor_queue_depth gauge\n");
+        out.append("bank_executor_queue_depth ").append(executor.queued()).append('\n');
+
+        var body = out.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.length);
+        try (var os = exchange.getResponseBody())
+        {
+            os.write(body);
+        }
+    }
+
+    private void writeLatencies(StringBuilder out)
+    {
+        out.append("# HELP bank_http_request_duration_seconds Time from queueing to handler return, by route and status.\n");
+        out.append("# TYPE bank_http_request_duration_seconds histogram\n");
+        for (var route : metrics.routes().entrySet())
+        {
+            for (var status : route.getValue().byStatus().entrySet())
+            {
+                var labels = "route=\"" + escape(route.getKey()) + "\",status=\"" + (status.getKey() == 0 ? "none" : status.getKey()) + "\"";
+                writeHistogram(out, labels, status.getValue().snapshot());
+            }
+        }
+    }
+
+    private static void writeHistogram(StringBuilder out, String labels, LatencyHistogram.Snapshot snapshot)
+    {
+        for (var seconds : BUCKET_SECONDS)
+        {
+            out.append("bank_http_request_duration_seconds_bucket{").append(labels).append(",le=\"").append(seconds).append("\"} ")
+                    .append(snapshot.countAtOrBelow(Math.round(seconds * 1_000_000))).append('\n');
+        }
+        out.append("bank_http_request_duration_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ").append(snapshot.count()).append('\n');
+        out.append("bank_http_request_duration_seconds_sum{").append(labels).append("} ").append(snapshot.sumMicros() / 1_000_000.0).append('\n');
+        out.append("bank_http_request_duration_seconds_count{").append(labels).append("} ").append(snapshot.count()).append('\n');
+    }
+
+    private void writeCounters(StringBuilder out)
+    {
+        out.append("# HELP bank_http_requests_total Requests answered, by port.\n");
+        out.append("# TYPE bank_http_requests_total counter\n");
+        serverStats.ports().forEach((port, stats) -> out.append("bank_http_requests_total{port=\"").append(port).append("\"} ")
+                .append(stats.requests()).append('\n'));
+        out.append("# HELP bank_http_errors_total Requests answered with an error, by port and class.\n");
+        out.append("# TYPE bank_http_errors_total counter\n");
+        serverStats.ports().forEach((port, stats) -> {
+            out.append("bank_http_errors_total{port=\"").append(port).append("\",class=\"4xx\"} ").append(stats.clientErrors()).append('\n');
+            out.append("bank_http_errors_total{port=\"").append(port).append("\",class=\"5xx\"} ").append(stats.serverErrors()).append('\n');
+        });
+    }
+
+    private static String escape(String labelValue)
+    {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,45 @@
+package com.bank.server.handlers;
+
+import com.bank.server.util.QueryParams;
+
+/**
+ * Keyset paging parameters from {@code ?limit=&after=<id>}.
+ * <p>
+ * Every listing is paged: without {@code limit} a page holds {@link #DEFAULT_LIMIT} items and no request can ask
+ * for more than {@link #MAX_LIMIT}, so a single request never walks the whole store.
+ *
+ * @param after last id of the previous page, or null for the first page
+ * @param limit page size
+ */
+record PageRequest(Long after, int limit)
+{
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1_000;
+
+    /**
+     * @param query decoded request query string, may be null
+     * @return the requested page
+     * @throws IllegalArgumentException if {@code limit} or {@code after} is malformed or out of range
+     */
+    static PageRequest from(String query)
+    {
+        var limitValue = QueryParams.get(query, "limit");
+        var afterValue = QueryParams.get(query, "after");
+
+        int limit;
+        Long after;
+        try
+        {
+            limit = limitValue == null ? DEFAULT_LIMIT : Integer.parseInt(limitValue);
+            after = afterValue == null || afterValue.isEmpty() ? null : Long.valueOf(afterValue);
+        } catch (NumberFormatException numberFormatException)
+        {
+            throw new IllegalArgumentException("limit and after must be numbers");
+        }
+        if (limit < 1 || limit > MAX_LIMIT)
+        {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return new PageRequest(after, limit);
+    }
+}
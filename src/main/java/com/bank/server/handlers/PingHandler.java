@@ -1,75 +1,28 @@
 package com.bank.server.handlers;
 
+import com.bank.server.routing.RouteMatch;
+import com.bank.server.routing.Router;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.Executor;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * A simple handler that demonstrates custom logic.
  * This handler will simulate some work and respond with a message.
  */
-public class PingHandler implements HttpHandler
+public class PingHandler extends BaseHandler
 {
-    private static final Logger LOGGER = LoggerFactory.getLogger(PingHandler.class);
-
-    private final Executor executor;
-
-    public PingHandler(Executor executor)
-    {
-        this.executor = executor;
-    }
-
     @Override
-    public void handle(HttpExchange exchange)
+    public void registerRoutes(Router.Builder routes)
     {
-        // Submit the actual work to our custom executor
-        // This allows us to control the threading model
-        executor.execute(() -> {
-            try
-            {
-                handleRequest(exchange);
-            } catch (IOException ioException)
-            {
-                LOGGER.error("Error handling Ping request: {}", ioException.getMessage(), ioException);
-                try
-                {
-                    sendResponse(exchange, 500, "{\"error\": \"Internal Server Error: " + ioException.getMessage() + "\"}");
-                } catch (IOException responseException)
-                {
-                    LOGGER.error("Failed to send Ping error response: {}", responseException.getMessage(), responseException);
-                }
-            }
-        });
+        routes.get("/", this::handlePing);
     }
 
-    private void handleRequest(HttpExchange exchange) throws IOException
+    public void handlePing(HttpExchange exchange, RouteMatch match) throws IOException
     {
         // Simulate some work (e.g., database access, computation)
 
         var response = "PONG";
         sendResponse(exchange, 200, response);
     }
-
-    /**
-     * @param exchange
-     * @param statusCode
-     * @param response
-     * @throws IOException
-     */
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException
-    {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes(StandardCharsets.UTF_8).length);
-
-        try (var os = exchange.getResponseBody())
-        {
-            os.write(response.getBytes(StandardCharsets.UTF_8));
-        }
-    }
 }
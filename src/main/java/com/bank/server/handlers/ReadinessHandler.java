@@ -0,0 +1,38 @@
+package com.bank.server.handlers;
+
+import java.io.IOException;
+
+import com.bank.server.lifecycle.RequestTracker;
+import com.bank.server.routing.RouteMatch;
+import com.bank.server.routing.Router;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * {@code GET /ready} for load balancer health checks: 200 while the server takes traffic, 503 once it is draining
+ * for shutdown.
+ */
+public class ReadinessHandler extends BaseHandler
+{
+    private final RequestTracker requests;
+
+    public ReadinessHandler(RequestTracker requests)
+    {
+        this.requests = requests;
+    }
+
+    @Override
+    public void registerRoutes(Router.Builder routes)
+    {
+        routes.get("/ready", this::handleReady);
+    }
+
+    private void handleReady(HttpExchange exchange, RouteMatch match) throws IOException
+    {
+        if (requests.isDraining())
+        {
+            sendResponse(exchange, 503, "{\"status\": \"draining\"}");
+            return;
+        }
+        sendResponse(exchange, 200, "{\"status\": \"ready\"}");
+    }
+}
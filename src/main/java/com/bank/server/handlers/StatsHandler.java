@@ -0,0 +1,103 @@
+package com.bank.server.handlers;
+
+import java.io.IOException;
+
+import com.bank.server.admission.AdmissionFilter;
+import com.bank.server.idempotency.IdempotencyGuard;
+import com.bank.server.metrics.CompressionStats;
+import com.bank.server.metrics.ServerStats;
+import com.bank.server.routing.RouteMatch;
+import com.bank.server.routing.Router;
+import com.bank.server.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Serves the per-port request counters, admission, idempotency and event stream counters and per-endpoint
+ * compression figures as JSON at {@code GET /stats}.
+ */
+public class StatsHandler extends BaseHandler
+{
+    private final ServerStats serverStats;
+    private final CompressionStats compressionStats;
+    private final AdmissionFilter admission;
+    private final IdempotencyGuard idempotency;
+    private final EventStreamHandler eventStreams;
+
+    /**
+     * @param serverStats
+     * @param compressionStats
+     * @param admission
+     * @param idempotency the idempotency guard, or null when it is disabled
+     * @param eventStreams
+     */
+    public StatsHandler(ServerStats serverStats, CompressionStats compressionStats, AdmissionFilter admission, IdempotencyGuard idempotency,
+            EventStreamHandler eventStreams)
+    {
+        this.serverStats = serverStats;
+        this.compressionStats = compressionStats;
+        this.admission = admission;
+        this.idempotency = idempotency;
+        this.eventStreams = eventStreams;
+    }
+
+    @Override
+    public void registerRoutes(Router.Builder routes)
+    {
+        routes.get("/stats", this::handleGetStats);
+    }
+
+    private void handleGetStats(HttpExchange exchange, RouteMatch match) throws IOException
+    {
+        var response = Json.newObject();
+        var ports = response.putObject("ports");
+        for (var entry : serverStats.ports().entrySet())
+        {
+            var stats = entry.getValue();
+            var port = ports.putObject(String.valueOf(entry.getKey()));
+            port.put("requests", stats.requests());
+            port.put("inFlight", stats.inFlight());
+            port.put("clientErrors", stats.clientErrors());
+            port.put("serverErrors", stats.serverErrors());
+            port.put("deadlineExceeded", stats.deadlineExceeded());
+            port.put("avgLatencyMicros", stats.requests() == 0 ? 0 : stats.latencyNanos() / stats.requests() / 1_000);
+        }
+        var admitted = response.putObject("admission");
+        admitted.put("readsInFlight", admission.reads().inFlight());
+        admitted.put("readLimit", admission.reads().getLimit());
+        admitted.put("rejectedReads", admission.reads().rejected());
+        admitted.put("writesInFlight", admission.writes().inFlight());
+        admitted.put("writeLimit", admission.writes().getLimit());
+        admitted.put("rejectedWrites", admission.writes().rejected());
+        admitted.put("expired", admission.expired());
+        if (idempotency != null)
+        {
+            var idempotent = response.putObject("idempotency");
+            idempotent.put("entries", idempotency.cache().size());
+            idempotent.put("replayed", idempotency.replayed());
+            idempotent.put("mismatched", idempotency.mismatched());
+            idempotent.put("inProgress", idempotency.inProgress());
+        }
+        var events = response.putObject("events");
+        events.put("streams", eventStreams.streams().inFlight());
+        events.put("streamLimit", eventStreams.streams().getLimit());
+        events.put("rejectedStreams", eventStreams.streams().rejected());
+        events.put("subscribers", eventStreams.events().subscribers());
+        events.put("published", eventStreams.events().published());
+        events.put("dropped", eventStreams.events().dropped());
+        var compression = response.putObject("compression");
+        for (var entry : compressionStats.endpoints().entrySet())
+        {
+            var stats = entry.getValue();
+            var compressed = stats.compressedCount();
+            var endpoint = compression.putObject(entry.getKey());
+            endpoint.put("compressed", compressed);
+            endpoint.put("uncompressed", stats.uncompressedCount());
+            endpoint.put("bytesIn", stats.bytesIn());
+            endpoint.put("bytesOut", stats.bytesOut());
+            endpoint.put("ratio", stats.bytesOut() == 0 ? 0 : (double) stats.bytesIn() / stats.bytesOut());
+            endpoint.put("cpuMicrosPerResponse", compressed == 0 ? 0 : stats.deflateNanos() / compressed / 1_000);
+            endpoint.put("cpuNanosPerKb", stats.bytesIn() == 0 ? 0 : stats.deflateNanos() * 1_024 / stats.bytesIn());
+        }
+        sendResponse(exchange, 200, Json.stringify(response));
+    }
+}
@@ -2,80 +2,38 @@ package com.bank.server.handlers;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.bank.business.entities.User;
 import com.bank.business.services.UserService;
+import com.bank.server.routing.RouteMatch;
+import com.bank.server.routing.Router;
+import com.bank.server.util.ETags;
 import com.bank.server.util.Json;
 import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
 
-public class UserHandler implements HttpHandler
+public class UserHandler extends BaseHandler
 {
     private final Logger LOGGER = LoggerFactory.getLogger(UserHandler.class);
     private final UserService userService;
-    private final Executor executor;
 
-    public UserHandler(UserService userService, Executor executor)
+    public UserHandler(UserService userService)
     {
         this.userService = userService;
-        this.executor = executor;
     }
 
     @Override
-    public void handle(HttpExchange exchange)
+    public void registerRoutes(Router.Builder routes)
     {
-        executor.execute(() -> {
-            try
-            {
-                handleRequest(exchange);
-            } catch (IOException ioException)
-            {
-                LOGGER.error("Error User handling request: {}", ioException.getMessage(), ioException);
-                try
-                {
-                    sendResponse(exchange, 500, "{\"error\": \"Internal Server Error: " + ioException.getMessage() + "\"}");
-                } catch (IOException responseException)
-                {
-                    LOGGER.error("Failed to user send error response: {}", responseException.getMessage(), responseException);
-                }
-            }
-        });
-    }
-
-    private void handleRequest(HttpExchange exchange) throws IOException
-    {
-        var method = exchange.getRequestMethod();
-        var path = exchange.getRequestURI().getPath();
-
-        try
-        {
-            if ("POST".equals(method) && "/users".equals(path))
-            {
-                handleCreateUser(exchange);
-            } else if ("POST".equals(method) && "/login".equals(path))
-            {
-                handleLogin(exchange);
-            } else if ("GET".equals(method) && path.startsWith("/users/"))
-            {
-                handleGetUserById(exchange);
-            } else if ("GET".equals(method) && "/admin/users".equals(path))
-            {
-                handleGetAllUsers(exchange);
-            } else
-            {
-                sendResponse(exchange, 404, "{\"error\": \"Not Found\"}");
-            }
-        } catch (Exception requestProcessingException)
-        {
-            LOGGER.error("Error processing request: {}", requestProcessingException.getMessage(), requestProcessingException);
-            sendResponse(exchange, 500, "{\"error\": \"Internal Server Error: " + requestProcessingException.getMessage() + "\"}");
-        }
+        routes.post("/users", this::handleCreateUser);
+        routes.post("/login", this::handleLogin);
+        routes.get("/users/{userId}", this::handleGetUserById);
+        routes.get("/admin/users", this::handleGetAllUsers);
     }
 
-    private void handleCreateUser(HttpExchange exchange) throws IOException
+    private void handleCreateUser(HttpExchange exchange, RouteMatch match) throws IOException
     {
         try
         {
@@ -132,7 +90,7 @@ public class UserHandler implements HttpHandler
         }
     }
 
-    private void handleLogin(HttpExchange exchange) throws IOException
+    private void handleLogin(HttpExchange exchange, RouteMatch match) throws IOException
     {
         try
         {
@@ -161,7 +119,7 @@ public class UserHandler implements HttpHandler
                 var userNode = Json.toJson(user).deepCopy();
                 ((com.fasterxml.jackson.databind.node.ObjectNode) userNode).remove("password");
 
-                var response = Json.defaultObjectMapper().createObjectNode();
+                var response = Json.newObject();
                 response.set("user", userNode);
                 response.put("message", "Login successful");
 
@@ -178,23 +136,19 @@ public class UserHandler implements HttpHandler
         }
     }
 
-    private void handleGetUserById(HttpExchange exchange) throws IOException
+    private void handleGetUserById(HttpExchange exchange, RouteMatch match) throws IOException
     {
         try
         {
-            // Extract user ID from path
-            var parts = exchange.getRequestURI().getPath().split("/");
-            if (parts.length < 3)
-            {
-                sendResponse(exchange, 400, "{\"error\": \"Bad Request: Invalid path\"}");
-                return;
-            }
-
-            var userId = Long.parseLong(parts[2]);
+            var userId = match.getLong("userId");
             var userOptional = userService.getUserById(userId);
 
             if (userOptional != null)
             {
+                if (notModified(exchange, ETags.of(userOptional.getId(), userOptional.getVersion())))
+                {
+                    return;
+                }
                 var json = Json.stringify(Json.toJson(userOptional));
                 sendResponse(exchange, 200, json);
             } else
@@ -212,29 +166,15 @@ public class UserHandler implements HttpHandler
         }
     }
 
-    private void handleGetAllUsers(HttpExchange exchange) throws IOException
-    {
-        try
-        {
-            // Check for admin authorization (simplified)
-            // In a real app, you'd check the JWT token
-            var users = userService.getAllUsers();
-            var json = Json.stringify(Json.toJson(users));
-            sendResponse(exchange, 200, json);
-        } catch (Exception usersRetrievalException)
-        {
-            LOGGER.error("Error getting all users: {}", usersRetrievalException.getMessage(), usersRetrievalException);
-            sendResponse(exchange, 500, "{\"error\": \"Internal Server Error: " + usersRetrievalException.getMessage() + "\"}");
-        }
-    }
-
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException
+    private void handleGetAllUsers(HttpExchange exchange, RouteMatch match) throws IOException
     {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes(StandardCharsets.UTF_8).length);
-        try (var os = exchange.getResponseBody())
+        // Check for admin authorization (simplified)
+        // In a real app, you'd check the JWT token
+        var page = readPageRequest(exchange);
+        if (page == null)
         {
-            os.write(response.getBytes(StandardCharsets.UTF_8));
+            return;
         }
+        sendPage(exchange, page, userService.getUsersPage(page.after(), page.limit() + 1), User::getId);
     }
 }
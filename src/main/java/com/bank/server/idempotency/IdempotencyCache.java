@@ -0,0 +1,162 @@
+package com.bank.server.idempotency;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded, expiring map from idempotency key to the response of the request that first used it.
+ * <p>
+ * The first request for a key claims it and runs; later ones get the same {@link Entry} and wait on its future.
+ * Entries expire {@code ttlNanos} after they were claimed (never while still running) and are evicted oldest first
+ * once more than {@code maxEntries} are held. Eviction under that pressure may drop an entry whose request is
+ * still running, in which case a retry runs again; size the cache above the keys expected within the TTL.
+ */
+public class IdempotencyCache
+{
+    /**
+     * A response worth replaying: status, content type and the full body.
+     */
+    public record StoredResponse(int status, String contentType, byte[] body)
+    {
+    }
+
+    /**
+     * One claimed key. {@code response} completes with the stored response, or with null when the request's
+     * outcome was not stored and a retry should run it again.
+     */
+    static final class Entry
+    {
+        private final String key;
+        private final byte[] fingerprint;
+        private final long expiresAtNanos;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        Entry(String key, byte[] fingerprint, long expiresAtNanos)
+        {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        byte[] fingerprint()
+        {
+            return fingerprint;
+        }
+
+        CompletableFuture<StoredResponse> response()
+        {
+            return response;
+        }
+
+        private boolean expired(long nowNanos)
+        {
+            return response.isDone() && expiresAtNanos - nowNanos <= 0;
+        }
+    }
+
+    /**
+     * @param entry
+     * @param owner true if the caller claimed the key and must {@link #complete} it
+     */
+    record Claim(Entry entry, boolean owner)
+    {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile int maxEntries;
+    private volatile long ttlNanos;
+
+    /**
+     * @param maxEntries keys held at most
+     * @param ttlNanos   how long a stored response is replayed
+     */
+    public IdempotencyCache(int maxEntries, long ttlNanos)
+    {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * Claims {@code key} unless a live entry holds it.
+     *
+     * @param key
+     * @param fingerprint identifies the request content, compared by callers to detect a reused key
+     * @param nowNanos
+     * @return the claim, owned if the caller must run the request
+     */
+    Claim claim(String key, byte[] fingerprint, long nowNanos)
+    {
+        var fresh = new Entry(key, fingerprint, nowNanos + ttlNanos);
+        while (true)
+        {
+            var existing = entries.putIfAbsent(key, fresh);
+            if (existing == null || existing.expired(nowNanos) && entries.replace(key, existing, fresh))
+            {
+                order.add(fresh);
+                queued.incrementAndGet();
+                evict(nowNanos);
+                return new Claim(fresh, true);
+            }
+            if (!existing.expired(nowNanos))
+            {
+                return new Claim(existing, false);
+            }
+        }
+    }
+
+    /**
+     * Publishes the outcome of an owned claim to waiting and later requests.
+     *
+     * @param entry
+     * @param response the response to replay, or null to forget the key so that a retry runs again
+     */
+    void complete(Entry entry, StoredResponse response)
+    {
+        if (response == null)
+        {
+            entries.remove(entry.key, entry);
+        }
+        entry.response.complete(response);
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Changes the limits at runtime. A lower {@code maxEntries} is enforced as keys are claimed; the new TTL
+     * applies to keys claimed from now on.
+     *
+     * @param maxEntries
+     * @param ttlNanos
+     */
+    public void resize(int maxEntries, long ttlNanos)
+    {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+    }
+
+    private void evict(long nowNanos)
+    {
+        while (true)
+        {
+            var oldest = order.peek();
+            if (oldest == null || queued.get() <= maxEntries && !oldest.expired(nowNanos))
+            {
+                return;
+            }
+            if (order.remove(oldest))
+            {
+                queued.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+}
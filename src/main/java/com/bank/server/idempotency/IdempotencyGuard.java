@@ -0,0 +1,192 @@
+package com.bank.server.idempotency;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.bank.server.config.Configuration;
+import com.bank.server.routing.RouteMatch;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Runs an {@link com.bank.server.routing.Route#idempotent() idempotent} route at most once per
+ * {@code Idempotency-Key}.
+ * <p>
+ * The key is scoped to the method and path. The first request with a key runs and its response is stored; a
+ * retry gets the stored response (marked {@code Idempotent-Replayed: true}) without reaching the handler, so it
+ * never touches account locks. A retry that arrives while the first request is still running waits for it, within
+ * its own deadline. Server errors are not stored, so a request that failed with a 5xx (such as a lock timeout) can
+ * be retried for real. Reusing a key with a different body is a {@code 422}.
+ */
+public class IdempotencyGuard
+{
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int MAX_RECORDED_BYTES = 256 * 1024;
+    /** Longer than a request can hold account locks, so a waiting retry normally sees the first one finish */
+    private static final long IN_PROGRESS_WAIT_MILLIS = 10_000;
+
+    private final IdempotencyCache cache;
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder inProgress = new LongAdder();
+
+    public IdempotencyGuard(IdempotencyCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * @param serverConfig
+     * @return a guard sized by {@code idempotencyMaxEntries} and {@code idempotencyTtlSeconds}, or null when
+     *         {@code idempotencyMaxEntries} is 0
+     */
+    public static IdempotencyGuard from(Configuration.ServerConfig serverConfig)
+    {
+        if (serverConfig.getIdempotencyMaxEntries() <= 0)
+        {
+            return null;
+        }
+        return new IdempotencyGuard(new IdempotencyCache(serverConfig.getIdempotencyMaxEntries(), TimeUnit.SECONDS.toNanos(serverConfig.getIdempotencyTtlSeconds())));
+    }
+
+    /**
+     * Runs the matched route, or replays its earlier response when the request carries a known key.
+     *
+     * @param exchange
+     * @param match
+     * @throws Exception whatever the route throws
+     */
+    public void handle(HttpExchange exchange, RouteMatch match) throws Exception
+    {
+        var key = exchange.getRequestHeaders().getFirst(HEADER);
+        if (key == null)
+        {
+            match.route().handler().handle(exchange, match);
+            return;
+        }
+        byte[] body;
+        try (var in = exchange.getRequestBody())
+        {
+            body = in.readAllBytes();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+        {
+            send(exchange, 400, "application/json", json("Bad Request: " + HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters"), false);
+            return;
+        }
+
+        var scopedKey = exchange.getRequestMethod() + ' ' + exchange.getRequestURI().getPath() + ' ' + key;
+        var fingerprint = fingerprint(body);
+        while (true)
+        {
+            var claim = cache.claim(scopedKey, fingerprint, System.nanoTime());
+            var entry = claim.entry();
+            if (claim.owner())
+            {
+                var recorder = new RecordingExchange(exchange, body, MAX_RECORDED_BYTES);
+                IdempotencyCache.StoredResponse stored = null;
+                try
+                {
+                    match.route().handler().handle(recorder, match);
+                    stored = recorder.storedResponse();
+                } finally
+                {
+                    cache.complete(entry, stored);
+                }
+                return;
+            }
+            if (!Arrays.equals(entry.fingerprint(), fingerprint))
+            {
+                mismatched.increment();
+                send(exchange, 422, "application/json", json("Unprocessable Entity: " + HEADER + " was already used for a different request"), false);
+                return;
+            }
+
+            IdempotencyCache.StoredResponse stored;
+            try
+            {
+                stored = entry.response().get(match.deadline().boundWait(TimeUnit.MILLISECONDS.toNanos(IN_PROGRESS_WAIT_MILLIS)), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException timeoutException)
+            {
+                match.deadline().check("waiting for the first request with this " + HEADER);
+                inProgress.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 409, "application/json", json("Conflict: a request with this " + HEADER + " is still in progress"), false);
+                return;
+            } catch (ExecutionException executionException)
+            {
+                // Entries are only ever completed normally
+                throw new IllegalStateException(executionException.getCause());
+            }
+            if (stored != null)
+            {
+                replayed.increment();
+                send(exchange, stored.status(), stored.contentType(), stored.body(), true);
+                return;
+            }
+            // The first attempt's outcome was not stored; claim the key again and run
+        }
+    }
+
+    public IdempotencyCache cache()
+    {
+        return cache;
+    }
+
+    public long replayed()
+    {
+        return replayed.sum();
+    }
+
+    public long mismatched()
+    {
+        return mismatched.sum();
+    }
+
+    public long inProgress()
+    {
+        return inProgress.sum();
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body, boolean replay) throws IOException
+    {
+        var headers = exchange.getResponseHeaders();
+        if (contentType != null)
+        {
+            headers.set("Content-Type", contentType);
+        }
+        if (replay)
+        {
+            headers.set("Idempotent-Replayed", "true");
+        }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (var os = exchange.getResponseBody())
+        {
+            os.write(body);
+        }
+    }
+
+    private static byte[] json(String error)
+    {
+        return ("{\"error\": \"" + error + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] fingerprint(byte[] body)
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException algorithmException)
+        {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(algorithmException);
+        }
+    }
+}
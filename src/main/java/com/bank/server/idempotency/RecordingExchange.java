@@ -0,0 +1,203 @@
+package com.bank.server.idempotency;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+/**
+ * Exchange that replays an already read request body and keeps a copy of the response it passes through, so the
+ * response can be stored under the request's idempotency key.
+ */
+class RecordingExchange extends HttpExchange
+{
+    private final HttpExchange delegate;
+    private final byte[] requestBody;
+    private final int maxRecordedBytes;
+
+    private RecordingOutputStream responseBody;
+    private int responseCode = -1;
+    private String contentType;
+
+    RecordingExchange(HttpExchange delegate, byte[] requestBody, int maxRecordedBytes)
+    {
+        this.delegate = delegate;
+        this.requestBody = requestBody;
+        this.maxRecordedBytes = maxRecordedBytes;
+    }
+
+    /**
+     * @return the complete response, or null if it is incomplete, too large or a server error that a retry
+     *         should get another chance at
+     */
+    IdempotencyCache.StoredResponse storedResponse()
+    {
+        if (responseBody == null || !responseBody.closed || responseBody.overflowed || responseCode >= 500)
+        {
+            return null;
+        }
+        return new IdempotencyCache.StoredResponse(responseCode, contentType, responseBody.copy.toByteArray());
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException
+    {
+        contentType = delegate.getResponseHeaders().getFirst("Content-Type");
+        delegate.sendResponseHeaders(rCode, responseLength);
+        responseCode = rCode;
+        responseBody = new RecordingOutputStream(delegate.getResponseBody());
+    }
+
+    @Override
+    public OutputStream getResponseBody()
+    {
+        return responseBody != null ? responseBody : delegate.getResponseBody();
+    }
+
+    @Override
+    public InputStream getRequestBody()
+    {
+        return new ByteArrayInputStream(requestBody);
+    }
+
+    @Override
+    public int getResponseCode()
+    {
+        return delegate.getResponseCode();
+    }
+
+    @Override
+    public void close()
+    {
+        delegate.close();
+    }
+
+    @Override
+    public Headers getRequestHeaders()
+    {
+        return delegate.getRequestHeaders();
+    }
+
+    @Override
+    public Headers getResponseHeaders()
+    {
+        return delegate.getResponseHeaders();
+    }
+
+    @Override
+    public URI getRequestURI()
+    {
+        return delegate.getRequestURI();
+    }
+
+    @Override
+    public String getRequestMethod()
+    {
+        return delegate.getRequestMethod();
+    }
+
+    @Override
+    public HttpContext getHttpContext()
+    {
+        return delegate.getHttpContext();
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress()
+    {
+        return delegate.getRemoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress()
+    {
+        return delegate.getLocalAddress();
+    }
+
+    @Override
+    public String getProtocol()
+    {
+        return delegate.getProtocol();
+    }
+
+    @Override
+    public Object getAttribute(String name)
+    {
+        return delegate.getAttribute(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value)
+    {
+        delegate.setAttribute(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o)
+    {
+        delegate.setStreams(i, o);
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal()
+    {
+        return delegate.getPrincipal();
+    }
+
+    /**
+     * Writes through to the client and copies up to {@code maxRecordedBytes}.
+     */
+    private class RecordingOutputStream extends OutputStream
+    {
+        private final OutputStream target;
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private boolean overflowed;
+        private boolean closed;
+
+        RecordingOutputStream(OutputStream target)
+        {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            target.write(bytes, offset, length);
+            if (!overflowed)
+            {
+                overflowed = copy.size() + length > maxRecordedBytes;
+                if (!overflowed)
+                {
+                    copy.write(bytes, offset, length);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            target.close();
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.bank.server.lifecycle;
+
+/**
+ * Outcome of a graceful shutdown.
+ *
+ * @param durationMillis time from the start of the drain until the server went idle or the budget ran out
+ * @param abandoned      requests still running, or still queued for a worker, when the budget ran out
+ */
+public record DrainReport(long durationMillis, int abandoned)
+{
+    /**
+     * @return true if every in-flight request finished within the budget
+     */
+    public boolean complete()
+    {
+        return abandoned == 0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.bank.server.lifecycle;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts requests from routing until their handler returns, including handlers offloaded to another executor,
+ * and carries the server's draining flag.
+ */
+public class RequestTracker
+{
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean draining;
+
+    public void begin()
+    {
+        inFlight.incrementAndGet();
+    }
+
+    public void end()
+    {
+        inFlight.decrementAndGet();
+    }
+
+    public int inFlight()
+    {
+        return inFlight.get();
+    }
+
+    /**
+     * @return true once the server started shutting down and should no longer receive traffic
+     */
+    public boolean isDraining()
+    {
+        return draining;
+    }
+
+    public void startDraining()
+    {
+        draining = true;
+    }
+
+    /**
+     * Waits until no request is in flight.
+     *
+     * @param deadlineNanos {@link System#nanoTime()} at which to give up
+     * @return true if the server went idle before the deadline
+     */
+    public boolean awaitIdle(long deadlineNanos)
+    {
+        while (inFlight.get() > 0 && System.nanoTime() < deadlineNanos)
+        {
+            try
+            {
+                Thread.sleep(10);
+            } catch (InterruptedException interruptedException)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return inFlight.get() == 0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.bank.server.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Response compression counters for each endpoint ({@code "METHOD /template"}).
+ */
+public class CompressionStats
+{
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * @param endpoint route description such as {@code GET /accounts-all}
+     * @return the counters for that endpoint, created on first use
+     */
+    public EndpointStats forEndpoint(String endpoint)
+    {
+        var stats = endpoints.get(endpoint);
+        return stats != null ? stats : endpoints.computeIfAbsent(endpoint, ignored -> new EndpointStats());
+    }
+
+    public Map<String, EndpointStats> endpoints()
+    {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    public static class EndpointStats
+    {
+        private final LongAdder compressed = new LongAdder();
+        private final LongAdder uncompressed = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder deflateNanos = new LongAdder();
+
+        /**
+         * @param in    body bytes before compression
+         * @param out   encoded bytes, including gzip framing
+         * @param nanos time spent inside the deflater
+         */
+        public void compressed(long in, long out, long nanos)
+        {
+            compressed.increment();
+            bytesIn.add(in);
+            bytesOut.add(out);
+            deflateNanos.add(nanos);
+        }
+
+        /**
+         * Counts a response to a compression-capable client that stayed below the threshold.
+         */
+        public void uncompressed()
+        {
+            uncompressed.increment();
+        }
+
+        public long compressedCount()
+        {
+            return compressed.sum();
+        }
+
+        public long uncompressedCount()
+        {
+            return uncompressed.sum();
+        }
+
+        public long bytesIn()
+        {
+            return bytesIn.sum();
+        }
+
+        public long bytesOut()
+        {
+            return bytesOut.sum();
+        }
+
+        public long deflateNanos()
+        {
+            return deflateNanos.sum();
+        }
+    }
+}
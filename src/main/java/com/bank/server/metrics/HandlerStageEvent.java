@@ -0,0 +1,64 @@
+package com.bank.server.metrics;
+
+import com.bank.server.routing.Route;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One stage of a handler: parsing the request body, executing the operation, or serializing and sending the
+ * response.
+ * <p>
+ * Start one with {@link #start()} and finish it with {@link #end(Route, String)}; the route is only turned into a
+ * string once the event is known to be recorded, so a disabled event allocates nothing the JIT cannot
+ * eliminate.
+ */
+@Name("com.bank.HandlerStage")
+@Label("Handler Stage")
+@Category({"Bank", "HTTP"})
+@Description("Time a handler spent parsing, executing or serializing a request")
+@StackTrace(false)
+@Threshold("0 ms")
+public class HandlerStageEvent extends jdk.jfr.Event
+{
+    public static final String PARSE = "parse";
+    public static final String EXECUTE = "execute";
+    public static final String SERIALIZE = "serialize";
+
+    @Label("Route")
+    public String route;
+
+    @Label("Stage")
+    public String stage;
+
+    /**
+     * @return a started event
+     */
+    public static HandlerStageEvent start()
+    {
+        var event = new HandlerStageEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the stage and records it if enabled and above the threshold.
+     *
+     * @param route the route being handled
+     * @param stage {@link #PARSE}, {@link #EXECUTE} or {@link #SERIALIZE}
+     */
+    public void end(Route route, String stage)
+    {
+        end();
+        if (shouldCommit())
+        {
+            this.route = route.toString();
+            this.stage = stage;
+            commit();
+        }
+    }
+}
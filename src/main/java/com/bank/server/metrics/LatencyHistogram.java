@@ -0,0 +1,153 @@
+package com.bank.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, log-linear latency histogram in the style of HdrHistogram.
+ * <p>
+ * Values are kept in microseconds. Below {@value #SUB_BUCKETS} µs every value has its own bucket; above, each
+ * power of two is split into {@value #SUB_BUCKETS} equal buckets, so any recorded value is off by at most 1/16
+ * (6.25%) of itself, from a microsecond up to the {@value #MAX_MICROS} µs (about 18 minutes) ceiling, in a
+ * constant 432 buckets.
+ * <p>
+ * Recording is lock-free and allocation-free: the counters are split into {@value #STRIPES} stripes picked by
+ * thread id, so concurrent requests rarely touch the same cache line, and readers sum the stripes.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_MICROS = (1L << 30) - 1;
+    static final int BUCKETS = index(MAX_MICROS) + 1;
+    private static final int STRIPES = 8;
+    // Each stripe is its buckets followed by the sum of its values
+    private static final int STRIPE_LENGTH = BUCKETS + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_LENGTH);
+
+    /**
+     * @param nanos elapsed time; negative values count as 0 and values past the ceiling as the ceiling
+     */
+    public void record(long nanos)
+    {
+        var micros = Math.min(Math.max(nanos / 1_000, 0), MAX_MICROS);
+        var stripe = stripe() * STRIPE_LENGTH;
+        counts.incrementAndGet(stripe + index(micros));
+        counts.addAndGet(stripe + BUCKETS, micros);
+    }
+
+    /**
+     * @return the counts summed over all stripes; not atomic with respect to concurrent recording
+     */
+    public Snapshot snapshot()
+    {
+        var buckets = new long[BUCKETS];
+        var sumMicros = 0L;
+        for (var stripe = 0; stripe < STRIPES; stripe++)
+        {
+            var offset = stripe * STRIPE_LENGTH;
+            for (var bucket = 0; bucket < BUCKETS; bucket++)
+            {
+                buckets[bucket] += counts.get(offset + bucket);
+            }
+            sumMicros += counts.get(offset + BUCKETS);
+        }
+        return new Snapshot(buckets, sumMicros);
+    }
+
+    static int index(long micros)
+    {
+        if (micros < SUB_BUCKETS)
+        {
+            return (int) micros;
+        }
+        var exponent = 63 - Long.numberOfLeadingZeros(micros);
+        var subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the highest value that falls into {@code index}
+     */
+    static long highestMicros(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        var shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        var subBucket = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (subBucket + 1) << shift) - 1;
+    }
+
+    private static int stripe()
+    {
+        // Fibonacci hashing spreads sequential thread ids over the stripes
+        return (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 61);
+    }
+
+    /**
+     * Point-in-time copy of a histogram.
+     */
+    public static class Snapshot
+    {
+        private final long[] buckets;
+        private final long sumMicros;
+        private final long count;
+
+        Snapshot(long[] buckets, long sumMicros)
+        {
+            this.buckets = buckets;
+            this.sumMicros = sumMicros;
+            var total = 0L;
+            for (var bucketCount : buckets)
+            {
+                total += bucketCount;
+            }
+            this.count = total;
+        }
+
+        public long count()
+        {
+            return count;
+        }
+
+        public long sumMicros()
+        {
+            return sumMicros;
+        }
+
+        /**
+         * @param micros
+         * @return values recorded in buckets that lie entirely at or below {@code micros}
+         */
+        public long countAtOrBelow(long micros)
+        {
+            var total = 0L;
+            for (var bucket = 0; bucket < buckets.length && highestMicros(bucket) <= micros; bucket++)
+            {
+                total += buckets[bucket];
+            }
+            return total;
+        }
+
+        /**
+         * @param quantile between 0 and 1
+         * @return the highest value of the bucket holding that quantile, or 0 if nothing was recorded
+         */
+        public long valueAtQuantile(double quantile)
+        {
+            var rank = (long) Math.ceil(quantile * count);
+            var seen = 0L;
+            for (var bucket = 0; bucket < buckets.length; bucket++)
+            {
+                seen += buckets[bucket];
+                if (seen >= Math.max(rank, 1))
+                {
+                    return highestMicros(bucket);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.bank.server.metrics;
+
+import java.io.IOException;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Attributes every request to the local port it arrived on.
+ */
+public class PortStatsFilter extends Filter
+{
+    private final ServerStats serverStats;
+
+    public PortStatsFilter(ServerStats serverStats)
+    {
+        this.serverStats = serverStats;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException
+    {
+        var stats = serverStats.forPort(exchange.getLocalAddress().getPort());
+        var start = System.nanoTime();
+        stats.started();
+        try
+        {
+            chain.doFilter(exchange);
+        } finally
+        {
+            stats.finished(exchange.getResponseCode(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String description()
+    {
+        return "Per-port request statistics";
+    }
+}
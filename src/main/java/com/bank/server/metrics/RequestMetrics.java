@@ -0,0 +1,93 @@
+package com.bank.server.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.bank.server.routing.Route;
+
+/**
+ * Server-side latency per route and status code, measured from when a request was queued for a worker until its
+ * handler returned.
+ * <p>
+ * Histograms are created the first time a route answers with a status, so the steady-state recording path is
+ * two lookups and a {@link LatencyHistogram#record} with no allocation.
+ */
+public class RequestMetrics
+{
+    /** Stands for requests that matched no route */
+    public static final String UNMATCHED = "unmatched";
+    private static final int MAX_STATUS = 599;
+
+    private final Map<String, RouteLatency> routes = new ConcurrentHashMap<>();
+    private final Map<Route, RouteLatency> byRoute = new ConcurrentHashMap<>();
+
+    /**
+     * @param route      the matched route, or null if none matched
+     * @param statusCode the response status, or anything outside 100-599 if none was sent
+     * @param nanos
+     */
+    public void record(Route route, int statusCode, long nanos)
+    {
+        var latency = route == null ? forName(UNMATCHED) : byRoute.get(route);
+        if (latency == null)
+        {
+            latency = byRoute.computeIfAbsent(route, ignored -> forName(route.toString()));
+        }
+        latency.forStatus(statusCode).record(nanos);
+    }
+
+    /**
+     * @return latencies by route description such as {@code GET /accounts/{accountId}}
+     */
+    public Map<String, RouteLatency> routes()
+    {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    private RouteLatency forName(String name)
+    {
+        var latency = routes.get(name);
+        return latency != null ? latency : routes.computeIfAbsent(name, ignored -> new RouteLatency());
+    }
+
+    /**
+     * One histogram per status code of a route. Status 0 collects requests that never got a response.
+     */
+    public static class RouteLatency
+    {
+        private final AtomicReferenceArray<LatencyHistogram> byStatus = new AtomicReferenceArray<>(MAX_STATUS + 1);
+
+        LatencyHistogram forStatus(int statusCode)
+        {
+            var index = statusCode >= 100 && statusCode <= MAX_STATUS ? statusCode : 0;
+            var histogram = byStatus.get(index);
+            if (histogram == null)
+            {
+                byStatus.compareAndSet(index, null, new LatencyHistogram());
+                histogram = byStatus.get(index);
+            }
+            return histogram;
+        }
+
+        /**
+         * @return the histograms recorded so far by status code, 0 standing for no response
+         */
+        public SortedMap<Integer, LatencyHistogram> byStatus()
+        {
+            var histograms = new TreeMap<Integer, LatencyHistogram>();
+            for (var index = 0; index < byStatus.length(); index++)
+            {
+                var histogram = byStatus.get(index);
+                if (histogram != null)
+                {
+                    histograms.put(index, histogram);
+                }
+            }
+            return histograms;
+        }
+    }
+}
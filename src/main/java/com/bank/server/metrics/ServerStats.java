@@ -0,0 +1,103 @@
+package com.bank.server.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counters for each port the server listens on.
+ */
+public class ServerStats
+{
+    private final Map<Integer, PortStats> ports = new ConcurrentHashMap<>();
+
+    public ServerStats(Iterable<Integer> configuredPorts)
+    {
+        for (var port : configuredPorts)
+        {
+            ports.put(port, new PortStats());
+        }
+    }
+
+    /**
+     * @param port local port the request arrived on
+     * @return the counters for that port, created on first use for ports that were not configured (e.g. port 0)
+     */
+    public PortStats forPort(int port)
+    {
+        var stats = ports.get(port);
+        return stats != null ? stats : ports.computeIfAbsent(port, ignored -> new PortStats());
+    }
+
+    public Map<Integer, PortStats> ports()
+    {
+        return Collections.unmodifiableMap(ports);
+    }
+
+    public static class PortStats
+    {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final LongAdder deadlineExceeded = new LongAdder();
+
+        void started()
+        {
+            inFlight.increment();
+        }
+
+        void finished(int statusCode, long elapsedNanos)
+        {
+            inFlight.decrement();
+            requests.increment();
+            latencyNanos.add(elapsedNanos);
+            if (statusCode >= 500 || statusCode < 0)
+            {
+                serverErrors.increment();
+                if (statusCode == 504)
+                {
+                    deadlineExceeded.increment();
+                }
+            } else if (statusCode >= 400)
+            {
+                clientErrors.increment();
+            }
+        }
+
+        public long requests()
+        {
+            return requests.sum();
+        }
+
+        public long inFlight()
+        {
+            return inFlight.sum();
+        }
+
+        public long clientErrors()
+        {
+            return clientErrors.sum();
+        }
+
+        /**
+         * @return requests answered with 504 because their deadline passed
+         */
+        public long deadlineExceeded()
+        {
+            return deadlineExceeded.sum();
+        }
+
+        public long serverErrors()
+        {
+            return serverErrors.sum();
+        }
+
+        public long latencyNanos()
+        {
+            return latencyNanos.sum();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.bank.server.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of equally sized direct buffers shared by all IO loops.
+ * <p>
+ * Direct buffers are expensive to allocate and are only reclaimed by GC, so they are recycled instead. The pool
+ * keeps at most {@code maxPooled} idle buffers; extra buffers allocated under burst are dropped on release.
+ */
+public class BufferPool
+{
+    private final ConcurrentLinkedQueue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int bufferSize;
+    private final int maxPooled;
+
+    public BufferPool(int bufferSize, int maxPooled)
+    {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public ByteBuffer acquire()
+    {
+        var buffer = idle.poll();
+        if (buffer == null)
+        {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        idleCount.decrementAndGet();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize)
+        {
+            return;
+        }
+        if (idleCount.incrementAndGet() <= maxPooled)
+        {
+            buffer.clear();
+            idle.offer(buffer);
+        } else
+        {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    public int bufferSize()
+    {
+        return bufferSize;
+    }
+}
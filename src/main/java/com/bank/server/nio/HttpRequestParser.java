@@ -0,0 +1,183 @@
+package com.bank.server.nio;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.Headers;
+
+/**
+ * Incremental HTTP/1.1 request head parser over a buffer in read mode.
+ * <p>
+ * The parser only consumes bytes once the full request head ({@code CRLF CRLF}) is present, so a partial head is
+ * simply left in the buffer for the next read. Bodies are delimited by {@code Content-Length}; chunked request
+ * bodies are rejected.
+ */
+final class HttpRequestParser
+{
+    static final int MAX_BODY_SIZE = 1024 * 1024;
+
+    private HttpRequestParser()
+    {
+    }
+
+    /**
+     * Parsed request line and headers. The body is filled in by the connection as it arrives.
+     */
+    record RequestHead(String method, URI uri, String protocol, Headers headers, int contentLength, boolean keepAlive)
+    {
+    }
+
+    static class BadRequestException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        BadRequestException(int statusCode, String message)
+        {
+            super(message);
+            this.statusCode = statusCode;
+        }
+
+        int statusCode()
+        {
+            return statusCode;
+        }
+    }
+
+    /**
+     * @param buffer buffer in read mode; on success its position is moved past the request head
+     * @return the parsed head, or null if the head is not complete yet
+     * @throws BadRequestException if the head is malformed or too large
+     */
+    static RequestHead parseHead(ByteBuffer buffer) throws BadRequestException
+    {
+        var start = buffer.position();
+        var limit = buffer.limit();
+        var end = -1;
+        for (var i = start; i + 3 < limit; i++)
+        {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n')
+            {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0)
+        {
+            if (start == 0 && limit == buffer.capacity())
+            {
+                throw new BadRequestException(431, "Request header fields too large");
+            }
+            return null;
+        }
+
+        var head = new byte[end - start];
+        buffer.get(start, head);
+        buffer.position(end + 4);
+        var text = new String(head, StandardCharsets.ISO_8859_1);
+
+        var lineEnd = text.indexOf("\r\n");
+        var requestLine = lineEnd < 0 ? text : text.substring(0, lineEnd);
+        var firstSpace = requestLine.indexOf(' ');
+        var lastSpace = requestLine.lastIndexOf(' ');
+        if (firstSpace <= 0 || lastSpace <= firstSpace)
+        {
+            throw new BadRequestException(400, "Malformed request line");
+        }
+        var method = requestLine.substring(0, firstSpace);
+        var target = requestLine.substring(firstSpace + 1, lastSpace);
+        var protocol = requestLine.substring(lastSpace + 1);
+        if (!protocol.startsWith("HTTP/1."))
+        {
+            throw new BadRequestException(505, "HTTP version not supported");
+        }
+
+        URI uri;
+        try
+        {
+            uri = new URI(target);
+        } catch (Exception uriException)
+        {
+            throw new BadRequestException(400, "Malformed request target");
+        }
+
+        var headers = new Headers();
+        var position = lineEnd < 0 ? text.length() : lineEnd + 2;
+        while (position < text.length())
+        {
+            var next = text.indexOf("\r\n", position);
+            if (next < 0)
+            {
+                next = text.length();
+            }
+            var colon = text.indexOf(':', position);
+            if (colon < 0 || colon > next)
+            {
+                throw new BadRequestException(400, "Malformed header");
+            }
+            headers.add(text.substring(position, colon).trim(), text.substring(colon + 1, next).trim());
+            position = next + 2;
+        }
+
+        if (headers.containsKey("Transfer-Encoding"))
+        {
+            throw new BadRequestException(411, "Chunked request bodies are not supported");
+        }
+
+        var contentLength = 0;
+        var contentLengthValue = headers.getFirst("Content-Length");
+        if (contentLengthValue != null)
+        {
+            try
+            {
+                contentLength = Integer.parseInt(contentLengthValue);
+            } catch (NumberFormatException numberFormatException)
+            {
+                throw new BadRequestException(400, "Invalid Content-Length");
+            }
+            if (contentLength < 0)
+            {
+                throw new BadRequestException(400, "Invalid Content-Length");
+            }
+            if (contentLength > MAX_BODY_SIZE)
+            {
+                throw new BadRequestException(413, "Request body too large");
+            }
+        }
+
+        var connection = headers.getFirst("Connection");
+        var keepAlive = "HTTP/1.1".equals(protocol)
+                ? !"close".equalsIgnoreCase(connection)
+                : "keep-alive".equalsIgnoreCase(connection);
+
+        return new RequestHead(method, uri, protocol, headers, contentLength, keepAlive);
+    }
+
+    static String reasonPhrase(int statusCode)
+    {
+        return switch (statusCode)
+        {
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 204 -> "No Content";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 409 -> "Conflict";
+            case 411 -> "Length Required";
+            case 413 -> "Content Too Large";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
+            case 500 -> "Internal Server Error";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
+            case 505 -> "HTTP Version Not Supported";
+            default -> "";
+        };
+    }
+}
@@ -0,0 +1,177 @@
+package com.bank.server.nio;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A selector thread that owns a set of connections. All selection key changes happen on this thread; other
+ * threads hand work to it through {@link #execute(Runnable)}.
+ */
+class IoLoop implements Runnable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(IoLoop.class);
+    private static final long SELECT_TIMEOUT_MILLIS = 1_000;
+
+    private final NioServerEngine engine;
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioConnection> connections = new HashSet<>();
+    private final long keepAliveNanos;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    IoLoop(NioServerEngine engine, String name, long keepAliveSeconds) throws IOException
+    {
+        this.engine = engine;
+        this.selector = Selector.open();
+        this.keepAliveNanos = TimeUnit.SECONDS.toNanos(keepAliveSeconds);
+        this.thread = Thread.ofPlatform().name(name).unstarted(this);
+    }
+
+    void start()
+    {
+        thread.start();
+    }
+
+    BufferPool bufferPool()
+    {
+        return engine.bufferPool();
+    }
+
+    void execute(Runnable task)
+    {
+        tasks.offer(task);
+        if (Thread.currentThread() != thread)
+        {
+            selector.wakeup();
+        }
+    }
+
+    void register(SocketChannel channel)
+    {
+        execute(() -> {
+            try
+            {
+                var key = channel.register(selector, SelectionKey.OP_READ);
+                var connection = new NioConnection(this, channel, key);
+                key.attach(connection);
+                connections.add(connection);
+            } catch (IOException registerException)
+            {
+                LOGGER.warn("Failed to register connection: {}", registerException.getMessage());
+                try
+                {
+                    channel.close();
+                } catch (IOException closeException)
+                {
+                    LOGGER.debug("Close failed: {}", closeException.getMessage());
+                }
+            }
+        });
+    }
+
+    void unregister(NioConnection connection)
+    {
+        connections.remove(connection);
+    }
+
+    void dispatch(NioConnection connection, HttpRequestParser.RequestHead head, byte[] body)
+    {
+        engine.dispatch(connection, head, body);
+    }
+
+    void shutdown()
+    {
+        running = false;
+        selector.wakeup();
+        try
+        {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        var nextIdleSweep = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SELECT_TIMEOUT_MILLIS);
+        while (running)
+        {
+            try
+            {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                runTasks();
+
+                var selected = selector.selectedKeys();
+                for (var key : selected)
+                {
+                    var connection = (NioConnection) key.attachment();
+                    if (key.isValid() && key.isReadable())
+                    {
+                        connection.onReadable();
+                    }
+                    if (key.isValid() && key.isWritable())
+                    {
+                        connection.onWritable();
+                    }
+                }
+                selected.clear();
+                runTasks();
+
+                var now = System.nanoTime();
+                if (now >= nextIdleSweep)
+                {
+                    closeIdle(now - keepAliveNanos);
+                    nextIdleSweep = now + TimeUnit.MILLISECONDS.toNanos(SELECT_TIMEOUT_MILLIS);
+                }
+            } catch (Exception loopException)
+            {
+                LOGGER.error("IO loop error: {}", loopException.getMessage(), loopException);
+            }
+        }
+
+        runTasks();
+        for (var connection : Set.copyOf(connections))
+        {
+            connection.close();
+        }
+        try
+        {
+            selector.close();
+        } catch (IOException closeException)
+        {
+            LOGGER.debug("Selector close failed: {}", closeException.getMessage());
+        }
+    }
+
+    private void runTasks()
+    {
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+        {
+            task.run();
+        }
+    }
+
+    private void closeIdle(long idleSinceNanos)
+    {
+        for (var connection : Set.copyOf(connections))
+        {
+            if (connection.isIdleSince(idleSinceNanos))
+            {
+                connection.close();
+            }
+        }
+    }
+}
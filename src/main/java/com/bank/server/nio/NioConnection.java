@@ -0,0 +1,394 @@
+package com.bank.server.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One keep-alive client connection owned by an {@link IoLoop}.
+ * <p>
+ * Reading and parsing happen on the loop thread. Requests on a connection are handled one at a time: while a
+ * request is being processed reads are paused, and pipelined requests that are already buffered are parsed once
+ * the previous response has been written, which keeps responses in request order.
+ * <p>
+ * Worker threads write responses through {@link #write(ByteBuffer...)}. The write is attempted directly on the
+ * channel; whatever the socket does not accept is queued for the loop and the worker blocks once more than
+ * {@link #HIGH_WATERMARK} bytes are pending, which bounds memory for streamed responses.
+ */
+class NioConnection
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioConnection.class);
+    private static final int HIGH_WATERMARK = 256 * 1024;
+    private static final long WRITE_STALL_TIMEOUT_SECONDS = 30;
+
+    private final IoLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final InetSocketAddress localAddress;
+    private final InetSocketAddress remoteAddress;
+
+    // Loop thread state
+    private ByteBuffer readBuffer;
+    private HttpRequestParser.RequestHead pendingHead;
+    private byte[] pendingBody;
+    private int pendingBodyFilled;
+    private boolean processing;
+    private boolean closeAfterResponse;
+    private long lastActivityNanos;
+
+    // Shared between the loop and the worker writing the response
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition drained = writeLock.newCondition();
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private long pendingBytes;
+    private boolean responseDone;
+    private boolean responseKeepAlive;
+    private volatile boolean closed;
+
+    NioConnection(IoLoop loop, SocketChannel channel, SelectionKey key) throws IOException
+    {
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+        this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+        this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+        this.lastActivityNanos = System.nanoTime();
+    }
+
+    InetSocketAddress localAddress()
+    {
+        return localAddress;
+    }
+
+    InetSocketAddress remoteAddress()
+    {
+        return remoteAddress;
+    }
+
+    BufferPool bufferPool()
+    {
+        return loop.bufferPool();
+    }
+
+    boolean isIdleSince(long deadlineNanos)
+    {
+        return !processing && lastActivityNanos < deadlineNanos;
+    }
+
+    /**
+     * Loop thread: read what is available and dispatch a request if one is complete.
+     */
+    void onReadable()
+    {
+        if (readBuffer == null)
+        {
+            readBuffer = bufferPool().acquire();
+        }
+        try
+        {
+            var read = channel.read(readBuffer);
+            if (read < 0)
+            {
+                close();
+                return;
+            }
+            lastActivityNanos = System.nanoTime();
+            parseAndDispatch();
+        } catch (IOException readException)
+        {
+            LOGGER.debug("Read failed on {}: {}", remoteAddress, readException.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Loop thread: flush queued response bytes.
+     */
+    void onWritable()
+    {
+        writeLock.lock();
+        try
+        {
+            flushQueue();
+            if (writeQueue.isEmpty())
+            {
+                if (key.isValid())
+                {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+                drained.signalAll();
+                if (responseDone)
+                {
+                    responseDone = false;
+                    loop.execute(this::afterResponse);
+                }
+            }
+        } catch (IOException writeException)
+        {
+            LOGGER.debug("Write failed on {}: {}", remoteAddress, writeException.getMessage());
+            close();
+        } finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Worker thread: send buffers in order. Pooled buffers are returned to the pool once written.
+     *
+     * @param buffers buffers in read mode
+     * @throws IOException if the connection is closed or the client stops reading
+     */
+    void write(ByteBuffer... buffers) throws IOException
+    {
+        writeLock.lock();
+        try
+        {
+            if (closed)
+            {
+                release(buffers);
+                throw new IOException("connection closed");
+            }
+            if (writeQueue.isEmpty())
+            {
+                channel.write(buffers);
+            }
+            for (var buffer : buffers)
+            {
+                if (buffer.hasRemaining())
+                {
+                    writeQueue.add(buffer);
+                    pendingBytes += buffer.remaining();
+                } else
+                {
+                    bufferPool().release(buffer);
+                }
+            }
+            if (!writeQueue.isEmpty())
+            {
+                loop.execute(this::enableWrite);
+            }
+            while (pendingBytes > HIGH_WATERMARK && !closed)
+            {
+                if (!drained.await(WRITE_STALL_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                {
+                    throw new IOException("client stopped reading");
+                }
+            }
+            if (closed)
+            {
+                throw new IOException("connection closed");
+            }
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while writing", interruptedException);
+        } catch (IOException writeException)
+        {
+            loop.execute(this::close);
+            throw writeException;
+        } finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Worker thread: the response has been fully handed to {@link #write(ByteBuffer...)}.
+     */
+    void responseComplete(boolean keepAlive)
+    {
+        writeLock.lock();
+        try
+        {
+            responseKeepAlive = keepAlive;
+            if (writeQueue.isEmpty())
+            {
+                loop.execute(this::afterResponse);
+            } else
+            {
+                responseDone = true;
+            }
+        } finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Any thread: drop the connection without a (complete) response.
+     */
+    void abort()
+    {
+        loop.execute(this::close);
+    }
+
+    /**
+     * Loop thread: release resources. Safe to call more than once.
+     */
+    void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        writeLock.lock();
+        try
+        {
+            closed = true;
+            drained.signalAll();
+            while (!writeQueue.isEmpty())
+            {
+                bufferPool().release(writeQueue.poll());
+            }
+        } finally
+        {
+            writeLock.unlock();
+        }
+        key.cancel();
+        try
+        {
+            channel.close();
+        } catch (IOException closeException)
+        {
+            LOGGER.debug("Close failed on {}: {}", remoteAddress, closeException.getMessage());
+        }
+        if (readBuffer != null)
+        {
+            bufferPool().release(readBuffer);
+            readBuffer = null;
+        }
+        loop.unregister(this);
+    }
+
+    private void afterResponse()
+    {
+        processing = false;
+        lastActivityNanos = System.nanoTime();
+        if (closed)
+        {
+            return;
+        }
+        if (!responseKeepAlive || closeAfterResponse)
+        {
+            close();
+            return;
+        }
+        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        // Pipelined requests may already be buffered
+        parseAndDispatch();
+    }
+
+    private void enableWrite()
+    {
+        if (key.isValid())
+        {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void parseAndDispatch()
+    {
+        if (processing || closed || readBuffer == null)
+        {
+            return;
+        }
+        readBuffer.flip();
+        try
+        {
+            if (pendingHead == null)
+            {
+                pendingHead = HttpRequestParser.parseHead(readBuffer);
+                if (pendingHead != null)
+                {
+                    pendingBody = new byte[pendingHead.contentLength()];
+                    pendingBodyFilled = 0;
+                }
+            }
+            if (pendingHead != null)
+            {
+                var count = Math.min(readBuffer.remaining(), pendingBody.length - pendingBodyFilled);
+                readBuffer.get(pendingBody, pendingBodyFilled, count);
+                pendingBodyFilled += count;
+            }
+        } catch (HttpRequestParser.BadRequestException badRequestException)
+        {
+            readBuffer.clear();
+            rejectAndClose(badRequestException.statusCode(), badRequestException.getMessage());
+            return;
+        } finally
+        {
+            if (readBuffer != null)
+            {
+                readBuffer.compact();
+            }
+        }
+
+        if (readBuffer.position() == 0 && pendingHead == null)
+        {
+            bufferPool().release(readBuffer);
+            readBuffer = null;
+        }
+
+        if (pendingHead != null && pendingBodyFilled == pendingBody.length)
+        {
+            var head = pendingHead;
+            var body = pendingBody;
+            pendingHead = null;
+            pendingBody = null;
+            processing = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            loop.dispatch(this, head, body);
+        }
+    }
+
+    private void rejectAndClose(int statusCode, String message)
+    {
+        LOGGER.debug("Rejecting request from {}: {} {}", remoteAddress, statusCode, message);
+        var body = "{\"error\": \"" + message + "\"}";
+        var response = "HTTP/1.1 " + statusCode + " " + HttpRequestParser.reasonPhrase(statusCode) + "\r\nContent-Type: application/json\r\nContent-Length: "
+                + body.length() + "\r\nConnection: close\r\n\r\n" + body;
+        try
+        {
+            channel.write(ByteBuffer.wrap(response.getBytes(StandardCharsets.ISO_8859_1)));
+        } catch (IOException writeException)
+        {
+            LOGGER.debug("Failed to send {} to {}: {}", statusCode, remoteAddress, writeException.getMessage());
+        }
+        closeAfterResponse = true;
+        close();
+    }
+
+    private void flushQueue() throws IOException
+    {
+        while (!writeQueue.isEmpty())
+        {
+            var buffer = writeQueue.peek();
+            var written = channel.write(buffer);
+            pendingBytes -= written;
+            if (buffer.hasRemaining())
+            {
+                return;
+            }
+            bufferPool().release(writeQueue.poll());
+        }
+    }
+
+    private void release(ByteBuffer[] buffers)
+    {
+        for (var buffer : buffers)
+        {
+            bufferPool().release(buffer);
+        }
+    }
+}
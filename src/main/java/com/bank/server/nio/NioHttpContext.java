@@ -0,0 +1,81 @@
+package com.bank.server.nio;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Context registered on the {@link NioServerEngine}. Filters are applied the same way the JDK server applies them.
+ */
+class NioHttpContext extends HttpContext
+{
+    private final String path;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final List<Filter> filters = new CopyOnWriteArrayList<>();
+    private volatile HttpHandler handler;
+    private volatile Authenticator authenticator;
+
+    NioHttpContext(String path, HttpHandler handler)
+    {
+        this.path = path;
+        this.handler = handler;
+    }
+
+    @Override
+    public HttpHandler getHandler()
+    {
+        return handler;
+    }
+
+    @Override
+    public void setHandler(HttpHandler handler)
+    {
+        this.handler = handler;
+    }
+
+    @Override
+    public String getPath()
+    {
+        return path;
+    }
+
+    @Override
+    public HttpServer getServer()
+    {
+        // There is no com.sun HttpServer behind this context
+        return null;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes()
+    {
+        return attributes;
+    }
+
+    @Override
+    public List<Filter> getFilters()
+    {
+        return filters;
+    }
+
+    @Override
+    public Authenticator setAuthenticator(Authenticator authenticator)
+    {
+        var previous = this.authenticator;
+        this.authenticator = authenticator;
+        return previous;
+    }
+
+    @Override
+    public Authenticator getAuthenticator()
+    {
+        return authenticator;
+    }
+}
@@ -0,0 +1,460 @@
+package com.bank.server.nio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+/**
+ * {@link HttpExchange} over a {@link NioConnection}, so existing handlers run unchanged on the NIO engine.
+ * <p>
+ * Response length semantics follow the JDK server: a positive length is sent with {@code Content-Length}, zero
+ * means chunked, and -1 means no body. Response bytes are written straight into pooled direct buffers; a small
+ * response (head plus body) leaves in a single buffer and a single write. A {@code Connection: close} response
+ * header closes the connection once the response is out.
+ * <p>
+ * {@code onDone} runs once the response is complete or abandoned, however late that is after the handler
+ * returned, so the engine can tell when the exchange stops being in flight.
+ */
+class NioHttpExchange extends HttpExchange
+{
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+
+    private final NioConnection connection;
+    private final NioHttpContext context;
+    private final HttpRequestParser.RequestHead head;
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final OutputStream exchangeBody = new ExchangeBody();
+    private final Runnable onDone;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private InputStream requestBody;
+    private OutputStream responseBody;
+    private ResponseOutputStream response;
+    private int responseCode = -1;
+    private boolean keepAlive;
+    private boolean closed;
+
+    NioHttpExchange(NioConnection connection, NioHttpContext context, HttpRequestParser.RequestHead head, byte[] body, Runnable onDone)
+    {
+        this.connection = connection;
+        this.context = context;
+        this.head = head;
+        this.requestBody = new ByteArrayInputStream(body);
+        this.responseBody = exchangeBody;
+        this.onDone = onDone;
+    }
+
+    @Override
+    public Headers getRequestHeaders()
+    {
+        return head.headers();
+    }
+
+    @Override
+    public Headers getResponseHeaders()
+    {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI()
+    {
+        return head.uri();
+    }
+
+    @Override
+    public String getRequestMethod()
+    {
+        return head.method();
+    }
+
+    @Override
+    public HttpContext getHttpContext()
+    {
+        return context;
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        if (response == null)
+        {
+            // Nothing was sent, so the connection cannot be reused
+            connection.abort();
+            done();
+            return;
+        }
+        try
+        {
+            response.close();
+        } catch (IOException closeException)
+        {
+            connection.abort();
+            done();
+        }
+    }
+
+    /**
+     * Drops the connection without completing the response, so a partially streamed body is seen as truncated.
+     */
+    void abort()
+    {
+        closed = true;
+        connection.abort();
+        done();
+    }
+
+    private void done()
+    {
+        if (done.compareAndSet(false, true))
+        {
+            onDone.run();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody()
+    {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody()
+    {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException
+    {
+        if (response != null)
+        {
+            throw new IOException("headers already sent");
+        }
+        responseCode = rCode;
+
+        var noBody = responseLength < 0 || rCode == 204 || rCode == 304 || rCode < 200 || "HEAD".equals(head.method());
+        var chunked = !noBody && responseLength == 0;
+
+        var builder = new StringBuilder(128);
+        builder.append(head.protocol()).append(' ').append(rCode).append(' ').append(HttpRequestParser.reasonPhrase(rCode)).append("\r\n");
+        for (var header : responseHeaders.entrySet())
+        {
+            for (var value : header.getValue())
+            {
+                builder.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (chunked)
+        {
+            builder.append("Transfer-Encoding: chunked\r\n");
+        } else if (rCode != 204 && rCode != 304)
+        {
+            builder.append("Content-Length: ").append(noBody ? 0 : responseLength).append("\r\n");
+        }
+        keepAlive = head.keepAlive() && !"close".equalsIgnoreCase(responseHeaders.getFirst("Connection"));
+        if (!head.keepAlive() && !responseHeaders.containsKey("Connection"))
+        {
+            builder.append("Connection: close\r\n");
+        }
+        builder.append("\r\n");
+
+        response = new ResponseOutputStream(builder.toString().getBytes(StandardCharsets.ISO_8859_1), chunked, noBody ? 0 : responseLength);
+        if (noBody)
+        {
+            response.close();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress()
+    {
+        return connection.remoteAddress();
+    }
+
+    @Override
+    public int getResponseCode()
+    {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress()
+    {
+        return connection.localAddress();
+    }
+
+    @Override
+    public String getProtocol()
+    {
+        return head.protocol();
+    }
+
+    @Override
+    public Object getAttribute(String name)
+    {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value)
+    {
+        if (value == null)
+        {
+            attributes.remove(name);
+        } else
+        {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o)
+    {
+        if (i != null)
+        {
+            requestBody = i;
+        }
+        if (o != null)
+        {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal()
+    {
+        return null;
+    }
+
+    /**
+     * The stream handed out by {@link #getResponseBody()}; only usable once headers are sent, like the JDK.
+     */
+    private class ExchangeBody extends OutputStream
+    {
+        @Override
+        public void write(int b) throws IOException
+        {
+            started().write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            started().write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if (response != null)
+            {
+                response.flush();
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            NioHttpExchange.this.close();
+        }
+
+        private ResponseOutputStream started() throws IOException
+        {
+            if (response == null)
+            {
+                throw new IOException("response headers not sent yet");
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Writes the response into pooled buffers. Chunked buffers reserve room in front for the chunk-size line and
+     * behind for the chunk terminator (and the last-chunk marker), so framing never copies the payload.
+     */
+    private class ResponseOutputStream extends OutputStream
+    {
+        private static final int CHUNK_HEADER_RESERVE = 10;
+        private static final int CHUNK_TRAILER_RESERVE = CRLF.length + LAST_CHUNK.length;
+
+        private final boolean chunked;
+        private final long contentLength;
+        private ByteBuffer pendingHead;
+        private ByteBuffer current;
+        private long written;
+        private boolean finished;
+
+        ResponseOutputStream(byte[] responseHead, boolean chunked, long contentLength) throws IOException
+        {
+            this.chunked = chunked;
+            this.contentLength = contentLength;
+
+            var pool = connection.bufferPool();
+            ByteBuffer headBuffer;
+            if (responseHead.length <= pool.bufferSize() - CHUNK_TRAILER_RESERVE)
+            {
+                headBuffer = pool.acquire();
+                headBuffer.put(responseHead);
+            } else
+            {
+                headBuffer = ByteBuffer.wrap(responseHead);
+                headBuffer.position(responseHead.length);
+            }
+
+            if (chunked)
+            {
+                // Sent together with the first chunk in one gathering write
+                pendingHead = headBuffer;
+                newChunkBuffer();
+            } else
+            {
+                current = headBuffer;
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            if (finished)
+            {
+                throw new IOException("response already complete");
+            }
+            if (!chunked && written + length > contentLength)
+            {
+                throw new IOException("too many bytes to write to stream");
+            }
+            written += length;
+            while (length > 0)
+            {
+                var space = current.remaining() - (chunked ? CHUNK_TRAILER_RESERVE : 0);
+                if (space <= 0)
+                {
+                    emit(false);
+                    continue;
+                }
+                var count = Math.min(space, length);
+                current.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if (!finished)
+            {
+                emit(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (finished)
+            {
+                return;
+            }
+            if (!chunked && written != contentLength)
+            {
+                finished = true;
+                done();
+                throw new IOException("insufficient bytes written to stream");
+            }
+            emit(true);
+            finished = true;
+            connection.responseComplete(keepAlive);
+            done();
+        }
+
+        private void emit(boolean last) throws IOException
+        {
+            if (chunked)
+            {
+                emitChunk(last);
+                return;
+            }
+            if (current.position() == 0 && !last)
+            {
+                return;
+            }
+            current.flip();
+            var outgoing = current;
+            current = last ? null : connection.bufferPool().acquire();
+            connection.write(outgoing);
+        }
+
+        private void emitChunk(boolean last) throws IOException
+        {
+            var size = current.position() - CHUNK_HEADER_RESERVE;
+            if (size == 0 && !last && pendingHead == null)
+            {
+                return;
+            }
+            var start = CHUNK_HEADER_RESERVE;
+            if (size > 0)
+            {
+                var sizeLine = (Integer.toHexString(size) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+                start = CHUNK_HEADER_RESERVE - sizeLine.length;
+                current.put(start, sizeLine);
+                current.put(CRLF);
+            }
+            if (last)
+            {
+                current.put(LAST_CHUNK);
+            }
+            current.limit(current.position());
+            current.position(start);
+
+            var outgoing = current;
+            current = null;
+            if (!last)
+            {
+                newChunkBuffer();
+            }
+            if (pendingHead != null)
+            {
+                var responseHead = pendingHead;
+                pendingHead = null;
+                responseHead.flip();
+                connection.write(responseHead, outgoing);
+            } else
+            {
+                connection.write(outgoing);
+            }
+        }
+
+        private void newChunkBuffer()
+        {
+            current = connection.bufferPool().acquire();
+            current.position(CHUNK_HEADER_RESERVE);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.bank.server.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bank.server.ServerEngine;
+import com.bank.server.config.Configuration;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Selector based HTTP/1.1 engine.
+ * <p>
+ * One acceptor thread accepts on every configured port and hands new connections round-robin to the shared
+ * {@code ioThreads} {@link IoLoop}s, so thread count depends on cores rather than on the number of ports. IO loops parse
+ * requests out of pooled direct buffers and dispatch complete requests to the request executor, so handler code
+ * (which may block on account locks) never runs on an IO thread. Connections are kept alive and pipelined requests
+ * are answered in order.
+ */
+public final class NioServerEngine implements ServerEngine
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioServerEngine.class);
+    private static final int MAX_POOLED_BUFFERS = 4_096;
+
+    private final Configuration.ServerConfig serverConfig;
+    private final List<NioHttpContext> contexts = new CopyOnWriteArrayList<>();
+    private final BufferPool bufferPool;
+    private final IoLoop[] ioLoops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final List<ServerSocketChannel> serverChannels = new ArrayList<>();
+    private Selector acceptSelector;
+    private Thread acceptor;
+    private volatile Executor executor;
+    private volatile boolean accepting;
+
+    public NioServerEngine(List<InetSocketAddress> addresses, Configuration.ServerConfig serverConfig) throws IOException
+    {
+        this.serverConfig = serverConfig;
+        this.bufferPool = new BufferPool(serverConfig.getBufferSize(), MAX_POOLED_BUFFERS);
+        this.ioLoops = new IoLoop[serverConfig.resolveIoThreads()];
+        for (var i = 0; i < ioLoops.length; i++)
+        {
+            ioLoops[i] = new IoLoop(this, "nio-io-" + i, serverConfig.getKeepAliveSeconds());
+        }
+
+        for (var address : addresses)
+        {
+            var serverChannel = ServerSocketChannel.open();
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(address, serverConfig.getBacklog());
+            serverChannel.configureBlocking(false);
+            serverChannels.add(serverChannel);
+        }
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler, List<Filter> filters)
+    {
+        var context = new NioHttpContext(path, handler);
+        context.getFilters().addAll(filters);
+        contexts.add(context);
+    }
+
+    @Override
+    public void setExecutor(Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    @Override
+    public void start()
+    {
+        if (executor == null)
+        {
+            throw new IllegalStateException("NIO engine needs a request executor");
+        }
+        try
+        {
+            acceptSelector = Selector.open();
+            for (var serverChannel : serverChannels)
+            {
+                serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT, serverChannel);
+            }
+        } catch (IOException openException)
+        {
+            throw new IllegalStateException("Cannot start NIO acceptor", openException);
+        }
+        for (var ioLoop : ioLoops)
+        {
+            ioLoop.start();
+        }
+        accepting = true;
+        acceptor = Thread.ofPlatform().name("nio-accept").start(this::acceptLoop);
+        LOGGER.info("NIO engine listening on {} with {} IO loops, {} byte buffers", getAddresses(), ioLoops.length, bufferPool.bufferSize());
+    }
+
+    @Override
+    public void stop(int delay)
+    {
+        accepting = false;
+        acceptSelector.wakeup();
+        try
+        {
+            acceptor.join(TimeUnit.SECONDS.toMillis(5));
+            for (var serverChannel : serverChannels)
+            {
+                serverChannel.close();
+            }
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        } catch (IOException closeException)
+        {
+            LOGGER.warn("Failed to close server channel: {}", closeException.getMessage());
+        }
+
+        // Exchanges count until their response is complete, so offloaded handlers are waited for too
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(delay);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline)
+        {
+            try
+            {
+                Thread.sleep(10);
+            } catch (InterruptedException interruptedException)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (var ioLoop : ioLoops)
+        {
+            ioLoop.shutdown();
+        }
+    }
+
+    @Override
+    public List<InetSocketAddress> getAddresses()
+    {
+        var addresses = new ArrayList<InetSocketAddress>();
+        for (var serverChannel : serverChannels)
+        {
+            try
+            {
+                addresses.add((InetSocketAddress) serverChannel.getLocalAddress());
+            } catch (IOException addressException)
+            {
+                LOGGER.debug("No local address for server channel: {}", addressException.getMessage());
+            }
+        }
+        return addresses;
+    }
+
+    BufferPool bufferPool()
+    {
+        return bufferPool;
+    }
+
+    void dispatch(NioConnection connection, HttpRequestParser.RequestHead head, byte[] body)
+    {
+        var path = head.uri().getPath();
+        var context = findContext(path == null ? "" : path);
+        var exchange = new NioHttpExchange(connection, context, head, body, inFlight::decrementAndGet);
+        inFlight.incrementAndGet();
+        try
+        {
+            executor.execute(() -> handle(exchange));
+        } catch (RejectedExecutionException rejectedExecutionException)
+        {
+            inFlight.decrementAndGet();
+            connection.abort();
+        }
+    }
+
+    /**
+     * @param exchange
+     * @return true if it was this engine's exchange, and its connection is now dropped
+     * @see ServerEngine#abort(HttpExchange)
+     */
+    public static boolean abort(HttpExchange exchange)
+    {
+        if (exchange instanceof NioHttpExchange nioExchange)
+        {
+            nioExchange.abort();
+            return true;
+        }
+        return false;
+    }
+
+    private void handle(NioHttpExchange exchange)
+    {
+        try
+        {
+            var context = (NioHttpContext) exchange.getHttpContext();
+            if (context == null)
+            {
+                var body = "{\"error\": \"Not Found\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(404, body.length);
+                try (var os = exchange.getResponseBody())
+                {
+                    os.write(body);
+                }
+                return;
+            }
+            new Filter.Chain(context.getFilters(), context.getHandler()).doFilter(exchange);
+        } catch (Exception handlerException)
+        {
+            LOGGER.error("Unhandled error for {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), handlerException.getMessage(), handlerException);
+            // Like the JDK server: never finish a response whose handler failed
+            exchange.abort();
+        }
+    }
+
+    /**
+     * Longest matching context path prefix, the same rule the JDK server applies.
+     */
+    private NioHttpContext findContext(String path)
+    {
+        NioHttpContext best = null;
+        for (var context : contexts)
+        {
+            var contextPath = context.getPath();
+            if (path.startsWith(contextPath) && (best == null || contextPath.length() > best.getPath().length()))
+            {
+                best = context;
+            }
+        }
+        return best;
+    }
+
+    private void acceptLoop()
+    {
+        while (accepting)
+        {
+            try
+            {
+                acceptSelector.select();
+                for (var key : acceptSelector.selectedKeys())
+                {
+                    var serverChannel = (ServerSocketChannel) key.attachment();
+                    SocketChannel channel;
+                    while (accepting && (channel = serverChannel.accept()) != null)
+                    {
+                        try
+                        {
+                            configure(channel);
+                        } catch (IOException configureException)
+                        {
+                            // Typically a client that reset right after connecting; only this connection is lost
+                            LOGGER.debug("Dropping connection that could not be configured: {}", configureException.getMessage());
+                            closeQuietly(channel);
+                            continue;
+                        }
+                        ioLoops[Math.floorMod(nextLoop.getAndIncrement(), ioLoops.length)].register(channel);
+                    }
+                }
+                acceptSelector.selectedKeys().clear();
+            } catch (IOException acceptException)
+            {
+                if (accepting)
+                {
+                    LOGGER.warn("Accept failed: {}", acceptException.getMessage());
+                }
+            }
+        }
+        try
+        {
+            acceptSelector.close();
+        } catch (IOException closeException)
+        {
+            LOGGER.debug("Acceptor selector close failed: {}", closeException.getMessage());
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel)
+    {
+        try
+        {
+            channel.close();
+        } catch (IOException closeException)
+        {
+            LOGGER.debug("Close failed: {}", closeException.getMessage());
+        }
+    }
+
+    private void configure(SocketChannel channel) throws IOException
+    {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+        if (serverConfig.getSocketBufferSize() > 0)
+        {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, serverConfig.getSocketBufferSize());
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, serverConfig.getSocketBufferSize());
+        }
+    }
+}
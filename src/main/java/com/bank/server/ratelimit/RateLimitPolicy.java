@@ -0,0 +1,135 @@
+package com.bank.server.ratelimit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.bank.server.config.Configuration;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Rate limit of one route: a token bucket per client address and/or per user.
+ * <p>
+ * The client address is the socket peer, or the first entry of {@code clientIpHeader} when the server sits
+ * behind a proxy that sets it. The user is whatever the {@code rateLimitUserHeader} request header carries;
+ * requests without it are only limited per address. Admitted responses carry {@code X-RateLimit-Limit} and
+ * {@code X-RateLimit-Remaining} for the tighter of the two buckets; rejected ones get {@code 429} with
+ * {@code Retry-After}.
+ */
+public class RateLimitPolicy
+{
+    private static final int MAX_KEYS = 65_536;
+    private static final byte[] TOO_MANY_REQUESTS = "{\"error\": \"Too Many Requests\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final TokenBucketTable perClient;
+    private final TokenBucketTable perUser;
+    private final String clientIpHeader;
+    private final String userHeader;
+
+    /**
+     * @param perClient       buckets keyed by client address, or null
+     * @param perUser         buckets keyed by user, or null
+     * @param clientIpHeader  header naming the client address, or null to use the socket peer
+     * @param userHeader      header naming the user
+     */
+    public RateLimitPolicy(TokenBucketTable perClient, TokenBucketTable perUser, String clientIpHeader, String userHeader)
+    {
+        this.perClient = perClient;
+        this.perUser = perUser;
+        this.clientIpHeader = clientIpHeader == null || clientIpHeader.isBlank() ? null : clientIpHeader;
+        this.userHeader = userHeader;
+    }
+
+    /**
+     * @param rule
+     * @param serverConfig source of the client and user header names
+     * @return the policy for {@code rule}, or null if it limits nothing
+     */
+    public static RateLimitPolicy from(Configuration.RateLimitRule rule, Configuration.ServerConfig serverConfig)
+    {
+        var perClient = rule.getIpCapacity() > 0 ? new TokenBucketTable(rule.getIpCapacity(), rule.getIpRefillPerSecond(), MAX_KEYS) : null;
+        var perUser = rule.getUserCapacity() > 0 ? new TokenBucketTable(rule.getUserCapacity(), rule.getUserRefillPerSecond(), MAX_KEYS) : null;
+        if (perClient == null && perUser == null)
+        {
+            return null;
+        }
+        return new RateLimitPolicy(perClient, perUser, serverConfig.getClientIpHeader(), serverConfig.getRateLimitUserHeader());
+    }
+
+    /**
+     * @param exchange
+     * @return true if the request may proceed; false after a 429 has been sent
+     * @throws IOException
+     */
+    public boolean tryAdmit(HttpExchange exchange) throws IOException
+    {
+        var now = System.nanoTime();
+        var remaining = Long.MAX_VALUE;
+        var limit = 0L;
+        if (perClient != null)
+        {
+            var result = perClient.tryAcquire(clientKey(exchange), now);
+            if (result < 0)
+            {
+                reject(exchange, perClient.capacity(), -result);
+                return false;
+            }
+            remaining = result;
+            limit = perClient.capacity();
+        }
+        if (perUser != null)
+        {
+            var user = exchange.getRequestHeaders().getFirst(userHeader);
+            if (user != null && !user.isEmpty())
+            {
+                var result = perUser.tryAcquire(user, now);
+                if (result < 0)
+                {
+                    reject(exchange, perUser.capacity(), -result);
+                    return false;
+                }
+                if (result < remaining)
+                {
+                    remaining = result;
+                    limit = perUser.capacity();
+                }
+            }
+        }
+        if (remaining != Long.MAX_VALUE)
+        {
+            var headers = exchange.getResponseHeaders();
+            headers.set("X-RateLimit-Limit", Long.toString(limit));
+            headers.set("X-RateLimit-Remaining", Long.toString(remaining));
+        }
+        return true;
+    }
+
+    private Object clientKey(HttpExchange exchange)
+    {
+        if (clientIpHeader != null)
+        {
+            var forwarded = exchange.getRequestHeaders().getFirst(clientIpHeader);
+            if (forwarded != null && !forwarded.isBlank())
+            {
+                var comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return exchange.getRemoteAddress().getAddress();
+    }
+
+    private static void reject(HttpExchange exchange, long limit, long waitNanos) throws IOException
+    {
+        exchange.getRequestBody().close();
+        var headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "application/json");
+        headers.set("X-RateLimit-Limit", Long.toString(limit));
+        headers.set("X-RateLimit-Remaining", "0");
+        headers.set("Retry-After", Long.toString(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        exchange.sendResponseHeaders(429, TOO_MANY_REQUESTS.length);
+        try (var os = exchange.getResponseBody())
+        {
+            os.write(TOO_MANY_REQUESTS);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.bank.server.ratelimit;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets for an open set of keys (client addresses, user ids), all with the same capacity and refill
+ * rate.
+ * <p>
+ * Keys are spread over fixed stripes, each a small map behind its own lock, so concurrent requests only contend
+ * when their keys share a stripe and nothing on the hot path is global. A bucket refills lazily on access. A
+ * full bucket is indistinguishable from a missing one, so idle buckets are evicted when a stripe grows past its
+ * share of {@code maxKeys}, which bounds memory no matter how many distinct clients show up.
+ */
+public class TokenBucketTable
+{
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long capacity;
+    private final double tokensPerNano;
+    private final int maxKeysPerStripe;
+
+    /**
+     * @param capacity        burst size, in requests
+     * @param refillPerSecond sustained rate, in requests per second
+     * @param maxKeys         approximate number of buckets kept before idle ones are evicted
+     */
+    public TokenBucketTable(long capacity, double refillPerSecond, int maxKeys)
+    {
+        if (capacity <= 0 || refillPerSecond <= 0)
+        {
+            throw new IllegalArgumentException("Token bucket capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.maxKeysPerStripe = Math.max(16, maxKeys / STRIPES);
+        for (var i = 0; i < STRIPES; i++)
+        {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes one token from the bucket of {@code key}.
+     *
+     * @param key
+     * @param nowNanos current {@link System#nanoTime()}
+     * @return the tokens left after this request ({@code >= 0}) when it is allowed, or minus the nanoseconds
+     *         until a token is available ({@code < 0}) when it is not
+     */
+    public long tryAcquire(Object key, long nowNanos)
+    {
+        var hash = key.hashCode();
+        var stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        stripe.lock.lock();
+        try
+        {
+            var bucket = stripe.buckets.get(key);
+            if (bucket == null)
+            {
+                if (stripe.buckets.size() >= maxKeysPerStripe)
+                {
+                    evictIdle(stripe, nowNanos);
+                }
+                bucket = new Bucket(capacity, nowNanos);
+                stripe.buckets.put(key, bucket);
+            } else
+            {
+                refill(bucket, nowNanos);
+            }
+            if (bucket.tokens >= 1)
+            {
+                bucket.tokens -= 1;
+                return (long) bucket.tokens;
+            }
+            return -Math.max(1, (long) Math.ceil((1 - bucket.tokens) / tokensPerNano));
+        } finally
+        {
+            stripe.lock.unlock();
+        }
+    }
+
+    public long capacity()
+    {
+        return capacity;
+    }
+
+    private void refill(Bucket bucket, long nowNanos)
+    {
+        var elapsed = nowNanos - bucket.refilledAt;
+        if (elapsed > 0)
+        {
+            bucket.tokens = Math.min(capacity, bucket.tokens + elapsed * tokensPerNano);
+            bucket.refilledAt = nowNanos;
+        }
+    }
+
+    /**
+     * Drops full buckets; if clients are so many that few are idle, drops arbitrary ones too (they restart full,
+     * which errs on the lenient side). Shrinks to three quarters so the sweep is amortised over many inserts.
+     */
+    private void evictIdle(Stripe stripe, long nowNanos)
+    {
+        var target = maxKeysPerStripe * 3 / 4;
+        var iterator = stripe.buckets.values().iterator();
+        while (iterator.hasNext())
+        {
+            var bucket = iterator.next();
+            refill(bucket, nowNanos);
+            if (bucket.tokens >= capacity)
+            {
+                iterator.remove();
+            }
+        }
+        iterator = stripe.buckets.values().iterator();
+        while (stripe.buckets.size() > target && iterator.hasNext())
+        {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static final class Stripe
+    {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final HashMap<Object, Bucket> buckets = new HashMap<>();
+    }
+
+    private static final class Bucket
+    {
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(long tokens, long refilledAt)
+        {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.bank.server.routing;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import com.bank.server.ratelimit.RateLimitPolicy;
+
+/**
+ * A method and path template such as {@code POST /accounts/{accountId}/deposit}, bound to its handler.
+ */
+public class Route
+{
+    private final String method;
+    private final String template;
+    private final RouteHandler handler;
+    private final List<String> paramNames;
+    private Executor offloadExecutor;
+    private volatile RateLimitPolicy rateLimit;
+    private boolean idempotent;
+    private volatile long timeoutMillis;
+
+    Route(String method, String template, RouteHandler handler, List<String> paramNames)
+    {
+        this.method = method;
+        this.template = template;
+        this.handler = handler;
+        this.paramNames = paramNames;
+    }
+
+    /**
+     * Runs this route on {@code executor} instead of the thread that received the request. This costs an extra
+     * queue hop, so it is reserved for routes that must not hold server threads.
+     *
+     * @param executor
+     * @return this route
+     */
+    public Route offload(Executor executor)
+    {
+        this.offloadExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Checks {@code policy} before every request to this route; may be replaced while the server runs.
+     *
+     * @param policy limits to apply, or null for none
+     * @return this route
+     */
+    public Route rateLimit(RateLimitPolicy policy)
+    {
+        this.rateLimit = policy;
+        return this;
+    }
+
+    /**
+     * Marks a route whose effect must not be repeated, so that requests carrying an {@code Idempotency-Key} run
+     * it at most once (see {@link com.bank.server.idempotency.IdempotencyGuard}).
+     *
+     * @return this route
+     */
+    public Route idempotent()
+    {
+        this.idempotent = true;
+        return this;
+    }
+
+    /**
+     * Gives requests to this route a deadline {@code millis} after they reached the server, unless the client
+     * asks for an earlier one; may be changed while the server runs.
+     *
+     * @param millis request budget, or 0 for none
+     * @return this route
+     */
+    public Route timeout(long millis)
+    {
+        this.timeoutMillis = millis;
+        return this;
+    }
+
+    public String method()
+    {
+        return method;
+    }
+
+    public String template()
+    {
+        return template;
+    }
+
+    public RouteHandler handler()
+    {
+        return handler;
+    }
+
+    public Executor offloadExecutor()
+    {
+        return offloadExecutor;
+    }
+
+    public RateLimitPolicy rateLimit()
+    {
+        return rateLimit;
+    }
+
+    public boolean isIdempotent()
+    {
+        return idempotent;
+    }
+
+    public long timeoutMillis()
+    {
+        return timeoutMillis;
+    }
+
+    int paramIndex(String name)
+    {
+        var index = paramNames.indexOf(name);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("Route " + this + " has no path parameter '" + name + "'");
+        }
+        return index;
+    }
+
+    int paramCount()
+    {
+        return paramNames.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return method + " " + template;
+    }
+}
@@ -0,0 +1,14 @@
+package com.bank.server.routing;
+
+import java.io.IOException;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Handles a request that matched a {@link Route}; path parameters come from the {@link RouteMatch}.
+ */
+@FunctionalInterface
+public interface RouteHandler
+{
+    void handle(HttpExchange exchange, RouteMatch match) throws IOException;
+}
@@ -0,0 +1,92 @@
+package com.bank.server.routing;
+
+import com.bank.business.services.Deadline;
+
+/**
+ * Result of matching a request path. Parameters are kept as offsets into the path and only converted when a
+ * handler asks for them. The {@link RouterHandler} also attaches the request's {@link Deadline}.
+ */
+public class RouteMatch
+{
+    private final Route route;
+    private final String path;
+    private final int[] bounds;
+    private Deadline deadline = Deadline.NONE;
+
+    RouteMatch(Route route, String path, int[] bounds)
+    {
+        this.route = route;
+        this.path = path;
+        this.bounds = bounds;
+    }
+
+    public Route route()
+    {
+        return route;
+    }
+
+    /**
+     * @return when the client stops waiting for this request, {@link Deadline#NONE} if it did not say and the
+     *         route has no timeout
+     */
+    public Deadline deadline()
+    {
+        return deadline;
+    }
+
+    void deadline(Deadline deadline)
+    {
+        this.deadline = deadline;
+    }
+
+    /**
+     * @param name parameter name from the template, e.g. {@code accountId}
+     * @return the parameter parsed as a long without creating intermediate strings
+     * @throws NumberFormatException if the segment is not a valid long
+     */
+    public long getLong(String name)
+    {
+        var index = route.paramIndex(name);
+        return parseLong(path, bounds[2 * index], bounds[2 * index + 1]);
+    }
+
+    public String getString(String name)
+    {
+        var index = route.paramIndex(name);
+        return path.substring(bounds[2 * index], bounds[2 * index + 1]);
+    }
+
+    static long parseLong(CharSequence text, int start, int end)
+    {
+        if (start >= end)
+        {
+            throw new NumberFormatException("Empty path parameter");
+        }
+        var negative = text.charAt(start) == '-';
+        var position = negative ? start + 1 : start;
+        if (position == end)
+        {
+            throw new NumberFormatException("Invalid number: " + text.subSequence(start, end));
+        }
+        long result = 0;
+        while (position < end)
+        {
+            var digit = text.charAt(position++) - '0';
+            if (digit < 0 || digit > 9)
+            {
+                throw new NumberFormatException("Invalid number: " + text.subSequence(start, end));
+            }
+            // Accumulate negatively so Long.MIN_VALUE is representable
+            if (result < (Long.MIN_VALUE + digit) / 10)
+            {
+                throw new NumberFormatException("Number out of range: " + text.subSequence(start, end));
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative && result == Long.MIN_VALUE)
+        {
+            throw new NumberFormatException("Number out of range: " + text.subSequence(start, end));
+        }
+        return negative ? result : -result;
+    }
+}
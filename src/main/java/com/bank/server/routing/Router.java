@@ -0,0 +1,222 @@
+package com.bank.server.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Route table built once at startup: one segment trie per HTTP method.
+ * <p>
+ * Matching walks the request path by index. Literal segments are compared in place with
+ * {@link String#regionMatches(int, String, int, int)} and {@code {name}} segments only record their offsets, so
+ * a lookup allocates only the {@link RouteMatch} and its offset array. Literal segments win over parameters,
+ * which makes the result independent of registration order: {@code GET /accounts/{accountId}} can never shadow
+ * {@code POST /accounts/{accountId}/deposit}.
+ */
+public class Router
+{
+    private static final int[] NO_BOUNDS = new int[0];
+
+    // A couple of methods at most, so a scan beats hashing the method name
+    private final String[] methods;
+    private final Node[] roots;
+    private final List<Route> routes;
+    private final int maxParams;
+
+    private Router(Map<String, Node> roots, List<Route> routes, int maxParams)
+    {
+        this.methods = roots.keySet().toArray(new String[0]);
+        this.roots = new Node[methods.length];
+        for (var i = 0; i < methods.length; i++)
+        {
+            this.roots[i] = roots.get(methods[i]);
+        }
+        this.routes = routes;
+        this.maxParams = maxParams;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @param method request method
+     * @param path decoded request path, starting with {@code /}
+     * @return the match, or null when no route accepts this method and path
+     */
+    public RouteMatch match(String method, String path)
+    {
+        Node root = null;
+        for (var i = 0; i < methods.length; i++)
+        {
+            if (methods[i].equals(method))
+            {
+                root = roots[i];
+                break;
+            }
+        }
+        if (root == null || path == null || path.isEmpty() || path.charAt(0) != '/')
+        {
+            return null;
+        }
+        if (path.length() == 1)
+        {
+            return root.route == null ? null : new RouteMatch(root.route, path, NO_BOUNDS);
+        }
+        var bounds = new int[2 * maxParams];
+        var route = find(root, path, 1, bounds, 0);
+        return route == null ? null : new RouteMatch(route, path, bounds);
+    }
+
+    public List<Route> routes()
+    {
+        return routes;
+    }
+
+    private static Route find(Node node, String path, int start, int[] bounds, int paramIndex)
+    {
+        if (start > path.length())
+        {
+            return node.route;
+        }
+        var end = path.indexOf('/', start);
+        if (end < 0)
+        {
+            end = path.length();
+        }
+        var length = end - start;
+
+        var literals = node.literals;
+        for (var i = 0; i < literals.length; i++)
+        {
+            var literal = literals[i];
+            if (literal.length() == length && path.regionMatches(start, literal, 0, length))
+            {
+                var route = find(node.literalChildren[i], path, end + 1, bounds, paramIndex);
+                if (route != null)
+                {
+                    return route;
+                }
+            }
+        }
+
+        if (node.paramChild != null && length > 0)
+        {
+            bounds[2 * paramIndex] = start;
+            bounds[2 * paramIndex + 1] = end;
+            return find(node.paramChild, path, end + 1, bounds, paramIndex + 1);
+        }
+        return null;
+    }
+
+    /**
+     * Collects routes; templates are split into segments here so that matching never has to.
+     */
+    public static class Builder
+    {
+        private final Map<String, Node> roots = new HashMap<>();
+        private final List<Route> routes = new ArrayList<>();
+        private int maxParams;
+
+        public Route get(String template, RouteHandler handler)
+        {
+            return route("GET", template, handler);
+        }
+
+        public Route post(String template, RouteHandler handler)
+        {
+            return route("POST", template, handler);
+        }
+
+        /**
+         * @param method
+         * @param template path such as {@code /accounts/{accountId}/deposit}
+         * @param handler
+         * @return the registered route, for further options such as {@link Route#offload}
+         */
+        public Route route(String method, String template, RouteHandler handler)
+        {
+            if (!template.startsWith("/"))
+            {
+                throw new IllegalArgumentException("Route template must start with '/': " + template);
+            }
+            var node = roots.computeIfAbsent(method, key -> new Node());
+            var paramNames = new ArrayList<String>();
+            if (template.length() > 1)
+            {
+                for (var segment : template.substring(1).split("/", -1))
+                {
+                    if (segment.startsWith("{") && segment.endsWith("}"))
+                    {
+                        var name = segment.substring(1, segment.length() - 1);
+                        if (name.isEmpty() || paramNames.contains(name))
+                        {
+                            throw new IllegalArgumentException("Invalid path parameter '" + segment + "' in " + template);
+                        }
+                        paramNames.add(name);
+                        node = node.paramChild();
+                    } else
+                    {
+                        node = node.literalChild(segment);
+                    }
+                }
+            }
+            var route = new Route(method, template, handler, List.copyOf(paramNames));
+            if (node.route != null)
+            {
+                throw new IllegalStateException("Duplicate route " + route + " (already registered as " + node.route + ")");
+            }
+            node.route = route;
+            routes.add(route);
+            maxParams = Math.max(maxParams, paramNames.size());
+            return route;
+        }
+
+        public Router build()
+        {
+            return new Router(roots, Collections.unmodifiableList(new ArrayList<>(routes)), maxParams);
+        }
+    }
+
+    /**
+     * Trie node. Children are plain arrays; nodes have a handful of children and a linear scan over them beats a
+     * hash lookup that would need a substring key.
+     */
+    private static class Node
+    {
+        private String[] literals = new String[0];
+        private Node[] literalChildren = new Node[0];
+        private Node paramChild;
+        private Route route;
+
+        Node literalChild(String segment)
+        {
+            for (var i = 0; i < literals.length; i++)
+            {
+                if (literals[i].equals(segment))
+                {
+                    return literalChildren[i];
+                }
+            }
+            var child = new Node();
+            literals = Arrays.copyOf(literals, literals.length + 1);
+            literalChildren = Arrays.copyOf(literalChildren, literalChildren.length + 1);
+            literals[literals.length - 1] = segment;
+            literalChildren[literalChildren.length - 1] = child;
+            return child;
+        }
+
+        Node paramChild()
+        {
+            if (paramChild == null)
+            {
+                paramChild = new Node();
+            }
+            return paramChild;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.bank.server.routing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bank.business.services.Deadline;
+import com.bank.business.services.DeadlineExceededException;
+import com.bank.server.ServerEngine;
+import com.bank.server.admission.QueueTimingExecutor;
+import com.bank.server.compression.ResponseCompressor;
+import com.bank.server.idempotency.IdempotencyGuard;
+import com.bank.server.lifecycle.RequestTracker;
+import com.bank.server.metrics.RequestMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * The single server context: resolves the {@link Route} and runs it on the current thread, or on the route's
+ * offload executor when one is set. Idempotent routes go through the {@link IdempotencyGuard} when there is one.
+ * <p>
+ * Each request gets a {@link Deadline} from the client's {@value #TIMEOUT_HEADER} header or the route's timeout,
+ * whichever is shorter, counted from when the request was queued for a worker. A request whose deadline passed
+ * before it was dispatched, or whose handler gave up with a {@link DeadlineExceededException}, gets a 504.
+ * <p>
+ * Every request is counted in the {@link RequestTracker} until its handler returns, wherever it runs, and its
+ * latency from arrival to that point is recorded in {@link RequestMetrics} by route and status. While the
+ * server drains, responses carry {@code Connection: close} so keep-alive clients move to another instance.
+ * <p>
+ * A route that fails before sending headers gets a 500. One that fails after the headers are out (a broken
+ * stream) is rethrown so the engine drops the connection rather than completing a truncated response; on an
+ * offload executor, where nothing would catch it, the connection is dropped with {@link ServerEngine#abort} (on
+ * the nio engine; the jdk engine can only complete the response).
+ */
+public class RouterHandler implements HttpHandler
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(RouterHandler.class);
+    /** Milliseconds the client (or the proxy in front) is willing to wait for the response */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+    private static final String DEADLINE_EXCEEDED = "{\"error\": \"Gateway Timeout: request deadline exceeded\"}";
+
+    private final Router router;
+    private final ResponseCompressor compressor;
+    private final IdempotencyGuard idempotency;
+    private final RequestTracker requests;
+    private final RequestMetrics metrics;
+
+    public RouterHandler(Router router)
+    {
+        this(router, null, null, new RequestTracker(), new RequestMetrics());
+    }
+
+    /**
+     * @param router
+     * @param compressor  response compression, or null to always respond uncompressed
+     * @param idempotency replays idempotent routes by {@code Idempotency-Key}, or null to ignore the header
+     * @param requests    counts requests in flight for graceful shutdown
+     * @param metrics     latency histograms by route and status
+     */
+    public RouterHandler(Router router, ResponseCompressor compressor, IdempotencyGuard idempotency, RequestTracker requests, RequestMetrics metrics)
+    {
+        this.router = router;
+        this.compressor = compressor;
+        this.idempotency = idempotency;
+        this.requests = requests;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException
+    {
+        var arrivedAt = System.nanoTime() - QueueTimingExecutor.queuedNanos();
+        requests.begin();
+        var offloaded = false;
+        try
+        {
+            if (requests.isDraining())
+            {
+                exchange.getResponseHeaders().set("Connection", "close");
+            }
+            offloaded = route(exchange, arrivedAt);
+        } finally
+        {
+            if (!offloaded)
+            {
+                requests.end();
+            }
+        }
+    }
+
+    /**
+     * @return true if the route was handed to its offload executor, which then ends the request's tracking and
+     *         records its latency
+     */
+    private boolean route(HttpExchange exchange, long arrivedAt) throws IOException
+    {
+        var match = router.match(exchange.getRequestMethod(), exchange.getRequestURI().getPath());
+        if (match == null)
+        {
+            sendError(exchange, 404, "{\"error\": \"Not Found\"}");
+            metrics.record(null, 404, System.nanoTime() - arrivedAt);
+            return false;
+        }
+        var route = match.route();
+        var offloaded = false;
+        try
+        {
+            var deadline = deadline(exchange, route);
+            if (deadline.isExpired())
+            {
+                exchange.getRequestBody().close();
+                sendError(exchange, 504, DEADLINE_EXCEEDED);
+                return false;
+            }
+            match.deadline(deadline);
+            var rateLimit = route.rateLimit();
+            if (rateLimit != null && !rateLimit.tryAdmit(exchange))
+            {
+                return false;
+            }
+            var target = compressor == null ? exchange : compressor.wrap(exchange, route);
+            var offloadExecutor = route.offloadExecutor();
+            if (offloadExecutor == null)
+            {
+                invoke(target, match);
+                return false;
+            }
+            offloadExecutor.execute(() -> {
+                try
+                {
+                    invoke(target, match);
+                } catch (IOException offloadedException)
+                {
+                    // What the engine does when a handler on its own thread rethrows: a truncated body must not
+                    // look complete, so drop the connection underneath any wrapper instead of closing the wrapper
+                    LOGGER.debug("Dropping the connection of {}: {}", route, offloadedException.getMessage());
+                    ServerEngine.abort(exchange);
+                } finally
+                {
+                    metrics.record(route, target.getResponseCode(), System.nanoTime() - arrivedAt);
+                    requests.end();
+                }
+            });
+            offloaded = true;
+            return true;
+        } finally
+        {
+            if (!offloaded)
+            {
+                metrics.record(route, exchange.getResponseCode(), System.nanoTime() - arrivedAt);
+            }
+        }
+    }
+
+    private void invoke(HttpExchange exchange, RouteMatch match) throws IOException
+    {
+        try
+        {
+            if (idempotency != null && match.route().isIdempotent())
+            {
+                idempotency.handle(exchange, match);
+            } else
+            {
+                match.route().handler().handle(exchange, match);
+            }
+        } catch (DeadlineExceededException deadlineException)
+        {
+            LOGGER.warn("Abandoned {}: {}", match.route(), deadlineException.getMessage());
+            if (exchange.getResponseCode() != -1)
+            {
+                throw new IOException(deadlineException);
+            }
+            sendError(exchange, 504, DEADLINE_EXCEEDED);
+        } catch (Exception routeException)
+        {
+            LOGGER.error("Error handling {}: {}", match.route(), routeException.getMessage(), routeException);
+            if (exchange.getResponseCode() != -1)
+            {
+                throw routeException instanceof IOException ioException ? ioException : new IOException(routeException);
+            }
+            sendError(exchange, 500, "{\"error\": \"Internal Server Error: " + routeException.getMessage() + "\"}");
+        }
+    }
+
+    /**
+     * @return the earlier of the client's and the route's deadline, counted from when the request was queued
+     */
+    private static Deadline deadline(HttpExchange exchange, Route route)
+    {
+        var budgetMillis = route.timeoutMillis() > 0 ? route.timeoutMillis() : -1;
+        var header = exchange.getRequestHeaders().getFirst(TIMEOUT_HEADER);
+        if (header != null)
+        {
+            try
+            {
+                var requested = Long.parseLong(header.trim());
+                if (requested >= 0 && (budgetMillis < 0 || requested < budgetMillis))
+                {
+                    budgetMillis = requested;
+                }
+            } catch (NumberFormatException invalidTimeoutException)
+            {
+                LOGGER.debug("Ignoring malformed {} header: {}", TIMEOUT_HEADER, header);
+            }
+        }
+        if (budgetMillis < 0)
+        {
+            return Deadline.NONE;
+        }
+        var arrivedAt = System.nanoTime() - QueueTimingExecutor.queuedNanos();
+        return Deadline.at(arrivedAt + TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+    }
+
+    private void sendError(HttpExchange exchange, int statusCode, String response)
+    {
+        try
+        {
+            var body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(statusCode, body.length);
+            try (var os = exchange.getResponseBody())
+            {
+                os.write(body);
+            }
+        } catch (IOException responseException)
+        {
+            LOGGER.error("Failed to send error response: {}", responseException.getMessage(), responseException);
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.bank.server.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weak entity tags built from an entity's version counter.
+ * <p>
+ * Versions start from 0 again when the process restarts, so every tag also carries a random per-process prefix;
+ * a tag handed out by an earlier run never matches.
+ */
+public final class ETags
+{
+    private static final String PREFIX = "W/\"" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + '-';
+
+    private ETags()
+    {
+    }
+
+    /**
+     * @param id      entity id, so tags of different entities never collide
+     * @param version the entity's version
+     * @return the weak tag for that version
+     */
+    public static String of(long id, long version)
+    {
+        return PREFIX + id + '.' + version + '"';
+    }
+
+    /**
+     * Weak comparison as used for {@code If-None-Match}.
+     *
+     * @param ifNoneMatch the header value, a comma separated list of tags or {@code *}; may be null
+     * @param etag        the current tag
+     * @return true if the client already holds the current version
+     */
+    public static boolean matches(String ifNoneMatch, String etag)
+    {
+        if (ifNoneMatch == null)
+        {
+            return false;
+        }
+        var length = ifNoneMatch.length();
+        var start = 0;
+        while (start < length)
+        {
+            var end = ifNoneMatch.indexOf(',', start);
+            end = end < 0 ? length : end;
+            var from = start;
+            var to = end;
+            while (from < to && Character.isWhitespace(ifNoneMatch.charAt(from)))
+            {
+                from++;
+            }
+            while (to > from && Character.isWhitespace(ifNoneMatch.charAt(to - 1)))
+            {
+                to--;
+            }
+            // The client may send the tag with or without the weak prefix
+            if (regionEquals(ifNoneMatch, from, to, "*", 0) || regionEquals(ifNoneMatch, from, to, etag, 0) || regionEquals(ifNoneMatch, from, to, etag, 2))
+            {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(String text, int from, int to, String tag, int tagOffset)
+    {
+        var length = tag.length() - tagOffset;
+        return to - from == length && text.regionMatches(from, tag, tagOffset, length);
+    }
+}
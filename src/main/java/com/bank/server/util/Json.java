@@ -2,17 +2,24 @@
 package com.bank.server.util;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
 
 import com.bank.server.config.HttpConfigurationException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 public class Json
 {
     private static final ObjectMapper objectMapper = defaultObjectMapper();
+    // Flushing after every element would turn each array element into its own chunk
+    private static final ObjectWriter elementWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 
     public static ObjectMapper defaultObjectMapper()
     {
@@ -23,6 +30,14 @@ public class Json
         return mapper;
     }
 
+    /**
+     * @return an empty object node from the shared mapper (cheaper than building a new mapper per response)
+     */
+    public static ObjectNode newObject()
+    {
+        return objectMapper.createObjectNode();
+    }
+
     public static JsonNode parse(String jString) throws IOException
     {
         return objectMapper.readTree(jString);
@@ -49,6 +64,41 @@ public class Json
         return writer.writeValueAsString(jsonNode);
     }
 
+    /**
+     * Writes {@code {"items": [...], "next": <cursor>}}, serializing the items one by one straight into
+     * {@code out}. {@code out} is flushed but not closed.
+     * <p>
+     * If an item fails to serialize the document is left unterminated; callers should then abort the response
+     * instead of closing it, so the client does not mistake a truncated page for a complete one.
+     *
+     * @param out
+     * @param items
+     * @param next cursor for the following page, or null on the last page
+     * @throws IOException
+     */
+    public static void writePage(OutputStream out, Iterator<?> items, Long next) throws IOException
+    {
+        var generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("items");
+        while (items.hasNext())
+        {
+            elementWriter.writeValue(generator, items.next());
+        }
+        generator.writeEndArray();
+        if (next == null)
+        {
+            generator.writeNullField("next");
+        } else
+        {
+            generator.writeNumberField("next", next);
+        }
+        generator.writeEndObject();
+        generator.close();
+    }
+
     public static <A> A fromJson(JsonNode conf, Class<A> clazz) throws HttpConfigurationException
     {
 
@@ -64,6 +114,25 @@ public class Json
         }
     }
 
+    /**
+     * Binds raw JSON straight to {@code clazz} in one streaming pass, without building a tree first.
+     *
+     * @param bytes
+     * @param clazz
+     * @return the bound value
+     * @throws HttpConfigurationException if the JSON is malformed or does not fit {@code clazz}
+     */
+    public static <A> A fromJson(byte[] bytes, Class<A> clazz) throws HttpConfigurationException
+    {
+        try
+        {
+            return objectMapper.readValue(bytes, clazz);
+        } catch (IOException ioException)
+        {
+            throw new HttpConfigurationException("Processing Exception: " + ioException.getMessage());
+        }
+    }
+
     public static JsonNode toJson(Object object)
     {
         return objectMapper.valueToTree(object);
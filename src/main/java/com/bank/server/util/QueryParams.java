@@ -0,0 +1,39 @@
+package com.bank.server.util;
+
+/**
+ * Lookup of single query string parameters without building a map per request.
+ */
+public final class QueryParams
+{
+    private QueryParams()
+    {
+    }
+
+    /**
+     * @param query decoded query string, e.g. {@code userId=1&limit=50}; may be null
+     * @param name
+     * @return the first value of {@code name}, or null when absent
+     */
+    public static String get(String query, String name)
+    {
+        if (query == null)
+        {
+            return null;
+        }
+        var start = 0;
+        while (start <= query.length())
+        {
+            var end = query.indexOf('&', start);
+            if (end < 0)
+            {
+                end = query.length();
+            }
+            if (end - start > name.length() && query.charAt(start + name.length()) == '=' && query.startsWith(name, start))
+            {
+                return query.substring(start + name.length() + 1, end);
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+}
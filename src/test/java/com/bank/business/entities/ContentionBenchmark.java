@@ -0,0 +1,151 @@
+package com.bank.business.entities;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Each {@link ContentionStrategy} on a single hot account, from 1 to 64 threads depositing into and withdrawing
+ * from it, against the {@code parkNanos(1)} retry the balance CAS loop used to have.
+ * <p>
+ * Every thread does a fixed number of operations, so a slow strategy shows as low M ops/s; p99.9 is the slowest
+ * 0.1% of single operations, sampled every 64th, which is where a 50 µs park shows up.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes com.bank.business.entities.ContentionBenchmark [opsPerThread]}
+ */
+public class ContentionBenchmark
+{
+    private static final long AMOUNT = 1234;
+    private static final int SAMPLE_EVERY = 64;
+
+    private static final AtomicLong sink = new AtomicLong();
+
+    public static void main(String[] args) throws Exception
+    {
+        var opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        for (var round = 0; round < 2; round++)
+        {
+            var last = round == 1;
+            for (var threads : new int[] { 1, 2, 4, 8, 16, 32, 64 })
+            {
+                run("park(1)", threads, opsPerThread, null, last);
+                for (var strategy : ContentionStrategy.values())
+                {
+                    run(strategy.name().toLowerCase(), threads, opsPerThread, strategy, last);
+                }
+            }
+        }
+        if (sink.get() == 42)
+        {
+            System.out.println();
+        }
+    }
+
+    private static void run(String name, int threads, int opsPerThread, ContentionStrategy strategy, boolean print) throws InterruptedException
+    {
+        var account = new Account(1L, new BigDecimal("1000000.00"), Account.AccountType.CHECKING);
+        var threadBean = ManagementFactory.getThreadMXBean();
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(threads);
+        var cpuNanos = new AtomicLong();
+        var samples = new long[threads][2 * opsPerThread / SAMPLE_EVERY + 1];
+        for (var t = 0; t < threads; t++)
+        {
+            var mine = samples[t];
+            Thread.ofPlatform().start(() -> {
+                try
+                {
+                    start.await();
+                } catch (InterruptedException interruptedException)
+                {
+                    return;
+                }
+                var cpuBefore = threadBean.getCurrentThreadCpuTime();
+                long local = 0;
+                var sampled = 0;
+                for (var i = 0; i < opsPerThread; i++)
+                {
+                    var timed = i % SAMPLE_EVERY == 0;
+                    var before = timed ? System.nanoTime() : 0;
+                    if (strategy == null)
+                    {
+                        parkingAdd(account, AMOUNT);
+                    } else
+                    {
+                        account.addMinorUnits(AMOUNT, strategy);
+                    }
+                    if (timed)
+                    {
+                        mine[sampled++] = System.nanoTime() - before;
+                    }
+                    local += (strategy == null ? parkingAdd(account, -AMOUNT) : account.withdrawMinorUnits(AMOUNT, strategy)) ? 1 : 0;
+                }
+                cpuNanos.addAndGet(threadBean.getCurrentThreadCpuTime() - cpuBefore);
+                sink.addAndGet(local);
+                done.countDown();
+            });
+        }
+        var wallStart = System.nanoTime();
+        start.countDown();
+        done.await();
+        var wallNanos = System.nanoTime() - wallStart;
+        var totalOps = 2L * threads * opsPerThread;
+        if (account.balanceMinorUnits() != 100_000_000)
+        {
+            throw new IllegalStateException(name + " lost updates: " + account.balanceMinorUnits());
+        }
+        if (print)
+        {
+            System.out.printf("%-9s %2d threads: %7.1f CPU ns/op, %6.2f M ops/s, p99.9 %7.1f us%n", name, threads, (double) cpuNanos.get() / totalOps,
+                    totalOps * 1_000.0 / wallNanos, p999(samples) / 1_000.0);
+        }
+    }
+
+    /**
+     * The loop {@link Account} had before contention strategies.
+     */
+    private static boolean parkingAdd(Account account, long delta)
+    {
+        while (true)
+        {
+            var current = account.balanceMinorUnits();
+            if (current + delta < 0)
+            {
+                return false;
+            }
+            if (account.compareAndSetBalance(current, current + delta))
+            {
+                return true;
+            }
+            LockSupport.parkNanos(1);
+        }
+    }
+
+    private static long p999(long[][] samples)
+    {
+        var count = 0;
+        for (var perThread : samples)
+        {
+            for (var sample : perThread)
+            {
+                count += sample > 0 ? 1 : 0;
+            }
+        }
+        var all = new long[count];
+        var i = 0;
+        for (var perThread : samples)
+        {
+            for (var sample : perThread)
+            {
+                if (sample > 0)
+                {
+                    all[i++] = sample;
+                }
+            }
+        }
+        java.util.Arrays.sort(all);
+        return all.length == 0 ? 0 : all[(int) Math.min(all.length - 1, Math.ceil(all.length * 0.999) - 1)];
+    }
+}
@@ -0,0 +1,67 @@
+package com.bank.business.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ContentionStrategyTest
+{
+    @Test
+    void testEveryStrategy_LosesNoUpdatesAndNeverOverdraws() throws InterruptedException
+    {
+        for (var strategy : ContentionStrategy.values())
+        {
+            var account = new Account(1L, new BigDecimal("1.00"), Account.AccountType.CHECKING);
+            var withdrawn = new AtomicInteger();
+            var start = new CountDownLatch(1);
+            var threads = new ArrayList<Thread>();
+            for (var t = 0; t < 8; t++)
+            {
+                threads.add(Thread.ofPlatform().start(() -> {
+                    try
+                    {
+                        start.await();
+                    } catch (InterruptedException interruptedException)
+                    {
+                        return;
+                    }
+                    for (var i = 0; i < 10_000; i++)
+                    {
+                        account.addMinorUnits(3, strategy);
+                        if (account.withdrawMinorUnits(5, strategy))
+                        {
+                            withdrawn.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+            for (var thread : threads)
+            {
+                thread.join();
+            }
+
+            assertEquals(100 + 8 * 10_000 * 3 - withdrawn.get() * 5L, account.balanceMinorUnits(), strategy.name());
+            assertEquals(8 * 10_000 + withdrawn.get(), account.getVersion(), strategy.name());
+        }
+    }
+
+    @Test
+    void testForTypes_AppliesTheWildcardToTypesWithoutAnEntry()
+    {
+        var strategies = ContentionStrategy.forTypes(Map.of("*", "backoff", "checking", "Combining"));
+
+        assertEquals(ContentionStrategy.BACKOFF, strategies.get(Account.AccountType.SAVINGS));
+        assertEquals(ContentionStrategy.COMBINING, strategies.get(Account.AccountType.CHECKING));
+        assertEquals(ContentionStrategy.SPIN, ContentionStrategy.forTypes(Map.of()).get(Account.AccountType.SAVINGS));
+        assertThrows(IllegalArgumentException.class, () -> ContentionStrategy.forTypes(Map.of("*", "park")));
+        assertThrows(IllegalArgumentException.class, () -> ContentionStrategy.forTypes(Map.of("BROKERAGE", "spin")));
+    }
+}
@@ -0,0 +1,174 @@
+package com.bank.business.entities;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-point {@link Account} balances against the previous {@code AtomicReference<BigDecimal>} ones, from 1 to
+ * 16 threads depositing into and withdrawing from the same account, and {@link Money#parse}/{@link Money#format}
+ * against {@code new BigDecimal(text)}/{@code toString()} for the JSON boundary.
+ * <p>
+ * Bytes/op is heap allocated per operation as reported by the thread MXBean; CPU ns/op is per-thread CPU time
+ * over operations.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes com.bank.business.entities.MoneyBenchmark [opsPerThread]}
+ */
+public class MoneyBenchmark
+{
+    private static final AtomicLong sink = new AtomicLong();
+
+    public static void main(String[] args) throws Exception
+    {
+        var opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (var round = 0; round < 3; round++)
+        {
+            var last = round == 2;
+            for (var threads : new int[] { 1, 2, 4, 8, 16 })
+            {
+                run("BigDecimal", threads, opsPerThread, new BigDecimalBalance(), last);
+                run("long", threads, opsPerThread, new LongBalance(), last);
+            }
+            codec("BigDecimal codec", opsPerThread, text -> new BigDecimal(text).toString(), last);
+            codec("Money codec", opsPerThread, text -> Money.format(Money.parse(text)), last);
+        }
+        if (sink.get() == 42)
+        {
+            System.out.println();
+        }
+    }
+
+    private interface Balance
+    {
+        void deposit();
+
+        boolean withdraw();
+    }
+
+    /**
+     * The balance as {@link Account} kept it before: reference CAS on an immutable decimal.
+     */
+    private static class BigDecimalBalance implements Balance
+    {
+        private static final BigDecimal AMOUNT = new BigDecimal("12.34");
+        private final AtomicReference<BigDecimal> balance = new AtomicReference<>(new BigDecimal("1000.00"));
+
+        @Override
+        public void deposit()
+        {
+            while (true)
+            {
+                var current = balance.get();
+                if (balance.compareAndSet(current, current.add(AMOUNT)))
+                {
+                    return;
+                }
+                LockSupport.parkNanos(1);
+            }
+        }
+
+        @Override
+        public boolean withdraw()
+        {
+            while (true)
+            {
+                var current = balance.get();
+                var next = current.subtract(AMOUNT);
+                if (next.signum() < 0)
+                {
+                    return false;
+                }
+                if (balance.compareAndSet(current, next))
+                {
+                    return true;
+                }
+                LockSupport.parkNanos(1);
+            }
+        }
+    }
+
+    private static class LongBalance implements Balance
+    {
+        private static final long AMOUNT = 1234;
+        private final Account account = new Account(1L, new BigDecimal("1000.00"), Account.AccountType.CHECKING);
+
+        @Override
+        public void deposit()
+        {
+            account.addMinorUnits(AMOUNT);
+        }
+
+        @Override
+        public boolean withdraw()
+        {
+            return account.withdrawMinorUnits(AMOUNT);
+        }
+    }
+
+    private static void run(String name, int threads, int opsPerThread, Balance balance, boolean print) throws InterruptedException
+    {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(threads);
+        var cpuNanos = new AtomicLong();
+        var allocatedBytes = new AtomicLong();
+        for (var t = 0; t < threads; t++)
+        {
+            Thread.ofPlatform().start(() -> {
+                try
+                {
+                    start.await();
+                } catch (InterruptedException interruptedException)
+                {
+                    return;
+                }
+                var cpuBefore = threadBean.getCurrentThreadCpuTime();
+                var bytesBefore = threadBean.getCurrentThreadAllocatedBytes();
+                long local = 0;
+                for (var i = 0; i < opsPerThread; i++)
+                {
+                    balance.deposit();
+                    local += balance.withdraw() ? 1 : 0;
+                }
+                allocatedBytes.addAndGet(threadBean.getCurrentThreadAllocatedBytes() - bytesBefore);
+                cpuNanos.addAndGet(threadBean.getCurrentThreadCpuTime() - cpuBefore);
+                sink.addAndGet(local);
+                done.countDown();
+            });
+        }
+        var wallStart = System.nanoTime();
+        start.countDown();
+        done.await();
+        var wallNanos = System.nanoTime() - wallStart;
+        // A deposit and a withdrawal per iteration
+        var totalOps = 2L * threads * opsPerThread;
+        if (print)
+        {
+            System.out.printf("%-10s %2d threads: %7.1f CPU ns/op, %6.2f M ops/s, %5.1f bytes/op%n", name, threads, (double) cpuNanos.get() / totalOps,
+                    totalOps * 1_000.0 / wallNanos, (double) allocatedBytes.get() / totalOps);
+        }
+    }
+
+    private static void codec(String name, int ops, java.util.function.UnaryOperator<String> roundTrip, boolean print)
+    {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var inputs = new String[] { "0.01", "12.34", "1000", "987654.5", "-42.10" };
+        var bytesBefore = threadBean.getCurrentThreadAllocatedBytes();
+        var start = System.nanoTime();
+        long local = 0;
+        for (var i = 0; i < ops; i++)
+        {
+            local += roundTrip.apply(inputs[i % inputs.length]).length();
+        }
+        var nanos = System.nanoTime() - start;
+        var bytes = threadBean.getCurrentThreadAllocatedBytes() - bytesBefore;
+        sink.addAndGet(local);
+        if (print)
+        {
+            System.out.printf("%-16s: %7.1f ns/op, %5.1f bytes/op%n", name, (double) nanos / ops, (double) bytes / ops);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.bank.business.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+class MoneyTest
+{
+    @Test
+    void testParse_AcceptsPlainDecimalsUpToTwoPlaces()
+    {
+        assertEquals(1234, Money.parse("12.34"));
+        assertEquals(1200, Money.parse("12"));
+        assertEquals(1250, Money.parse("12.5"));
+        assertEquals(5, Money.parse("0.05"));
+        assertEquals(50, Money.parse(".5"));
+        assertEquals(-1001, Money.parse("-10.01"));
+        assertEquals(Long.MIN_VALUE, Money.parse("-92233720368547758.08"));
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+    }
+
+    @Test
+    void testParse_RejectsWhatCannotBeHeldExactly()
+    {
+        assertThrows(NumberFormatException.class, () -> Money.parse("0.001"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1e3"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("-"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.2.3"));
+    }
+
+    @Test
+    void testFormat_MatchesBigDecimal()
+    {
+        for (var minorUnits : new long[] { 0, 5, -5, 1234, -1234, 100, Long.MAX_VALUE, Long.MIN_VALUE })
+        {
+            assertEquals(BigDecimal.valueOf(minorUnits, 2).toPlainString(), Money.format(minorUnits));
+        }
+    }
+
+    @Test
+    void testAccount_KeepsTheBalanceInMinorUnits()
+    {
+        var account = new Account(1L, new BigDecimal("10"), Account.AccountType.SAVINGS);
+        account.addAmount(new BigDecimal("0.50"));
+        assertFalse(account.withdrawAmount(new BigDecimal("10.51")));
+
+        assertEquals(new BigDecimal("10.50"), account.getBalance());
+        assertEquals(1050, account.balanceMinorUnits());
+        assertThrows(ArithmeticException.class, () -> account.addAmount(new BigDecimal("0.001")));
+    }
+}
@@ -0,0 +1,53 @@
+package com.bank.business.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+class BalanceEventBusTest
+{
+    private static BalanceEvent event(long accountId, Long userId)
+    {
+        return new BalanceEvent(accountId, userId, BalanceEvent.Kind.DEPOSIT, BigDecimal.ONE, BigDecimal.TEN, 1, 0);
+    }
+
+    @Test
+    void testPublish_ReachesAccountAndUserSubscribers()
+    {
+        var bus = new BalanceEventBus();
+        try (var account = bus.subscribeToAccount(1, 4); var user = bus.subscribeToUser(7, 4); var other = bus.subscribeToAccount(2, 4))
+        {
+            var event = event(1, 7L);
+            bus.publish(event);
+
+            assertSame(event, account.poll());
+            assertSame(event, user.poll());
+            assertNull(other.poll());
+        }
+        assertEquals(0, bus.subscribers());
+        assertFalse(bus.hasSubscribers());
+    }
+
+    @Test
+    void testPublish_SlowSubscriberIsDropped()
+    {
+        var bus = new BalanceEventBus();
+        var subscription = bus.subscribeToAccount(1, 2);
+        for (int i = 0; i < 5; i++)
+        {
+            bus.publish(event(1, null));
+        }
+
+        assertTrue(subscription.isDropped());
+        assertEquals(1, bus.dropped());
+        assertEquals(0, bus.subscribers());
+        // Only the wake-up remains queued, and it is not handed out as a balance event
+        assertNull(subscription.poll());
+    }
+}
@@ -0,0 +1,174 @@
+package com.bank.business.services;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.bank.business.entities.Account;
+import com.bank.db.inmemory.InMemoryAccountRepository;
+import com.bank.db.journal.JournaledAccountRepository;
+import com.bank.db.journal.WriteAheadLog;
+
+/**
+ * In-process throughput of the account engines, from 1 to 8 threads issuing a mix of transfers (80%), deposits
+ * and withdrawals over 1024 accounts.
+ * <p>
+ * The {@link CommandPipeline} and {@link ShardedAccountEngine} rows drive the engines directly, the way a caller
+ * that keeps its futures would: each thread publishes without waiting and joins only every
+ * {@value #WINDOW}th future. The locking row calls {@link AccountService#transferAmount} and friends, which is
+ * the only way that engine runs. Every change is saved to the in-memory repository, as the service does.
+ * <p>
+ * The {@code pipeline+wal} rows store changes in journaled storage, {@value #WAL_DIVISOR} times fewer of them:
+ * once with the business logic thread waiting for every sync, and once handing records to the log and moving on,
+ * so concurrent changes share a sync.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes com.bank.business.services.AccountEngineBenchmark [opsPerThread]}
+ */
+public class AccountEngineBenchmark
+{
+    private static final int ACCOUNTS = 1024;
+    private static final int WINDOW = 4096;
+    // Journaled rows sync to disk, so they run fewer operations
+    private static final int WAL_DIVISOR = 1_000;
+
+    public static void main(String[] args) throws Exception
+    {
+        var opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        var repository = InMemoryAccountRepository.getInstance();
+        var accounts = new ArrayList<Account>(ACCOUNTS);
+        for (var i = 0; i < ACCOUNTS; i++)
+        {
+            accounts.add(repository.save(new Account(1L, new BigDecimal("1000000.00"), Account.AccountType.CHECKING)));
+        }
+        AccountEngine.CommitListener save = (account, kind, minorUnits) -> repository.saveAllAsync(List.of(account));
+        var journal = Files.createTempFile("commands", ".log");
+        var walFile = Files.createTempFile("accounts", ".wal");
+        var wal = new WriteAheadLog(walFile, 0, record -> {
+        });
+        var journaled = new JournaledAccountRepository(repository, wal);
+        // The pipeline thread waiting for each sync, as it did before changes were stored asynchronously
+        AccountEngine.CommitListener syncEach = (account, kind, minorUnits) -> {
+            journaled.save(account);
+            return CompletableFuture.completedFuture(null);
+        };
+        AccountEngine.CommitListener syncGrouped = (account, kind, minorUnits) -> journaled.saveAllAsync(List.of(account));
+        var cores = Runtime.getRuntime().availableProcessors();
+        for (var round = 0; round < 2; round++)
+        {
+            var last = round == 1;
+            for (var threads : new int[] { 1, 2, 4, 8 })
+            {
+                run("pipeline", threads, opsPerThread, accounts, () -> new CommandPipeline(64 * 1024, null, false, save), last);
+                run("pipeline+journal", threads, opsPerThread, accounts, () -> new CommandPipeline(64 * 1024, journal, false, save), last);
+                run("pipeline+fsync", threads, opsPerThread, accounts, () -> new CommandPipeline(64 * 1024, journal, true, save), last);
+                run("pipeline+wal", threads, opsPerThread / WAL_DIVISOR, accounts, () -> new CommandPipeline(64 * 1024, null, false, syncEach), last);
+                run("pipeline+wal/async", threads, opsPerThread / WAL_DIVISOR, accounts, () -> new CommandPipeline(64 * 1024, null, false, syncGrouped), last);
+                run("sharded", threads, opsPerThread, accounts, () -> new ShardedAccountEngine(cores, save), last);
+                locking(threads, opsPerThread / 4, accounts, new AccountService(repository), last);
+            }
+        }
+        wal.close();
+        Files.deleteIfExists(journal);
+        Files.deleteIfExists(walFile);
+    }
+
+    private static void run(String name, int threads, int opsPerThread, List<Account> accounts, Supplier<AccountEngine> factory, boolean print)
+            throws InterruptedException
+    {
+        var engine = factory.get();
+        var expected = new AtomicLong(total(accounts));
+        var elapsed = measure(threads, () -> {
+            var random = ThreadLocalRandom.current();
+            CompletableFuture<AccountEngine.Outcome> pending = null;
+            long delta = 0;
+            for (var i = 1; i <= opsPerThread; i++)
+            {
+                var account = accounts.get(random.nextInt(ACCOUNTS));
+                var choice = random.nextInt(10);
+                pending = choice < 8 ? engine.transfer(account, accounts.get(random.nextInt(ACCOUNTS)), 100, Deadline.NONE)
+                        : choice == 8 ? engine.deposit(account, 100, Deadline.NONE) : engine.withdraw(account, 100, Deadline.NONE);
+                // Balances are far too large for a withdrawal to fail
+                delta += choice < 8 ? 0 : choice == 8 ? 100 : -100;
+                if (i % WINDOW == 0)
+                {
+                    pending.join();
+                }
+            }
+            pending.join();
+            expected.addAndGet(delta);
+        });
+        engine.close();
+        report(name, threads, (long) threads * opsPerThread, elapsed, print);
+        if (total(accounts) != expected.get())
+        {
+            throw new IllegalStateException(name + " lost or created money: " + (total(accounts) - expected.get()));
+        }
+    }
+
+    private static void locking(int threads, int opsPerThread, List<Account> accounts, AccountService service, boolean print) throws InterruptedException
+    {
+        var amount = new BigDecimal("1.00");
+        var elapsed = measure(threads, () -> {
+            var random = ThreadLocalRandom.current();
+            for (var i = 0; i < opsPerThread; i++)
+            {
+                var account = accounts.get(random.nextInt(ACCOUNTS));
+                var choice = random.nextInt(10);
+                if (choice < 8)
+                {
+                    service.transferAmount(account.getId(), accounts.get(random.nextInt(ACCOUNTS)).getId(), amount);
+                } else if (choice == 8)
+                {
+                    service.deposit(account, amount);
+                } else
+                {
+                    service.withdraw(account, amount);
+                }
+            }
+        });
+        report("locking", threads, (long) threads * opsPerThread, elapsed, print);
+    }
+
+    private static long measure(int threads, Runnable work) throws InterruptedException
+    {
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(threads);
+        for (var t = 0; t < threads; t++)
+        {
+            Thread.ofPlatform().start(() -> {
+                try
+                {
+                    start.await();
+                } catch (InterruptedException interruptedException)
+                {
+                    return;
+                }
+                work.run();
+                done.countDown();
+            });
+        }
+        var wallStart = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - wallStart;
+    }
+
+    private static long total(List<Account> accounts)
+    {
+        return accounts.stream().mapToLong(Account::balanceMinorUnits).sum();
+    }
+
+    private static void report(String name, int threads, long ops, long nanos, boolean print)
+    {
+        if (print)
+        {
+            System.out.printf("%-18s %d threads: %7.3f M ops/s%n", name, threads, ops * 1_000.0 / nanos);
+        }
+    }
+}
@@ -9,6 +9,8 @@ import org.mockito.MockitoAnnotations;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -182,4 +184,157 @@ class AccountServiceTest
         assertEquals(mockAccounts, result);
         verify(accountRepository, times(1)).getAll();
     }
+
+    @Test
+    void testExecuteBatch_CommitsAllOperations()
+    {
+        // Arrange
+        var acc1 = new Account(1L, "ACC1", new BigDecimal("100.00"), Account.AccountType.SAVINGS);
+        acc1.setId(1L);
+        var acc2 = new Account(1L, "ACC2", new BigDecimal("50.00"), Account.AccountType.CHECKING);
+        acc2.setId(2L);
+        when(accountRepository.findById(1L)).thenReturn(acc1);
+        when(accountRepository.findById(2L)).thenReturn(acc2);
+
+        // Act
+        var result = accountService.executeBatch(List.of(
+                BatchOperation.deposit(1L, new BigDecimal("30.00")),
+                BatchOperation.transfer(1L, 2L, new BigDecimal("120.00")),
+                BatchOperation.withdraw(2L, new BigDecimal("20.00"))));
+
+        // Assert
+        assertTrue(result.committed());
+        assertEquals(3, result.results().size());
+        assertEquals(new BigDecimal("130.00"), result.results().get(0).balance());
+        assertEquals(0, new BigDecimal("10.00").compareTo(acc1.getBalance()));
+        assertEquals(0, new BigDecimal("150.00").compareTo(acc2.getBalance()));
+        // Both accounts are stored as one change
+        verify(accountRepository, times(1)).saveAll(List.of(acc1, acc2));
+    }
+
+    @Test
+    void testExecuteBatch_InsufficientFundsAppliesNothing()
+    {
+        // Arrange
+        var acc1 = new Account(1L, "ACC1", new BigDecimal("100.00"), Account.AccountType.SAVINGS);
+        acc1.setId(1L);
+        var acc2 = new Account(1L, "ACC2", new BigDecimal("50.00"), Account.AccountType.CHECKING);
+        acc2.setId(2L);
+        when(accountRepository.findById(1L)).thenReturn(acc1);
+        when(accountRepository.findById(2L)).thenReturn(acc2);
+
+        // Act
+        var result = accountService.executeBatch(List.of(
+                BatchOperation.deposit(2L, new BigDecimal("10.00")),
+                BatchOperation.transfer(1L, 2L, new BigDecimal("100.01"))));
+
+        // Assert
+        assertFalse(result.committed());
+        assertEquals(BatchResult.Status.INSUFFICIENT_FUNDS, result.status());
+        assertEquals(BatchResult.Outcome.NOT_APPLIED, result.results().get(0).outcome());
+        assertEquals(BatchResult.Outcome.FAILED, result.results().get(1).outcome());
+        assertEquals(new BigDecimal("100.00"), acc1.getBalance());
+        assertEquals(new BigDecimal("50.00"), acc2.getBalance());
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(accountRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testExecuteBatch_OverflowAppliesNothing()
+    {
+        // Arrange
+        var acc1 = new Account(1L, "ACC1", new BigDecimal("100.00"), Account.AccountType.SAVINGS);
+        acc1.setId(1L);
+        var acc2 = new Account(1L, "ACC2", new BigDecimal("50.00"), Account.AccountType.CHECKING);
+        acc2.setId(2L);
+        when(accountRepository.findById(1L)).thenReturn(acc1);
+        when(accountRepository.findById(2L)).thenReturn(acc2);
+        var huge = new BigDecimal("50000000000000000.00");
+
+        // Act
+        var result = accountService.executeBatch(List.of(
+                BatchOperation.deposit(1L, BigDecimal.ONE),
+                BatchOperation.deposit(2L, huge),
+                BatchOperation.deposit(2L, huge)));
+
+        // Assert
+        assertFalse(result.committed());
+        assertEquals(BatchResult.Status.INVALID, result.status());
+        assertEquals(BatchResult.Outcome.FAILED, result.results().get(2).outcome());
+        assertEquals(BatchResult.Status.INVALID, accountService.executeBatch(List.of(BatchOperation.deposit(1L, new BigDecimal("0.001")))).status());
+        assertEquals(new BigDecimal("100.00"), acc1.getBalance());
+        assertEquals(new BigDecimal("50.00"), acc2.getBalance());
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(accountRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testTransferAmount_ExpiredDeadlineChangesNothing()
+    {
+        // Arrange
+        var acc1 = new Account(1L, "ACC1", new BigDecimal("100.00"), Account.AccountType.SAVINGS);
+        acc1.setId(1L);
+        var acc2 = new Account(1L, "ACC2", new BigDecimal("50.00"), Account.AccountType.CHECKING);
+        acc2.setId(2L);
+        when(accountRepository.findById(1L)).thenReturn(acc1);
+        when(accountRepository.findById(2L)).thenReturn(acc2);
+        var expired = Deadline.at(System.nanoTime() - 1);
+
+        // Act & Assert
+        assertThrows(DeadlineExceededException.class, () -> accountService.transferAmount(1L, 2L, new BigDecimal("10.00"), expired));
+        assertThrows(DeadlineExceededException.class, () -> accountService.deposit(acc1, new BigDecimal("10.00"), expired));
+        assertEquals(BatchResult.Status.DEADLINE_EXCEEDED, accountService.executeBatch(List.of(BatchOperation.deposit(1L, BigDecimal.ONE)), expired).status());
+        assertEquals(new BigDecimal("100.00"), acc1.getBalance());
+        assertEquals(new BigDecimal("50.00"), acc2.getBalance());
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(accountRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testWithdrawAndTransfer_BusyAccountIsNotInsufficientFunds() throws Exception
+    {
+        // Arrange
+        var acc1 = new Account(1L, "ACC1", new BigDecimal("100.00"), Account.AccountType.SAVINGS);
+        acc1.setId(1L);
+        var acc2 = new Account(1L, "ACC2", new BigDecimal("50.00"), Account.AccountType.CHECKING);
+        acc2.setId(2L);
+        when(accountRepository.findById(1L)).thenReturn(acc1);
+        when(accountRepository.findById(2L)).thenReturn(acc2);
+        var held = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var holder = Thread.ofPlatform().start(() -> {
+            acc1.getReadWriteLock().writeLock().lock();
+            held.countDown();
+            try
+            {
+                release.await();
+            } catch (InterruptedException interruptedException)
+            {
+                Thread.currentThread().interrupt();
+            } finally
+            {
+                acc1.getReadWriteLock().writeLock().unlock();
+            }
+        });
+        held.await();
+
+        // Act & Assert: an interrupted lock wait gives up at once, like a lock timeout but without the 5 s
+        try
+        {
+            Thread.currentThread().interrupt();
+            assertThrows(AccountBusyException.class, () -> accountService.withdraw(acc1, new BigDecimal("10.00")));
+            assertTrue(Thread.interrupted());
+            Thread.currentThread().interrupt();
+            assertThrows(AccountBusyException.class, () -> accountService.transferAmount(1L, 2L, new BigDecimal("10.00")));
+            assertTrue(Thread.interrupted());
+        } finally
+        {
+            release.countDown();
+            holder.join();
+        }
+        assertEquals(new BigDecimal("100.00"), acc1.getBalance());
+        assertEquals(new BigDecimal("50.00"), acc2.getBalance());
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(accountRepository, never()).saveAll(anyList());
+    }
 }
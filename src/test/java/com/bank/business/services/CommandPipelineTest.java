@@ -0,0 +1,104 @@
+package com.bank.business.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bank.business.entities.Account;
+
+class CommandPipelineTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void testPublish_ConcurrentCommandsAreAllJournaledAndApplied() throws Exception
+    {
+        var accounts = TestAccounts.numbered(8, "100.00");
+        var journal = directory.resolve("commands.log");
+        // A small ring, so publishers keep waiting for slots to be reused
+        var pipeline = new CommandPipeline(64, journal, false, (account, kind, minorUnits) -> CompletableFuture.completedFuture(null));
+        var pending = new ArrayList<CompletableFuture<AccountEngine.Outcome>>();
+        var threads = new ArrayList<Thread>();
+        for (var t = 0; t < 4; t++)
+        {
+            threads.add(Thread.ofPlatform().start(() -> {
+                var random = ThreadLocalRandom.current();
+                var mine = new ArrayList<CompletableFuture<AccountEngine.Outcome>>();
+                for (var i = 0; i < 2_500; i++)
+                {
+                    mine.add(pipeline.transfer(accounts.get(random.nextInt(8)), accounts.get(random.nextInt(8)), random.nextLong(1, 5_000), Deadline.NONE));
+                }
+                synchronized (pending)
+                {
+                    pending.addAll(mine);
+                }
+            }));
+        }
+        for (var thread : threads)
+        {
+            thread.join();
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        pipeline.close();
+
+        assertEquals(80_000L, accounts.stream().mapToLong(Account::balanceMinorUnits).sum());
+        var records = ByteBuffer.wrap(Files.readAllBytes(journal));
+        var sequence = 0L;
+        while (records.hasRemaining())
+        {
+            var length = records.getInt();
+            assertEquals(sequence++, records.getLong());
+            records.position(records.position() + length - Integer.BYTES - Long.BYTES);
+        }
+        assertEquals(10_000, sequence);
+    }
+
+    @Test
+    void testExclusive_RunsInSequenceWithOtherCommands() throws Exception
+    {
+        var account = TestAccounts.numbered(1, "0.00").get(0);
+        var pipeline = new CommandPipeline(16, null, false, (changed, kind, minorUnits) -> CompletableFuture.completedFuture(null));
+
+        var deposit = pipeline.deposit(account, 500, Deadline.NONE);
+        var seenByBatch = pipeline.exclusive(List.of(), List.of(account), Deadline.NONE, Long.MAX_VALUE, account::balanceMinorUnits);
+        var withdrawal = pipeline.withdraw(account, 501, Deadline.NONE);
+
+        assertEquals(AccountEngine.Outcome.APPLIED, deposit.get());
+        assertEquals(500L, seenByBatch);
+        assertEquals(AccountEngine.Outcome.INSUFFICIENT_FUNDS, withdrawal.get());
+        assertEquals(AccountEngine.Outcome.DEADLINE_EXCEEDED, pipeline.deposit(account, 1, Deadline.at(System.nanoTime() - 1)).get());
+        pipeline.close();
+        assertEquals(500, account.balanceMinorUnits());
+    }
+
+    @Test
+    void testDeposit_CompletesOnceStoredWithoutHoldingLaterCommands() throws Exception
+    {
+        var account = TestAccounts.numbered(1, "0.00").get(0);
+        var firstStored = new CompletableFuture<Void>();
+        var pipeline = new CommandPipeline(16, null, false,
+                (changed, kind, minorUnits) -> minorUnits == 100 ? firstStored : CompletableFuture.completedFuture(null));
+
+        var first = pipeline.deposit(account, 100, Deadline.NONE);
+        var second = pipeline.deposit(account, 50, Deadline.NONE);
+
+        assertEquals(AccountEngine.Outcome.APPLIED, second.get(5, TimeUnit.SECONDS));
+        assertFalse(first.isDone());
+        assertEquals(150, account.balanceMinorUnits());
+        firstStored.complete(null);
+        assertEquals(AccountEngine.Outcome.APPLIED, first.get(5, TimeUnit.SECONDS));
+        pipeline.close();
+    }
+}
@@ -0,0 +1,182 @@
+package com.bank.business.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.bank.business.entities.Account;
+
+class ShardedAccountEngineTest
+{
+    private final ShardedAccountEngine engine = new ShardedAccountEngine(4, (account, kind, minorUnits) -> CompletableFuture.completedFuture(null));
+
+    @AfterEach
+    void tearDown()
+    {
+        engine.close();
+    }
+
+    private static long total(List<Account> accounts)
+    {
+        return accounts.stream().mapToLong(Account::balanceMinorUnits).sum();
+    }
+
+    @Test
+    void testTransfer_ConcurrentAcrossShardsConservesMoney() throws Exception
+    {
+        var accounts = TestAccounts.numbered(10, "100.00");
+        var threads = new ArrayList<Thread>();
+        var pending = new ArrayList<CompletableFuture<AccountEngine.Outcome>>();
+        for (var t = 0; t < 8; t++)
+        {
+            var mine = new ArrayList<CompletableFuture<AccountEngine.Outcome>>();
+            threads.add(Thread.ofPlatform().start(() -> {
+                var random = ThreadLocalRandom.current();
+                for (var i = 0; i < 5_000; i++)
+                {
+                    var from = accounts.get(random.nextInt(accounts.size()));
+                    var to = accounts.get(random.nextInt(accounts.size()));
+                    if (from != to)
+                    {
+                        mine.add(engine.transfer(from, to, random.nextLong(1, 5_000), Deadline.NONE));
+                    }
+                }
+                synchronized (pending)
+                {
+                    pending.addAll(mine);
+                }
+            }));
+        }
+        for (var thread : threads)
+        {
+            thread.join();
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        assertEquals(100_000L, total(accounts));
+        accounts.forEach(account -> assertFalse(account.balanceMinorUnits() < 0));
+    }
+
+    @Test
+    void testClose_WhileCrossShardTransfersAreQueuedConservesMoney() throws Exception
+    {
+        var accounts = TestAccounts.numbered(8, "100.00");
+        var accepted = new ArrayList<CompletableFuture<AccountEngine.Outcome>>();
+        // Keeps publishing while the engine closes, so some transfers are debited during the drain
+        var publisher = Thread.ofPlatform().start(() -> {
+            for (var i = 0;; i++)
+            {
+                try
+                {
+                    // Neighbouring ids live on different shards
+                    var transfer = engine.transfer(accounts.get(i % 8), accounts.get((i + 1) % 8), 1, Deadline.NONE);
+                    synchronized (accepted)
+                    {
+                        accepted.add(transfer);
+                    }
+                } catch (IllegalStateException closedException)
+                {
+                    return;
+                }
+            }
+        });
+        Thread.sleep(20);
+        engine.close();
+        publisher.join();
+
+        CompletableFuture.allOf(accepted.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        assertEquals(80_000L, total(accounts));
+    }
+
+    @Test
+    void testTransfer_InsufficientFundsAndExpiredDeadlinesChangeNothing() throws Exception
+    {
+        var accounts = TestAccounts.numbered(2, "10.00");
+
+        assertEquals(AccountEngine.Outcome.INSUFFICIENT_FUNDS, engine.transfer(accounts.get(0), accounts.get(1), 1_001, Deadline.NONE).get());
+        assertEquals(AccountEngine.Outcome.DEADLINE_EXCEEDED,
+                engine.transfer(accounts.get(0), accounts.get(1), 100, Deadline.at(System.nanoTime() - 1)).get());
+        assertEquals(AccountEngine.Outcome.APPLIED, engine.transfer(accounts.get(0), accounts.get(1), 1_000, Deadline.NONE).get());
+
+        assertEquals(0, accounts.get(0).balanceMinorUnits());
+        assertEquals(2_000, accounts.get(1).balanceMinorUnits());
+    }
+
+    @Test
+    void testExclusive_HoldsBackTheShardsItPaused() throws Exception
+    {
+        var account = TestAccounts.numbered(1, "0.00").get(0);
+
+        var seenDuring = engine.exclusive(List.of(), List.of(account), Deadline.NONE, Long.MAX_VALUE, () -> {
+            var deposit = engine.deposit(account, 500, Deadline.NONE);
+            try
+            {
+                Thread.sleep(50);
+            } catch (InterruptedException interruptedException)
+            {
+                Thread.currentThread().interrupt();
+            }
+            assertFalse(deposit.isDone());
+            return account.balanceMinorUnits();
+        });
+
+        assertEquals(0, seenDuring);
+        assertEquals(AccountEngine.Outcome.APPLIED, engine.deposit(account, 1, Deadline.NONE).get());
+        assertEquals(501, account.balanceMinorUnits());
+    }
+
+    @Test
+    void testExclusive_GivesUpAtTheDeadlineWhileAShardIsBusy() throws Exception
+    {
+        var account = TestAccounts.numbered(1, "0.00").get(0);
+        var busy = new CountDownLatch(1);
+        var done = new CountDownLatch(1);
+        engine.deposit(account, 1, Deadline.NONE);
+        var holder = Thread.ofPlatform().start(() -> {
+            try
+            {
+                engine.exclusive(List.of(), List.of(account), Deadline.NONE, Long.MAX_VALUE, () -> {
+                    busy.countDown();
+                    awaitQuietly(done);
+                    return null;
+                });
+            } catch (InterruptedException | TimeoutException exception)
+            {
+                throw new IllegalStateException(exception);
+            }
+        });
+        busy.await();
+
+        assertThrows(DeadlineExceededException.class,
+                () -> engine.exclusive(List.of(), List.of(account), Deadline.after(50, TimeUnit.MILLISECONDS), Long.MAX_VALUE, () -> 0));
+        assertThrows(TimeoutException.class,
+                () -> engine.exclusive(List.of(), List.of(account), Deadline.NONE, TimeUnit.MILLISECONDS.toNanos(50), () -> 0));
+
+        done.countDown();
+        holder.join();
+        assertEquals(AccountEngine.Outcome.APPLIED, engine.deposit(account, 1, Deadline.NONE).get(5, TimeUnit.SECONDS));
+        assertEquals(2, account.balanceMinorUnits());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        } catch (InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.bank.business.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bank.business.entities.Account;
+
+/**
+ * Accounts for the engine tests, which hand them to an engine directly instead of going through a repository.
+ */
+final class TestAccounts
+{
+    private TestAccounts()
+    {
+    }
+
+    /**
+     * @return {@code count} checking accounts of user 1 with ids 1 to {@code count}, each holding {@code balance}
+     */
+    static List<Account> numbered(int count, String balance)
+    {
+        var accounts = new ArrayList<Account>();
+        for (var i = 0; i < count; i++)
+        {
+            var account = new Account(1L, new BigDecimal(balance), Account.AccountType.CHECKING);
+            account.setId((long) i + 1);
+            accounts.add(account);
+        }
+        return accounts;
+    }
+}
@@ -106,6 +106,45 @@ class InMemoryAccountRepositoryTest
         assertFalse(accountsForUser1.contains(acc3));
     }
 
+    @Test
+    void testFindPage_ResumesAfterCursor()
+    {
+        // Arrange
+        var first = accountRepository.save(new Account(1L, "PAGE1", BigDecimal.ONE, Account.AccountType.SAVINGS));
+        var second = accountRepository.save(new Account(1L, "PAGE2", BigDecimal.ONE, Account.AccountType.SAVINGS));
+        var third = accountRepository.save(new Account(1L, "PAGE3", BigDecimal.ONE, Account.AccountType.SAVINGS));
+
+        // Act
+        var page = accountRepository.findPage(first.getId(), 2);
+
+        // Assert
+        assertEquals(2, page.size());
+        assertSame(second, page.get(0));
+        assertSame(third, page.get(1));
+    }
+
+    @Test
+    void testFindPageByUserId_SkipsOtherUsers()
+    {
+        // Arrange
+        var userId = 300000000L;
+        var first = accountRepository.save(new Account(userId, "USERPAGE1", BigDecimal.ONE, Account.AccountType.SAVINGS));
+        accountRepository.save(new Account(userId + 1, "OTHER", BigDecimal.ONE, Account.AccountType.SAVINGS));
+        var second = accountRepository.save(new Account(userId, "USERPAGE2", BigDecimal.ONE, Account.AccountType.CHECKING));
+        var third = accountRepository.save(new Account(userId, "USERPAGE3", BigDecimal.ONE, Account.AccountType.CHECKING));
+
+        // Act
+        var firstPage = accountRepository.findPageByUserId(userId, null, 2);
+        var secondPage = accountRepository.findPageByUserId(userId, second.getId(), 2);
+
+        // Assert
+        assertEquals(2, firstPage.size());
+        assertSame(first, firstPage.get(0));
+        assertSame(second, firstPage.get(1));
+        assertEquals(1, secondPage.size());
+        assertSame(third, secondPage.get(0));
+    }
+
     @Test
     void testFindByAccountNumber_AccountExists()
     {
@@ -0,0 +1,93 @@
+package com.bank.db.journal;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.bank.business.entities.Account;
+import com.bank.db.inmemory.InMemoryAccountRepository;
+
+/**
+ * Durable account saves through {@link JournaledAccountRepository} from 1, 8 and 64 concurrent writers, with group
+ * commit windows of 0, 200 and 1000 µs. Each writer saves its own account in a loop, waiting for every save to be
+ * synced, for a fixed time.
+ * <p>
+ * Saves/s is throughput, syncs is the number of {@code force} calls and saves/sync the average group size; without
+ * group commit saves/sync would be 1 and throughput would be capped at one writer's rate.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes com.bank.db.journal.WriteAheadLogBenchmark [seconds]}
+ */
+public class WriteAheadLogBenchmark
+{
+    public static void main(String[] args) throws Exception
+    {
+        var seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        var directory = Files.createTempDirectory("wal-benchmark");
+        for (var windowMicros : new long[] { 0, 200, 1000 })
+        {
+            for (var writers : new int[] { 1, 8, 64 })
+            {
+                var path = directory.resolve("storage-" + windowMicros + "-" + writers + ".log");
+                try (var log = new WriteAheadLog(path, windowMicros, record -> {
+                }))
+                {
+                    run(log, windowMicros, writers, seconds);
+                }
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static void run(WriteAheadLog log, long windowMicros, int writers, int seconds) throws InterruptedException
+    {
+        var repository = new JournaledAccountRepository(InMemoryAccountRepository.getInstance(), log);
+        var accounts = new ArrayList<Account>();
+        for (var i = 0; i < writers; i++)
+        {
+            accounts.add(repository.save(new Account(1L, new BigDecimal("100.00"), Account.AccountType.CHECKING)));
+        }
+        var recordsBefore = log.records();
+        var forcesBefore = log.forces();
+        var saves = new AtomicLong();
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(writers);
+        var end = new AtomicLong();
+        for (var account : accounts)
+        {
+            Thread.ofPlatform().start(() -> {
+                try
+                {
+                    start.await();
+                } catch (InterruptedException interruptedException)
+                {
+                    return;
+                }
+                long local = 0;
+                while (System.nanoTime() - end.get() < 0)
+                {
+                    account.addMinorUnits(1);
+                    repository.save(account);
+                    local++;
+                }
+                saves.addAndGet(local);
+                done.countDown();
+            });
+        }
+        var wallStart = System.nanoTime();
+        end.set(wallStart + TimeUnit.SECONDS.toNanos(seconds));
+        start.countDown();
+        done.await();
+        var wallNanos = System.nanoTime() - wallStart;
+        var forces = log.forces() - forcesBefore;
+        if (log.records() - recordsBefore != saves.get())
+        {
+            throw new IllegalStateException("Acknowledged " + saves.get() + " saves but wrote " + (log.records() - recordsBefore));
+        }
+        System.out.printf("window %4d us, %2d writers: %8.0f saves/s, %7d syncs, %6.1f saves/sync, %7.1f us/save%n", windowMicros, writers,
+                saves.get() * 1e9 / wallNanos, forces, (double) saves.get() / Math.max(1, forces), wallNanos / 1e3 * writers / Math.max(1, saves.get()));
+    }
+}
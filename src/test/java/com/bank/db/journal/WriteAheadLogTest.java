@@ -0,0 +1,168 @@
+package com.bank.db.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import com.bank.business.entities.Account;
+import com.bank.business.entities.User;
+import com.bank.business.repositories.AccountRepository;
+import com.bank.business.repositories.UserRepository;
+import com.bank.business.services.AccountService;
+
+class WriteAheadLogTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void testOpen_RecoversJournaledChanges() throws Exception
+    {
+        var path = directory.resolve("storage.log");
+        var users = mock(UserRepository.class);
+        var accounts = mock(AccountRepository.class);
+        when(users.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(accounts.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        var storage = JournaledStorage.open(path, 0, users, accounts);
+        storage.users().save(new User("alice", "alice@example.com", "hash", 7L, true, true));
+        var account = new Account(7L, "ACC000001", new BigDecimal("12.34"), Account.AccountType.SAVINGS);
+        account.setId(1L);
+        storage.accounts().save(account);
+        account.addMinorUnits(100);
+        storage.accounts().save(account);
+        storage.accounts().deleteById(2L);
+        storage.log().close();
+
+        var recoveredUsers = mock(UserRepository.class);
+        var recoveredAccounts = mock(AccountRepository.class);
+        JournaledStorage.open(path, 0, recoveredUsers, recoveredAccounts).log().close();
+
+        var user = ArgumentCaptor.forClass(User.class);
+        verify(recoveredUsers).save(user.capture());
+        assertEquals(7L, user.getValue().getId());
+        assertEquals("alice", user.getValue().getUsername());
+        assertEquals("hash", user.getValue().getPassword());
+        assertTrue(user.getValue().isAdmin());
+        var saved = ArgumentCaptor.forClass(Account.class);
+        verify(recoveredAccounts, times(2)).save(saved.capture());
+        var last = saved.getAllValues().get(1);
+        assertEquals(1L, last.getId());
+        assertEquals(7L, last.getUserId());
+        assertEquals("ACC000001", last.getAccountNumber());
+        assertEquals(Account.AccountType.SAVINGS, last.getType());
+        assertEquals(1334, last.balanceMinorUnits());
+        verify(recoveredAccounts).deleteById(2L);
+    }
+
+    @Test
+    void testRecovery_CutAnywhereAfterTransferConservesTotal() throws Exception
+    {
+        var path = directory.resolve("transfer.log");
+        var accounts = mock(AccountRepository.class);
+        when(accounts.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        var storage = JournaledStorage.open(path, 0, mock(UserRepository.class), accounts);
+        var from = new Account(7L, "ACC000001", new BigDecimal("100.00"), Account.AccountType.CHECKING);
+        from.setId(1L);
+        var to = new Account(7L, "ACC000002", new BigDecimal("25.00"), Account.AccountType.SAVINGS);
+        to.setId(2L);
+        storage.accounts().save(from);
+        storage.accounts().save(to);
+        when(accounts.findById(1L)).thenReturn(from);
+        when(accounts.findById(2L)).thenReturn(to);
+        var beforeTransfer = Files.size(path);
+        assertTrue(new AccountService(storage.accounts()).transferAmount(1L, 2L, new BigDecimal("40.00")));
+        storage.log().close();
+        var bytes = Files.readAllBytes(path);
+
+        // Every length the file could have had when the process died during the transfer
+        for (var cut = (int) beforeTransfer; cut <= bytes.length; cut++)
+        {
+            var crashed = directory.resolve("crashed-" + cut + ".log");
+            Files.write(crashed, Arrays.copyOf(bytes, cut));
+            var recovered = mock(AccountRepository.class);
+            JournaledStorage.open(crashed, 0, mock(UserRepository.class), recovered).log().close();
+
+            var saved = ArgumentCaptor.forClass(Account.class);
+            verify(recovered, atLeastOnce()).save(saved.capture());
+            var balances = new HashMap<Long, Long>();
+            saved.getAllValues().forEach(account -> balances.put(account.getId(), account.balanceMinorUnits()));
+            assertEquals(12_500L, balances.get(1L) + balances.get(2L), "cut at " + cut);
+            if (cut == bytes.length)
+            {
+                assertEquals(6_000L, balances.get(1L));
+            }
+        }
+    }
+
+    @Test
+    void testOpen_CutsOffATornTail() throws Exception
+    {
+        var path = directory.resolve("torn.log");
+        try (var log = new WriteAheadLog(path, 0, record -> {
+        }))
+        {
+            log.append(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+            log.append(ByteBuffer.wrap(new byte[] { 4, 5 }));
+        }
+        var validLength = Files.size(path);
+        // A record header promising more bytes than were written before the crash
+        Files.write(path, new byte[] { 0, 0, 0, 9, 1, 2 }, StandardOpenOption.APPEND);
+
+        var replayed = new ArrayList<Integer>();
+        try (var log = new WriteAheadLog(path, 0, record -> replayed.add(record.remaining())))
+        {
+            assertEquals(validLength, Files.size(path));
+            log.append(ByteBuffer.wrap(new byte[] { 6 }));
+        }
+        assertEquals(List.of(3, 2), replayed);
+
+        var afterwards = new ArrayList<Integer>();
+        new WriteAheadLog(path, 0, record -> afterwards.add(record.remaining())).close();
+        assertEquals(List.of(3, 2, 1), afterwards);
+    }
+
+    @Test
+    void testAppend_ConcurrentAppendsShareSyncs() throws Exception
+    {
+        try (var log = new WriteAheadLog(directory.resolve("group.log"), 2_000, record -> {
+        }))
+        {
+            var threads = new ArrayList<Thread>();
+            for (var t = 0; t < 16; t++)
+            {
+                threads.add(Thread.ofPlatform().start(() -> {
+                    for (var i = 0; i < 20; i++)
+                    {
+                        log.append(ByteBuffer.wrap(new byte[16]));
+                    }
+                }));
+            }
+            for (var thread : threads)
+            {
+                thread.join();
+            }
+
+            assertEquals(320, log.records());
+            assertTrue(log.forces() < log.records() / 2, () -> log.forces() + " syncs for " + log.records() + " records");
+        }
+    }
+}
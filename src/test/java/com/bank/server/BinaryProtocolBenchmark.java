@@ -0,0 +1,145 @@
+package com.bank.server;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import com.bank.business.entities.Account;
+import com.bank.business.services.AccountService;
+import com.bank.business.services.UserService;
+import com.bank.client.BinaryBankClient;
+import com.bank.db.inmemory.InMemoryAccountRepository;
+import com.bank.db.inmemory.InMemoryUserRepository;
+import com.bank.server.binary.BinaryServer;
+import com.bank.server.config.Configuration;
+import com.bank.server.handlers.AccountHandler;
+import com.bank.server.routing.Router;
+import com.bank.server.routing.RouterHandler;
+
+/**
+ * Deposits per second over HTTP ({@code POST /accounts/{id}/deposit}, JDK engine) against the binary protocol,
+ * with the same number of closed-loop clients as the stress test, all depositing into one account.
+ * <p>
+ * "binary" shares one {@link BinaryBankClient} connection between the clients and waits for each reply like the
+ * HTTP clients do; "binary pipelined" additionally keeps {@code window} requests in flight per client.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes com.bank.server.BinaryProtocolBenchmark [clients] [requestsPerClient] [window]}
+ */
+public class BinaryProtocolBenchmark
+{
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    public static void main(String[] args) throws Exception
+    {
+        var clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        var requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        var window = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+
+        var userService = new UserService(InMemoryUserRepository.getInstance());
+        var accountService = new AccountService(InMemoryAccountRepository.getInstance());
+        var accountId = accountService.createAccount(1L, new BigDecimal("100.00"), Account.AccountType.SAVINGS).getId();
+
+        var executor = Executors.newFixedThreadPool(8);
+        var engine = ServerEngine.create(List.of(0), new Configuration.ServerConfig());
+        engine.setExecutor(executor);
+        var routes = Router.builder();
+        new AccountHandler(accountService, userService).registerRoutes(routes);
+        engine.createContext("/", new RouterHandler(routes.build()), List.of());
+        engine.start();
+
+        var binaryServer = new BinaryServer(0, 128, accountService);
+        binaryServer.start();
+
+        var deposit = HttpRequest.newBuilder(URI.create("http://localhost:" + engine.getAddresses().get(0).getPort() + "/accounts/" + accountId + "/deposit"))
+                .header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString("{\"amount\": 1.00}")).build();
+
+        try (var binaryClient = new BinaryBankClient("localhost", binaryServer.getPort()))
+        {
+            HttpLoadGenerator.run(deposit, clients, requestsPerClient / 4);
+            runBinary(binaryClient, accountId, clients, requestsPerClient / 4, 1);
+
+            var http = HttpLoadGenerator.run(deposit, clients, requestsPerClient);
+            var binary = runBinary(binaryClient, accountId, clients, requestsPerClient, 1);
+            var pipelined = runBinary(binaryClient, accountId, clients, requestsPerClient, window);
+
+            HttpLoadGenerator.report("http", "deposit", http);
+            HttpLoadGenerator.report("binary", "deposit", binary);
+            HttpLoadGenerator.report("binary", "deposit (pipelined " + window + ")", pipelined);
+            System.out.printf("binary / http: %.1fx, pipelined / http: %.1fx%n", (double) http[0] / binary[0], (double) http[0] / pipelined[0]);
+        } finally
+        {
+            binaryServer.stop();
+            engine.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return wall time in nanoseconds followed by every request latency, as {@link HttpLoadGenerator#run}
+     */
+    private static long[] runBinary(BinaryBankClient binaryClient, long accountId, int clients, int requestsPerClient, int window) throws Exception
+    {
+        var latencies = new long[clients * requestsPerClient + 1];
+        var ready = new CountDownLatch(clients);
+        var done = new CountDownLatch(clients);
+        var start = new CountDownLatch(1);
+
+        for (var client = 0; client < clients; client++)
+        {
+            var offset = 1 + client * requestsPerClient;
+            Thread.ofPlatform().start(() -> {
+                ready.countDown();
+                try
+                {
+                    start.await();
+                    var inFlight = new ArrayDeque<CompletableFuture<BinaryBankClient.Reply>>(window);
+                    var sentAt = new long[requestsPerClient];
+                    var completed = 0;
+                    for (var i = 0; i < requestsPerClient; i++)
+                    {
+                        if (inFlight.size() == window)
+                        {
+                            expectOk(inFlight.poll().join());
+                            latencies[offset + completed] = System.nanoTime() - sentAt[completed];
+                            completed++;
+                        }
+                        sentAt[i] = System.nanoTime();
+                        inFlight.add(binaryClient.deposit(accountId, AMOUNT));
+                    }
+                    while (!inFlight.isEmpty())
+                    {
+                        expectOk(inFlight.poll().join());
+                        latencies[offset + completed] = System.nanoTime() - sentAt[completed];
+                        completed++;
+                    }
+                } catch (Exception clientException)
+                {
+                    clientException.printStackTrace();
+                } finally
+                {
+                    done.countDown();
+                }
+            });
+        }
+
+        ready.await();
+        var begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        latencies[0] = System.nanoTime() - begin;
+        return latencies;
+    }
+
+    private static void expectOk(BinaryBankClient.Reply reply)
+    {
+        if (!reply.ok())
+        {
+            throw new IllegalStateException("Deposit failed with status " + reply.status());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.bank.server;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import com.bank.business.entities.Account;
+import com.bank.business.services.AccountService;
+import com.bank.business.services.UserService;
+import com.bank.db.inmemory.InMemoryAccountRepository;
+import com.bank.db.inmemory.InMemoryUserRepository;
+import com.bank.server.config.Configuration;
+import com.bank.server.handlers.AccountHandler;
+import com.bank.server.handlers.PingHandler;
+import com.bank.server.routing.Router;
+import com.bank.server.routing.RouterHandler;
+
+/**
+ * Compares the JDK and NIO engines on PONG and {@code GET /accounts/{id}} with the same handlers and executor.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes com.bank.server.EngineBenchmark [clients] [requestsPerClient]}
+ */
+public class EngineBenchmark
+{
+    public static void main(String[] args) throws Exception
+    {
+        var clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        var requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        var userService = new UserService(InMemoryUserRepository.getInstance());
+        var accountService = new AccountService(InMemoryAccountRepository.getInstance());
+        var account = accountService.createAccount(1L, new BigDecimal("100.00"), Account.AccountType.SAVINGS);
+
+        for (var engineName : new String[] { "jdk", "nio" })
+        {
+            var serverConfig = new Configuration.ServerConfig();
+            serverConfig.setEngine(engineName);
+            var executor = Executors.newFixedThreadPool(8);
+            var engine = ServerEngine.create(List.of(0), serverConfig);
+            engine.setExecutor(executor);
+            var routes = Router.builder();
+            new PingHandler().registerRoutes(routes);
+            new AccountHandler(accountService, userService).registerRoutes(routes);
+            engine.createContext("/", new RouterHandler(routes.build()), List.of());
+            engine.start();
+
+            var base = "http://localhost:" + engine.getAddresses().get(0).getPort();
+            var ping = HttpRequest.newBuilder(URI.create(base + "/")).GET().build();
+            var getAccount = HttpRequest.newBuilder(URI.create(base + "/accounts/" + account.getId())).GET().build();
+
+            HttpLoadGenerator.run(ping, clients, requestsPerClient / 4);
+            HttpLoadGenerator.report(engineName, "GET / (PONG)", HttpLoadGenerator.run(ping, clients, requestsPerClient));
+            HttpLoadGenerator.report(engineName, "GET /accounts/{id}", HttpLoadGenerator.run(getAccount, clients, requestsPerClient));
+
+            engine.stop(0);
+            executor.shutdown();
+        }
+    }
+}
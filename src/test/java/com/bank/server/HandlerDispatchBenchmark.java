@@ -0,0 +1,87 @@
+package com.bank.server;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.bank.business.entities.Account;
+import com.bank.business.services.AccountService;
+import com.bank.business.services.UserService;
+import com.bank.db.inmemory.InMemoryAccountRepository;
+import com.bank.db.inmemory.InMemoryUserRepository;
+import com.bank.server.handlers.AccountHandler;
+import com.bank.server.handlers.PingHandler;
+import com.bank.server.routing.Router;
+import com.bank.server.routing.RouterHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Before/after comparison of handler dispatch.
+ * <p>
+ * "double-hop" offloads every route to the server's own pool ({@link com.bank.server.routing.Route#offload}), which
+ * is what each handler used to do inside {@code handle()}. "direct" runs the handler on the thread the server handed it.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes com.bank.server.HandlerDispatchBenchmark [clients] [requestsPerClient]}
+ */
+public class HandlerDispatchBenchmark
+{
+    private static final int POOL_SIZE = 8;
+
+    public static void main(String[] args) throws Exception
+    {
+        // Without TCP_NODELAY the JDK server's separate header/body writes hit the 40ms delayed-ACK stall
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        var clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        var requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        var userService = new UserService(InMemoryUserRepository.getInstance());
+        var accountService = new AccountService(InMemoryAccountRepository.getInstance());
+        var from = accountService.createAccount(1L, new BigDecimal("1000000.00"), Account.AccountType.SAVINGS);
+        var to = accountService.createAccount(2L, new BigDecimal("1000000.00"), Account.AccountType.SAVINGS);
+
+        for (var doubleHop : new boolean[] { true, false })
+        {
+            var executor = Executors.newFixedThreadPool(POOL_SIZE);
+            var server = startServer(executor, doubleHop, userService, accountService);
+            var base = "http://localhost:" + server.getAddress().getPort();
+            var label = doubleHop ? "double-hop" : "direct";
+
+            var ping = HttpRequest.newBuilder(URI.create(base + "/")).GET().build();
+            var getAccount = HttpRequest.newBuilder(URI.create(base + "/accounts/" + from.getId())).GET().build();
+            var transfer = HttpRequest.newBuilder(URI.create(base + "/accounts/" + from.getId() + "/transfer"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"toAccountId\": " + to.getId() + ", \"amount\": \"0.01\"}"))
+                    .build();
+
+            // Warm up both the JIT and the connection pool before measuring
+            HttpLoadGenerator.run(ping, clients, requestsPerClient / 4);
+            HttpLoadGenerator.report(label, "GET /", HttpLoadGenerator.run(ping, clients, requestsPerClient));
+            HttpLoadGenerator.report(label, "GET /accounts/{id}", HttpLoadGenerator.run(getAccount, clients, requestsPerClient));
+            HttpLoadGenerator.report(label, "POST /accounts/{id}/transfer", HttpLoadGenerator.run(transfer, clients, requestsPerClient));
+
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    private static HttpServer startServer(ExecutorService executor, boolean doubleHop, UserService userService, AccountService accountService)
+            throws Exception
+    {
+        var server = HttpServer.create(new InetSocketAddress(0), 1024);
+        server.setExecutor(executor);
+        var routes = Router.builder();
+        new PingHandler().registerRoutes(routes);
+        new AccountHandler(accountService, userService).registerRoutes(routes);
+        var router = routes.build();
+        if (doubleHop)
+        {
+            router.routes().forEach(route -> route.offload(executor));
+        }
+        server.createContext("/", new RouterHandler(router));
+        server.start();
+        return server;
+    }
+}
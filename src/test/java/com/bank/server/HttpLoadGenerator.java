@@ -0,0 +1,70 @@
+package com.bank.server;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Closed-loop HTTP load shared by the server benchmarks: each client thread sends its next request as soon as the
+ * previous response arrives.
+ */
+final class HttpLoadGenerator
+{
+    private HttpLoadGenerator()
+    {
+    }
+
+    /**
+     * @return wall time in nanoseconds followed by every request latency
+     */
+    static long[] run(HttpRequest request, int clients, int requestsPerClient) throws Exception
+    {
+        var latencies = new long[clients * requestsPerClient + 1];
+        var httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        var ready = new CountDownLatch(clients);
+        var done = new CountDownLatch(clients);
+        var start = new CountDownLatch(1);
+
+        for (var client = 0; client < clients; client++)
+        {
+            var offset = 1 + client * requestsPerClient;
+            Thread.ofPlatform().start(() -> {
+                ready.countDown();
+                try
+                {
+                    start.await();
+                    for (var i = 0; i < requestsPerClient; i++)
+                    {
+                        var begin = System.nanoTime();
+                        httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        latencies[offset + i] = System.nanoTime() - begin;
+                    }
+                } catch (Exception clientException)
+                {
+                    clientException.printStackTrace();
+                } finally
+                {
+                    done.countDown();
+                }
+            });
+        }
+
+        ready.await();
+        var begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        latencies[0] = System.nanoTime() - begin;
+        return latencies;
+    }
+
+    static void report(String label, String route, long[] result)
+    {
+        var latencies = Arrays.copyOfRange(result, 1, result.length);
+        Arrays.sort(latencies);
+        var seconds = result[0] / 1_000_000_000.0;
+        System.out.printf("%-10s %-30s %10.0f req/s  p50 %7.1f us  p99 %7.1f us%n", label, route, latencies.length / seconds,
+                latencies[latencies.length / 2] / 1_000.0, latencies[(int) (latencies.length * 0.99)] / 1_000.0);
+    }
+}
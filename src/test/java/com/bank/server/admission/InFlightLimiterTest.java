@@ -0,0 +1,37 @@
+package com.bank.server.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class InFlightLimiterTest
+{
+    @Test
+    void testTryAcquire_RejectsAboveLimitUntilReleased()
+    {
+        var limiter = new InFlightLimiter(2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.rejected());
+
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.inFlight());
+    }
+
+    @Test
+    void testTryAcquire_ZeroLimitMeansUnlimited()
+    {
+        var limiter = new InFlightLimiter(0);
+
+        for (var i = 0; i < 1_000; i++)
+        {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertEquals(0, limiter.rejected());
+    }
+}
@@ -0,0 +1,69 @@
+package com.bank.server.binary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+class BinaryProtocolTest
+{
+    @Test
+    void testDecimal_RoundTripsScaleAndValue()
+    {
+        var buffer = ByteBuffer.allocate(3 * BinaryProtocol.DECIMAL_LENGTH);
+        BinaryProtocol.putDecimal(buffer, new BigDecimal("1234.50"));
+        BinaryProtocol.putDecimal(buffer, new BigDecimal("-0.001"));
+        BinaryProtocol.putDecimal(buffer, new BigDecimal("1E+3"));
+        buffer.flip();
+
+        assertEquals(new BigDecimal("1234.50"), BinaryProtocol.getDecimal(buffer));
+        assertEquals(new BigDecimal("-0.001"), BinaryProtocol.getDecimal(buffer));
+        assertEquals(new BigDecimal("1E+3"), BinaryProtocol.getDecimal(buffer));
+    }
+
+    @Test
+    void testDecimal_RejectsValuesBeyondALong()
+    {
+        var buffer = ByteBuffer.allocate(BinaryProtocol.DECIMAL_LENGTH);
+        assertThrows(ArithmeticException.class, () -> BinaryProtocol.putDecimal(buffer, new BigDecimal("92233720368547758.080")));
+    }
+
+    @Test
+    void testGetAmount_NormalizesToCentsAndRejectsOthers()
+    {
+        assertEquals(new BigDecimal("10.00"), BinaryProtocol.getAmount(encode(new BigDecimal("10"))));
+        assertThrows(ArithmeticException.class, () -> BinaryProtocol.getAmount(encode(new BigDecimal("0.001"))));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.getAmount(encode(BigDecimal.ZERO)));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.getAmount(encode(BinaryProtocol.MAX_AMOUNT)));
+    }
+
+    @Test
+    void testGetAmountMinorUnits_ReadsAnyScaleWithoutDecimals()
+    {
+        assertEquals(1_000L, BinaryProtocol.getAmountMinorUnits(encode(new BigDecimal("10"))));
+        assertEquals(1_234L, BinaryProtocol.getAmountMinorUnits(encode(new BigDecimal("12.340"))));
+        assertEquals(100_000L, BinaryProtocol.getAmountMinorUnits(encode(new BigDecimal("1E+3"))));
+        assertThrows(ArithmeticException.class, () -> BinaryProtocol.getAmountMinorUnits(encode(new BigDecimal("0.001"))));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.getAmountMinorUnits(encode(new BigDecimal("-1"))));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.getAmountMinorUnits(encode(BinaryProtocol.MAX_AMOUNT)));
+    }
+
+    @Test
+    void testPutMinorUnits_WritesTheSameBytesAsTheDecimal()
+    {
+        var minorUnits = ByteBuffer.allocate(BinaryProtocol.DECIMAL_LENGTH);
+        BinaryProtocol.putMinorUnits(minorUnits, -123_456);
+
+        assertEquals(encode(new BigDecimal("-1234.56")), minorUnits.flip());
+    }
+
+    private static ByteBuffer encode(BigDecimal value)
+    {
+        var buffer = ByteBuffer.allocate(BinaryProtocol.DECIMAL_LENGTH);
+        BinaryProtocol.putDecimal(buffer, value);
+        return buffer.flip();
+    }
+}
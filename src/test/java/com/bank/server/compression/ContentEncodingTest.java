@@ -0,0 +1,32 @@
+package com.bank.server.compression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ContentEncodingTest
+{
+    @Test
+    void testNegotiate_NoHeaderMeansIdentity()
+    {
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(null));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(""));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("br, identity"));
+    }
+
+    @Test
+    void testNegotiate_PrefersGzipOnTie()
+    {
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("deflate, gzip"));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("*"));
+    }
+
+    @Test
+    void testNegotiate_HonoursQualityValues()
+    {
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0.5, deflate;q=0.9"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0, *"));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("gzip;q=0, deflate;q=0"));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("gzip;q=oops"));
+    }
+}
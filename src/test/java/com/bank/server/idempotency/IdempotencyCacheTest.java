@@ -0,0 +1,68 @@
+package com.bank.server.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class IdempotencyCacheTest
+{
+    private static final byte[] FINGERPRINT = { 1, 2, 3 };
+    private static final IdempotencyCache.StoredResponse OK = new IdempotencyCache.StoredResponse(200, "application/json", new byte[] { '{', '}' });
+
+    @Test
+    void testClaim_SecondRequestSharesTheFirstEntry()
+    {
+        var cache = new IdempotencyCache(10, 1_000);
+        var first = cache.claim("k", FINGERPRINT, 0);
+        var second = cache.claim("k", FINGERPRINT, 1);
+
+        assertTrue(first.owner());
+        assertFalse(second.owner());
+        assertSame(first.entry(), second.entry());
+
+        cache.complete(first.entry(), OK);
+        assertSame(OK, second.entry().response().join());
+    }
+
+    @Test
+    void testComplete_UnstoredOutcomeLetsARetryRunAgain()
+    {
+        var cache = new IdempotencyCache(10, 1_000);
+        var first = cache.claim("k", FINGERPRINT, 0);
+        cache.complete(first.entry(), null);
+
+        assertNull(first.entry().response().join());
+        assertTrue(cache.claim("k", FINGERPRINT, 1).owner());
+    }
+
+    @Test
+    void testClaim_ExpiresOnlyFinishedEntries()
+    {
+        var cache = new IdempotencyCache(10, 1_000);
+        var first = cache.claim("k", FINGERPRINT, 0);
+
+        assertFalse(cache.claim("k", FINGERPRINT, 5_000).owner());
+
+        cache.complete(first.entry(), OK);
+        assertFalse(cache.claim("k", FINGERPRINT, 999).owner());
+        assertTrue(cache.claim("k", FINGERPRINT, 1_000).owner());
+    }
+
+    @Test
+    void testClaim_EvictsOldestBeyondCapacity()
+    {
+        var cache = new IdempotencyCache(2, 1_000);
+        for (var key : new String[] { "a", "b", "c" })
+        {
+            cache.complete(cache.claim(key, FINGERPRINT, 0).entry(), OK);
+        }
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.claim("a", FINGERPRINT, 0).owner());
+        assertFalse(cache.claim("c", FINGERPRINT, 0).owner());
+    }
+}
@@ -0,0 +1,42 @@
+package com.bank.server.lifecycle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RequestTrackerTest
+{
+    @Test
+    void testAwaitIdle_ReturnsOnceTheLastRequestEnds()
+    {
+        var tracker = new RequestTracker();
+        tracker.begin();
+        Thread.ofVirtual().start(() -> {
+            try
+            {
+                Thread.sleep(50);
+            } catch (InterruptedException interruptedException)
+            {
+                Thread.currentThread().interrupt();
+            }
+            tracker.end();
+        });
+
+        assertTrue(tracker.awaitIdle(System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+        assertEquals(0, tracker.inFlight());
+    }
+
+    @Test
+    void testAwaitIdle_GivesUpAtTheDeadline()
+    {
+        var tracker = new RequestTracker();
+        tracker.begin();
+
+        assertFalse(tracker.awaitIdle(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(20)));
+        assertEquals(1, tracker.inFlight());
+    }
+}
@@ -0,0 +1,53 @@
+package com.bank.server.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest
+{
+    @Test
+    void testIndex_EveryValueFallsInTheBucketWhoseRangeHoldsIt()
+    {
+        for (var micros = 0L; micros < 1 << 20; micros++)
+        {
+            var index = LatencyHistogram.index(micros);
+            assertTrue(micros <= LatencyHistogram.highestMicros(index));
+            assertTrue(index == 0 || micros > LatencyHistogram.highestMicros(index - 1));
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index((1L << 30) - 1));
+    }
+
+    @Test
+    void testValueAtQuantile_IsWithinTheResolution()
+    {
+        var histogram = new LatencyHistogram();
+        for (var micros = 1; micros <= 10_000; micros++)
+        {
+            histogram.record(micros * 1_000L);
+        }
+
+        var snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.count());
+        assertEquals(50_005_000L, snapshot.sumMicros());
+        assertEquals(5_000, snapshot.valueAtQuantile(0.5), 5_000 / 16.0);
+        assertEquals(9_900, snapshot.valueAtQuantile(0.99), 9_900 / 16.0);
+        assertEquals(10_000, snapshot.valueAtQuantile(1.0), 10_000 / 16.0);
+    }
+
+    @Test
+    void testCountAtOrBelow_CountsOnlyWholeBuckets()
+    {
+        var histogram = new LatencyHistogram();
+        histogram.record(10_000);
+        histogram.record(1_000_000);
+        histogram.record(-5);
+
+        var snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.countAtOrBelow(0));
+        assertEquals(2, snapshot.countAtOrBelow(10));
+        assertEquals(2, snapshot.countAtOrBelow(999));
+        assertEquals(3, snapshot.countAtOrBelow(1_000_000));
+    }
+}
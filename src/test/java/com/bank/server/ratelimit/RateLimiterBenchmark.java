@@ -0,0 +1,96 @@
+package com.bank.server.ratelimit;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of {@link TokenBucketTable#tryAcquire(Object, long)} as the rate limiter sees it per request, from 1 to
+ * 16 threads hammering the same table.
+ * <p>
+ * "spread" draws keys from 1024 client addresses, as a busy server would; "hot key" sends every thread at the
+ * same bucket, the worst case for a single stripe. The table never denies here (huge capacity), so the numbers
+ * are the admission path. CPU ns/op is per-thread CPU time over operations, which includes lock hand-offs but not
+ * time spent descheduled.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes com.bank.server.ratelimit.RateLimiterBenchmark [opsPerThread]}
+ */
+public class RateLimiterBenchmark
+{
+    private static final int KEYS = 1024;
+
+    private static final AtomicLong sink = new AtomicLong();
+
+    public static void main(String[] args) throws Exception
+    {
+        var opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        var keys = clientAddresses();
+
+        for (var round = 0; round < 3; round++)
+        {
+            var last = round == 2;
+            for (var threads : new int[] { 1, 2, 4, 8, 16 })
+            {
+                run("spread", threads, opsPerThread, keys, false, last);
+                run("hot key", threads, opsPerThread, keys, true, last);
+            }
+        }
+        if (sink.get() == 42)
+        {
+            System.out.println();
+        }
+    }
+
+    private static void run(String name, int threads, int opsPerThread, Object[] keys, boolean hotKey, boolean print) throws InterruptedException
+    {
+        var table = new TokenBucketTable(Long.MAX_VALUE / 4, 1e12, 65_536);
+        var threadBean = ManagementFactory.getThreadMXBean();
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(threads);
+        var cpuNanos = new AtomicLong();
+        for (var t = 0; t < threads; t++)
+        {
+            var offset = t * 131;
+            Thread.ofPlatform().start(() -> {
+                try
+                {
+                    start.await();
+                } catch (InterruptedException interruptedException)
+                {
+                    return;
+                }
+                var cpuBefore = threadBean.getCurrentThreadCpuTime();
+                long local = 0;
+                for (var i = 0; i < opsPerThread; i++)
+                {
+                    var key = hotKey ? keys[0] : keys[(offset + i) & (KEYS - 1)];
+                    local += table.tryAcquire(key, System.nanoTime());
+                }
+                cpuNanos.addAndGet(threadBean.getCurrentThreadCpuTime() - cpuBefore);
+                sink.addAndGet(local);
+                done.countDown();
+            });
+        }
+        var wallStart = System.nanoTime();
+        start.countDown();
+        done.await();
+        var wallNanos = System.nanoTime() - wallStart;
+        var totalOps = (long) threads * opsPerThread;
+        if (print)
+        {
+            System.out.printf("%-8s %2d threads: %7.1f CPU ns/op, %6.2f M ops/s%n", name, threads, (double) cpuNanos.get() / totalOps, totalOps * 1_000.0 / wallNanos);
+        }
+    }
+
+    private static Object[] clientAddresses() throws UnknownHostException
+    {
+        var keys = new Object[KEYS];
+        for (var i = 0; i < KEYS; i++)
+        {
+            keys[i] = InetAddress.getByAddress(new byte[] { 10, 0, (byte) (i >> 8), (byte) i });
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,49 @@
+package com.bank.server.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTableTest
+{
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testTryAcquire_AllowsBurstThenDenies()
+    {
+        var table = new TokenBucketTable(3, 1, 1_000);
+
+        assertEquals(2, table.tryAcquire("client", 0));
+        assertEquals(1, table.tryAcquire("client", 0));
+        assertEquals(0, table.tryAcquire("client", 0));
+
+        var denied = table.tryAcquire("client", 0);
+        assertTrue(denied < 0);
+        assertEquals(SECOND, -denied);
+    }
+
+    @Test
+    void testTryAcquire_RefillsOverTimeUpToCapacity()
+    {
+        var table = new TokenBucketTable(2, 4, 1_000);
+        table.tryAcquire("client", 0);
+        table.tryAcquire("client", 0);
+
+        assertTrue(table.tryAcquire("client", SECOND / 8) < 0);
+        assertEquals(0, table.tryAcquire("client", SECOND / 4));
+        assertEquals(1, table.tryAcquire("client", 10 * SECOND));
+    }
+
+    @Test
+    void testTryAcquire_KeysHaveSeparateBuckets()
+    {
+        var table = new TokenBucketTable(1, 1, 1_000);
+
+        assertEquals(0, table.tryAcquire("a", 0));
+        assertTrue(table.tryAcquire("a", 0) < 0);
+        assertEquals(0, table.tryAcquire("b", 0));
+    }
+}
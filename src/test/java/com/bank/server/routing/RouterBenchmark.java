@@ -0,0 +1,132 @@
+package com.bank.server.routing;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Route-matching cost of the old handler if/else chains against the {@link Router} trie, without any network in
+ * the way.
+ * <p>
+ * "if-else" reproduces what {@code AccountHandler} did per request: up to seven {@code equals}/{@code startsWith}/
+ * {@code endsWith} checks followed by {@code split("/")} and {@code Long.parseLong}. "trie" is
+ * {@link Router#match(String, String)} followed by {@link RouteMatch#getLong(String)}.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes com.bank.server.routing.RouterBenchmark [iterations]}
+ */
+public class RouterBenchmark
+{
+    private static final String[][] REQUESTS = {
+            { "GET", "/accounts/12345", "accountId" },
+            { "POST", "/accounts/12345/deposit", "accountId" },
+            { "POST", "/accounts/12345/withdraw", "accountId" },
+            { "POST", "/accounts/12345/transfer", "accountId" },
+            { "GET", "/accounts", null },
+            { "GET", "/accounts-all", null },
+            { "POST", "/accounts", null },
+            { "GET", "/users/678", "userId" },
+    };
+
+    private static long sink;
+
+    public static void main(String[] args)
+    {
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        RouteHandler handler = (exchange, match) -> {
+        };
+        var routes = Router.builder();
+        routes.post("/accounts", handler);
+        routes.get("/accounts", handler);
+        routes.get("/accounts-all", handler);
+        routes.get("/accounts/{accountId}", handler);
+        routes.post("/accounts/{accountId}/deposit", handler);
+        routes.post("/accounts/{accountId}/withdraw", handler);
+        routes.post("/accounts/{accountId}/transfer", handler);
+        routes.post("/users", handler);
+        routes.post("/login", handler);
+        routes.get("/users/{userId}", handler);
+        routes.get("/admin/users", handler);
+        var router = routes.build();
+
+        for (var round = 0; round < 5; round++)
+        {
+            var last = round == 4;
+            var before = allocatedBytes();
+            var start = System.nanoTime();
+            for (var i = 0; i < iterations; i++)
+            {
+                sink += legacyRoute();
+            }
+            report("if-else", iterations, last, start, before);
+
+            before = allocatedBytes();
+            start = System.nanoTime();
+            for (var i = 0; i < iterations; i++)
+            {
+                sink += trieRoute(router);
+            }
+            report("trie", iterations, last, start, before);
+        }
+        if (sink == 42)
+        {
+            System.out.println();
+        }
+    }
+
+    private static int cursor;
+
+    private static long legacyRoute()
+    {
+        var request = REQUESTS[cursor++ & 7];
+        var method = request[0];
+        var path = request[1];
+        if ("POST".equals(method) && "/accounts".equals(path))
+        {
+            return 1;
+        } else if ("GET".equals(method) && path.startsWith("/accounts/"))
+        {
+            return Long.parseLong(path.split("/")[2]);
+        } else if ("GET".equals(method) && "/accounts-all".equals(path))
+        {
+            return 3;
+        } else if ("GET".equals(method) && "/accounts".equals(path))
+        {
+            return 4;
+        } else if ("POST".equals(method) && path.startsWith("/accounts/") && path.endsWith("/deposit"))
+        {
+            return Long.parseLong(path.split("/")[2]);
+        } else if ("POST".equals(method) && path.startsWith("/accounts/") && path.endsWith("/withdraw"))
+        {
+            return Long.parseLong(path.split("/")[2]);
+        } else if ("POST".equals(method) && path.startsWith("/accounts/") && path.endsWith("/transfer"))
+        {
+            return Long.parseLong(path.split("/")[2]);
+        } else if ("GET".equals(method) && path.startsWith("/users/"))
+        {
+            return Long.parseLong(path.split("/")[2]);
+        }
+        return -1;
+    }
+
+    private static long trieRoute(Router router)
+    {
+        var request = REQUESTS[cursor++ & 7];
+        var match = router.match(request[0], request[1]);
+        return request[2] == null ? match.route().template().length() : match.getLong(request[2]);
+    }
+
+    private static long allocatedBytes()
+    {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    private static void report(String label, int iterations, boolean last, long startNanos, long bytesBefore)
+    {
+        var elapsed = System.nanoTime() - startNanos;
+        var bytes = allocatedBytes() - bytesBefore;
+        if (last)
+        {
+            System.out.printf("%-8s %8.1f ns/op %8.1f bytes/op%n", label, (double) elapsed / iterations, (double) bytes / iterations);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bank.server.routing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouterTest
+{
+    private static final RouteHandler NOOP = (exchange, match) -> {
+    };
+
+    private Router accountRoutes()
+    {
+        var routes = Router.builder();
+        routes.get("/", NOOP);
+        routes.post("/accounts", NOOP);
+        routes.get("/accounts", NOOP);
+        routes.get("/accounts-all", NOOP);
+        routes.get("/accounts/{accountId}", NOOP);
+        routes.post("/accounts/{accountId}/deposit", NOOP);
+        routes.post("/accounts/{accountId}/withdraw", NOOP);
+        routes.post("/accounts/{accountId}/transfer", NOOP);
+        return routes.build();
+    }
+
+    @Test
+    public void testMatchesLiteralAndParameterRoutes()
+    {
+        var router = accountRoutes();
+
+        assertEquals("/", router.match("GET", "/").route().template());
+        assertEquals("/accounts", router.match("POST", "/accounts").route().template());
+        assertEquals("/accounts-all", router.match("GET", "/accounts-all").route().template());
+
+        var match = router.match("GET", "/accounts/42");
+        assertEquals("/accounts/{accountId}", match.route().template());
+        assertEquals(42L, match.getLong("accountId"));
+    }
+
+    @Test
+    public void testSubResourcesAreNotShadowedByParameterRoute()
+    {
+        var router = accountRoutes();
+
+        var deposit = router.match("POST", "/accounts/7/deposit");
+        assertEquals("/accounts/{accountId}/deposit", deposit.route().template());
+        assertEquals(7L, deposit.getLong("accountId"));
+
+        assertEquals("/accounts/{accountId}/transfer", router.match("POST", "/accounts/7/transfer").route().template());
+        assertNull(router.match("GET", "/accounts/7/deposit"));
+    }
+
+    @Test
+    public void testUnknownPathsAndMethodsDoNotMatch()
+    {
+        var router = accountRoutes();
+
+        assertNull(router.match("GET", "/accounts/"));
+        assertNull(router.match("GET", "/accounts/7/"));
+        assertNull(router.match("GET", "/unknown"));
+        assertNull(router.match("DELETE", "/accounts/7"));
+        assertNull(router.match("POST", "/accounts/7/refund"));
+    }
+
+    @Test
+    public void testInvalidNumericParameterThrows()
+    {
+        var router = accountRoutes();
+
+        assertThrows(NumberFormatException.class, () -> router.match("GET", "/accounts/abc").getLong("accountId"));
+        assertThrows(NumberFormatException.class, () -> router.match("GET", "/accounts/99999999999999999999").getLong("accountId"));
+        assertEquals(Long.MAX_VALUE, router.match("GET", "/accounts/" + Long.MAX_VALUE).getLong("accountId"));
+    }
+
+    @Test
+    public void testDuplicateRouteIsRejected()
+    {
+        var routes = Router.builder();
+        routes.get("/accounts/{accountId}", NOOP);
+
+        assertThrows(IllegalStateException.class, () -> routes.get("/accounts/{id}", NOOP));
+    }
+}
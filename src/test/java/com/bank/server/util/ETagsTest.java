@@ -0,0 +1,33 @@
+package com.bank.server.util;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ETagsTest
+{
+    @Test
+    void testOf_DiffersByEntityAndVersion()
+    {
+        assertNotEquals(ETags.of(1, 2), ETags.of(1, 3));
+        assertNotEquals(ETags.of(12, 3), ETags.of(1, 23));
+    }
+
+    @Test
+    void testMatches_WeakComparisonOverAList()
+    {
+        var etag = ETags.of(7, 4);
+        var strongForm = etag.substring(2);
+
+        assertTrue(ETags.matches(etag, etag));
+        assertTrue(ETags.matches(strongForm, etag));
+        assertTrue(ETags.matches("\"other\", " + etag + " ", etag));
+        assertTrue(ETags.matches("*", etag));
+        assertFalse(ETags.matches(null, etag));
+        assertFalse(ETags.matches("", etag));
+        assertFalse(ETags.matches(ETags.of(7, 3), etag));
+        assertFalse(ETags.matches(etag + "x", etag));
+    }
+}